@@ -0,0 +1,184 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import com.amazonaws.lambda.common.TrainingDataCompression;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazonaws.lambda.demandpublishing.DemandRecord.LocalDateTimeConverter.FORECAST_DATE_TIME_FORMATTER;
+
+/**
+ * Compares {@link DemandTimestamps} with the {@link java.time.format.DateTimeFormatter} path it replaced in
+ * {@link DemandRecord}, on the rows of the bundled raw_demand_requests.csv repeated up to the number of records.
+ * The csv rows are written through the {@link DemandFileWriter} of the publishing, either as the strings of the
+ * formatter or straight from the columns of the {@link DemandBatch}es, into an S3 client which discards the parts.
+ *
+ * Run with: gradle jmh, and add the gc profiler (-prof gc) to compare the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DemandTimestampsBenchmark {
+
+    private static final String RAW_DEMAND_REQUESTS_FILE_PATH = "/raw_demand_requests.csv";
+
+    @Param({"1000000"})
+    private int numberOfRecords;
+
+    private String[] timestamps;
+    private DemandRecord[] records;
+    private List<DemandBatch> batches;
+
+    @Setup
+    public void setup() throws IOException {
+        List<String> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                getClass().getResourceAsStream(RAW_DEMAND_REQUESTS_FILE_PATH), StandardCharsets.UTF_8))) {
+            reader.readLine();
+            String row;
+            while ((row = reader.readLine()) != null) {
+                rows.add(row);
+            }
+        }
+
+        timestamps = new String[numberOfRecords];
+        records = new DemandRecord[numberOfRecords];
+        batches = new ArrayList<>();
+        DemandItemDictionary itemDictionary = new DemandItemDictionary();
+        DemandBatch batch = new DemandBatch(itemDictionary);
+        for (int i = 0; i < numberOfRecords; i++) {
+            String[] fields = rows.get(i % rows.size()).split(",");
+            timestamps[i] = fields[1];
+            records[i] = DemandRecord.builder()
+                    .itemId(fields[0])
+                    .timestamp(DemandTimestamps.parse(fields[1]))
+                    .targetValue(fields[2])
+                    .build();
+            if (batch.isFull()) {
+                batches.add(batch);
+                batch = new DemandBatch(itemDictionary);
+            }
+            batch.add(fields[0], DemandTimestamps.parseEpochSecond(fields[1], 0, fields[1].length()),
+                    DemandBatch.parseTargetValue(fields[0], fields[2]));
+        }
+        batches.add(batch);
+    }
+
+    @Benchmark
+    public void formatterParse(final Blackhole blackhole) {
+        for (String timestamp : timestamps) {
+            blackhole.consume(LocalDateTime.parse(timestamp, FORECAST_DATE_TIME_FORMATTER));
+        }
+    }
+
+    @Benchmark
+    public void demandTimestampsParse(final Blackhole blackhole) {
+        for (String timestamp : timestamps) {
+            blackhole.consume(DemandTimestamps.parse(timestamp));
+        }
+    }
+
+    @Benchmark
+    public void demandTimestampsParseEpochSecond(final Blackhole blackhole) {
+        for (String timestamp : timestamps) {
+            blackhole.consume(DemandTimestamps.parseEpochSecond(timestamp, 0, timestamp.length()));
+        }
+    }
+
+    @Benchmark
+    public long formatterCsvRows() throws IOException {
+        try (DemandFileWriter demandFileWriter = makeDemandFileWriter()) {
+            for (DemandRecord record : records) {
+                StringJoiner sj = new StringJoiner(",");
+                sj.add(record.getItemId()).add(FORECAST_DATE_TIME_FORMATTER.format(record.getTimestamp())).add(record.getTargetValue());
+                demandFileWriter.write(record.getItemId(), sj.toString());
+            }
+            return demandFileWriter.getNumberOfRows();
+        }
+    }
+
+    @Benchmark
+    public long demandTimestampsCsvRows() throws IOException {
+        try (DemandFileWriter demandFileWriter = makeDemandFileWriter()) {
+            for (DemandBatch batch : batches) {
+                demandFileWriter.write(batch);
+            }
+            return demandFileWriter.getNumberOfRows();
+        }
+    }
+
+    private static DemandFileWriter makeDemandFileWriter() throws IOException {
+        return new DemandFileWriter(new DiscardingS3Client(), "bucket",
+                Collections.singletonList("demand.csv"), itemId -> 0, TrainingDataCompression.NONE, new ObjectMetadata());
+    }
+
+    /**
+     * Stands for S3, which is out of the scope of the benchmark, so only the writing and the buffering of the parts
+     * are measured. The parts are uploaded from the threads of the stream, so they are dropped instead of consumed.
+     */
+    private static class DiscardingS3Client extends AbstractAmazonS3 {
+
+        @Override
+        public InitiateMultipartUploadResult initiateMultipartUpload(final InitiateMultipartUploadRequest request) {
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId("upload");
+            return result;
+        }
+
+        @Override
+        public UploadPartResult uploadPart(final UploadPartRequest request) {
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag");
+            return result;
+        }
+
+        @Override
+        public CompleteMultipartUploadResult completeMultipartUpload(final CompleteMultipartUploadRequest request) {
+            return new CompleteMultipartUploadResult();
+        }
+
+        @Override
+        public void abortMultipartUpload(final AbortMultipartUploadRequest request) {
+        }
+
+        @Override
+        public PutObjectResult putObject(final PutObjectRequest request) {
+            return new PutObjectResult();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.opencsv.bean.CsvToBean;
+import com.opencsv.bean.CsvToBeanBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link PredictionResultCsvParser} with the opencsv {@link CsvToBean} path it replaced in
+ * {@link LoadDataFromS3ToDynamoDBHandler}, on a generated prediction result file in the Forecast export format.
+ *
+ * Run with: gradle jmh
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PredictionResultCsvParserBenchmark {
+
+    @Param({"100000"})
+    private int numberOfRecords;
+
+    private byte[] predictionResultFile;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0L);
+        Instant startTime = Instant.parse("2019-01-01T00:00:00Z");
+        StringBuilder csv = new StringBuilder("date,item_id,mean,p10,p50,p90\n");
+        for (int i = 0; i < numberOfRecords; i++) {
+            double p50 = random.nextDouble() * 100;
+            csv.append(startTime.plus(i / 100, ChronoUnit.HOURS)).append(',')
+                    .append("item").append(i % 100).append(',')
+                    .append(p50).append(',')
+                    .append(p50 - random.nextDouble() * 10).append(',')
+                    .append(p50).append(',')
+                    .append(p50 + random.nextDouble() * 10).append('\n');
+        }
+        predictionResultFile = csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void csvToBean(final Blackhole blackhole) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(predictionResultFile), StandardCharsets.UTF_8));
+        CsvToBean<PredictionResultItem> csvToBean = new CsvToBeanBuilder<PredictionResultItem>(reader)
+                .withType(PredictionResultItem.class)
+                .withIgnoreLeadingWhiteSpace(true)
+                .build();
+        for (PredictionResultItem item : csvToBean) {
+            blackhole.consume(item);
+        }
+    }
+
+    @Benchmark
+    public void predictionResultCsvParser(final Blackhole blackhole) throws IOException {
+        try (PredictionResultCsvParser parser = new PredictionResultCsvParser(new ByteArrayInputStream(predictionResultFile))) {
+            PredictionResultItem item = new PredictionResultItem();
+            while (parser.next(item)) {
+                blackhole.consume(item.getHashKey());
+                blackhole.consume(item.getSortKey());
+                blackhole.consume(item.getP10());
+                blackhole.consume(item.getP50());
+                blackhole.consume(item.getP90());
+            }
+        }
+    }
+}
@@ -10,6 +10,8 @@ import com.amazonaws.services.forecast.AmazonForecast;
 import com.amazonaws.services.forecast.AmazonForecastClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.secretsmanager.AWSSecretsManager;
+import com.amazonaws.services.secretsmanager.AWSSecretsManagerClientBuilder;
 import dagger.Module;
 import dagger.Provides;
 
@@ -49,4 +51,13 @@ public class AWSClientModule {
                 .withRegion(Regions.fromName(System.getenv("AWS_REGION")))
                 .build();
     }
-}
\ No newline at end of file
+
+    @Provides
+    @Singleton
+    static AWSSecretsManager provideSecretsManagerClient() {
+        return AWSSecretsManagerClientBuilder.standard()
+                .withClientConfiguration(CLIENT_CONFIG)
+                .withRegion(Regions.fromName(System.getenv("AWS_REGION")))
+                .build();
+    }
+}
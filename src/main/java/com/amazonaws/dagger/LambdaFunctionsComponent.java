@@ -1,10 +1,14 @@
 package com.amazonaws.dagger;
 
+import com.amazonaws.lambda.demandpublishing.CompactDemandHandler;
 import com.amazonaws.lambda.demandpublishing.PublishDemandHandler;
 import com.amazonaws.lambda.predictiongeneration.AbstractPredictionGenerationLambdaHandler;
 import com.amazonaws.lambda.predictiongeneration.GenerateForecastResourcesIdsCronHandler;
 import com.amazonaws.lambda.predictiongeneration.GenerateForecastResourcesIdsHandler;
+import com.amazonaws.lambda.queryingpredictionresult.BulkQueryPredictionResultHandler;
 import com.amazonaws.lambda.queryingpredictionresult.LoadDataFromS3ToDynamoDBHandler;
+import com.amazonaws.lambda.queryingpredictionresult.LoadDataFromSqsToDynamoDBHandler;
+import com.amazonaws.lambda.queryingpredictionresult.QueryPredictionResultHandler;
 import dagger.Component;
 
 import javax.inject.Singleton;
@@ -15,6 +19,8 @@ public interface LambdaFunctionsComponent {
 
     void inject(PublishDemandHandler handler);
 
+    void inject(CompactDemandHandler handler);
+
     void inject(AbstractPredictionGenerationLambdaHandler handler);
 
     void inject(GenerateForecastResourcesIdsHandler handler);
@@ -22,4 +28,10 @@ public interface LambdaFunctionsComponent {
     void inject(GenerateForecastResourcesIdsCronHandler handler);
 
     void inject(LoadDataFromS3ToDynamoDBHandler handler);
+
+    void inject(LoadDataFromSqsToDynamoDBHandler handler);
+
+    void inject(QueryPredictionResultHandler handler);
+
+    void inject(BulkQueryPredictionResultHandler handler);
 }
@@ -0,0 +1,91 @@
+package com.amazonaws.lambda.common;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * The frequency of the demand data points and of the predictions, shared by the functions publishing the demand and
+ * the ones generating the Forecast resources.
+ */
+public final class ForecastDataFrequency {
+
+    // Private Constructor will prevent the instantiation of this class directly
+    private ForecastDataFrequency() {}
+
+    // The time span of a demand data point, it's also the frequency of the predictions
+    public static final Duration PREDICTION_WINDOW_SIZE_DURATION = Duration.ofSeconds(2000);
+
+    private static final Duration ONE_MIN_DURATION = Duration.ofMinutes(1);
+    private static final Duration FIVE_MIN_DURATION = Duration.ofMinutes(5);
+    private static final Duration TEN_MIN_DURATION = Duration.ofMinutes(10);
+    private static final Duration FIFTEEN_MIN_DURATION = Duration.ofMinutes(15);
+    private static final Duration THIRTY_MIN_DURATION = Duration.ofMinutes(30);
+    private static final Duration ONE_HOUR_DURATION = Duration.ofHours(1);
+    private static final Duration ONE_DAY_DURATION = Duration.ofDays(1);
+    private static final Duration ONE_WEEK_DURATION = Duration.ofDays(7);
+    private static final Duration ONE_MONTH_DURATION = Duration.ofDays(30);
+
+    // Refer to: https://docs.aws.amazon.com/forecast/latest/dg/API_CreateDataset.html#forecast-CreateDataset-request-DataFrequency
+    public static final String ONE_MIN_DATA_FREQUENCY_STRING = "1min";
+    public static final String FIVE_MIN_DATA_FREQUENCY_STRING = "5min";
+    public static final String TEN_MIN_DATA_FREQUENCY_STRING = "10min";
+    public static final String FIFTEEN_MIN_DATA_FREQUENCY_STRING = "15min";
+    public static final String THIRTY_MIN_DATA_FREQUENCY_STRING = "30min";
+    public static final String ONE_HOUR_DATA_FREQUENCY_STRING = "H";
+    public static final String ONE_DAY_DATA_FREQUENCY_STRING = "D";
+    public static final String ONE_WEEK_DATA_FREQUENCY_STRING = "W";
+    public static final String ONE_MONTH_DATA_FREQUENCY_STRING = "M";
+    public static final String ONE_YEAR_DATA_FREQUENCY_STRING = "Y";
+    public static final Map<String, Integer> DATA_FREQUENCY_SECONDS_MAPPING =
+            ImmutableMap.<String, Integer>builder()
+                    .put(ONE_MIN_DATA_FREQUENCY_STRING, 60)
+                    .put(FIVE_MIN_DATA_FREQUENCY_STRING, 5*60)
+                    .put(TEN_MIN_DATA_FREQUENCY_STRING, 10*60)
+                    .put(FIFTEEN_MIN_DATA_FREQUENCY_STRING, 15*60)
+                    .put(THIRTY_MIN_DATA_FREQUENCY_STRING, 30*60)
+                    .put(ONE_HOUR_DATA_FREQUENCY_STRING, 60*60)
+                    .put(ONE_DAY_DATA_FREQUENCY_STRING, 60*60*24)
+                    .put(ONE_WEEK_DATA_FREQUENCY_STRING, 60*60*24*7)
+                    .put(ONE_MONTH_DATA_FREQUENCY_STRING, 60*60*24*30)
+                    .put(ONE_YEAR_DATA_FREQUENCY_STRING, 60*60*24*365)
+                    .build();
+
+    public static String getForecastDataFrequencyStr(final Duration dataFrequencyDuration) {
+
+        /*
+         * Refer to: https://docs.aws.amazon.com/forecast/latest/dg/API_CreateDataset.html#forecast-CreateDataset-request-DataFrequency,
+         * Valid intervals are Y (Year), M (Month), W (Week), D (Day), H (Hour), 30min (30 minutes),
+         * 15min (15 minutes), 10min (10 minutes), 5min (5 minutes), and 1min (1 minute).
+         */
+        if (dataFrequencyDuration.compareTo(ONE_MIN_DURATION) <= 0) { // below or equal 1 min
+            return ONE_MIN_DATA_FREQUENCY_STRING;
+        }
+        if (dataFrequencyDuration.compareTo(FIVE_MIN_DURATION) <= 0) { // below or equal 5 mins
+            return FIVE_MIN_DATA_FREQUENCY_STRING;
+        }
+        if (dataFrequencyDuration.compareTo(TEN_MIN_DURATION) <= 0) { // below or equal 10 mins
+            return TEN_MIN_DATA_FREQUENCY_STRING;
+        }
+        if (dataFrequencyDuration.compareTo(FIFTEEN_MIN_DURATION) <= 0) { // below or equal 15 mins
+            return FIFTEEN_MIN_DATA_FREQUENCY_STRING;
+        }
+        if (dataFrequencyDuration.compareTo(THIRTY_MIN_DURATION) <= 0) { // below or equal 30 mins
+            return THIRTY_MIN_DATA_FREQUENCY_STRING;
+        }
+        if (dataFrequencyDuration.compareTo(ONE_HOUR_DURATION) <= 0) { // below or equal 1 hour
+            return ONE_HOUR_DATA_FREQUENCY_STRING;
+        }
+        if (dataFrequencyDuration.compareTo(ONE_DAY_DURATION) <= 0) { // below or equal 1 day
+            return ONE_DAY_DATA_FREQUENCY_STRING;
+        }
+        if (dataFrequencyDuration.compareTo(ONE_WEEK_DURATION) <= 0) { // below or equal 1 week
+            return ONE_WEEK_DATA_FREQUENCY_STRING;
+        }
+        if (dataFrequencyDuration.compareTo(ONE_MONTH_DURATION) <= 0) { // below or equal 1 month
+            return ONE_MONTH_DATA_FREQUENCY_STRING;
+        }
+        return ONE_YEAR_DATA_FREQUENCY_STRING;
+    }
+}
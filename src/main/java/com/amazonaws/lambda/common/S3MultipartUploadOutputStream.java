@@ -0,0 +1,302 @@
+package com.amazonaws.lambda.common;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams the written bytes to an S3 object, pushing a multipart upload part whenever a part size of bytes is written.
+ *
+ * At most (maxInFlightParts + 1) part buffers are ever allocated: one being filled, the others being uploaded in
+ * background. The writer blocks once all of them are in use, so the memory stays bounded however many bytes are
+ * written. An object smaller than a single part is uploaded with a single PutObject call instead.
+ *
+ * The object is only created by {@link #close()}. If the writing fails, call {@link #abort()} instead, so that
+ * neither a truncated object is created nor the uploaded parts are kept (and charged) in the bucket. Objects written
+ * together can be {@link #finish()}ed first, so that none of them is created unless all of their parts are uploaded.
+ */
+@Slf4j
+public class S3MultipartUploadOutputStream extends OutputStream {
+
+    // S3 requires every part but the last one to be at least 5 MB
+    private static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+    private static final int DEFAULT_MAX_IN_FLIGHT_PARTS = 2;
+
+    private final AmazonS3 s3Client;
+    private final String bucketName;
+    private final String key;
+    private final ObjectMetadata objectMetadata;
+    private final int partSize;
+    private final int maxNumberOfBuffers;
+    private final ExecutorService uploadExecutor;
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final List<Future<PartETag>> partUploads = new ArrayList<>();
+
+    private int numberOfBuffers;
+    private byte[] buffer;
+    private int position;
+    private String uploadId;
+    private long size;
+    // Set once all the parts are uploaded, see finish()
+    private List<PartETag> partETags;
+    private boolean closed;
+
+    public S3MultipartUploadOutputStream(@NonNull final AmazonS3 s3Client,
+                                         @NonNull final String bucketName,
+                                         @NonNull final String key) {
+        this(s3Client, bucketName, key, new ObjectMetadata());
+    }
+
+    /**
+     * @param objectMetadata the metadata of the object, e.g. its user metadata, the content length is ignored
+     */
+    public S3MultipartUploadOutputStream(@NonNull final AmazonS3 s3Client,
+                                         @NonNull final String bucketName,
+                                         @NonNull final String key,
+                                         @NonNull final ObjectMetadata objectMetadata) {
+        this(s3Client, bucketName, key, objectMetadata, DEFAULT_PART_SIZE, DEFAULT_MAX_IN_FLIGHT_PARTS);
+    }
+
+    /**
+     * @param partSize the size of the parts, at least 5MB but for the last one
+     * @param maxInFlightParts the max number of parts uploaded concurrently, every one of them holding a buffer
+     */
+    public S3MultipartUploadOutputStream(@NonNull final AmazonS3 s3Client,
+                                         @NonNull final String bucketName,
+                                         @NonNull final String key,
+                                         @NonNull final ObjectMetadata objectMetadata,
+                                         final int partSize,
+                                         final int maxInFlightParts) {
+        if (partSize <= 0 || maxInFlightParts <= 0) {
+            throw new IllegalArgumentException(String.format("partSize [%d] and maxInFlightParts [%d] should be positive",
+                    partSize, maxInFlightParts));
+        }
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.objectMetadata = objectMetadata.clone();
+        this.partSize = partSize;
+        this.maxNumberOfBuffers = maxInFlightParts + 1;
+        this.uploadExecutor = Executors.newFixedThreadPool(maxInFlightParts, runnable -> {
+            Thread thread = new Thread(runnable, "s3-multipart-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.freeBuffers = new ArrayBlockingQueue<>(maxNumberOfBuffers);
+        this.buffer = new byte[partSize];
+        this.numberOfBuffers = 1;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        ensureOpen();
+        if (position == partSize) {
+            uploadPart();
+        }
+        buffer[position++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        ensureOpen();
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            if (position == partSize) {
+                uploadPart();
+            }
+            int length = Math.min(remaining, partSize - position);
+            System.arraycopy(b, offset, buffer, position, length);
+            position += length;
+            offset += length;
+            remaining -= length;
+        }
+        size += len;
+    }
+
+    /**
+     * Upload the remaining bytes as the last part and wait for all the parts, without creating the object yet, so
+     * that {@link #close()} only has to complete the upload. Nothing can be written afterwards. An object smaller
+     * than a single part is uploaded as a single part, instead of a PutObject call by close().
+     * The upload is aborted if any part fails.
+     */
+    public void finish() throws IOException {
+        if (closed || partETags != null) {
+            return;
+        }
+        try {
+            if (uploadId == null) {
+                initiateUpload();
+            }
+            if (position > 0 || partUploads.isEmpty()) {
+                submitPart();
+            }
+            List<PartETag> uploadedPartETags = new ArrayList<>();
+            for (Future<PartETag> partUpload : partUploads) {
+                uploadedPartETags.add(waitForPartUpload(partUpload));
+            }
+            partETags = uploadedPartETags;
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Complete the upload, the object is visible in the bucket once it returns.
+     * The upload is aborted if it cannot be completed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (uploadId != null) {
+            finish();
+        }
+        closed = true;
+        try {
+            if (uploadId == null) {
+                objectMetadata.setContentLength(position);
+                s3Client.putObject(new PutObjectRequest(bucketName, key,
+                        new ByteArrayInputStream(buffer, 0, position), objectMetadata));
+                log.info(String.format("Finish uploading %d bytes to s3://%s/%s", size, bucketName, key));
+                return;
+            }
+
+            s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+            log.info(String.format("Finish uploading %d bytes to s3://%s/%s in %d parts", size, bucketName, key, partETags.size()));
+        } catch (RuntimeException e) {
+            abortUpload();
+            throw e;
+        } finally {
+            uploadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Discard everything written so far, it does nothing once the stream is closed.
+     */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            abortUpload();
+        } finally {
+            uploadExecutor.shutdownNow();
+        }
+    }
+
+    private void abortUpload() {
+        partUploads.forEach(partUpload -> partUpload.cancel(true));
+        if (uploadId != null) {
+            try {
+                s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+                log.warn(String.format("Aborted the multipart upload %s of s3://%s/%s", uploadId, bucketName, key));
+            } catch (RuntimeException e) {
+                // The incomplete upload is eventually cleaned up by the bucket lifecycle rule
+                log.error(String.format("Failed to abort the multipart upload %s of s3://%s/%s", uploadId, bucketName, key), e);
+            }
+        }
+    }
+
+    private void uploadPart() throws IOException {
+        if (uploadId == null) {
+            initiateUpload();
+        }
+        // Fail fast if any of the previous parts failed, instead of finding it out at the end
+        for (Future<PartETag> partUpload : partUploads) {
+            if (partUpload.isDone()) {
+                waitForPartUpload(partUpload);
+            }
+        }
+
+        submitPart();
+        buffer = takeFreeBuffer();
+        position = 0;
+    }
+
+    private void initiateUpload() {
+        uploadId = s3Client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, key, objectMetadata))
+                .getUploadId();
+        log.info(String.format("Start the multipart upload %s of s3://%s/%s", uploadId, bucketName, key));
+    }
+
+    private void submitPart() {
+        byte[] part = buffer;
+        int partLength = position;
+        int partNumber = partUploads.size() + 1;
+        partUploads.add(uploadExecutor.submit(() -> {
+            try {
+                return s3Client.uploadPart(new UploadPartRequest()
+                        .withBucketName(bucketName)
+                        .withKey(key)
+                        .withUploadId(uploadId)
+                        .withPartNumber(partNumber)
+                        .withPartSize(partLength)
+                        .withInputStream(new ByteArrayInputStream(part, 0, partLength)))
+                        .getPartETag();
+            } finally {
+                freeBuffers.add(part);
+            }
+        }));
+    }
+
+    private byte[] takeFreeBuffer() throws IOException {
+        byte[] freeBuffer = freeBuffers.poll();
+        if (freeBuffer != null) {
+            return freeBuffer;
+        }
+        if (numberOfBuffers < maxNumberOfBuffers) {
+            numberOfBuffers++;
+            return new byte[partSize];
+        }
+        try {
+            return freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a part upload to finish");
+        }
+    }
+
+    private PartETag waitForPartUpload(final Future<PartETag> partUpload) throws IOException {
+        try {
+            return partUpload.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a part upload to finish");
+        } catch (ExecutionException e) {
+            throw new IOException(String.format("Failed to upload a part of s3://%s/%s", bucketName, key), e.getCause());
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed || partETags != null) {
+            throw new IOException(String.format("The upload of s3://%s/%s is already %s", bucketName, key,
+                    closed ? "closed" : "finished"));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.amazonaws.lambda.common;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * How the csv files of the historical demand are encoded in S3, set by the TRAINING_DATA_COMPRESSION env variable
+ * of every function reading or writing them. The encoding shows in the suffix of the keys, e.g.
+ * historical_demand.csv.gz, so a file is always read back the way it was written.
+ */
+public enum TrainingDataCompression {
+
+    NONE("") {
+        @Override
+        public OutputStream compress(final OutputStream outputStream) {
+            return outputStream;
+        }
+
+        @Override
+        public InputStream decompress(final InputStream inputStream) {
+            return inputStream;
+        }
+
+        @Override
+        public ObjectMetadata makeObjectMetadata() {
+            ObjectMetadata objectMetadata = new ObjectMetadata();
+            objectMetadata.setContentType(CSV_CONTENT_TYPE);
+            return objectMetadata;
+        }
+    },
+
+    GZIP(".gz") {
+        @Override
+        public OutputStream compress(final OutputStream outputStream) throws IOException {
+            return new GZIPOutputStream(outputStream, BUFFER_SIZE);
+        }
+
+        @Override
+        public InputStream decompress(final InputStream inputStream) throws IOException {
+            return new GZIPInputStream(inputStream, BUFFER_SIZE);
+        }
+
+        @Override
+        public ObjectMetadata makeObjectMetadata() {
+            ObjectMetadata objectMetadata = new ObjectMetadata();
+            objectMetadata.setContentType(CSV_CONTENT_TYPE);
+            objectMetadata.setContentEncoding("gzip");
+            return objectMetadata;
+        }
+    };
+
+    private static final String CSV_CONTENT_TYPE = "text/csv";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String keySuffix;
+
+    TrainingDataCompression(final String keySuffix) {
+        this.keySuffix = keySuffix;
+    }
+
+    public String getKeySuffix() {
+        return keySuffix;
+    }
+
+    /**
+     * @return the stream compressing the bytes written into the given one, closing it finishes the compression
+     */
+    public abstract OutputStream compress(OutputStream outputStream) throws IOException;
+
+    public abstract InputStream decompress(InputStream inputStream) throws IOException;
+
+    public abstract ObjectMetadata makeObjectMetadata();
+
+    /**
+     * @throws IllegalArgumentException if the name is not of a compression
+     */
+    public static TrainingDataCompression fromName(final String name) {
+        if (StringUtils.isBlank(name)) {
+            return NONE;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Training data compression [%s] should be one of NONE and GZIP",
+                    name), e);
+        }
+    }
+
+    /**
+     * @return the compression of the file, according to the suffix of its key
+     */
+    public static TrainingDataCompression fromKey(final String key) {
+        return key.endsWith(GZIP.keySuffix) ? GZIP : NONE;
+    }
+}
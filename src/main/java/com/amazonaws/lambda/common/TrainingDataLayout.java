@@ -0,0 +1,153 @@
+package com.amazonaws.lambda.common;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Where the training data imported by Forecast is in the prediction bucket, shared by every function writing or
+ * importing it, which read it from the same env variables.
+ *
+ * With a single shard, the training data is a single file, e.g. source/historical_demand.csv. With N shards, it's
+ * N part files in a folder named after the file, e.g. source/historical_demand/part-00003.csv, and the records of
+ * an item are all in the part of the hash of its item_id. Forecast imports all the files of the folder.
+ *
+ * The keys have the suffix of the {@link TrainingDataCompression}. Changing the number of shards takes a FULL
+ * publishing of the demand, as the records already published stay in the shards of the previous number.
+ */
+@Slf4j
+public class TrainingDataLayout {
+
+    // Every shard holds up to two upload parts of 5MB while it is written, see DemandFileWriter
+    static final int MAX_NUMBER_OF_SHARDS = 32;
+
+    private static final String CSV_FILE_EXTENSION = ".csv";
+    private static final String PART_FILE_PREFIX = "part-";
+    // The max number of keys of a DeleteObjects request
+    private static final int MAX_NUMBER_OF_KEYS_PER_DELETION = 1000;
+
+    private final String srcS3Folder;
+    private final String trainingDataFileName;
+    private final TrainingDataCompression compression;
+    private final int numberOfShards;
+
+    public TrainingDataLayout(final String srcS3Folder,
+                              final String trainingDataFileName,
+                              @NonNull final TrainingDataCompression compression,
+                              final int numberOfShards) {
+        if (numberOfShards < 1 || numberOfShards > MAX_NUMBER_OF_SHARDS) {
+            throw new IllegalArgumentException(String.format("Number of shards [%d] should be within [1, %d]",
+                    numberOfShards, MAX_NUMBER_OF_SHARDS));
+        }
+        this.srcS3Folder = srcS3Folder;
+        this.trainingDataFileName = trainingDataFileName;
+        this.compression = compression;
+        this.numberOfShards = numberOfShards;
+    }
+
+    /**
+     * The layout set by the SRC_S3_FOLDER, S3_TRAINING_DATA_FILE_NAME, TRAINING_DATA_COMPRESSION and
+     * TRAINING_DATA_NUMBER_OF_SHARDS env variables.
+     */
+    public static TrainingDataLayout fromEnvironment() {
+        return new TrainingDataLayout(System.getenv("SRC_S3_FOLDER"),
+                System.getenv("S3_TRAINING_DATA_FILE_NAME"),
+                TrainingDataCompression.fromName(System.getenv("TRAINING_DATA_COMPRESSION")),
+                NumberUtils.toInt(System.getenv("TRAINING_DATA_NUMBER_OF_SHARDS"), 1));
+    }
+
+    public String getSrcS3Folder() {
+        return srcS3Folder;
+    }
+
+    public String getTrainingDataFileName() {
+        return trainingDataFileName;
+    }
+
+    public TrainingDataCompression getCompression() {
+        return compression;
+    }
+
+    public int getNumberOfShards() {
+        return numberOfShards;
+    }
+
+    /**
+     * @return the S3 path the dataset import job should import, the file or the folder of the shards
+     */
+    public String getImportS3Path(final String bucketName) {
+        if (numberOfShards == 1) {
+            return String.format("s3://%s/%s", bucketName, getShardKey(0));
+        }
+        return String.format("s3://%s/%s", bucketName, getShardFolderPrefix());
+    }
+
+    public String getShardKey(final int shard) {
+        if (numberOfShards == 1) {
+            return String.format("%s/%s%s", srcS3Folder, trainingDataFileName, compression.getKeySuffix());
+        }
+        return String.format("%s%s%05d%s%s", getShardFolderPrefix(), PART_FILE_PREFIX, shard, CSV_FILE_EXTENSION,
+                compression.getKeySuffix());
+    }
+
+    public List<String> getShardKeys() {
+        return IntStream.range(0, numberOfShards).mapToObj(this::getShardKey).collect(Collectors.toList());
+    }
+
+    public int getShard(final String itemId) {
+        // Scramble the bits of the String hash code, which are poorly distributed in its low bits for short item ids
+        int hash = itemId.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), numberOfShards);
+    }
+
+    /**
+     * Delete the part files left by a larger number of shards or another compression, which Forecast would import
+     * along with the current ones otherwise. A single shard is not in the folder imported, so nothing is deleted.
+     */
+    public void deleteStaleShards(@NonNull final AmazonS3 s3Client, @NonNull final String bucketName) {
+        if (numberOfShards == 1) {
+            return;
+        }
+        Set<String> shardKeys = new HashSet<>(getShardKeys());
+        List<DeleteObjectsRequest.KeyVersion> staleKeys = new ArrayList<>();
+        ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix(getShardFolderPrefix() + PART_FILE_PREFIX);
+        ListObjectsV2Result listObjectsResult;
+        do {
+            listObjectsResult = s3Client.listObjectsV2(listObjectsRequest);
+            for (S3ObjectSummary objectSummary : listObjectsResult.getObjectSummaries()) {
+                if (!shardKeys.contains(objectSummary.getKey())) {
+                    staleKeys.add(new DeleteObjectsRequest.KeyVersion(objectSummary.getKey()));
+                }
+            }
+            listObjectsRequest.setContinuationToken(listObjectsResult.getNextContinuationToken());
+        } while (listObjectsResult.isTruncated());
+
+        for (int from = 0; from < staleKeys.size(); from += MAX_NUMBER_OF_KEYS_PER_DELETION) {
+            s3Client.deleteObjects(new DeleteObjectsRequest(bucketName)
+                    .withKeys(staleKeys.subList(from, Math.min(from + MAX_NUMBER_OF_KEYS_PER_DELETION, staleKeys.size())))
+                    .withQuiet(true));
+        }
+        if (!staleKeys.isEmpty()) {
+            log.info(String.format("Deleted %d stale training data shards", staleKeys.size()));
+        }
+    }
+
+    private String getShardFolderPrefix() {
+        return String.format("%s/%s/", srcS3Folder, StringUtils.removeEnd(trainingDataFileName, CSV_FILE_EXTENSION));
+    }
+}
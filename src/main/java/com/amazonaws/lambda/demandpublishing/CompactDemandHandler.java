@@ -0,0 +1,243 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import com.amazonaws.dagger.DaggerLambdaFunctionsComponent;
+import com.amazonaws.lambda.common.TrainingDataCompression;
+import com.amazonaws.lambda.common.TrainingDataLayout;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.google.common.annotations.VisibleForTesting;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Merges the delta files of the incremental demand publishing back into the training data, see
+ * {@link PublishDemandHandler} and {@link HistoricalDemandFiles}.
+ *
+ * The shards of the training data and the deltas are streamed through into new shards, dropping the records which
+ * fall out of the lookback window ending at the watermark, so the memory stays bounded whatever the volume. The rows
+ * of the deltas are routed to the shard of their item, see {@link TrainingDataLayout}. Every new shard records the
+ * last delta merged into it in its user metadata, and the merged deltas are deleted after all the shards are
+ * uploaded. So if the function fails in between, the next run skips the deltas already merged into a shard instead
+ * of duplicating their records.
+ *
+ * Only the deltas before the watermark are compacted. The delta starting at the watermark may still be uploaded
+ * again by a retry of the publishing which failed to move the watermark, so it is left for a later run.
+ *
+ * A shard of the layout which is not in the bucket yet, e.g. after the number of shards grew, is compacted as an
+ * empty one, and the part files which are no longer in the layout are deleted once the new shards are completed,
+ * so that Forecast doesn't import them along with the new ones.
+ */
+@Slf4j
+public class CompactDemandHandler implements RequestHandler<Void, Void> {
+
+    @VisibleForTesting
+    static final String LAST_COMPACTED_DELTA_METADATA_KEY = "last-compacted-delta";
+
+    // The max number of keys of a DeleteObjects request
+    private static final int MAX_NUMBER_OF_KEYS_PER_DELETION = 1000;
+    private static final int NOT_FOUND_STATUS_CODE = 404;
+    private static final String PREDICTION_S3_BUCKET_NAME = System.getenv("PREDICTION_S3_BUCKET_NAME");
+    private static final String SRC_S3_FOLDER = System.getenv("SRC_S3_FOLDER");
+
+    @Inject
+    @NonNull
+    AmazonS3 s3Client;
+    private final TrainingDataLayout trainingDataLayout;
+
+    public CompactDemandHandler() {
+        this.trainingDataLayout = TrainingDataLayout.fromEnvironment();
+        DaggerLambdaFunctionsComponent.create().inject(this);
+    }
+
+    @VisibleForTesting
+    CompactDemandHandler(final AmazonS3 s3Client, final TrainingDataLayout trainingDataLayout) {
+        this.s3Client = s3Client;
+        this.trainingDataLayout = trainingDataLayout;
+    }
+
+    @Override
+    public Void handleRequest(final Void input, final Context context) {
+        LocalDateTime watermark = new DemandWatermarkStore(s3Client, PREDICTION_S3_BUCKET_NAME,
+                HistoricalDemandFiles.getWatermarkKey(SRC_S3_FOLDER)).read();
+        if (watermark == null) {
+            log.info("Found no watermark, the demand is not published incrementally, nothing to compact");
+            return null;
+        }
+
+        List<String> deltaKeys = listDeltaKeys(HistoricalDemandFiles.getDeltaKeyPrefix(SRC_S3_FOLDER, watermark));
+        if (deltaKeys.isEmpty()) {
+            log.info("Found no demand delta, nothing to compact");
+            return null;
+        }
+
+        LocalDateTime lookBackWindowStartTime = watermark.minusDays(HistoricalDemandFiles.LOOK_BACK_DURATION_IN_DAYS);
+        compact(deltaKeys, lookBackWindowStartTime);
+        trainingDataLayout.deleteStaleShards(s3Client, PREDICTION_S3_BUCKET_NAME);
+        deleteDeltas(deltaKeys);
+        return null;
+    }
+
+    /**
+     * S3 lists the keys in the ascending order, which is the chronological order of the deltas.
+     */
+    private List<String> listDeltaKeys(final String uncommittedDeltaKeyPrefix) {
+        List<String> deltaKeys = new ArrayList<>();
+        ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request()
+                .withBucketName(PREDICTION_S3_BUCKET_NAME)
+                .withPrefix(HistoricalDemandFiles.getDeltasPrefix(SRC_S3_FOLDER));
+        ListObjectsV2Result listObjectsResult;
+        do {
+            listObjectsResult = s3Client.listObjectsV2(listObjectsRequest);
+            for (S3ObjectSummary objectSummary : listObjectsResult.getObjectSummaries()) {
+                if (objectSummary.getKey().compareTo(uncommittedDeltaKeyPrefix) < 0) {
+                    deltaKeys.add(objectSummary.getKey());
+                }
+            }
+            listObjectsRequest.setContinuationToken(listObjectsResult.getNextContinuationToken());
+        } while (listObjectsResult.isTruncated());
+        return deltaKeys;
+    }
+
+    private void compact(final List<String> deltaKeys, final LocalDateTime lookBackWindowStartTime) {
+        TrainingDataCompression compression = trainingDataLayout.getCompression();
+        ObjectMetadata objectMetadata = compression.makeObjectMetadata();
+        objectMetadata.addUserMetadata(LAST_COMPACTED_DELTA_METADATA_KEY, deltaKeys.get(deltaKeys.size() - 1));
+        List<String> shardKeys = trainingDataLayout.getShardKeys();
+        DemandFileWriter demandFileWriter = null;
+        try {
+            demandFileWriter = new DemandFileWriter(s3Client, PREDICTION_S3_BUCKET_NAME, shardKeys,
+                    trainingDataLayout::getShard, compression, objectMetadata);
+
+            // The new shards are only visible once they are completed, so the current ones can be read meanwhile
+            String[] lastCompactedDeltaKeys = new String[shardKeys.size()];
+            for (int shard = 0; shard < shardKeys.size(); shard++) {
+                S3Object foundShardFile = getShardFile(shardKeys.get(shard));
+                if (foundShardFile == null) {
+                    continue;
+                }
+                try (S3Object shardFile = foundShardFile) {
+                    lastCompactedDeltaKeys[shard] = shardFile.getObjectMetadata()
+                            .getUserMetaDataOf(LAST_COMPACTED_DELTA_METADATA_KEY);
+                    copyRecords(shardFile, lookBackWindowStartTime, demandFileWriter, null);
+                }
+            }
+
+            for (String deltaKey : deltaKeys) {
+                if (isCompactedIntoAllShards(deltaKey, lastCompactedDeltaKeys)) {
+                    log.info(String.format("Skip %s which is already compacted into the training data", deltaKey));
+                    continue;
+                }
+                try (S3Object deltaFile = s3Client.getObject(PREDICTION_S3_BUCKET_NAME, deltaKey)) {
+                    copyRecords(deltaFile, lookBackWindowStartTime, demandFileWriter, lastCompactedDeltaKeys);
+                }
+            }
+
+            // Closing the writer completes the uploads, the shards are only replaced once everything is written
+            demandFileWriter.close();
+            log.info(String.format("Compacted %d demand deltas into [%d] historical demand records after [%s]",
+                    deltaKeys.size(), demandFileWriter.getNumberOfRows(), lookBackWindowStartTime));
+        } catch (IOException | RuntimeException e) {
+            if (demandFileWriter != null) {
+                demandFileWriter.abort();
+            }
+            throw new RuntimeException(String.format("Failed to compact the demand deltas into %s",
+                    trainingDataLayout.getImportS3Path(PREDICTION_S3_BUCKET_NAME)), e);
+        }
+    }
+
+    /**
+     * @return the shard file, or null if it's not in the bucket, so that it's compacted as an empty shard
+     */
+    private S3Object getShardFile(final String shardKey) {
+        try {
+            return s3Client.getObject(PREDICTION_S3_BUCKET_NAME, shardKey);
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == NOT_FOUND_STATUS_CODE) {
+                log.info(String.format("Found no training data shard at s3://%s/%s, compacting it as an empty one",
+                        PREDICTION_S3_BUCKET_NAME, shardKey));
+                return null;
+            }
+            throw e;
+        }
+    }
+
+        private static boolean isCompactedIntoAllShards(final String deltaKey, final String[] lastCompactedDeltaKeys) {
+        for (String lastCompactedDeltaKey : lastCompactedDeltaKeys) {
+            if (lastCompactedDeltaKey == null || deltaKey.compareTo(lastCompactedDeltaKey) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copy the records of the file after the start of the lookback window, skipping its header.
+     * The file is decompressed according to its key, so the deltas written before a change of the compression
+     * are still read.
+     *
+     * @param lastCompactedDeltaKeys the last delta compacted into every shard, the rows of a delta are skipped if
+     *                               it is already in their shard, null for a file of the training data
+     */
+    private void copyRecords(final S3Object demandFile,
+                             final LocalDateTime lookBackWindowStartTime,
+                             final DemandFileWriter demandFileWriter,
+                             final String[] lastCompactedDeltaKeys) throws IOException {
+        long numberOfSkippedRecords = 0;
+        long lookBackWindowStartEpochSecond = lookBackWindowStartTime.toEpochSecond(ZoneOffset.UTC);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                TrainingDataCompression.fromKey(demandFile.getKey()).decompress(demandFile.getObjectContent()),
+                StandardCharsets.UTF_8));
+        String row;
+        while ((row = reader.readLine()) != null) {
+            if (row.isEmpty() || row.equals(HistoricalDemandFiles.HEADER)) {
+                continue;
+            }
+            String itemId = HistoricalDemandFiles.parseItemId(row);
+            if (lastCompactedDeltaKeys != null) {
+                String lastCompactedDeltaKey = lastCompactedDeltaKeys[trainingDataLayout.getShard(itemId)];
+                if (lastCompactedDeltaKey != null && demandFile.getKey().compareTo(lastCompactedDeltaKey) <= 0) {
+                    numberOfSkippedRecords++;
+                    continue;
+                }
+            }
+            if (HistoricalDemandFiles.parseEpochSecond(row) > lookBackWindowStartEpochSecond) {
+                demandFileWriter.write(itemId, row);
+            }
+        }
+        if (numberOfSkippedRecords > 0) {
+            log.info(String.format("Skip [%d] records of %s which are already compacted into their shards",
+                    numberOfSkippedRecords, demandFile.getKey()));
+        }
+    }
+
+    private void deleteDeltas(final List<String> deltaKeys) {
+        for (int from = 0; from < deltaKeys.size(); from += MAX_NUMBER_OF_KEYS_PER_DELETION) {
+            List<DeleteObjectsRequest.KeyVersion> keys = deltaKeys
+                    .subList(from, Math.min(from + MAX_NUMBER_OF_KEYS_PER_DELETION, deltaKeys.size()))
+                    .stream()
+                    .map(DeleteObjectsRequest.KeyVersion::new)
+                    .collect(Collectors.toList());
+            s3Client.deleteObjects(new DeleteObjectsRequest(PREDICTION_S3_BUCKET_NAME).withKeys(keys).withQuiet(true));
+        }
+        log.info(String.format("Deleted %d compacted demand deltas", deltaKeys.size()));
+    }
+}
@@ -0,0 +1,88 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import com.opencsv.bean.CsvToBean;
+import com.opencsv.bean.CsvToBeanBuilder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Reads the demand records from a CSV file bundled in the classpath, for demonstration purpose.
+ *
+ * The file has no index, so it is parsed once into a {@link TimeSortedDemandIndex} at the first read, and the
+ * records of a time window are selected from the index afterwards. The index is kept with the source, so the runs of
+ * a warm Lambda container don't parse the file again. The malformed rows of the file belong to no time window, so
+ * they are only reported by the read which parsed the file, instead of by every window selected afterwards.
+ */
+@Slf4j
+public class CsvDemandSource implements DemandSource {
+
+    private final String resourcePath;
+    private TimeSortedDemandIndex demandIndex;
+    private int numberOfUnreportedMalformedRecords;
+
+    public CsvDemandSource(@NonNull final String resourcePath) {
+        this.resourcePath = resourcePath;
+    }
+
+    @Override
+    public long readDemandBatches(@NonNull final LocalDateTime startTime,
+                                  @NonNull final LocalDateTime endTime,
+                                  @NonNull final DemandBatch batch,
+                                  @NonNull final Consumer<DemandBatch> consumer) {
+        long numberOfDemandRecords = getDemandIndex().select(startTime, endTime, batch, consumer);
+        int numberOfMalformedRecords = takeUnreportedMalformedRecords();
+        batch.addMalformed(numberOfMalformedRecords);
+        batch.flush(consumer);
+        return numberOfDemandRecords + numberOfMalformedRecords;
+    }
+
+    private synchronized TimeSortedDemandIndex getDemandIndex() {
+        if (demandIndex == null) {
+            demandIndex = readDemandIndex();
+            numberOfUnreportedMalformedRecords = demandIndex.getNumberOfMalformedRecords();
+        }
+        return demandIndex;
+    }
+
+    private synchronized int takeUnreportedMalformedRecords() {
+        int numberOfMalformedRecords = numberOfUnreportedMalformedRecords;
+        numberOfUnreportedMalformedRecords = 0;
+        return numberOfMalformedRecords;
+    }
+
+    private TimeSortedDemandIndex readDemandIndex() {
+        InputStream inputStream = getClass().getResourceAsStream(resourcePath);
+        if (inputStream == null) {
+            throw new IllegalStateException(String.format("Demand file %s is not found in the classpath", resourcePath));
+        }
+
+        TimeSortedDemandIndex.Builder demandIndexBuilder = TimeSortedDemandIndex.builder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            CsvToBean<DemandRecord> csvToBean = new CsvToBeanBuilder<DemandRecord>(reader)
+                    .withType(DemandRecord.class)
+                    .withIgnoreLeadingWhiteSpace(true)
+                    .withThrowExceptions(false)
+                    .build();
+            for (DemandRecord record : csvToBean) {
+                demandIndexBuilder.add(record);
+            }
+            // The rows which could not be parsed, e.g. with an invalid timestamp, are captured instead of thrown
+            demandIndexBuilder.addMalformed(csvToBean.getCapturedExceptions().size());
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Failed to read the demand file %s", resourcePath), e);
+        }
+
+        TimeSortedDemandIndex index = demandIndexBuilder.build();
+        log.info(String.format("Indexed [%d] demand records of [%d] items from %s, skipped [%d] malformed records",
+                index.size(), index.getItemDictionary().size(), resourcePath, index.getNumberOfMalformedRecords()));
+        return index;
+    }
+}
@@ -0,0 +1,229 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import com.amazonaws.lambda.common.ForecastDataFrequency;
+import lombok.NonNull;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Sums the target values of the demand records of an item within the same window of the forecast data frequency,
+ * which is what Forecast does at the dataset import anyway, so that the training file has a record per item and
+ * window instead of a record per demand request.
+ *
+ * The windows are aligned to the clock, e.g. [03:00:00, 04:00:00) for H, so only the frequencies whose window
+ * divides a day are supported. The calendar based W, M and Y are left to Forecast, see {@link #isSupported(String)}.
+ *
+ * The records are expected in the order of their timestamps, see {@link DemandSource}, so a window is closed and
+ * its sums are passed on as soon as a record of a later window is added. Only the items of the open window are kept
+ * in memory, whatever the lookback period. A record older than the open window still ends up in the output, as
+ * another record of its window, which Forecast sums up at the import like the windows split by the bounds of the
+ * incremental publishing.
+ *
+ * The sums are kept in an open-addressing hash map from a primitive long key, (window index, item index), to a
+ * primitive double, so nothing is allocated per record but the item id of a new item. The item indices are those of
+ * the item dictionary of the aggregated batch, which the {@link DemandBatch} added to it should share.
+ */
+public class DemandAggregator {
+
+    private static final int SECONDS_IN_A_DAY = 60 * 60 * 24;
+
+    private final String dataFrequency;
+    private final long windowSizeInSeconds;
+    private final DemandBatch aggregatedBatch;
+    private final Consumer<DemandBatch> consumer;
+    private final DemandItemDictionary itemDictionary;
+    private final LongDoubleHashMap sums = new LongDoubleHashMap();
+
+    private long openWindowIndex = -1;
+    private long numberOfRecords;
+    private long numberOfAggregatedRecords;
+
+    /**
+     * @param aggregatedBatch the batch the aggregated records are written to, and passed to the consumer whenever
+     *                        it's full and at the {@link #flush()}, its item dictionary is the one of the aggregator
+     * @throws IllegalArgumentException if the data frequency is not supported
+     */
+    public DemandAggregator(@NonNull final String dataFrequency,
+                            @NonNull final DemandBatch aggregatedBatch,
+                            @NonNull final Consumer<DemandBatch> consumer) {
+        if (!isSupported(dataFrequency)) {
+            throw new IllegalArgumentException(String.format("Data frequency [%s] cannot be aggregated to, it should be one of %s",
+                    dataFrequency, Arrays.asList("1min", "5min", "10min", "15min", "30min", "H", "D")));
+        }
+        this.dataFrequency = dataFrequency;
+        this.windowSizeInSeconds = ForecastDataFrequency.DATA_FREQUENCY_SECONDS_MAPPING.get(dataFrequency);
+        this.aggregatedBatch = aggregatedBatch;
+        this.consumer = consumer;
+        this.itemDictionary = aggregatedBatch.getItemDictionary();
+        aggregatedBatch.clear();
+    }
+
+    public static boolean isSupported(final String dataFrequency) {
+        Integer windowSizeInSeconds = ForecastDataFrequency.DATA_FREQUENCY_SECONDS_MAPPING.get(dataFrequency);
+        return windowSizeInSeconds != null && SECONDS_IN_A_DAY % windowSizeInSeconds == 0;
+    }
+
+    public String getDataFrequency() {
+        return dataFrequency;
+    }
+
+    /**
+     * Add all the records of the batch, straight from its columns if it shares the item dictionary.
+     */
+    public void add(@NonNull final DemandBatch batch) {
+        boolean sharesItemDictionary = batch.getItemDictionary() == itemDictionary;
+        for (int record = 0; record < batch.size(); record++) {
+            int itemIndex = sharesItemDictionary ? batch.getItemIndex(record) : itemDictionary.intern(batch.getItemId(record));
+            add(itemIndex, batch.getEpochSecond(record), batch.getTargetValue(record));
+        }
+    }
+
+    private void add(final int itemIndex, final long epochSecond, final double targetValue) {
+        long windowIndex = Math.floorDiv(epochSecond, windowSizeInSeconds);
+        if (windowIndex < 0 || windowIndex > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("timestamp [%s] of item_id [%s] is out of range",
+                    LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC), itemDictionary.getItemId(itemIndex)));
+        }
+
+        if (windowIndex > openWindowIndex) {
+            closeWindows();
+            openWindowIndex = windowIndex;
+        }
+        sums.add((windowIndex << 32) | itemIndex, targetValue);
+        numberOfRecords++;
+    }
+
+    /**
+     * Pass the sums of the open window on, and the batch to the consumer if it's not empty. Call it once all the
+     * records are added.
+     */
+    public void flush() {
+        closeWindows();
+        aggregatedBatch.flush(consumer);
+    }
+
+    /**
+     * Write the sums kept so far to the aggregated batch in the order of their windows, then of the items first seen.
+     * The timestamp of an aggregated record is the start of its window.
+     */
+    private void closeWindows() {
+        long[] keys = sums.keys();
+        Arrays.sort(keys);
+        for (long key : keys) {
+            aggregatedBatch.add((int) (key & 0xFFFFFFFFL), (key >>> 32) * windowSizeInSeconds, sums.get(key));
+            aggregatedBatch.flushIfFull(consumer);
+        }
+        numberOfAggregatedRecords += keys.length;
+        sums.clear();
+    }
+
+    /**
+     * @return the number of the records added
+     */
+    public long getNumberOfRecords() {
+        return numberOfRecords;
+    }
+
+    /**
+     * @return the number of the aggregated records passed on, i.e. the distinct (item, window) once flushed
+     */
+    public long getNumberOfAggregatedRecords() {
+        return numberOfAggregatedRecords;
+    }
+
+    /**
+     * A minimal open-addressing hash map from long to double with linear probing, which only supports what the
+     * aggregation needs: adding to a value, reading the keys and values back, and clearing it for the next window.
+     */
+    private static class LongDoubleHashMap {
+
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final double MAX_LOAD_FACTOR = 0.5;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private double[] values = new double[INITIAL_CAPACITY];
+        private boolean[] used = new boolean[INITIAL_CAPACITY];
+        private int size;
+
+        void add(final long key, final double value) {
+            int slot = findSlot(keys, used, key);
+            if (used[slot]) {
+                values[slot] += value;
+                return;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            used[slot] = true;
+            size++;
+            if (size > keys.length * MAX_LOAD_FACTOR) {
+                resize();
+            }
+        }
+
+        double get(final long key) {
+            int slot = findSlot(keys, used, key);
+            return used[slot] ? values[slot] : 0;
+        }
+
+        /**
+         * Keep the capacity, the next window likely has as many items as the last one.
+         */
+        void clear() {
+            if (size > 0) {
+                Arrays.fill(used, false);
+                size = 0;
+            }
+        }
+
+        long[] keys() {
+            long[] result = new long[size];
+            int i = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (used[slot]) {
+                    result[i++] = keys[slot];
+                }
+            }
+            return result;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            double[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            values = new double[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+                if (oldUsed[oldSlot]) {
+                    int slot = findSlot(keys, used, oldKeys[oldSlot]);
+                    keys[slot] = oldKeys[oldSlot];
+                    values[slot] = oldValues[oldSlot];
+                    used[slot] = true;
+                }
+            }
+        }
+
+        /**
+         * @return the slot of the key, or the empty slot where it belongs
+         */
+        private static int findSlot(final long[] keys, final boolean[] used, final long key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * The keys are sequential in both halves, so they are scrambled to not cluster in the table.
+         */
+        private static int mix(final long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import lombok.NonNull;
+
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * A batch of demand records kept column by column in primitive arrays: the index of the item in an
+ * {@link DemandItemDictionary}, the epoch second of the timestamp in UTC, and the numeric target value.
+ *
+ * A record costs 20 bytes in a batch instead of the objects of a {@link DemandRecord}, which are well over a hundred
+ * bytes, and the filtering, aggregating and serializing of the publishing loop over the arrays. A batch is filled
+ * up to its capacity, processed, then cleared and filled again, so the memory of the publishing stays the same
+ * however many records the window has. The item dictionary is shared by all the batches of a publishing, so the
+ * item ids are only kept once.
+ */
+public class DemandBatch {
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final DemandItemDictionary itemDictionary;
+    private final int[] itemIndices;
+    private final long[] epochSeconds;
+    private final double[] targetValues;
+    private int size;
+    private int numberOfMalformedRecords;
+
+    public DemandBatch(@NonNull final DemandItemDictionary itemDictionary) {
+        this(itemDictionary, DEFAULT_CAPACITY);
+    }
+
+    public DemandBatch(@NonNull final DemandItemDictionary itemDictionary, final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(String.format("capacity [%d] should be positive", capacity));
+        }
+        this.itemDictionary = itemDictionary;
+        this.itemIndices = new int[capacity];
+        this.epochSeconds = new long[capacity];
+        this.targetValues = new double[capacity];
+    }
+
+    public DemandItemDictionary getItemDictionary() {
+        return itemDictionary;
+    }
+
+    /**
+     * @throws IllegalStateException if the batch is full
+     */
+    public void add(@NonNull final String itemId, final long epochSecond, final double targetValue) {
+        add(itemDictionary.intern(itemId), epochSecond, targetValue);
+    }
+
+    /**
+     * @param itemIndex the index of the item in the item dictionary of the batch
+     * @throws IllegalStateException if the batch is full
+     */
+    public void add(final int itemIndex, final long epochSecond, final double targetValue) {
+        if (isFull()) {
+            throw new IllegalStateException(String.format("Demand batch is full with %d records", size));
+        }
+        itemIndices[size] = itemIndex;
+        epochSeconds[size] = epochSecond;
+        targetValues[size] = targetValue;
+        size++;
+    }
+
+    /**
+     * Copy the records within [offset, offset + length) of the columns into the batch, as many as it has room for.
+     *
+     * @param itemIndexMapping the index in the item dictionary of the batch of every item index of the columns, or
+     *                         null if the columns share the item dictionary of the batch
+     * @return the number of the copied records
+     */
+    int addAll(final int[] sourceItemIndices,
+               final int[] itemIndexMapping,
+               final long[] sourceEpochSeconds,
+               final double[] sourceTargetValues,
+               final int offset,
+               final int length) {
+        int copied = Math.min(length, itemIndices.length - size);
+        if (itemIndexMapping == null) {
+            System.arraycopy(sourceItemIndices, offset, itemIndices, size, copied);
+        } else {
+            for (int record = 0; record < copied; record++) {
+                itemIndices[size + record] = itemIndexMapping[sourceItemIndices[offset + record]];
+            }
+        }
+        System.arraycopy(sourceEpochSeconds, offset, epochSeconds, size, copied);
+        System.arraycopy(sourceTargetValues, offset, targetValues, size, copied);
+        size += copied;
+        return copied;
+    }
+
+    /**
+     * Count the records the source skipped as they could not be read, e.g. with a target value which is not a
+     * number, so that the stages of the batch get to know about them, see {@link DemandQualityCheck}.
+     */
+    public void addMalformed(final int numberOfRecords) {
+        numberOfMalformedRecords += numberOfRecords;
+    }
+
+    /**
+     * @return the number of the malformed records skipped since the batch was last cleared
+     */
+    public int getNumberOfMalformedRecords() {
+        return numberOfMalformedRecords;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == itemIndices.length;
+    }
+
+    public void clear() {
+        size = 0;
+        numberOfMalformedRecords = 0;
+    }
+
+    /**
+     * Pass the batch to the consumer and clear it if it's full.
+     */
+    public void flushIfFull(@NonNull final Consumer<DemandBatch> consumer) {
+        if (isFull()) {
+            consumer.accept(this);
+            clear();
+        }
+    }
+
+    /**
+     * Pass the batch to the consumer and clear it, unless it has neither records nor malformed records.
+     */
+    public void flush(@NonNull final Consumer<DemandBatch> consumer) {
+        if (!isEmpty() || numberOfMalformedRecords > 0) {
+            consumer.accept(this);
+            clear();
+        }
+    }
+
+    public int getItemIndex(final int record) {
+        return itemIndices[record];
+    }
+
+    public String getItemId(final int record) {
+        return itemDictionary.getItemId(itemIndices[record]);
+    }
+
+    public long getEpochSecond(final int record) {
+        return epochSeconds[record];
+    }
+
+    public double getTargetValue(final int record) {
+        return targetValues[record];
+    }
+
+    /**
+     * Only keep the records whose timestamp is within (startEpochSecond, endEpochSecond], in their order.
+     *
+     * @return the number of the removed records
+     */
+    public int retainWithin(final long startEpochSecond, final long endEpochSecond) {
+        return retainIf(record -> epochSeconds[record] > startEpochSecond && epochSeconds[record] <= endEpochSecond);
+    }
+
+    /**
+     * Only keep the records the predicate accepts, in their order. The predicate is called once per record, in their
+     * order, before the record is moved, so it can read the record from the batch.
+     *
+     * @return the number of the removed records
+     */
+    public int retainIf(@NonNull final IntPredicate predicate) {
+        int retained = 0;
+        for (int record = 0; record < size; record++) {
+            if (predicate.test(record)) {
+                itemIndices[retained] = itemIndices[record];
+                epochSeconds[retained] = epochSeconds[record];
+                targetValues[retained] = targetValues[record];
+                retained++;
+            }
+        }
+        int removed = size - retained;
+        size = retained;
+        return removed;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the target value is not a finite number
+     */
+    public static double parseTargetValue(final String itemId, final String targetValue) {
+        double value;
+        try {
+            value = Double.parseDouble(targetValue);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException(String.format("target_value [%s] of item_id [%s] is not a number",
+                    targetValue, itemId), e);
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException(String.format("target_value [%s] of item_id [%s] is not a number",
+                    targetValue, itemId));
+        }
+        return value;
+    }
+
+    /**
+     * @return the shortest plain text of the target value, e.g. 28 for 28.0 and 1.5 for 1.50
+     */
+    public static String formatTargetValue(final double targetValue) {
+        return BigDecimal.valueOf(targetValue).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,237 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import com.amazonaws.lambda.common.S3MultipartUploadOutputStream;
+import com.amazonaws.lambda.common.TrainingDataCompression;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import lombok.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
+
+/**
+ * Writes demand csv files to S3, one per shard, each starting with the {@link HistoricalDemandFiles#HEADER}, and
+ * routes every row to the shard of its item.
+ *
+ * Every shard is streamed into its own {@link S3MultipartUploadOutputStream}, so the parts of all the shards are
+ * uploaded in parallel while the rows are written, and {@link #close()} completes the uploads in parallel too.
+ * A sharded file has smaller parts and a single part in flight, so that the buffers of all the shards fit in the
+ * memory of the function.
+ *
+ * The shards are replaced as a whole: none of them is completed until the parts of all of them are uploaded, so
+ * that a shard failing doesn't leave the new shards next to the previous ones of the other items.
+ */
+class DemandFileWriter implements Closeable {
+
+    private static final int SHARD_PART_SIZE = 5 * 1024 * 1024;
+    private static final int SHARD_MAX_IN_FLIGHT_PARTS = 1;
+    // The doubles below it are all exact integers, which BigDecimal writes without any exponent
+    private static final double MAX_EXACT_INTEGER = 1e15;
+
+    private final String bucketName;
+    private final List<String> keys;
+    private final ToIntFunction<String> shardFunction;
+    private final List<S3MultipartUploadOutputStream> s3OutputStreams = new ArrayList<>();
+    private final List<Writer> csvWriters = new ArrayList<>();
+    // The timestamps and the target values are formatted into it before they are written
+    private final char[] chars = new char[DemandTimestamps.MAX_LENGTH];
+    private long numberOfRows;
+
+    /**
+     * @param keys the key of every shard
+     * @param shardFunction the index of the shard of an item id in the keys
+     * @param objectMetadata the metadata of every shard
+     */
+    DemandFileWriter(@NonNull final AmazonS3 s3Client,
+                     @NonNull final String bucketName,
+                     @NonNull final List<String> keys,
+                     @NonNull final ToIntFunction<String> shardFunction,
+                     @NonNull final TrainingDataCompression compression,
+                     @NonNull final ObjectMetadata objectMetadata) throws IOException {
+        this.bucketName = bucketName;
+        this.keys = keys;
+        this.shardFunction = shardFunction;
+        try {
+            for (String key : keys) {
+                S3MultipartUploadOutputStream s3OutputStream = keys.size() == 1
+                        ? new S3MultipartUploadOutputStream(s3Client, bucketName, key, objectMetadata)
+                        : new S3MultipartUploadOutputStream(s3Client, bucketName, key, objectMetadata,
+                                SHARD_PART_SIZE, SHARD_MAX_IN_FLIGHT_PARTS);
+                s3OutputStreams.add(s3OutputStream);
+                // The csv is compressed while it is written, before it is buffered into the upload parts
+                OutputStream shardOutputStream = keys.size() == 1 ? s3OutputStream : new ShardOutputStream(s3OutputStream);
+                Writer csvWriter = new BufferedWriter(new OutputStreamWriter(compression.compress(shardOutputStream),
+                        StandardCharsets.UTF_8));
+                csvWriters.add(csvWriter);
+                csvWriter.write(HistoricalDemandFiles.HEADER);
+            }
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Write the csv rows of the records of the batch into the shards of their items, straight from the columns of
+     * the batch without creating any string per row.
+     */
+    void write(@NonNull final DemandBatch batch) throws IOException {
+        for (int record = 0; record < batch.size(); record++) {
+            String itemId = batch.getItemId(record);
+            Writer csvWriter = csvWriters.get(keys.size() == 1 ? 0 : shardFunction.applyAsInt(itemId));
+            csvWriter.write('\n');
+            csvWriter.write(itemId);
+            csvWriter.write(',');
+            csvWriter.write(chars, 0, DemandTimestamps.formatEpochSecond(batch.getEpochSecond(record), chars, 0));
+            csvWriter.write(',');
+            writeTargetValue(csvWriter, batch.getTargetValue(record));
+        }
+        numberOfRows += batch.size();
+    }
+
+    /**
+     * Write the csv row of a record of the item into its shard.
+     */
+    void write(final String itemId, final String row) throws IOException {
+        Writer csvWriter = csvWriters.get(keys.size() == 1 ? 0 : shardFunction.applyAsInt(itemId));
+        csvWriter.write('\n');
+        csvWriter.write(row);
+        numberOfRows++;
+    }
+
+    long getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * Complete the uploads of all the shards, each file is visible in the bucket once its upload is completed.
+     * The parts of every shard are uploaded first, and if any of them fails, all the shards are aborted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (csvWriters.size() == 1) {
+            csvWriters.get(0).close();
+            return;
+        }
+
+        ExecutorService completionExecutor = Executors.newFixedThreadPool(csvWriters.size(), runnable -> {
+            Thread thread = new Thread(runnable, "demand-shard-completion");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // Closing a csv writer finishes its compression and uploads the last parts, see ShardOutputStream
+            forEachShard(completionExecutor, "finish", shard -> csvWriters.get(shard).close());
+            forEachShard(completionExecutor, "complete", shard -> s3OutputStreams.get(shard).close());
+        } catch (IOException e) {
+            abort();
+            throw e;
+        } finally {
+            completionExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Run the action on all the shards in parallel, and wait for every one of them, so that none is still running
+     * when the shards are aborted.
+     */
+    private void forEachShard(final ExecutorService executor,
+                              final String actionName,
+                              final ShardAction action) throws IOException {
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int shard = 0; shard < csvWriters.size(); shard++) {
+            int currentShard = shard;
+            futures.add(executor.submit(() -> {
+                action.run(currentShard);
+                return null;
+            }));
+        }
+        IOException failure = null;
+        for (int shard = 0; shard < futures.size(); shard++) {
+            try {
+                futures.get(shard).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(String.format("Interrupted while waiting for the shard uploads to %s",
+                        actionName));
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = new IOException(String.format("Failed to %s the upload of s3://%s/%s",
+                            actionName, bucketName, keys.get(shard)), e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Most of the target values are counts, so the integers are written digit by digit, and the others are written
+     * as {@link DemandBatch#formatTargetValue(double)}.
+     */
+    private void writeTargetValue(final Writer csvWriter, final double targetValue) throws IOException {
+        if (targetValue != Math.rint(targetValue) || Math.abs(targetValue) >= MAX_EXACT_INTEGER) {
+            csvWriter.write(DemandBatch.formatTargetValue(targetValue));
+            return;
+        }
+        long integer = Math.abs((long) targetValue);
+        int start = chars.length;
+        do {
+            chars[--start] = (char) ('0' + integer % 10);
+            integer /= 10;
+        } while (integer > 0);
+        if (targetValue < 0) {
+            chars[--start] = '-';
+        }
+        csvWriter.write(chars, start, chars.length - start);
+    }
+
+    /**
+     * Discard the shards which are not completed yet, it does nothing to the completed ones.
+     */
+    void abort() {
+        s3OutputStreams.forEach(S3MultipartUploadOutputStream::abort);
+    }
+
+    private interface ShardAction {
+        void run(int shard) throws IOException;
+    }
+
+    /**
+     * Only finishes the upload of its shard once the csv is written, leaving the completion to {@link #close()}.
+     */
+    private static class ShardOutputStream extends FilterOutputStream {
+
+        private final S3MultipartUploadOutputStream s3OutputStream;
+
+        ShardOutputStream(final S3MultipartUploadOutputStream s3OutputStream) {
+            super(s3OutputStream);
+            this.s3OutputStream = s3OutputStream;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            s3OutputStream.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            s3OutputStream.finish();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns the item ids of the demand records into dense int indices, in the order the items are first seen, so
+ * that every item id is kept once however many records it has, see {@link DemandBatch}.
+ */
+public class DemandItemDictionary {
+
+    private final Map<String, Integer> itemIndices = new HashMap<>();
+    private final List<String> itemIds = new ArrayList<>();
+
+    /**
+     * @return the index of the item id, a new one if it's not seen yet
+     */
+    public int intern(@NonNull final String itemId) {
+        Integer itemIndex = itemIndices.get(itemId);
+        if (itemIndex == null) {
+            itemIndex = itemIds.size();
+            itemIndices.put(itemId, itemIndex);
+            itemIds.add(itemId);
+        }
+        return itemIndex;
+    }
+
+    public String getItemId(final int itemIndex) {
+        return itemIds.get(itemIndex);
+    }
+
+    public int size() {
+        return itemIds.size();
+    }
+}
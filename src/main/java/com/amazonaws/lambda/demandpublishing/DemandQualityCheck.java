@@ -0,0 +1,200 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import lombok.NonNull;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.amazonaws.lambda.demandpublishing.DemandRecord.LocalDateTimeConverter.FORECAST_DATE_TIME_FORMATTER;
+
+/**
+ * Checks the demand records of a publishing batch by batch, in the same pass as the other stages of the publishing:
+ * drops the exact duplicates, i.e. the same item, timestamp and target value, and keeps the statistics of the records,
+ * the number of the malformed and out of order records, and the number of records and the first and last timestamps
+ * of every item.
+ *
+ * The duplicates are found by a bloom filter of a fixed size, so its memory stays the same however many records the
+ * window has. A bloom filter has false positives though, so a record may be dropped as a duplicate when it is not,
+ * with a rate growing with the number of the records: about 0.003% for 5M records in the 16MB by default, and about
+ * 0.2% for 10M records. A filter size of 0 disables the deduplication.
+ *
+ * A record is out of order if its timestamp is before the latest timestamp of its item read so far. It is kept, as
+ * Forecast doesn't need the records in order, but counted as a hint of late events in the data source.
+ */
+public class DemandQualityCheck {
+
+    public static final int DEFAULT_FILTER_SIZE_IN_MB = 16;
+    public static final int MAX_FILTER_SIZE_IN_MB = 512;
+
+    private static final int NUMBER_OF_HASHES = 7;
+    private static final long BITS_IN_A_MB = 8L * 1024 * 1024;
+
+    private final DemandItemDictionary itemDictionary;
+    // Null if the deduplication is disabled
+    private final long[] filterBits;
+    private final long numberOfFilterBits;
+
+    private long numberOfRecords;
+    private long numberOfDuplicateRecords;
+    private long numberOfMalformedRecords;
+    private long numberOfOutOfOrderRecords;
+    // Indexed by the item indices of the item dictionary
+    private long[] itemNumberOfRecords = new long[0];
+    private long[] itemMinEpochSeconds = new long[0];
+    private long[] itemMaxEpochSeconds = new long[0];
+
+    /**
+     * @param itemDictionary the item dictionary of the batches to check
+     * @throws IllegalArgumentException if the filter size is not within [0, {@link #MAX_FILTER_SIZE_IN_MB}]
+     */
+    public DemandQualityCheck(@NonNull final DemandItemDictionary itemDictionary, final int filterSizeInMb) {
+        if (filterSizeInMb < 0 || filterSizeInMb > MAX_FILTER_SIZE_IN_MB) {
+            throw new IllegalArgumentException(String.format("Filter size [%d] MB should be within [0, %d]",
+                    filterSizeInMb, MAX_FILTER_SIZE_IN_MB));
+        }
+        this.itemDictionary = itemDictionary;
+        this.numberOfFilterBits = filterSizeInMb * BITS_IN_A_MB;
+        this.filterBits = filterSizeInMb == 0 ? null : new long[(int) (numberOfFilterBits / Long.SIZE)];
+    }
+
+    /**
+     * Drop the duplicates of the batch in place, and add the rest of its records and its malformed records to the
+     * statistics.
+     *
+     * @return the number of the dropped duplicates
+     * @throws IllegalArgumentException if the batch doesn't share the item dictionary of the check
+     */
+    public int check(@NonNull final DemandBatch batch) {
+        if (batch.getItemDictionary() != itemDictionary) {
+            throw new IllegalArgumentException("Demand batch should share the item dictionary of the quality check");
+        }
+        numberOfMalformedRecords += batch.getNumberOfMalformedRecords();
+        ensureItemCapacity(itemDictionary.size());
+
+        int removed = batch.retainIf(record -> {
+            int itemIndex = batch.getItemIndex(record);
+            long epochSecond = batch.getEpochSecond(record);
+            if (filterBits != null && !addToFilter(itemIndex, epochSecond, batch.getTargetValue(record))) {
+                return false;
+            }
+            if (epochSecond < itemMaxEpochSeconds[itemIndex]) {
+                numberOfOutOfOrderRecords++;
+            }
+            itemNumberOfRecords[itemIndex]++;
+            itemMinEpochSeconds[itemIndex] = Math.min(itemMinEpochSeconds[itemIndex], epochSecond);
+            itemMaxEpochSeconds[itemIndex] = Math.max(itemMaxEpochSeconds[itemIndex], epochSecond);
+            return true;
+        });
+        numberOfRecords += batch.size();
+        numberOfDuplicateRecords += removed;
+        return removed;
+    }
+
+    /**
+     * @return the number of the records kept, i.e. neither duplicate nor malformed
+     */
+    public long getNumberOfRecords() {
+        return numberOfRecords;
+    }
+
+    public long getNumberOfDuplicateRecords() {
+        return numberOfDuplicateRecords;
+    }
+
+    public long getNumberOfMalformedRecords() {
+        return numberOfMalformedRecords;
+    }
+
+    public long getNumberOfOutOfOrderRecords() {
+        return numberOfOutOfOrderRecords;
+    }
+
+    /**
+     * @return the number of the items with at least a record kept
+     */
+    public int getNumberOfItems() {
+        int numberOfItems = 0;
+        for (int itemIndex = 0; itemIndex < itemNumberOfRecords.length; itemIndex++) {
+            if (itemNumberOfRecords[itemIndex] > 0) {
+                numberOfItems++;
+            }
+        }
+        return numberOfItems;
+    }
+
+    /**
+     * @return the statistics of the items with at least a record kept, in the order of the items first seen, each
+     * with its item_id, number_of_records, and first and last timestamps
+     */
+    public List<Map<String, Object>> getItemStatistics() {
+        List<Map<String, Object>> itemStatistics = new ArrayList<>();
+        for (int itemIndex = 0; itemIndex < itemNumberOfRecords.length; itemIndex++) {
+            if (itemNumberOfRecords[itemIndex] == 0) {
+                continue;
+            }
+            Map<String, Object> itemStatistic = new LinkedHashMap<>();
+            itemStatistic.put("item_id", itemDictionary.getItemId(itemIndex));
+            itemStatistic.put("number_of_records", itemNumberOfRecords[itemIndex]);
+            itemStatistic.put("first_timestamp", formatEpochSecond(itemMinEpochSeconds[itemIndex]));
+            itemStatistic.put("last_timestamp", formatEpochSecond(itemMaxEpochSeconds[itemIndex]));
+            itemStatistics.add(itemStatistic);
+        }
+        return itemStatistics;
+    }
+
+    private void ensureItemCapacity(final int numberOfItems) {
+        int oldNumberOfItems = itemNumberOfRecords.length;
+        if (numberOfItems <= oldNumberOfItems) {
+            return;
+        }
+        int newNumberOfItems = Math.max(numberOfItems, oldNumberOfItems * 2);
+        itemNumberOfRecords = Arrays.copyOf(itemNumberOfRecords, newNumberOfItems);
+        itemMinEpochSeconds = Arrays.copyOf(itemMinEpochSeconds, newNumberOfItems);
+        itemMaxEpochSeconds = Arrays.copyOf(itemMaxEpochSeconds, newNumberOfItems);
+        Arrays.fill(itemMinEpochSeconds, oldNumberOfItems, newNumberOfItems, Long.MAX_VALUE);
+        Arrays.fill(itemMaxEpochSeconds, oldNumberOfItems, newNumberOfItems, Long.MIN_VALUE);
+    }
+
+    /**
+     * Set the bits of the record in the filter, with the double hashing of Kirsch and Mitzenmacher.
+     *
+     * @return false if all of them were set already, i.e. the record is probably a duplicate
+     */
+    private boolean addToFilter(final int itemIndex, final long epochSecond, final double targetValue) {
+        long hash1 = mix(mix(epochSecond * 0x9E3779B97F4A7C15L + itemIndex) ^ Double.doubleToLongBits(targetValue));
+        long hash2 = mix(hash1 ^ 0xC2B2AE3D27D4EB4FL) | 1;
+        boolean added = false;
+        for (int i = 0; i < NUMBER_OF_HASHES; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % numberOfFilterBits;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((filterBits[word] & mask) == 0) {
+                filterBits[word] |= mask;
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * The finalizer of MurmurHash3, so that every bit of the input affects every bit of the hash.
+     */
+    private static long mix(final long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static String formatEpochSecond(final long epochSecond) {
+        return FORECAST_DATE_TIME_FORMATTER.format(LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC));
+    }
+}
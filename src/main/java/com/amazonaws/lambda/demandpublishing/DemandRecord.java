@@ -3,6 +3,7 @@ package com.amazonaws.lambda.demandpublishing;
 import com.opencsv.bean.AbstractBeanField;
 import com.opencsv.bean.CsvBindByName;
 import com.opencsv.bean.CsvCustomBindByName;
+import com.opencsv.exceptions.CsvDataTypeMismatchException;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -10,9 +11,7 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.StringJoiner;
-
-import static com.amazonaws.lambda.demandpublishing.DemandRecord.LocalDateTimeConverter.FORECAST_DATE_TIME_FORMATTER;
+import java.time.format.DateTimeParseException;
 
 @Data
 @AllArgsConstructor
@@ -42,7 +41,7 @@ public class DemandRecord {
         public static final DateTimeFormatter FORECAST_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss");
 
         @Override
-        protected LocalDateTime convert(String s) {
+        protected LocalDateTime convert(String s) throws CsvDataTypeMismatchException {
             /*
              * Refer to: https://docs.oracle.com/javase/8/docs/api/java/time/format/DateTimeFormatter.html#patterns,
              * uuuu: year
@@ -54,7 +53,14 @@ public class DemandRecord {
              * mm: minute-of-hour
              * ss: second-of-minute
              */
-            return LocalDateTime.parse(s, FORECAST_DATE_TIME_FORMATTER);
+            try {
+                return DemandTimestamps.parse(s);
+            } catch (DateTimeParseException e) {
+                // Reported as a malformed row of the file by opencsv, instead of failing the whole parsing
+                CsvDataTypeMismatchException exception = new CsvDataTypeMismatchException(s, LocalDateTime.class, e.getMessage());
+                exception.initCause(e);
+                throw exception;
+            }
         }
     }
 
@@ -68,11 +74,15 @@ public class DemandRecord {
     private String targetValue;
 
     public String toCsvRowString() {
-        StringJoiner sj = new StringJoiner(",");
-        sj.add(itemId).add(FORECAST_DATE_TIME_FORMATTER.format(timestamp)).add(targetValue);
-        return sj.toString();
+        char[] timestampChars = new char[DemandTimestamps.MAX_LENGTH];
+        int timestampLength = DemandTimestamps.format(timestamp, timestampChars, 0);
+        return new StringBuilder(64)
+                .append(itemId)
+                .append(',')
+                .append(timestampChars, 0, timestampLength)
+                .append(',')
+                .append(targetValue)
+                .toString();
     }
-}
-
-
 
+}
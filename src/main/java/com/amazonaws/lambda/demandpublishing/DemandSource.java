@@ -0,0 +1,26 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Where the historical demand records come from.
+ *
+ * The records are pushed to the consumer a {@link DemandBatch} at a time while they are read, so an implementation
+ * should never hold the whole window in memory.
+ */
+public interface DemandSource {
+
+    /**
+     * Read the demand records whose timestamp is within (startTime, endTime] into the batch, in the order of their
+     * timestamps, passing it to the consumer whenever it's full and once at the end if it's not empty. The batch is
+     * cleared after every call, so the consumer should not keep it. The consecutive windows of an incremental
+     * publishing share their bounds, so only one of them includes it. The records out of order are still published,
+     * but the aggregation keeps more than one record per window. The records which cannot be read, e.g. with a
+     * target value which is not a number, are skipped and counted as malformed in the batch.
+     *
+     * @return the number of the records read, including the malformed ones
+     * @throws IllegalStateException if the records cannot be read
+     */
+    long readDemandBatches(LocalDateTime startTime, LocalDateTime endTime, DemandBatch batch, Consumer<DemandBatch> consumer);
+}
@@ -0,0 +1,207 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import lombok.NonNull;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static com.amazonaws.lambda.demandpublishing.DemandRecord.LocalDateTimeConverter.FORECAST_DATE_TIME_FORMATTER;
+
+/**
+ * Parses and formats the timestamps of the demand records in the fixed uuuu-MM-dd HH:mm:ss layout of
+ * {@link DemandRecord.LocalDateTimeConverter#FORECAST_DATE_TIME_FORMATTER}, digit by digit, instead of going through
+ * the generic {@link java.time.format.DateTimeFormatter} machinery for every row.
+ *
+ * Only the strictly valid timestamps of the layout take the fast path. Anything else, e.g. 2020-02-30 00:00:00 which
+ * the formatter resolves to 2020-02-29, falls back to the formatter, so the results and the errors stay the same.
+ */
+public final class DemandTimestamps {
+
+    /**
+     * The length of a timestamp, e.g. 2020-01-01 00:00:00
+     */
+    public static final int LENGTH = 19;
+    /**
+     * The room to leave in a buffer to format any timestamp, including the years beyond 9999
+     */
+    public static final int MAX_LENGTH = 32;
+
+    private static final int SECONDS_IN_A_DAY = 60 * 60 * 24;
+    private static final int MAX_YEAR = 9999;
+    // 0000-01-01 00:00:00 and 9999-12-31 23:59:59
+    private static final long MIN_EPOCH_SECOND = -62167219200L;
+    private static final long MAX_EPOCH_SECOND = 253402300799L;
+
+    private DemandTimestamps() {
+    }
+
+    public static LocalDateTime parse(@NonNull final CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * @param text the text containing the timestamp within [start, end)
+     * @throws java.time.format.DateTimeParseException if it is not a timestamp
+     */
+    public static LocalDateTime parse(@NonNull final CharSequence text, final int start, final int end) {
+        long epochSecond = parseStrictly(text, start, end);
+        if (epochSecond == Long.MIN_VALUE) {
+            return LocalDateTime.parse(text.subSequence(start, end), FORECAST_DATE_TIME_FORMATTER);
+        }
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Parse the timestamp as UTC, without creating any object on the fast path.
+     *
+     * @param text the text containing the timestamp within [start, end)
+     * @return the epoch second of the timestamp
+     * @throws java.time.format.DateTimeParseException if it is not a timestamp
+     */
+    public static long parseEpochSecond(@NonNull final CharSequence text, final int start, final int end) {
+        long epochSecond = parseStrictly(text, start, end);
+        if (epochSecond == Long.MIN_VALUE) {
+            return LocalDateTime.parse(text.subSequence(start, end), FORECAST_DATE_TIME_FORMATTER)
+                    .toEpochSecond(ZoneOffset.UTC);
+        }
+        return epochSecond;
+    }
+
+    /**
+     * Write the timestamp into the buffer, ignoring its nanoseconds like the formatter. The buffer should have room
+     * for {@link #MAX_LENGTH} chars from the offset.
+     *
+     * @return the number of the written chars, always {@link #LENGTH} but for the years after 9999
+     */
+    public static int format(@NonNull final LocalDateTime timestamp, @NonNull final char[] buffer, final int offset) {
+        int year = timestamp.getYear();
+        if (year < 0 || year > MAX_YEAR) {
+            String text = FORECAST_DATE_TIME_FORMATTER.format(timestamp);
+            text.getChars(0, text.length(), buffer, offset);
+            return text.length();
+        }
+        writeDigits(buffer, offset, year, 4);
+        buffer[offset + 4] = '-';
+        writeDigits(buffer, offset + 5, timestamp.getMonthValue(), 2);
+        buffer[offset + 7] = '-';
+        writeDigits(buffer, offset + 8, timestamp.getDayOfMonth(), 2);
+        buffer[offset + 10] = ' ';
+        writeDigits(buffer, offset + 11, timestamp.getHour(), 2);
+        buffer[offset + 13] = ':';
+        writeDigits(buffer, offset + 14, timestamp.getMinute(), 2);
+        buffer[offset + 16] = ':';
+        writeDigits(buffer, offset + 17, timestamp.getSecond(), 2);
+        return LENGTH;
+    }
+
+    /**
+     * Write the timestamp of the epoch second in UTC into the buffer, without creating any object for the years
+     * from 0 to 9999. The buffer should have room for {@link #MAX_LENGTH} chars from the offset.
+     *
+     * @return the number of the written chars
+     */
+    public static int formatEpochSecond(final long epochSecond, @NonNull final char[] buffer, final int offset) {
+        if (epochSecond < MIN_EPOCH_SECOND || epochSecond > MAX_EPOCH_SECOND) {
+            return format(LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC), buffer, offset);
+        }
+        long epochDay = Math.floorDiv(epochSecond, SECONDS_IN_A_DAY);
+        int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_IN_A_DAY);
+
+        // The inverse of getEpochDay, with the years counted from March
+        long dayOfEpochEra = epochDay + 719468;
+        long era = Math.floorDiv(dayOfEpochEra, 146097);
+        long dayOfEra = dayOfEpochEra - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthFromMarch = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthFromMarch + 2) / 5 + 1);
+        int month = (int) (monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+        writeDigits(buffer, offset, year, 4);
+        buffer[offset + 4] = '-';
+        writeDigits(buffer, offset + 5, month, 2);
+        buffer[offset + 7] = '-';
+        writeDigits(buffer, offset + 8, day, 2);
+        buffer[offset + 10] = ' ';
+        writeDigits(buffer, offset + 11, secondOfDay / 3600, 2);
+        buffer[offset + 13] = ':';
+        writeDigits(buffer, offset + 14, secondOfDay / 60 % 60, 2);
+        buffer[offset + 16] = ':';
+        writeDigits(buffer, offset + 17, secondOfDay % 60, 2);
+        return LENGTH;
+    }
+
+    /**
+     * @return the epoch second of the strictly valid timestamp, Long.MIN_VALUE for anything else
+     */
+    private static long parseStrictly(final CharSequence text, final int start, final int end) {
+        if (end - start != LENGTH
+                || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-' || text.charAt(start + 10) != ' '
+                || text.charAt(start + 13) != ':' || text.charAt(start + 16) != ':') {
+            return Long.MIN_VALUE;
+        }
+        int year = parseDigits(text, start, 4);
+        int month = parseDigits(text, start + 5, 2);
+        int day = parseDigits(text, start + 8, 2);
+        int hour = parseDigits(text, start + 11, 2);
+        int minute = parseDigits(text, start + 14, 2);
+        int second = parseDigits(text, start + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > getLengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return Long.MIN_VALUE;
+        }
+        return getEpochDay(year, month, day) * SECONDS_IN_A_DAY + hour * 3600 + minute * 60 + second;
+    }
+
+    /**
+     * @return the number, or -1 if any of the chars is not a digit
+     */
+    private static int parseDigits(final CharSequence text, final int start, final int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void writeDigits(final char[] buffer, final int offset, final int value, final int length) {
+        int remaining = value;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+    }
+
+    private static int getLengthOfMonth(final int year, final int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * The days since 1970-01-01 of the date of the proleptic Gregorian calendar, as {@link java.time.LocalDate#toEpochDay()}
+     * computes it for the years from 0.
+     */
+    private static long getEpochDay(final int year, final int month, final int day) {
+        // Count the years from March, so that the leap day is the last day of the year
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
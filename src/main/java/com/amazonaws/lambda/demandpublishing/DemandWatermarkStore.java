@@ -0,0 +1,59 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Keeps the high-water mark of the incremental demand publishing, i.e. the end of the latest window whose records
+ * are all published, as a tiny S3 object next to the files it describes.
+ */
+@Slf4j
+public class DemandWatermarkStore {
+
+    private static final int NOT_FOUND_STATUS_CODE = 404;
+
+    private final AmazonS3 s3Client;
+    private final String bucketName;
+    private final String key;
+
+    public DemandWatermarkStore(@NonNull final AmazonS3 s3Client,
+                                @NonNull final String bucketName,
+                                @NonNull final String key) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+    }
+
+    /**
+     * @return the watermark, or null if nothing has been published incrementally yet
+     */
+    public LocalDateTime read() {
+        String watermark;
+        try {
+            watermark = s3Client.getObjectAsString(bucketName, key);
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == NOT_FOUND_STATUS_CODE) {
+                log.info(String.format("Found no demand watermark at s3://%s/%s", bucketName, key));
+                return null;
+            }
+            throw e;
+        }
+
+        try {
+            return LocalDateTime.parse(watermark.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalStateException(String.format("Demand watermark [%s] at s3://%s/%s is not a timestamp",
+                    watermark, bucketName, key), e);
+        }
+    }
+
+    public void write(@NonNull final LocalDateTime watermark) {
+        s3Client.putObject(bucketName, key, watermark.toString());
+        log.info(String.format("Moved the demand watermark at s3://%s/%s to [%s]", bucketName, key, watermark));
+    }
+}
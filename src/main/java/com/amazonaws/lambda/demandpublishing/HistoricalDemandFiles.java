@@ -0,0 +1,113 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import com.amazonaws.lambda.common.TrainingDataCompression;
+import com.amazonaws.lambda.common.TrainingDataLayout;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The layout of the historical demand files under the source folder of the prediction bucket.
+ *
+ * <pre>
+ *     source/historical_demand.csv                            <-- the training file imported by Forecast
+ *     source/historical_demand/part-00000.csv                 <-- or its shards, see {@link TrainingDataLayout}
+ *     source/deltas/demand_after_20200301T010100.csv          <-- the records published after the watermark in the name
+ *     source/state/demand_watermark                           <-- the timestamp of the latest published record window
+ *     source/manifests/historical_demand.csv.json             <-- the data quality statistics of a published file
+ * </pre>
+ *
+ * All of them are csv files with the {@link #HEADER}, except the watermark, and the csv files have the key suffix
+ * of their {@link TrainingDataCompression}, e.g. source/historical_demand.csv.gz. The delta files are named after the
+ * watermark they start from, so they sort in the chronological order, and publishing from the same watermark again
+ * overwrites the same delta instead of duplicating its records. The manifests are kept out of the folders of the csv
+ * files, so that neither Forecast nor the compaction takes them for demand files.
+ */
+final class HistoricalDemandFiles {
+
+    static final int LOOK_BACK_DURATION_IN_DAYS = 60;
+    static final String HEADER = "item_id,timestamp,target_value";
+
+    private static final String DELTAS_FOLDER = "deltas";
+    private static final String DELTA_FILE_PREFIX = "demand_after_";
+    private static final String DELTA_FILE_EXTENSION = ".csv";
+    private static final String WATERMARK_KEY = "state/demand_watermark";
+    private static final String MANIFESTS_FOLDER = "manifests";
+    private static final String MANIFEST_FILE_EXTENSION = ".json";
+    private static final DateTimeFormatter DELTA_FILE_TIME_FORMATTER = DateTimeFormatter.ofPattern("uuuuMMdd'T'HHmmss");
+
+    private HistoricalDemandFiles() {
+    }
+
+    static String getDeltasPrefix(final String srcS3Folder) {
+        return String.format("%s/%s/%s", srcS3Folder, DELTAS_FOLDER, DELTA_FILE_PREFIX);
+    }
+
+    static String getDeltaKey(final String srcS3Folder,
+                              final LocalDateTime watermark,
+                              final TrainingDataCompression compression) {
+        return getDeltaKeyPrefix(srcS3Folder, watermark) + DELTA_FILE_EXTENSION + compression.getKeySuffix();
+    }
+
+    /**
+     * @return the prefix of the key of the delta starting at the watermark whatever its compression, which sorts
+     * after the keys of all the deltas before the watermark
+     */
+    static String getDeltaKeyPrefix(final String srcS3Folder, final LocalDateTime watermark) {
+        return getDeltasPrefix(srcS3Folder) + DELTA_FILE_TIME_FORMATTER.format(watermark);
+    }
+
+    static String getWatermarkKey(final String srcS3Folder) {
+        return String.format("%s/%s", srcS3Folder, WATERMARK_KEY);
+    }
+
+    /**
+     * @param fileName the name of the published csv file, without the suffix of its compression
+     */
+    static String getManifestKey(final String srcS3Folder, final String fileName) {
+        return String.format("%s/%s/%s%s", srcS3Folder, MANIFESTS_FOLDER, fileName, MANIFEST_FILE_EXTENSION);
+    }
+
+    /**
+     * @return the key of the data quality manifest of the training data, whatever its number of shards
+     */
+    static String getManifestKey(final TrainingDataLayout trainingDataLayout) {
+        return getManifestKey(trainingDataLayout.getSrcS3Folder(), trainingDataLayout.getTrainingDataFileName());
+    }
+
+    static String getDeltaManifestKey(final String srcS3Folder, final LocalDateTime watermark) {
+        return getManifestKey(srcS3Folder, DELTA_FILE_PREFIX + DELTA_FILE_TIME_FORMATTER.format(watermark) + DELTA_FILE_EXTENSION);
+    }
+
+    /**
+     * @return the item id of the row, see {@link #parseEpochSecond(String)}
+     */
+    static String parseItemId(final String row) {
+        return row.substring(0, getTimestampSeparator(row));
+    }
+
+    /**
+     * The rows are written by {@link DemandRecord#toCsvRowString()} without any quoting, and neither the timestamp
+     * nor the target value contains a comma, so the timestamp is the second last field whatever the item id is.
+     *
+     * @return the timestamp of the row as an epoch second in UTC
+     */
+    static long parseEpochSecond(final String row) {
+        try {
+            return DemandTimestamps.parseEpochSecond(row, getTimestampSeparator(row) + 1, row.lastIndexOf(','));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(String.format("Demand row [%s] should have a timestamp like 2020-01-01 00:00:00",
+                    row), e);
+        }
+    }
+
+    private static int getTimestampSeparator(final String row) {
+        int targetValueSeparator = row.lastIndexOf(',');
+        int timestampSeparator = targetValueSeparator <= 0 ? -1 : row.lastIndexOf(',', targetValueSeparator - 1);
+        if (timestampSeparator < 0) {
+            throw new IllegalArgumentException(String.format("Demand row [%s] should be like %s", row, HEADER));
+        }
+        return timestampSeparator;
+    }
+}
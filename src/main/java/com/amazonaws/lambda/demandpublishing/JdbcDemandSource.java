@@ -0,0 +1,168 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import com.google.common.annotations.VisibleForTesting;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the demand records from a relational database, e.g. RDS, with a table like
+ * <pre>
+ *     CREATE TABLE demand (item_id VARCHAR(256), timestamp TIMESTAMP, target_value VARCHAR(64));
+ *     CREATE INDEX demand_timestamp ON demand (timestamp);
+ * </pre>
+ *
+ * The time window is pushed down to the database as the WHERE clause, so only the records within it are sent over
+ * the wire, and the index on the timestamp column keeps the query from scanning the whole table. The same index
+ * returns the records in the order of their timestamps without sorting them, which the aggregation relies on to
+ * close the windows as it goes.
+ *
+ * The result set is read through a forward-only, read-only cursor within a transaction, fetching a page of
+ * {@link #DEFAULT_FETCH_SIZE} rows per round trip. So the records are streamed page by page instead of the driver
+ * materializing the whole window first, e.g. PostgreSQL only uses a server-side cursor that way. MySQL Connector/J
+ * ignores the fetch size unless the useCursorFetch connection property is true, so it is set for the jdbc:mysql: urls
+ * which don't set it themselves.
+ *
+ * The JDBC driver of the database has to be added to the dependencies of the function.
+ */
+@Slf4j
+public class JdbcDemandSource implements DemandSource {
+
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+    private static final int FETCH_SIZE = NumberUtils.toInt(System.getenv("DEMAND_SOURCE_JDBC_FETCH_SIZE"), DEFAULT_FETCH_SIZE);
+    private static final String MYSQL_JDBC_URL_PREFIX = "jdbc:mysql:";
+    private static final String MYSQL_USE_CURSOR_FETCH_PROPERTY = "useCursorFetch";
+    private static final Pattern TABLE_NAME_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    private final String jdbcUrl;
+    private final Properties connectionProperties;
+    private final String query;
+    private final int fetchSize;
+
+    public JdbcDemandSource(@NonNull final String jdbcUrl,
+                            final String user,
+                            final String password,
+                            @NonNull final String tableName) {
+        this(jdbcUrl, user, password, tableName, FETCH_SIZE);
+    }
+
+    public JdbcDemandSource(@NonNull final String jdbcUrl,
+                            final String user,
+                            final String password,
+                            @NonNull final String tableName,
+                            final int fetchSize) {
+        // The table name cannot be bound as a parameter, so it is validated to keep it from injecting any SQL
+        if (!TABLE_NAME_PATTERN.matcher(tableName).matches()) {
+            throw new IllegalArgumentException(String.format("Table name [%s] is not a valid table name", tableName));
+        }
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException(String.format("fetchSize [%d] should be positive", fetchSize));
+        }
+        this.jdbcUrl = jdbcUrl;
+        this.connectionProperties = makeConnectionProperties(jdbcUrl, user, password);
+        this.query = String.format("SELECT %s, %s, %s FROM %s WHERE %s > ? AND %s <= ? ORDER BY %s",
+                DemandRecord.Attribute.ITEM_ID, DemandRecord.Attribute.TIMESTAMP, DemandRecord.Attribute.TARGET_VALUE,
+                tableName, DemandRecord.Attribute.TIMESTAMP, DemandRecord.Attribute.TIMESTAMP, DemandRecord.Attribute.TIMESTAMP);
+        this.fetchSize = fetchSize;
+    }
+
+    @VisibleForTesting
+    static Properties makeConnectionProperties(final String jdbcUrl, final String user, final String password) {
+        Properties connectionProperties = new Properties();
+        if (user != null) {
+            connectionProperties.setProperty("user", user);
+        }
+        if (password != null) {
+            connectionProperties.setProperty("password", password);
+        }
+        // The properties take precedence over the url, so a url setting useCursorFetch itself is left as it is
+        if (jdbcUrl.startsWith(MYSQL_JDBC_URL_PREFIX)
+                && !StringUtils.containsIgnoreCase(jdbcUrl, MYSQL_USE_CURSOR_FETCH_PROPERTY)) {
+            connectionProperties.setProperty(MYSQL_USE_CURSOR_FETCH_PROPERTY, Boolean.TRUE.toString());
+        }
+        return connectionProperties;
+    }
+
+    /**
+     * Read the columns of every row straight into the batch, without building a {@link DemandRecord} per row. The
+     * rows without an item id or with a target value which is not a number are counted as malformed.
+     */
+    @Override
+    public long readDemandBatches(@NonNull final LocalDateTime startTime,
+                                  @NonNull final LocalDateTime endTime,
+                                  @NonNull final DemandBatch batch,
+                                  @NonNull final Consumer<DemandBatch> consumer) {
+        batch.clear();
+        long numberOfDemandRecords = query(startTime, endTime, resultSet -> {
+            String itemId = resultSet.getString(1);
+            try {
+                double targetValue = DemandBatch.parseTargetValue(itemId, resultSet.getString(3));
+                if (itemId == null) {
+                    batch.addMalformed(1);
+                } else {
+                    batch.add(itemId, resultSet.getTimestamp(2).toLocalDateTime().toEpochSecond(ZoneOffset.UTC), targetValue);
+                }
+            } catch (IllegalArgumentException e) {
+                batch.addMalformed(1);
+            }
+            batch.flushIfFull(consumer);
+        });
+        batch.flush(consumer);
+        return numberOfDemandRecords;
+    }
+
+    /**
+     * Pass every row of the records within the window to the row reader.
+     *
+     * @return the number of the rows
+     */
+    private long query(final LocalDateTime startTime, final LocalDateTime endTime, final RowReader rowReader) {
+        long numberOfDemandRecords = 0;
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, connectionProperties)) {
+            connection.setReadOnly(true);
+            // Some drivers, e.g. PostgreSQL, only fetch with a cursor within a transaction
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                statement.setTimestamp(1, Timestamp.valueOf(startTime));
+                statement.setTimestamp(2, Timestamp.valueOf(endTime));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.setFetchSize(fetchSize);
+                    while (resultSet.next()) {
+                        rowReader.read(resultSet);
+                        numberOfDemandRecords++;
+                    }
+                }
+            } finally {
+                // Nothing is written, ending the read-only transaction only releases the cursor
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(String.format("Failed to read the demand records within (%s, %s] from %s",
+                    startTime, endTime, jdbcUrl), e);
+        }
+        log.info(String.format("Read [%d] demand records within (%s, %s] with a fetch size of %d",
+                numberOfDemandRecords, startTime, endTime, fetchSize));
+        return numberOfDemandRecords;
+    }
+
+    @FunctionalInterface
+    private interface RowReader {
+
+        void read(ResultSet resultSet) throws SQLException;
+    }
+}
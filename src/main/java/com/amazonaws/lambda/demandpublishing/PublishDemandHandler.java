@@ -1,149 +1,407 @@
 package com.amazonaws.lambda.demandpublishing;
 
 import com.amazonaws.dagger.DaggerLambdaFunctionsComponent;
+import com.amazonaws.lambda.common.ForecastDataFrequency;
+import com.amazonaws.lambda.common.S3MultipartUploadOutputStream;
+import com.amazonaws.lambda.common.TrainingDataLayout;
+import com.amazonaws.lambda.metrics.MetricsEmitter;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.ObjectMetadata;
-import com.amazonaws.services.s3.transfer.TransferManager;
-import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import com.amazonaws.services.secretsmanager.AWSSecretsManager;
+import com.amazonaws.services.secretsmanager.model.GetSecretValueRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.Lists;
-import com.opencsv.bean.CsvToBean;
-import com.opencsv.bean.CsvToBeanBuilder;
+import com.google.common.collect.ImmutableMap;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 
 import javax.inject.Inject;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.StringJoiner;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 
+import static com.amazonaws.lambda.demandpublishing.DemandRecord.LocalDateTimeConverter.FORECAST_DATE_TIME_FORMATTER;
+
+/**
+ * Publishes the historical demand within the look back window to S3 as the training data.
+ *
+ * The demand records are streamed from the {@link DemandSource} and written as csv straight into
+ * a {@link S3MultipartUploadOutputStream}, so the memory stays bounded by a few upload parts whatever the volume.
+ * They are read into a {@link DemandBatch} of primitive columns, which is filtered, aggregated and written as a
+ * whole before being filled again, so no object is created per record on the way.
+ * With TRAINING_DATA_NUMBER_OF_SHARDS above 1, the training data is split by item into part files uploaded in
+ * parallel, see {@link TrainingDataLayout}, while the deltas are always a single file.
+ *
+ * The records are read from the database at DEMAND_SOURCE_JDBC_URL if it is set, otherwise from the CSV file bundled
+ * for demonstration purpose.
+ *
+ * In the FULL publishing mode, the whole lookback window is exported and replaces the training file every time.
+ * In the INCREMENTAL publishing mode, only the records after the watermark are exported, as a delta file under the
+ * source folder, see {@link HistoricalDemandFiles}, and the watermark is moved forward once the delta is uploaded.
+ * The deltas are merged back into the training file by {@link CompactDemandHandler}. The very first run has no
+ * watermark, so it exports the whole lookback window as the training file.
+ *
+ * Unless DEMAND_AGGREGATION_ENABLED is false, the records are summed up per item and window of the forecast data
+ * frequency before being uploaded, see {@link DemandAggregator}. The windows split by the bounds of the incremental
+ * publishing end up with a record in each file, which Forecast sums up again at the import.
+ *
+ * The records go through a {@link DemandQualityCheck} on the way, which drops the exact duplicates and keeps the
+ * statistics of the records. The statistics are printed as CloudWatch metrics, and uploaded next to the published
+ * files as a manifest, see {@link HistoricalDemandFiles}. DEMAND_DEDUP_FILTER_SIZE_IN_MB sets the memory of the
+ * deduplication, 0 to disable it.
+ *
+ * The watermark is on the timestamps of the records, and it trails the end of the window by
+ * DEMAND_LATENESS_IN_MINUTES, so a record committed to the data source up to that late after its timestamp is still
+ * published by the next run. A record showing up even later is not published until the next FULL export.
+ */
 @Slf4j
 public class PublishDemandHandler implements RequestHandler<Void, Void> {
 
     private static final int YEAR_IN_DEMONSTRATION_FILE = 2020;
-    private static final int LOOK_BACK_DURATION_IN_DAYS = 60;
-    private static final String HISTORICAL_DEMAND_FILE_HEADER = "item_id,timestamp,target_value";
     private static final String PREDICTION_S3_BUCKET_NAME = System.getenv("PREDICTION_S3_BUCKET_NAME");
-    private static final String PREDICTION_S3_HISTORICAL_DEMAND_FILE_KEY =
-            String.format("%s/%s", System.getenv("SRC_S3_FOLDER"), System.getenv("S3_TRAINING_DATA_FILE_NAME"));
+    private static final String SRC_S3_FOLDER = System.getenv("SRC_S3_FOLDER");
+    private static final boolean DEMAND_AGGREGATION_ENABLED = Boolean.parseBoolean(
+            StringUtils.defaultIfBlank(System.getenv("DEMAND_AGGREGATION_ENABLED"), "true"));
+    private static final PublishingMode PUBLISHING_MODE = PublishingMode.valueOf(
+            StringUtils.defaultIfBlank(System.getenv("DEMAND_PUBLISHING_MODE"), PublishingMode.FULL.name()));
+    private static final String RAW_DEMAND_REQUESTS_FILE_PATH = "/raw_demand_requests.csv";
+    private static final String DEMAND_SOURCE_JDBC_URL = System.getenv("DEMAND_SOURCE_JDBC_URL");
+    private static final String DEMAND_SOURCE_JDBC_USER = System.getenv("DEMAND_SOURCE_JDBC_USER");
+    // The password is kept in Secrets Manager instead of the environment of the function
+    private static final String DEMAND_SOURCE_JDBC_PASSWORD_SECRET_ID = System.getenv("DEMAND_SOURCE_JDBC_PASSWORD_SECRET_ARN");
+    private static final String PASSWORD_SECRET_KEY = "password";
+    private static final String DEMAND_SOURCE_TABLE_NAME = StringUtils.defaultIfBlank(System.getenv("DEMAND_SOURCE_TABLE_NAME"), "demand");
+    private static final int DEMAND_DEDUP_FILTER_SIZE_IN_MB = NumberUtils.toInt(System.getenv("DEMAND_DEDUP_FILTER_SIZE_IN_MB"),
+            DemandQualityCheck.DEFAULT_FILTER_SIZE_IN_MB);
+    private static final String METRICS_NAMESPACE = "AutomatedForecast/DemandPublishing";
+    // How late the records may be committed to the data source after their timestamps in the INCREMENTAL mode
+    private static final int DEFAULT_DEMAND_LATENESS_IN_MINUTES = 15;
+    private static final Duration DEMAND_LATENESS = Duration.ofMinutes(NumberUtils.toInt(
+            System.getenv("DEMAND_LATENESS_IN_MINUTES"), DEFAULT_DEMAND_LATENESS_IN_MINUTES));
 
     private final Clock clock;
 
     @Inject
     @NonNull
     AmazonS3 s3Client;
-    private final String rawDemandRequestsFilePath;
-    private final TransferManager s3TransferManager;
+    @Inject
+    @NonNull
+    AWSSecretsManager secretsManagerClient;
+    private final DemandSource demandSource;
+    private final PublishingMode publishingMode;
+    // Null if the records are published as they are
+    private final String aggregationDataFrequency;
+    private final TrainingDataLayout trainingDataLayout;
+    private final Duration demandLateness;
+    private final MetricsEmitter metricsEmitter;
+
+    public enum PublishingMode {
+        FULL,
+        INCREMENTAL
+    }
 
     public PublishDemandHandler() {
         this(Clock.systemUTC());
     }
 
     public PublishDemandHandler(final Clock clock) {
-        this.clock = clock;
-        this.rawDemandRequestsFilePath = "/raw_demand_requests.csv";
         DaggerLambdaFunctionsComponent.create().inject(this);
-        s3TransferManager = TransferManagerBuilder.standard().withS3Client(s3Client).build();
+        this.clock = clock;
+        this.demandSource = makeDemandSource();
+        this.publishingMode = PUBLISHING_MODE;
+        this.aggregationDataFrequency = getAggregationDataFrequency();
+        this.trainingDataLayout = TrainingDataLayout.fromEnvironment();
+        this.demandLateness = DEMAND_LATENESS;
+        this.metricsEmitter = new MetricsEmitter(METRICS_NAMESPACE);
     }
 
     @VisibleForTesting
     PublishDemandHandler(final Clock clock,
-                         final String rawDemandRequestsFilePath,
-                         final TransferManager transferManager) {
+                         final DemandSource demandSource,
+                         final AmazonS3 s3Client,
+                         final PublishingMode publishingMode,
+                         final String aggregationDataFrequency,
+                         final TrainingDataLayout trainingDataLayout,
+                         final Duration demandLateness,
+                         final MetricsEmitter metricsEmitter) {
         this.clock = clock;
-        this.rawDemandRequestsFilePath = rawDemandRequestsFilePath;
-        this.s3TransferManager = transferManager;
+        this.demandSource = demandSource;
+        this.s3Client = s3Client;
+        this.publishingMode = publishingMode;
+        this.aggregationDataFrequency = aggregationDataFrequency;
+        this.trainingDataLayout = trainingDataLayout;
+        this.demandLateness = demandLateness;
+        this.metricsEmitter = metricsEmitter;
+    }
+
+    private DemandSource makeDemandSource() {
+        if (StringUtils.isBlank(DEMAND_SOURCE_JDBC_URL)) {
+            return new CsvDemandSource(RAW_DEMAND_REQUESTS_FILE_PATH);
+        }
+        return new JdbcDemandSource(DEMAND_SOURCE_JDBC_URL, DEMAND_SOURCE_JDBC_USER,
+                getJdbcPassword(secretsManagerClient, DEMAND_SOURCE_JDBC_PASSWORD_SECRET_ID), DEMAND_SOURCE_TABLE_NAME);
+    }
+
+    /**
+     * Read the password of the database from its secret once per container. The secret is either the password alone,
+     * or a json document with a "password" key like the secrets of the RDS databases.
+     *
+     * @return null if there is no secret, e.g. the database doesn't need any password
+     */
+    @VisibleForTesting
+    static String getJdbcPassword(final AWSSecretsManager secretsManagerClient, final String secretId) {
+        if (StringUtils.isBlank(secretId)) {
+            return null;
+        }
+        String secretString = secretsManagerClient.getSecretValue(new GetSecretValueRequest().withSecretId(secretId))
+                .getSecretString();
+        if (secretString == null) {
+            throw new IllegalStateException(String.format("Secret [%s] should be a string instead of binary", secretId));
+        }
+
+        JsonNode secret;
+        try {
+            secret = new ObjectMapper().readTree(secretString);
+        } catch (IOException e) {
+            // Not a json document, so it is the password alone
+            return secretString;
+        }
+        if (secret == null || !secret.isObject()) {
+            return secretString;
+        }
+        if (!secret.hasNonNull(PASSWORD_SECRET_KEY)) {
+            throw new IllegalStateException(String.format("Secret [%s] has no [%s] key", secretId, PASSWORD_SECRET_KEY));
+        }
+        return secret.get(PASSWORD_SECRET_KEY).asText();
+    }
+
+    private static String getAggregationDataFrequency() {
+        if (!DEMAND_AGGREGATION_ENABLED) {
+            return null;
+        }
+        String dataFrequency = ForecastDataFrequency.getForecastDataFrequencyStr(
+                ForecastDataFrequency.PREDICTION_WINDOW_SIZE_DURATION);
+        if (!DemandAggregator.isSupported(dataFrequency)) {
+            log.info(String.format("Data frequency [%s] is aggregated by Forecast, publish the demand records as they are",
+                    dataFrequency));
+            return null;
+        }
+        return dataFrequency;
     }
 
     @Override
     public Void handleRequest(final Void input, Context context) {
 
-        List<DemandRecord> historicalDemandRecords = getHistoricalDemandRecords();
-        log.info(String.format("Fetched [%d] historical demand records", historicalDemandRecords.size()));
+        LocalDateTime predictionWindowEndTime = getPredictionWindowEndTime();
+        if (publishingMode == PublishingMode.INCREMENTAL) {
+            publishIncrementally(predictionWindowEndTime);
+            return null;
+        }
+
+        LocalDateTime predictionWindowStartTime = predictionWindowEndTime.minusDays(HistoricalDemandFiles.LOOK_BACK_DURATION_IN_DAYS);
+        log.info(String.format("Use lookback period [%s - %s] for fetching the historical demand records",
+                predictionWindowStartTime, predictionWindowEndTime));
 
-        uploadHistoricalDemandToS3(historicalDemandRecords);
+        long numberOfDemandRecords = publishTrainingData(predictionWindowStartTime, predictionWindowEndTime);
+        log.info(String.format("Published [%d] historical demand records", numberOfDemandRecords));
 
         return null;
     }
 
-    /**
-     * Query data source to get the historical demand records.
-     * For demonstration purpose, I use a local CSV file to mimic the data source,
-     * but in real production environment, you need to query your database like RDS for such info.
-     *
-     * @return a list of historical demand record {@link DemandRecord}
-     */
-    private List<DemandRecord> getHistoricalDemandRecords() {
-        BufferedReader rawRequestsReader = new BufferedReader(
-                new InputStreamReader(getClass().getResourceAsStream(rawDemandRequestsFilePath),
-                        StandardCharsets.UTF_8));
+    private void publishIncrementally(final LocalDateTime predictionWindowEndTime) {
+        // The records of the last few minutes may not all be committed yet, so they are left to the next run
+        LocalDateTime publishingEndTime = predictionWindowEndTime.minus(demandLateness);
+        DemandWatermarkStore watermarkStore = new DemandWatermarkStore(s3Client, PREDICTION_S3_BUCKET_NAME,
+                HistoricalDemandFiles.getWatermarkKey(SRC_S3_FOLDER));
+        LocalDateTime watermark = watermarkStore.read();
+
+        if (watermark == null) {
+            LocalDateTime predictionWindowStartTime = publishingEndTime.minusDays(HistoricalDemandFiles.LOOK_BACK_DURATION_IN_DAYS);
+            log.info(String.format("Found no watermark, use lookback period [%s - %s] for the initial training file",
+                    predictionWindowStartTime, publishingEndTime));
+            long numberOfDemandRecords = publishTrainingData(predictionWindowStartTime, publishingEndTime);
+            log.info(String.format("Published [%d] historical demand records", numberOfDemandRecords));
+        } else if (!watermark.isBefore(publishingEndTime)) {
+            log.info(String.format("Watermark [%s] is not before [%s], nothing to publish", watermark, publishingEndTime));
+            return;
+        } else {
+            String deltaKey = HistoricalDemandFiles.getDeltaKey(SRC_S3_FOLDER, watermark, trainingDataLayout.getCompression());
+            log.info(String.format("Use period [%s - %s] for fetching the new demand records into %s",
+                    watermark, publishingEndTime, deltaKey));
+            long numberOfDemandRecords = publishHistoricalDemandToS3(String.format("s3://%s/%s", PREDICTION_S3_BUCKET_NAME, deltaKey),
+                    Collections.singletonList(deltaKey), itemId -> 0,
+                    HistoricalDemandFiles.getDeltaManifestKey(SRC_S3_FOLDER, watermark), watermark, publishingEndTime);
+            log.info(String.format("Published [%d] new demand records", numberOfDemandRecords));
+        }
 
-        CsvToBean<DemandRecord> csvToBean = new CsvToBeanBuilder<DemandRecord>(rawRequestsReader)
-                .withType(DemandRecord.class)
-                .withIgnoreLeadingWhiteSpace(true)
-                .build();
-        List<DemandRecord> demandRecords = Lists.newArrayList(csvToBean.iterator());
+        // Only moved once the records are uploaded, so a failed run is simply retried from the same watermark
+        watermarkStore.write(publishingEndTime);
+    }
 
+    private LocalDateTime getPredictionWindowEndTime() {
         LocalDateTime currentTime = LocalDateTime.now(clock);
 
-        final LocalDateTime predictionWindowEndTime;
         /*
          * As the demonstration csv file only contains data for year 2020,
          * If someone runs this sample code in the future, we need to normalize the timestamp to a time in 2020.
+         * A real database has the recent demand, so its window is left as is.
          */
-        if (YEAR_IN_DEMONSTRATION_FILE < currentTime.getYear()) {
+        if (demandSource instanceof CsvDemandSource && YEAR_IN_DEMONSTRATION_FILE < currentTime.getYear()) {
             log.info(String.format("currentTime [%s] is after year 2020, normalizing it", currentTime));
-            predictionWindowEndTime = LocalDateTime.of(YEAR_IN_DEMONSTRATION_FILE,
+            LocalDateTime predictionWindowEndTime = LocalDateTime.of(YEAR_IN_DEMONSTRATION_FILE,
                     currentTime.getMonth(),
                     currentTime.getDayOfMonth(),
                     currentTime.getHour(),
                     currentTime.getMinute(),
                     currentTime.getSecond());
             log.info(String.format("predictionWindowEndTime [%s] after normalization", predictionWindowEndTime));
-        } else {
-            predictionWindowEndTime = currentTime;
+            return predictionWindowEndTime;
         }
+        return currentTime;
+    }
 
-        final LocalDateTime predictionWindowStartTime = predictionWindowEndTime.minusDays(LOOK_BACK_DURATION_IN_DAYS);
-        log.info(String.format("Use lookback period [%s - %s] for fetching the historical demand records",
-                predictionWindowStartTime, predictionWindowEndTime));
-
-        return demandRecords.stream()
-                .filter(record ->
-                        record.getTimestamp().isAfter(predictionWindowStartTime)
-                                && record.getTimestamp().isBefore(predictionWindowEndTime)).collect(Collectors.toList());
+    /**
+     * Publish the historical demand records within the window as the training data, replacing its shards.
+     *
+     * @return the number of the published demand records
+     */
+    private long publishTrainingData(final LocalDateTime predictionWindowStartTime,
+                                     final LocalDateTime predictionWindowEndTime) {
+        long numberOfDemandRecords = publishHistoricalDemandToS3(trainingDataLayout.getImportS3Path(PREDICTION_S3_BUCKET_NAME),
+                trainingDataLayout.getShardKeys(), trainingDataLayout::getShard,
+                HistoricalDemandFiles.getManifestKey(trainingDataLayout), predictionWindowStartTime, predictionWindowEndTime);
+        trainingDataLayout.deleteStaleShards(s3Client, PREDICTION_S3_BUCKET_NAME);
+        return numberOfDemandRecords;
     }
 
-    private void uploadHistoricalDemandToS3(final List<DemandRecord> demandRecords) {
-        String demandRecordsListCsvStr = convertListOfDemandRecordToString(demandRecords);
-        int demandCsvFileSize = demandRecordsListCsvStr.length();
+    /**
+     * Stream the historical demand records within the window from the data source to the S3 objects, the records of
+     * an item all go to the key of its shard. The data quality statistics of the records are emitted as metrics and
+     * uploaded as the manifest once the objects are.
+     *
+     * @return the number of the published demand records
+     */
+    private long publishHistoricalDemandToS3(final String s3Path,
+                                             final List<String> keys,
+                                             final ToIntFunction<String> shardFunction,
+                                             final String manifestKey,
+                                             final LocalDateTime predictionWindowStartTime,
+                                             final LocalDateTime predictionWindowEndTime) {
+        // The records are read, filtered, checked, aggregated and written a batch of primitive columns at a time
+        DemandItemDictionary itemDictionary = new DemandItemDictionary();
+        DemandQualityCheck qualityCheck = new DemandQualityCheck(itemDictionary, DEMAND_DEDUP_FILTER_SIZE_IN_MB);
+        long numberOfDemandRecords;
 
-        ObjectMetadata metadata = new ObjectMetadata();
-        metadata.setContentLength(demandCsvFileSize);
+        DemandFileWriter demandFileWriter = null;
         try {
-            s3TransferManager.upload(PREDICTION_S3_BUCKET_NAME, PREDICTION_S3_HISTORICAL_DEMAND_FILE_KEY,
-                    IOUtils.toInputStream(demandRecordsListCsvStr, StandardCharsets.UTF_8), metadata)
-                    .waitForCompletion();
-        } catch (InterruptedException e) {
-            log.warn("Got InterruptedException while uploading the data to S3");
+            demandFileWriter = new DemandFileWriter(s3Client, PREDICTION_S3_BUCKET_NAME, keys, shardFunction,
+                    trainingDataLayout.getCompression(), trainingDataLayout.getCompression().makeObjectMetadata());
+            DemandFileWriter batchWriter = demandFileWriter;
+            Consumer<DemandBatch> writeStage = batch -> {
+                try {
+                    batchWriter.write(batch);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+
+            DemandBatch demandBatch = new DemandBatch(itemDictionary);
+            long startEpochSecond = predictionWindowStartTime.toEpochSecond(ZoneOffset.UTC);
+            long endEpochSecond = predictionWindowEndTime.toEpochSecond(ZoneOffset.UTC);
+
+            if (aggregationDataFrequency == null) {
+                demandSource.readDemandBatches(predictionWindowStartTime, predictionWindowEndTime, demandBatch, batch -> {
+                    batch.retainWithin(startEpochSecond, endEpochSecond);
+                    qualityCheck.check(batch);
+                    writeStage.accept(batch);
+                });
+                numberOfDemandRecords = demandFileWriter.getNumberOfRows();
+            } else {
+                // The records are read into one batch while the aggregated ones are written from the other
+                DemandAggregator demandAggregator = new DemandAggregator(aggregationDataFrequency,
+                        new DemandBatch(itemDictionary), writeStage);
+                demandSource.readDemandBatches(predictionWindowStartTime, predictionWindowEndTime, demandBatch, batch -> {
+                    batch.retainWithin(startEpochSecond, endEpochSecond);
+                    qualityCheck.check(batch);
+                    demandAggregator.add(batch);
+                });
+                demandAggregator.flush();
+                numberOfDemandRecords = demandAggregator.getNumberOfAggregatedRecords();
+                log.info(String.format("Aggregated [%d] demand records of [%d] items into [%d] records of data frequency [%s]",
+                        demandAggregator.getNumberOfRecords(), itemDictionary.size(), numberOfDemandRecords,
+                        aggregationDataFrequency));
+            }
+
+            // Closing the writer completes the uploads, the files are only replaced once everything is written
+            demandFileWriter.close();
+        } catch (IOException | RuntimeException e) {
+            if (demandFileWriter != null) {
+                demandFileWriter.abort();
+            }
+            throw new RuntimeException(String.format("Failed to publish the historical demand to %s", s3Path), e);
         }
-        log.info("Finished uploading the historical demand data to S3");
-    }
 
-    private String convertListOfDemandRecordToString(final List<DemandRecord> demandRecords) {
-        StringJoiner sj = new StringJoiner("\n");
-        sj.add(HISTORICAL_DEMAND_FILE_HEADER);
-        for (DemandRecord demandRecord : demandRecords) {
-            sj.add(demandRecord.toCsvRowString());
+        log.info(String.format("Dropped [%d] duplicate and [%d] malformed demand records, found [%d] out of order records",
+                qualityCheck.getNumberOfDuplicateRecords(), qualityCheck.getNumberOfMalformedRecords(),
+                qualityCheck.getNumberOfOutOfOrderRecords()));
+        try {
+            emitQualityMetrics(qualityCheck, numberOfDemandRecords);
+            uploadQualityManifest(manifestKey, s3Path, predictionWindowStartTime, predictionWindowEndTime, qualityCheck,
+                    numberOfDemandRecords);
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException(String.format("Failed to upload the data quality manifest of %s", s3Path), e);
         }
-        return sj.toString();
+        return numberOfDemandRecords;
+    }
+
+    /**
+     * Emit the data quality statistics as CloudWatch metrics, so that a drop in the data quality can be alarmed on.
+     */
+    private void emitQualityMetrics(final DemandQualityCheck qualityCheck, final long numberOfPublishedRecords) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("DemandRecords", qualityCheck.getNumberOfRecords());
+        counts.put("PublishedDemandRecords", numberOfPublishedRecords);
+        counts.put("DuplicateDemandRecords", qualityCheck.getNumberOfDuplicateRecords());
+        counts.put("MalformedDemandRecords", qualityCheck.getNumberOfMalformedRecords());
+        counts.put("OutOfOrderDemandRecords", qualityCheck.getNumberOfOutOfOrderRecords());
+        counts.put("DemandItems", (long) qualityCheck.getNumberOfItems());
+        metricsEmitter.emitCounts(ImmutableMap.of("PublishingMode", publishingMode.name()), counts);
+    }
+
+    private void uploadQualityManifest(final String manifestKey,
+                                       final String s3Path,
+                                       final LocalDateTime predictionWindowStartTime,
+                                       final LocalDateTime predictionWindowEndTime,
+                                       final DemandQualityCheck qualityCheck,
+                                       final long numberOfPublishedRecords) throws JsonProcessingException {
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("s3_path", s3Path);
+        manifest.put("start_time", FORECAST_DATE_TIME_FORMATTER.format(predictionWindowStartTime));
+        manifest.put("end_time", FORECAST_DATE_TIME_FORMATTER.format(predictionWindowEndTime));
+        manifest.put("aggregation_data_frequency", aggregationDataFrequency);
+        manifest.put("number_of_records", qualityCheck.getNumberOfRecords());
+        manifest.put("number_of_published_records", numberOfPublishedRecords);
+        manifest.put("number_of_duplicate_records", qualityCheck.getNumberOfDuplicateRecords());
+        manifest.put("number_of_malformed_records", qualityCheck.getNumberOfMalformedRecords());
+        manifest.put("number_of_out_of_order_records", qualityCheck.getNumberOfOutOfOrderRecords());
+        manifest.put("items", qualityCheck.getItemStatistics());
+
+        s3Client.putObject(PREDICTION_S3_BUCKET_NAME, manifestKey, new ObjectMapper().writeValueAsString(manifest));
+        log.info(String.format("Uploaded the data quality manifest of %s to s3://%s/%s", s3Path,
+                PREDICTION_S3_BUCKET_NAME, manifestKey));
     }
 }
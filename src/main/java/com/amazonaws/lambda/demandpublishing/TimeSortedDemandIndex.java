@@ -0,0 +1,228 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import lombok.NonNull;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * The demand history sorted by timestamp in primitive columns, like a {@link DemandBatch} without a capacity, so that
+ * the records of a time window are found by two binary searches and copied out sequentially instead of filtering
+ * every record of the history on every run.
+ *
+ * The records of the same timestamp keep the order they are added in. The index is immutable once built, so it can
+ * be kept and shared across the runs of a warm Lambda container.
+ */
+public class TimeSortedDemandIndex {
+
+    private final DemandItemDictionary itemDictionary;
+    private final int[] itemIndices;
+    private final long[] epochSeconds;
+    private final double[] targetValues;
+    private final int numberOfMalformedRecords;
+
+    private TimeSortedDemandIndex(final DemandItemDictionary itemDictionary,
+                                  final int[] itemIndices,
+                                  final long[] epochSeconds,
+                                  final double[] targetValues,
+                                  final int numberOfMalformedRecords) {
+        this.itemDictionary = itemDictionary;
+        this.itemIndices = itemIndices;
+        this.epochSeconds = epochSeconds;
+        this.targetValues = targetValues;
+        this.numberOfMalformedRecords = numberOfMalformedRecords;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return epochSeconds.length;
+    }
+
+    public DemandItemDictionary getItemDictionary() {
+        return itemDictionary;
+    }
+
+    /**
+     * @return the number of the records skipped at the build as they could not be read
+     */
+    public int getNumberOfMalformedRecords() {
+        return numberOfMalformedRecords;
+    }
+
+    /**
+     * @return the number of the records whose timestamp is within (startEpochSecond, endEpochSecond]
+     */
+    public int count(final long startEpochSecond, final long endEpochSecond) {
+        return Math.max(0, findFirstAfter(endEpochSecond) - findFirstAfter(startEpochSecond));
+    }
+
+    /**
+     * Copy the records whose timestamp is within (startTime, endTime] into the batch in the order of their timestamp,
+     * passing it to the consumer whenever it's full and once at the end if it's not empty, like
+     * {@link DemandSource#readDemandBatches}. The malformed records skipped at the build have no timestamp to be
+     * selected by, so they are left to the owner of the index to report once, see {@link #getNumberOfMalformedRecords()}.
+     *
+     * @return the number of the records passed to the consumer
+     */
+    public long select(@NonNull final LocalDateTime startTime,
+                       @NonNull final LocalDateTime endTime,
+                       @NonNull final DemandBatch batch,
+                       @NonNull final Consumer<DemandBatch> consumer) {
+        int from = findFirstAfter(startTime.toEpochSecond(ZoneOffset.UTC));
+        int to = findFirstAfter(endTime.toEpochSecond(ZoneOffset.UTC));
+        int[] itemIndexMapping = makeItemIndexMapping(batch.getItemDictionary());
+
+        batch.clear();
+        for (int record = from; record < to; ) {
+            record += batch.addAll(itemIndices, itemIndexMapping, epochSeconds, targetValues, record, to - record);
+            batch.flushIfFull(consumer);
+        }
+        batch.flush(consumer);
+        return Math.max(0, to - from);
+    }
+
+    /**
+     * @return the position of the first record whose timestamp is after the epoch second, or the size if none is
+     */
+    private int findFirstAfter(final long epochSecond) {
+        int low = 0;
+        int high = epochSeconds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochSeconds[middle] <= epochSecond) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the indices of the items of the index in the item dictionary of the batch, null if it's the same one
+     */
+    private int[] makeItemIndexMapping(final DemandItemDictionary batchItemDictionary) {
+        if (batchItemDictionary == itemDictionary) {
+            return null;
+        }
+        int[] itemIndexMapping = new int[itemDictionary.size()];
+        for (int itemIndex = 0; itemIndex < itemIndexMapping.length; itemIndex++) {
+            itemIndexMapping[itemIndex] = batchItemDictionary.intern(itemDictionary.getItemId(itemIndex));
+        }
+        return itemIndexMapping;
+    }
+
+    /**
+     * Collects the records in any order, then sorts them by timestamp once at {@link #build()}.
+     */
+    public static class Builder {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final DemandItemDictionary itemDictionary = new DemandItemDictionary();
+        private int[] itemIndices = new int[INITIAL_CAPACITY];
+        private long[] epochSeconds = new long[INITIAL_CAPACITY];
+        private double[] targetValues = new double[INITIAL_CAPACITY];
+        private int size;
+        private int numberOfMalformedRecords;
+        private boolean sorted = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Add the record, or count it as malformed if it has no item id or timestamp, or its target value is not a
+         * number.
+         */
+        public Builder add(@NonNull final DemandRecord record) {
+            if (record.getItemId() == null || record.getTimestamp() == null) {
+                return addMalformed(1);
+            }
+            double targetValue;
+            try {
+                targetValue = DemandBatch.parseTargetValue(record.getItemId(), record.getTargetValue());
+            } catch (IllegalArgumentException e) {
+                return addMalformed(1);
+            }
+            return add(record.getItemId(), record.getTimestamp().toEpochSecond(ZoneOffset.UTC), targetValue);
+        }
+
+        /**
+         * Count the records which could not be read at all.
+         */
+        public Builder addMalformed(final int numberOfRecords) {
+            numberOfMalformedRecords += numberOfRecords;
+            return this;
+        }
+
+        public Builder add(@NonNull final String itemId, final long epochSecond, final double targetValue) {
+            if (size == epochSeconds.length) {
+                itemIndices = Arrays.copyOf(itemIndices, size * 2);
+                epochSeconds = Arrays.copyOf(epochSeconds, size * 2);
+                targetValues = Arrays.copyOf(targetValues, size * 2);
+            }
+            sorted &= size == 0 || epochSeconds[size - 1] <= epochSecond;
+            itemIndices[size] = itemDictionary.intern(itemId);
+            epochSeconds[size] = epochSecond;
+            targetValues[size] = targetValue;
+            size++;
+            return this;
+        }
+
+        public TimeSortedDemandIndex build() {
+            int[] order = new int[size];
+            for (int record = 0; record < size; record++) {
+                order[record] = record;
+            }
+            // The history is mostly appended in time already, in which case there is nothing to sort
+            if (!sorted) {
+                sortByEpochSecond(order);
+            }
+
+            int[] sortedItemIndices = new int[size];
+            long[] sortedEpochSeconds = new long[size];
+            double[] sortedTargetValues = new double[size];
+            for (int record = 0; record < size; record++) {
+                sortedItemIndices[record] = itemIndices[order[record]];
+                sortedEpochSeconds[record] = epochSeconds[order[record]];
+                sortedTargetValues[record] = targetValues[order[record]];
+            }
+            return new TimeSortedDemandIndex(itemDictionary, sortedItemIndices, sortedEpochSeconds, sortedTargetValues,
+                    numberOfMalformedRecords);
+        }
+
+        /**
+         * A stable bottom-up merge sort of the positions by their epoch second, without boxing them.
+         */
+        private void sortByEpochSecond(final int[] order) {
+            int[] source = order;
+            int[] target = new int[order.length];
+            for (int width = 1; width < order.length; width *= 2) {
+                for (int low = 0; low < order.length; low += 2 * width) {
+                    int middle = Math.min(low + width, order.length);
+                    int high = Math.min(low + 2 * width, order.length);
+                    int left = low;
+                    int right = middle;
+                    for (int i = low; i < high; i++) {
+                        if (left < middle && (right >= high || epochSeconds[source[left]] <= epochSeconds[source[right]])) {
+                            target[i] = source[left++];
+                        } else {
+                            target[i] = source[right++];
+                        }
+                    }
+                }
+                int[] merged = target;
+                target = source;
+                source = merged;
+            }
+            if (source != order) {
+                System.arraycopy(source, 0, order, 0, order.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.amazonaws.lambda.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import lombok.NonNull;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Emits metrics in the CloudWatch embedded metric format, which Lambda extracts from the function logs into metrics
+ * without any call to CloudWatch.
+ *
+ * The format has to be the whole log line, so the metrics are written to stdout as they are instead of through
+ * the logger, which prefixes every line with the thread and the level.
+ */
+public class MetricsEmitter {
+
+    public static final String PERCENT_UNIT = "Percent";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String COUNT_UNIT = "Count";
+
+    private final String namespace;
+    private final Clock clock;
+    private final Consumer<String> logLineWriter;
+
+    public MetricsEmitter(@NonNull final String namespace) {
+        this(namespace, Clock.systemUTC(), System.out::println);
+    }
+
+    @VisibleForTesting
+    MetricsEmitter(@NonNull final String namespace,
+                   @NonNull final Clock clock,
+                   @NonNull final Consumer<String> logLineWriter) {
+        this.namespace = namespace;
+        this.clock = clock;
+        this.logLineWriter = logLineWriter;
+    }
+
+    /**
+     * @param dimensions the dimensions of all the metrics, as a single dimension set
+     * @param counts the values of the metrics by their names, in the order they are emitted
+     */
+    public void emitCounts(@NonNull final Map<String, String> dimensions, @NonNull final Map<String, ? extends Number> counts) {
+        emit(dimensions, counts, COUNT_UNIT);
+    }
+
+    /**
+     * @param dimensions the dimensions of all the metrics, as a single dimension set
+     * @param values the values of the metrics by their names, in the order they are emitted
+     * @param unit the CloudWatch unit of all the metrics, e.g. {@link #PERCENT_UNIT}
+     */
+    public void emit(@NonNull final Map<String, String> dimensions,
+                     @NonNull final Map<String, ? extends Number> values,
+                     @NonNull final String unit) {
+        List<Map<String, String>> metricDefinitions = new ArrayList<>();
+        for (String metricName : values.keySet()) {
+            metricDefinitions.add(ImmutableMap.of("Name", metricName, "Unit", unit));
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("_aws", ImmutableMap.of(
+                "Timestamp", clock.millis(),
+                "CloudWatchMetrics", Collections.singletonList(ImmutableMap.of(
+                        "Namespace", namespace,
+                        "Dimensions", Collections.singletonList(new ArrayList<>(dimensions.keySet())),
+                        "Metrics", metricDefinitions))));
+        metrics.putAll(dimensions);
+        metrics.putAll(values);
+
+        try {
+            logLineWriter.accept(OBJECT_MAPPER.writeValueAsString(metrics));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(String.format("Failed to serialize the metrics %s", values.keySet()), e);
+        }
+    }
+}
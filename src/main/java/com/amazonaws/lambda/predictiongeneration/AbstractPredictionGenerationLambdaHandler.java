@@ -1,28 +1,37 @@
 package com.amazonaws.lambda.predictiongeneration;
 
 import com.amazonaws.dagger.DaggerLambdaFunctionsComponent;
+import com.amazonaws.lambda.predictiongeneration.exception.ResourceCleanupInProgressException;
 import com.amazonaws.lambda.predictiongeneration.exception.ResourceSetupFailureException;
 import com.amazonaws.lambda.predictiongeneration.exception.ResourceSetupInProgressException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.forecast.AmazonForecast;
-import com.amazonaws.services.forecast.model.DatasetSummary;
 import com.amazonaws.services.forecast.model.PredictorSummary;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
 
 import javax.inject.Inject;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.INPUT_SIZE_IN_BYTES_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.NEXT_POLL_WAIT_IN_SECONDS_KEY;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.RESOURCE_ACTIVE_STATUS;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.RESOURCE_FAILED_STATUS;
-import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.listDatasets;
-import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.listPredictors;
 
 @Slf4j
 public abstract class AbstractPredictionGenerationLambdaHandler implements RequestHandler<String, String> {
@@ -34,14 +43,43 @@ public abstract class AbstractPredictionGenerationLambdaHandler implements Reque
     @NonNull
     protected AmazonForecast forecastClient;
 
+    @Inject
+    protected AmazonDynamoDB ddbClient;
+
+    // The existing resources listed in the current run, shared by the steps of the handler
+    protected ForecastResourceInventory inventory;
+
+    protected ForecastResourceDeleter resourceDeleter;
+
+    protected ResourceStatusWaiter statusWaiter;
+
+    protected ResourceStageScheduler stageScheduler;
+
+    // The wait before polling the resource of the current run again, set while it's in progress
+    private Duration nextPollWait;
+
     AbstractPredictionGenerationLambdaHandler() {
         DaggerLambdaFunctionsComponent.create().inject(this);
+        this.inventory = new ForecastResourceInventory(forecastClient);
+        this.resourceDeleter = new ForecastResourceDeleter();
+        this.statusWaiter = new ResourceStatusWaiter();
+        this.stageScheduler = new ResourceStageScheduler(new ResourceStageHistory(ddbClient));
     }
 
     AbstractPredictionGenerationLambdaHandler(final AmazonForecast forecastClient) {
         this.forecastClient = forecastClient;
+        this.inventory = new ForecastResourceInventory(forecastClient);
+        this.resourceDeleter = new ForecastResourceDeleter();
+        this.statusWaiter = new ResourceStatusWaiter();
+        // The stage history is only kept by the deployed functions
+        this.stageScheduler = new ResourceStageScheduler(null);
     }
 
+    /**
+     * Process the resources of the step, see {@link #process}. While the resource of the step is in progress, the
+     * output has the seconds to wait before running the step again with it, for the Wait state of the state machine,
+     * instead of failing the step for the Retry of the state machine to run it again after a fixed interval.
+     */
     @Override
     public String handleRequest(final String input, Context context) {
         Map<String, String> resourceIdMap;
@@ -53,8 +91,39 @@ public abstract class AbstractPredictionGenerationLambdaHandler implements Reque
             log.error(errorMsg);
             throw new RuntimeException(errorMsg);
         }
-        process(resourceIdMap);
-        return input;
+        // The handler is kept across the runs of a warm Lambda container, so every run lists the resources again
+        inventory.invalidate();
+        stageScheduler.invalidate();
+        nextPollWait = null;
+        try {
+            process(resourceIdMap);
+        } catch (ResourceSetupInProgressException e) {
+            if (nextPollWait == null) {
+                throw e;
+            }
+            log.info(String.format("%s, polling again in [%s]", e.getMessage(), nextPollWait));
+            return buildOutput(resourceIdMap, nextPollWait.getSeconds());
+        }
+        return buildOutput(resourceIdMap, null);
+    }
+
+    /**
+     * @param nextPollWaitInSeconds the wait before running the step again, or null once the step is done
+     */
+    private static String buildOutput(final Map<String, String> resourceIdMap, final Long nextPollWaitInSeconds) {
+        // A number, for the SecondsPath of the Wait state
+        Map<String, Object> output = new LinkedHashMap<>(resourceIdMap);
+        output.remove(NEXT_POLL_WAIT_IN_SECONDS_KEY);
+        if (nextPollWaitInSeconds != null) {
+            output.put(NEXT_POLL_WAIT_IN_SECONDS_KEY, nextPollWaitInSeconds);
+        }
+        try {
+            return new ObjectMapper().writeValueAsString(output);
+        } catch (JsonProcessingException e) {
+            String errorMsg = e.getMessage();
+            log.error(errorMsg);
+            throw new RuntimeException(errorMsg);
+        }
     }
 
     abstract void process(Map<String, String> resourceIdMap);
@@ -84,24 +153,61 @@ public abstract class AbstractPredictionGenerationLambdaHandler implements Reque
         }
     }
 
-    protected List<String> listOutdatedDatasetArns(final String currentDatasetArn) {
-        List<String> existingDatasetArns = listDatasetArns();
-        existingDatasetArns.remove(currentDatasetArn);
-        return existingDatasetArns;
+    /**
+     * Wait for a resource in progress to become ACTIVE or FAILED within the run, see {@link ResourceStatusWaiter}.
+     * The polls are scheduled from the time the stage took before for the same input size, and the time it took
+     * this time is recorded once it's ACTIVE, see {@link ResourceStageScheduler}. If it's still in progress, the wait
+     * before the next run of the step is scheduled as well.
+     *
+     * @return the last status of the resource, to pass to {@link #takeActionByResourceStatus}
+     */
+    protected String waitForResourceStatus(final ForecastResourceType resourceType,
+                                           final String resourceArn,
+                                           final Map<String, String> resourceIdMap,
+                                           final ResourceStatus currentStatus,
+                                           final Supplier<ResourceStatus> statusSupplier) {
+        // Unknown for the resources of the cron state machine
+        Long inputSizeInBytes = NumberUtils.createLong(resourceIdMap.get(INPUT_SIZE_IN_BYTES_KEY));
+        ResourceStatus status = statusWaiter.waitForStatus(resourceArn, currentStatus,
+                () -> stageScheduler.schedule(resourceType, inputSizeInBytes), statusSupplier);
+        stageScheduler.recordCompletion(resourceType, resourceArn, inputSizeInBytes, status);
+        if (!RESOURCE_ACTIVE_STATUS.equals(status.getStatus()) && !RESOURCE_FAILED_STATUS.equals(status.getStatus())) {
+            Duration elapsedSinceCreation = status.getCreationTime() == null
+                    ? Duration.ZERO
+                    : Duration.between(status.getCreationTime().toInstant(), Instant.now());
+            nextPollWait = stageScheduler.nextPollWait(resourceType, inputSizeInBytes, elapsedSinceCreation);
+        }
+        return status.getStatus();
     }
 
-    private List<String> listDatasetArns() {
-        return listDatasets(forecastClient).stream().map(DatasetSummary::getDatasetArn).collect(Collectors.toList());
+    /**
+     * Delete the resources concurrently, see {@link ForecastResourceDeleter}.
+     *
+     * @throws ResourceCleanupInProgressException if any of them is pending, so that the cleanup is retried later
+     * @throws IllegalStateException if any of them failed to be deleted
+     */
+    protected ForecastResourceDeletionReport deleteAll(final String resourceType,
+                                                       final Collection<String> arns,
+                                                       final Consumer<String> deleteFunction) {
+        ForecastResourceDeletionReport report = resourceDeleter.deleteAll(resourceType, arns, deleteFunction);
+        if (!report.getFailedArns().isEmpty()) {
+            throw new IllegalStateException(String.format("Failed to delete %ss %s",
+                    resourceType, report.getFailedArns()));
+        }
+        if (!report.getPendingArns().isEmpty()) {
+            throw new ResourceCleanupInProgressException(String.format("Outdated %ss cleanup is in progress with pending %ss %s",
+                    resourceType, resourceType, report.getPendingArns()));
+        }
+        return report;
     }
 
+    /**
+     * @return the arns of the predictors in the inventory except the current one
+     */
     protected List<String> listOutdatedPredictorArns(final String currentPredictorArn) {
-        List<String> existingPredictorArns = listPredictorArns();
+        List<String> existingPredictorArns = inventory.getPredictors().stream()
+                .map(PredictorSummary::getPredictorArn).collect(Collectors.toList());
         existingPredictorArns.remove(currentPredictorArn);
         return existingPredictorArns;
     }
-
-    private List<String> listPredictorArns() {
-        List<PredictorSummary> existingPredictors = listPredictors(forecastClient);
-        return existingPredictors.stream().map(PredictorSummary::getPredictorArn).collect(Collectors.toList());
-    }
 }
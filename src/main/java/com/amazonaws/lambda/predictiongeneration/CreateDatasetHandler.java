@@ -3,6 +3,7 @@ package com.amazonaws.lambda.predictiongeneration;
 import com.amazonaws.services.forecast.AmazonForecast;
 import com.amazonaws.services.forecast.model.CreateDatasetRequest;
 import com.amazonaws.services.forecast.model.DescribeDatasetRequest;
+import com.amazonaws.services.forecast.model.DescribeDatasetResult;
 import com.amazonaws.services.forecast.model.ResourceNotFoundException;
 import com.amazonaws.services.forecast.model.Schema;
 import com.amazonaws.services.forecast.model.SchemaAttribute;
@@ -41,7 +42,9 @@ public class CreateDatasetHandler extends AbstractPredictionGenerationLambdaHand
 
         // Check if dataset exists
         try {
-            String currentStatus = describeDatasetStatus(datasetArn);
+            ResourceStatus dataset = describeDataset(datasetArn);
+            String currentStatus = waitForResourceStatus(ForecastResourceType.DATASET, datasetArn,
+                    resourceIdMap, dataset, () -> describeDataset(datasetArn));
             if (takeActionByResourceStatus(currentStatus, DATASET_RESOURCE_TYPE, datasetArn)) {
                 return;
             }
@@ -53,7 +56,9 @@ public class CreateDatasetHandler extends AbstractPredictionGenerationLambdaHand
         createDataset(DOMAIN, DATASET_TYPE, datasetName, dataFrequency);
         log.info("finish triggering CreateDatasetCall.");
 
-        String newStatus = describeDatasetStatus(datasetArn);
+        ResourceStatus newDataset = describeDataset(datasetArn);
+        String newStatus = waitForResourceStatus(ForecastResourceType.DATASET, datasetArn,
+                resourceIdMap, newDataset, () -> describeDataset(datasetArn));
         takeActionByResourceStatus(newStatus, DATASET_RESOURCE_TYPE, datasetArn);
     }
 
@@ -81,9 +86,11 @@ public class CreateDatasetHandler extends AbstractPredictionGenerationLambdaHand
         forecastClient.createDataset(createDatasetRequest);
     }
 
-    private String describeDatasetStatus(final String datasetArn) {
+    private ResourceStatus describeDataset(final String datasetArn) {
         DescribeDatasetRequest describeDatasetRequest = new DescribeDatasetRequest();
         describeDatasetRequest.setDatasetArn(datasetArn);
-        return forecastClient.describeDataset(describeDatasetRequest).getStatus();
+        DescribeDatasetResult dataset = forecastClient.describeDataset(describeDatasetRequest);
+        return new ResourceStatus(dataset.getStatus(), dataset.getCreationTime(),
+                dataset.getLastModificationTime());
     }
 }
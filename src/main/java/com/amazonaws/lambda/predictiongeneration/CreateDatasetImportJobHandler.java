@@ -1,9 +1,11 @@
 package com.amazonaws.lambda.predictiongeneration;
 
+import com.amazonaws.lambda.common.TrainingDataLayout;
 import com.amazonaws.services.forecast.AmazonForecast;
 import com.amazonaws.services.forecast.model.CreateDatasetImportJobRequest;
 import com.amazonaws.services.forecast.model.DataSource;
 import com.amazonaws.services.forecast.model.DescribeDatasetImportJobRequest;
+import com.amazonaws.services.forecast.model.DescribeDatasetImportJobResult;
 import com.amazonaws.services.forecast.model.ResourceNotFoundException;
 import com.amazonaws.services.forecast.model.S3Config;
 import lombok.extern.slf4j.Slf4j;
@@ -28,12 +30,8 @@ public class CreateDatasetImportJobHandler extends AbstractPredictionGenerationL
     private static final String FORECAST_TRAINING_DATA_S3_URI;
     static {
         String s3TrainingDataBucket = System.getenv("PREDICTION_S3_BUCKET_NAME");
-        String s3TrainingDataFolder = System.getenv("SRC_S3_FOLDER");
-        String s3TrainingDataFileName = System.getenv("S3_TRAINING_DATA_FILE_NAME");
-        String forecastTrainingDataS3Uri = String.format("s3://%s/%s/%s",
-                s3TrainingDataBucket,
-                s3TrainingDataFolder,
-                s3TrainingDataFileName);
+        // The training data file, or the folder of its shards, as published by the demand publishing
+        String forecastTrainingDataS3Uri = TrainingDataLayout.fromEnvironment().getImportS3Path(s3TrainingDataBucket);
         log.info(String.format("The forecastTrainingDataS3Uri getting from env variables is %s",
                 forecastTrainingDataS3Uri));
         FORECAST_TRAINING_DATA_S3_URI = forecastTrainingDataS3Uri;
@@ -59,7 +57,9 @@ public class CreateDatasetImportJobHandler extends AbstractPredictionGenerationL
 
         // Check if dataset import job exists
         try {
-            String currentStatus = describeDatasetImportJobStatus(datasetImportJobArn);
+            ResourceStatus datasetImportJob = describeDatasetImportJob(datasetImportJobArn);
+            String currentStatus = waitForResourceStatus(ForecastResourceType.DATASET_IMPORT_JOB, datasetImportJobArn,
+                    resourceIdMap, datasetImportJob, () -> describeDatasetImportJob(datasetImportJobArn));
             if (takeActionByResourceStatus(currentStatus, DATASET_IMPORT_JOB_RESOURCE_TYPE, datasetImportJobArn)) {
                 return;
             }
@@ -76,7 +76,9 @@ public class CreateDatasetImportJobHandler extends AbstractPredictionGenerationL
                 TIMESTAMP_FORMAT);
         log.info("finish triggering CreateDatasetImportJobCall.");
 
-        String newStatus = describeDatasetImportJobStatus(datasetImportJobArn);
+        ResourceStatus newDatasetImportJob = describeDatasetImportJob(datasetImportJobArn);
+        String newStatus = waitForResourceStatus(ForecastResourceType.DATASET_IMPORT_JOB, datasetImportJobArn,
+                resourceIdMap, newDatasetImportJob, () -> describeDatasetImportJob(datasetImportJobArn));
         takeActionByResourceStatus(newStatus, DATASET_IMPORT_JOB_RESOURCE_TYPE, datasetImportJobArn);
     }
 
@@ -96,9 +98,11 @@ public class CreateDatasetImportJobHandler extends AbstractPredictionGenerationL
         forecastClient.createDatasetImportJob(createDatasetImportJobRequest);
     }
 
-    private String describeDatasetImportJobStatus(final String dataseImportJobArn) {
+    private ResourceStatus describeDatasetImportJob(final String dataseImportJobArn) {
         DescribeDatasetImportJobRequest describeDatasetImportJobRequest = new DescribeDatasetImportJobRequest();
         describeDatasetImportJobRequest.setDatasetImportJobArn(dataseImportJobArn);
-        return forecastClient.describeDatasetImportJob(describeDatasetImportJobRequest).getStatus();
+        DescribeDatasetImportJobResult datasetImportJob = forecastClient.describeDatasetImportJob(describeDatasetImportJobRequest);
+        return new ResourceStatus(datasetImportJob.getStatus(), datasetImportJob.getCreationTime(),
+                datasetImportJob.getLastModificationTime());
     }
 }
@@ -4,6 +4,7 @@ import com.amazonaws.services.forecast.AmazonForecast;
 import com.amazonaws.services.forecast.model.CreateForecastExportJobRequest;
 import com.amazonaws.services.forecast.model.DataDestination;
 import com.amazonaws.services.forecast.model.DescribeForecastExportJobRequest;
+import com.amazonaws.services.forecast.model.DescribeForecastExportJobResult;
 import com.amazonaws.services.forecast.model.ResourceNotFoundException;
 import com.amazonaws.services.forecast.model.S3Config;
 import lombok.extern.slf4j.Slf4j;
@@ -54,7 +55,9 @@ public class CreateForecastExportJobHandler extends AbstractPredictionGeneration
 
         // Check if forecastExportJob exists
         try {
-            String currentStatus = describeForecastExportJobStatus(forecastExportJobArn);
+            ResourceStatus forecastExportJob = describeForecastExportJob(forecastExportJobArn);
+            String currentStatus = waitForResourceStatus(ForecastResourceType.FORECAST_EXPORT_JOB, forecastExportJobArn,
+                    resourceIdMap, forecastExportJob, () -> describeForecastExportJob(forecastExportJobArn));
             if (takeActionByResourceStatus(currentStatus, FORECAST_EXPORT_JOB_RESOURCE_TYPE, forecastExportJobArn)) {
                 return;
             }
@@ -67,14 +70,18 @@ public class CreateForecastExportJobHandler extends AbstractPredictionGeneration
         createForecastExportJob(forecastExportJobName, forecastArn, FORECAST_EXPORT_RESULT_ROLE_ARN, FORECAST_EXPORT_RESULT_S3_URI);
         log.info("finish triggering CreateForecastExportJobCall.");
 
-        String newStatus = describeForecastExportJobStatus(forecastExportJobArn);
+        ResourceStatus newForecastExportJob = describeForecastExportJob(forecastExportJobArn);
+        String newStatus = waitForResourceStatus(ForecastResourceType.FORECAST_EXPORT_JOB, forecastExportJobArn,
+                resourceIdMap, newForecastExportJob, () -> describeForecastExportJob(forecastExportJobArn));
         takeActionByResourceStatus(newStatus, FORECAST_EXPORT_JOB_RESOURCE_TYPE, forecastExportJobArn);
     }
 
-    private String describeForecastExportJobStatus(final String forecastExportJobArn) {
+    private ResourceStatus describeForecastExportJob(final String forecastExportJobArn) {
         DescribeForecastExportJobRequest describeForecastExportJobRequest = new DescribeForecastExportJobRequest();
         describeForecastExportJobRequest.setForecastExportJobArn(forecastExportJobArn);
-        return forecastClient.describeForecastExportJob(describeForecastExportJobRequest).getStatus();
+        DescribeForecastExportJobResult forecastExportJob = forecastClient.describeForecastExportJob(describeForecastExportJobRequest);
+        return new ResourceStatus(forecastExportJob.getStatus(), forecastExportJob.getCreationTime(),
+                forecastExportJob.getLastModificationTime());
     }
 
     private void createForecastExportJob(final String forecastExportJobName,
@@ -3,6 +3,7 @@ package com.amazonaws.lambda.predictiongeneration;
 import com.amazonaws.services.forecast.AmazonForecast;
 import com.amazonaws.services.forecast.model.CreateForecastRequest;
 import com.amazonaws.services.forecast.model.DescribeForecastRequest;
+import com.amazonaws.services.forecast.model.DescribeForecastResult;
 import com.amazonaws.services.forecast.model.ResourceNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 
@@ -37,7 +38,9 @@ public class CreateForecastHandler extends AbstractPredictionGenerationLambdaHan
 
         // Check if forecast exists
         try {
-            String currentStatus = describeForecastStatus(forecastArn);
+            ResourceStatus forecast = describeForecast(forecastArn);
+            String currentStatus = waitForResourceStatus(ForecastResourceType.FORECAST, forecastArn,
+                    resourceIdMap, forecast, () -> describeForecast(forecastArn));
             if (takeActionByResourceStatus(currentStatus, FORECAST_RESOURCE_TYPE, forecastArn)) {
                 return;
             }
@@ -50,7 +53,9 @@ public class CreateForecastHandler extends AbstractPredictionGenerationLambdaHan
         createForecast(forecastName, predictorArn);
         log.info("finish triggering CreateForecastCall.");
 
-        String newStatus = describeForecastStatus(forecastArn);
+        ResourceStatus newForecast = describeForecast(forecastArn);
+        String newStatus = waitForResourceStatus(ForecastResourceType.FORECAST, forecastArn,
+                resourceIdMap, newForecast, () -> describeForecast(forecastArn));
         takeActionByResourceStatus(newStatus, FORECAST_RESOURCE_TYPE, forecastArn);
     }
 
@@ -63,10 +68,11 @@ public class CreateForecastHandler extends AbstractPredictionGenerationLambdaHan
         forecastClient.createForecast(createForecastRequest);
     }
 
-    private String describeForecastStatus(final String forecastArn) {
+    private ResourceStatus describeForecast(final String forecastArn) {
         DescribeForecastRequest describeForecastRequest = new DescribeForecastRequest();
         describeForecastRequest.setForecastArn(forecastArn);
 
-        return forecastClient.describeForecast(describeForecastRequest).getStatus();
+        DescribeForecastResult forecast = forecastClient.describeForecast(describeForecastRequest);
+        return new ResourceStatus(forecast.getStatus(), forecast.getCreationTime(), forecast.getLastModificationTime());
     }
 }
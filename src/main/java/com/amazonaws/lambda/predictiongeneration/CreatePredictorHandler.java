@@ -3,6 +3,7 @@ package com.amazonaws.lambda.predictiongeneration;
 import com.amazonaws.services.forecast.AmazonForecast;
 import com.amazonaws.services.forecast.model.CreatePredictorRequest;
 import com.amazonaws.services.forecast.model.DescribePredictorRequest;
+import com.amazonaws.services.forecast.model.DescribePredictorResult;
 import com.amazonaws.services.forecast.model.FeaturizationConfig;
 import com.amazonaws.services.forecast.model.InputDataConfig;
 import com.amazonaws.services.forecast.model.ResourceNotFoundException;
@@ -12,9 +13,9 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.util.Map;
 
+import static com.amazonaws.lambda.common.ForecastDataFrequency.DATA_FREQUENCY_SECONDS_MAPPING;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.DATASET_GROUP_ARN_KEY;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.DATA_FREQUENCY_KEY;
-import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.DATA_FREQUENCY_SECONDS_MAPPING;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.PREDICTOR_ARN_KEY;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.PREDICTOR_NAME_KEY;
 
@@ -54,7 +55,9 @@ public class CreatePredictorHandler extends AbstractPredictionGenerationLambdaHa
 
         // Check if predictor exists
         try {
-            String currentStatus = describePredictorStatus(predictorArn);
+            ResourceStatus predictor = describePredictor(predictorArn);
+            String currentStatus = waitForResourceStatus(ForecastResourceType.PREDICTOR, predictorArn,
+                    resourceIdMap, predictor, () -> describePredictor(predictorArn));
             if (takeActionByResourceStatus(currentStatus, PREDICTOR_RESOURCE_TYPE, predictorArn)) {
                 return;
             }
@@ -72,7 +75,9 @@ public class CreatePredictorHandler extends AbstractPredictionGenerationLambdaHa
         createPredictor(forecastHorizon, dataFrequency, datasetGroupArn, predictorName, FORECAST_PREDICTOR_ALGORITHM_ARN);
         log.info("finish triggering CreatePredictorCall.");
 
-        String newStatus = describePredictorStatus(predictorArn);
+        ResourceStatus newPredictor = describePredictor(predictorArn);
+        String newStatus = waitForResourceStatus(ForecastResourceType.PREDICTOR, predictorArn,
+                resourceIdMap, newPredictor, () -> describePredictor(predictorArn));
         takeActionByResourceStatus(newStatus, PREDICTOR_RESOURCE_TYPE, predictorName);
     }
 
@@ -96,9 +101,11 @@ public class CreatePredictorHandler extends AbstractPredictionGenerationLambdaHa
         forecastClient.createPredictor(createPredictorRequest);
     }
 
-    private String describePredictorStatus(final String predictorArn) {
+    private ResourceStatus describePredictor(final String predictorArn) {
         DescribePredictorRequest describePredictorRequest = new DescribePredictorRequest();
         describePredictorRequest.setPredictorArn(predictorArn);
-        return forecastClient.describePredictor(describePredictorRequest).getStatus();
+        DescribePredictorResult predictor = forecastClient.describePredictor(describePredictorRequest);
+        return new ResourceStatus(predictor.getStatus(), predictor.getCreationTime(),
+                predictor.getLastModificationTime());
     }
 }
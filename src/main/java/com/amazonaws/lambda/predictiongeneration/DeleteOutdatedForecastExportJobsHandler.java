@@ -11,7 +11,6 @@ import com.amazonaws.services.forecast.model.ListForecastExportJobsResult;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -43,7 +42,7 @@ public class DeleteOutdatedForecastExportJobsHandler extends AbstractPredictionG
         }
 
         // Delete all forecastExportJobs associated with outdated forecasts
-        outdatedForecastExportJobArns.forEach(this::deleteForecastExportJob);
+        deleteAll("forecastExportJob", outdatedForecastExportJobArns, this::deleteForecastExportJob);
 
         // Verify there is no outdated forecastExportJobs
         List<String> outdatedForecastExportJobArnsAfterCleanup = listOutdatedForecastExportJobArns(preservedForecastArn);
@@ -61,28 +60,15 @@ public class DeleteOutdatedForecastExportJobsHandler extends AbstractPredictionG
     }
 
     private List<String> listOutdatedForecastExportJobArns(final String preservedForecastArn) {
-
-        List<String> outdatedForecastExportJobArns = new ArrayList<>();
-        String nextToken = null;
-        ListForecastExportJobsRequest listForecastExportJobsRequest =
-                new ListForecastExportJobsRequest().withFilters(
-                        new Filter()
-                                .withKey("ForecastArn")
-                                .withValue(preservedForecastArn)
-                                .withCondition(FilterConditionString.IS_NOT));
-
-        do {
-            if (nextToken != null) {
-                listForecastExportJobsRequest.setNextToken(nextToken);
-            }
-            ListForecastExportJobsResult listForecastExportJobsResult = forecastClient
-                    .listForecastExportJobs(listForecastExportJobsRequest);
-
-            outdatedForecastExportJobArns.addAll(listForecastExportJobsResult.getForecastExportJobs()
-                    .stream().map(ForecastExportJobSummary::getForecastExportJobArn).collect(Collectors.toList()));
-            nextToken = listForecastExportJobsResult.getNextToken();
-        } while (nextToken != null);
-
-        return outdatedForecastExportJobArns;
+        Filter forecastFilter = new Filter()
+                .withKey("ForecastArn")
+                .withValue(preservedForecastArn)
+                .withCondition(FilterConditionString.IS_NOT);
+
+        return ForecastPaginator.paginate(
+                nextToken -> forecastClient.listForecastExportJobs(new ListForecastExportJobsRequest()
+                        .withFilters(forecastFilter).withNextToken(nextToken)),
+                ListForecastExportJobsResult::getForecastExportJobs, ListForecastExportJobsResult::getNextToken)
+                .map(ForecastExportJobSummary::getForecastExportJobArn).collect(Collectors.toList());
     }
 }
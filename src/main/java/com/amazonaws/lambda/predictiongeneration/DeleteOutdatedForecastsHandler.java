@@ -2,11 +2,7 @@ package com.amazonaws.lambda.predictiongeneration;
 
 import com.amazonaws.services.forecast.AmazonForecast;
 import com.amazonaws.services.forecast.model.DeleteForecastRequest;
-import com.amazonaws.services.forecast.model.Filter;
 import com.amazonaws.services.forecast.model.ForecastSummary;
-import com.amazonaws.services.forecast.model.ListForecastsRequest;
-import com.amazonaws.services.forecast.model.ListForecastsResult;
-import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
@@ -14,9 +10,12 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
+import static com.amazonaws.lambda.predictiongeneration.ForecastCleanupPlanner.NUMBER_OF_PRESERVED_FORECASTS;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.FORECAST_ARN_KEY;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.PREDICTOR_ARN_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.RESOURCE_ACTIVE_STATUS;
 
 @Slf4j
 public class DeleteOutdatedForecastsHandler extends AbstractPredictionGenerationLambdaHandler {
@@ -40,68 +39,48 @@ public class DeleteOutdatedForecastsHandler extends AbstractPredictionGeneration
         List<String> outdatedPredictors = listOutdatedPredictorArns(preservedPredictorArn);
         outdatedPredictors.remove(preservedPredictorArn);
 
-        // Delete all forecasts for all outdated predictors
-        if (!outdatedPredictors.isEmpty()) {
-            outdatedPredictors.forEach(
-                    outdatedPredictorArn -> {
-                        log.info(String.format("About to delete forecasts for outdated predictorArn [%s]", outdatedPredictorArn));
-                        List<ForecastSummary> outdatedForecasts = listActiveForeacasts(outdatedPredictorArn, null);
-                        outdatedForecasts.forEach(outdatedForecast -> {
-                            deleteForecast(outdatedForecast.getForecastArn());
-                        });
-                    }
-            );
-        }
+        // Find all forecasts for all outdated predictors, in a single listing of all the forecasts
+        List<String> outdatedForecastArns = new ArrayList<>();
+        outdatedPredictors.forEach(
+                outdatedPredictorArn -> listForecasts(outdatedPredictorArn, null)
+                        .forEach(outdatedForecast -> outdatedForecastArns.add(outdatedForecast.getForecastArn())));
+        log.info(String.format("Found [%d] forecasts for outdated predictors %s", outdatedForecastArns.size(), outdatedPredictors));
 
         // Get all existing forecasts associated with given predictorArn
-        List<ForecastSummary> outdatedForecasts = listActiveForeacasts(preservedPredictorArn, "ACTIVE");
+        List<ForecastSummary> outdatedForecasts = listForecasts(preservedPredictorArn, RESOURCE_ACTIVE_STATUS);
 
         // Remove the current processing forecast from the list
         outdatedForecasts.removeIf(forecast -> currentForecastArn.equals(forecast.getForecastArn()));
 
         int numberOfOutdatedForecasts = outdatedForecasts.size();
-        if (numberOfOutdatedForecasts > 5) {
+        if (numberOfOutdatedForecasts > NUMBER_OF_PRESERVED_FORECASTS) {
             outdatedForecasts
                     .stream()
                     .sorted(Comparator.comparing(ForecastSummary::getCreationTime))
-                    .limit(numberOfOutdatedForecasts - 5)
-                    .forEach(forecast -> deleteForecast(forecast.getForecastArn()));
+                    .limit(numberOfOutdatedForecasts - NUMBER_OF_PRESERVED_FORECASTS)
+                    .forEach(forecast -> outdatedForecastArns.add(forecast.getForecastArn()));
         } else {
             log.info(String.format("We only have %s outdated forecasts, no need to delete", numberOfOutdatedForecasts));
         }
+
+        // Delete all of them at once
+        deleteAll("forecast", outdatedForecastArns, this::deleteForecast);
     }
 
     private void deleteForecast(final String forecastArn) {
-        log.info(String.format("About to delete forecastArn [%s].", forecastArn));
-
         forecastClient.deleteForecast(new DeleteForecastRequest().withForecastArn(forecastArn));
     }
 
     /**
      * @param predictorArn the predictor arn associated with forecasts
-     * @return existing forecasts with Active status
+     * @param status the status of forecasts, or blank for any status
+     * @return existing forecasts in the inventory associated with the predictor and with the status
      */
-    private List<ForecastSummary> listActiveForeacasts(final String predictorArn,
-                                                       final String status) {
-        List<ForecastSummary> existingForecasts = new ArrayList<>();
-        String nextToken = null;
-        do {
-            ListForecastsRequest listForecastsRequest = new ListForecastsRequest();
-            List<Filter> filters = Lists.newArrayList(new Filter().withCondition("IS").withKey("PredictorArn").withValue(predictorArn));
-            if (StringUtils.isNotBlank(status)) {
-                filters.add(new Filter().withCondition("IS").withKey("Status").withValue(status));
-            }
-            listForecastsRequest.setFilters(filters);
-
-            if (nextToken != null) {
-                listForecastsRequest.setNextToken(nextToken);
-            }
-            ListForecastsResult listForecastsResult = forecastClient.listForecasts(listForecastsRequest);
-
-            existingForecasts.addAll(listForecastsResult.getForecasts());
-            nextToken = listForecastsResult.getNextToken();
-        } while (nextToken != null);
-
-        return existingForecasts;
+    private List<ForecastSummary> listForecasts(final String predictorArn,
+                                                final String status) {
+        return inventory.getForecasts().stream()
+                .filter(forecast -> StringUtils.equals(predictorArn, forecast.getPredictorArn()))
+                .filter(forecast -> StringUtils.isBlank(status) || status.equals(forecast.getStatus()))
+                .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,54 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.lambda.predictiongeneration.exception.ResourceCleanupInProgressException;
+import com.amazonaws.services.forecast.AmazonForecast;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deletes the outdated resources of all the types in one step, leaves first, see {@link ForecastCleanupPlanner}.
+ *
+ * Every run deletes all the resources without children left at once, and the retries of the step by the state
+ * machine delete their parents as soon as the children are gone, until there is no outdated resource left.
+ */
+@Slf4j
+public class DeleteOutdatedResourcesHandler extends AbstractPredictionGenerationLambdaHandler {
+
+    private final ForecastCleanupPlanner cleanupPlanner;
+
+    public DeleteOutdatedResourcesHandler() {
+        super();
+        this.cleanupPlanner = new ForecastCleanupPlanner(inventory);
+    }
+
+    public DeleteOutdatedResourcesHandler(final AmazonForecast forecastClient) {
+        super(forecastClient);
+        this.cleanupPlanner = new ForecastCleanupPlanner(inventory);
+    }
+
+    @Override
+    public void process(final Map<String, String> resourceIdMap) {
+        ForecastCleanupPlan plan = cleanupPlanner.plan(resourceIdMap);
+        if (plan.isEmpty()) {
+            log.info("Successfully clean up outdated resources.");
+            return;
+        }
+
+        // Delete all the leaves at once, the resources being deleted already are left to finish
+        List<String> deletableArns = plan.getDeletableArns();
+        ForecastResourceDeletionReport report = resourceDeleter.deleteAll("resource", deletableArns,
+                arn -> ForecastResourceType.fromArn(arn).delete(forecastClient, arn));
+        if (!report.getFailedArns().isEmpty()) {
+            throw new IllegalStateException(String.format("Failed to delete resources %s", report.getFailedArns()));
+        }
+
+        // A deletion takes a while to finish, so the parents are deleted by the next run
+        throw new ResourceCleanupInProgressException(String.format(
+                "Outdated resources cleanup is in progress with [%d] resources being deleted, pending resources %s "
+                        + "and resources waiting for their children %s",
+                plan.size() - report.getPendingArns().size() - plan.getBlockedArns().size(),
+                report.getPendingArns(), plan.getBlockedArns()));
+    }
+}
@@ -0,0 +1,83 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import lombok.NonNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The dependency graph of the outdated Forecast resources, built by {@link ForecastCleanupPlanner}.
+ *
+ * Every outdated resource is mapped to the existing resources which have to be gone before it can be deleted, e.g.
+ * the forecasts of a predictor, so the resources without any of them are the leaves to delete next.
+ */
+public class ForecastCleanupPlan {
+
+    // The outdated arns, in the order they're planned, with the arns of their existing children
+    private final Map<String, Set<String>> childArnsByArn = new LinkedHashMap<>();
+
+    // The outdated arns whose deletion is already in progress, they're not deleted again but still block their parents
+    private final Set<String> deletingArns = new LinkedHashSet<>();
+
+    void addResource(@NonNull final String arn, final boolean deleting) {
+        childArnsByArn.computeIfAbsent(arn, key -> new LinkedHashSet<>());
+        if (deleting) {
+            deletingArns.add(arn);
+        }
+    }
+
+    // The parent may be unknown, e.g. a summary without the arn of its dataset group, it blocks nothing then
+    void addDependency(final String parentArn, @NonNull final String childArn) {
+        Set<String> childArns = childArnsByArn.get(parentArn);
+        if (childArns != null) {
+            childArns.add(childArn);
+        }
+    }
+
+    /**
+     * @return true if there is no outdated resource left
+     */
+    public boolean isEmpty() {
+        return childArnsByArn.isEmpty();
+    }
+
+    /**
+     * @return the number of outdated resources left, including the ones being deleted
+     */
+    public int size() {
+        return childArnsByArn.size();
+    }
+
+    /**
+     * @return the arns of the outdated resources without any child left, which can be deleted at once
+     */
+    public List<String> getDeletableArns() {
+        return childArnsByArn.entrySet().stream()
+                .filter(entry -> entry.getValue().isEmpty())
+                .map(Map.Entry::getKey)
+                .filter(arn -> !deletingArns.contains(arn))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the arns of the outdated resources waiting for their children to be gone
+     */
+    public List<String> getBlockedArns() {
+        return childArnsByArn.entrySet().stream()
+                .filter(entry -> !entry.getValue().isEmpty())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the existing children of an outdated resource, or empty if it's not outdated
+     */
+    public Set<String> getChildArns(@NonNull final String arn) {
+        return Collections.unmodifiableSet(childArnsByArn.getOrDefault(arn, Collections.emptySet()));
+    }
+}
@@ -0,0 +1,124 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.services.forecast.model.DatasetImportJobSummary;
+import com.amazonaws.services.forecast.model.ForecastExportJobSummary;
+import com.amazonaws.services.forecast.model.ForecastSummary;
+import com.amazonaws.services.forecast.model.PredictorSummary;
+import com.google.common.collect.ImmutableSet;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.DATASET_ARN_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.DATASET_GROUP_ARN_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.FORECAST_ARN_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.PREDICTOR_ARN_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.RESOURCE_ACTIVE_STATUS;
+
+/**
+ * Plans the cleanup of the outdated Forecast resources from the inventory, as a dependency graph instead of a fixed
+ * order of resource types, so that every lineage advances as soon as its own children are gone.
+ *
+ * The outdated forecasts are the same as the ones of the {@link DeleteOutdatedForecastsHandler}, and a resource
+ * depends on:
+ * - a forecast on its forecast export jobs
+ * - a predictor on its forecasts
+ * - a dataset on its dataset import jobs
+ * - a dataset group on its predictors and forecasts
+ */
+@Slf4j
+public class ForecastCleanupPlanner {
+
+    // The active forecasts kept for the preserved predictor besides the current one
+    static final int NUMBER_OF_PRESERVED_FORECASTS = 5;
+
+    private static final Set<String> RESOURCE_DELETING_STATUSES = ImmutableSet.of("DELETE_PENDING", "DELETE_IN_PROGRESS");
+
+    private final ForecastResourceInventory inventory;
+
+    public ForecastCleanupPlanner(@NonNull final ForecastResourceInventory inventory) {
+        this.inventory = inventory;
+    }
+
+    public ForecastCleanupPlan plan(@NonNull final Map<String, String> resourceIdMap) {
+        String preservedDatasetGroupArn = resourceIdMap.get(DATASET_GROUP_ARN_KEY);
+        String preservedDatasetArn = resourceIdMap.get(DATASET_ARN_KEY);
+        String preservedPredictorArn = resourceIdMap.get(PREDICTOR_ARN_KEY);
+        String preservedForecastArn = resourceIdMap.get(FORECAST_ARN_KEY);
+
+        ForecastCleanupPlan plan = new ForecastCleanupPlan();
+
+        // The outdated resources
+        inventory.getForecastExportJobs().stream()
+                .filter(job -> !StringUtils.equals(preservedForecastArn,
+                        ForecastResourceType.getParentArn(job.getForecastExportJobArn())))
+                .forEach(job -> plan.addResource(job.getForecastExportJobArn(), isDeleting(job.getStatus())));
+        listOutdatedForecasts(preservedPredictorArn, preservedForecastArn)
+                .forEach(forecast -> plan.addResource(forecast.getForecastArn(), isDeleting(forecast.getStatus())));
+        inventory.getPredictors().stream()
+                .filter(predictor -> !StringUtils.equals(preservedPredictorArn, predictor.getPredictorArn()))
+                .forEach(predictor -> plan.addResource(predictor.getPredictorArn(), isDeleting(predictor.getStatus())));
+        inventory.getDatasetImportJobs().stream()
+                .filter(job -> !StringUtils.equals(preservedDatasetArn,
+                        ForecastResourceType.getParentArn(job.getDatasetImportJobArn())))
+                .forEach(job -> plan.addResource(job.getDatasetImportJobArn(), isDeleting(job.getStatus())));
+        inventory.getDatasets().stream()
+                .filter(dataset -> !StringUtils.equals(preservedDatasetArn, dataset.getDatasetArn()))
+                .forEach(dataset -> plan.addResource(dataset.getDatasetArn(), isDeleting(dataset.getStatus())));
+        inventory.getDatasetGroups().stream()
+                .filter(datasetGroup -> !StringUtils.equals(preservedDatasetGroupArn, datasetGroup.getDatasetGroupArn()))
+                .forEach(datasetGroup -> plan.addResource(datasetGroup.getDatasetGroupArn(), false));
+
+        // The dependencies on all the existing children, outdated or not
+        for (ForecastExportJobSummary job : inventory.getForecastExportJobs()) {
+            plan.addDependency(ForecastResourceType.getParentArn(job.getForecastExportJobArn()), job.getForecastExportJobArn());
+        }
+        for (ForecastSummary forecast : inventory.getForecasts()) {
+            plan.addDependency(forecast.getPredictorArn(), forecast.getForecastArn());
+            plan.addDependency(forecast.getDatasetGroupArn(), forecast.getForecastArn());
+        }
+        for (PredictorSummary predictor : inventory.getPredictors()) {
+            plan.addDependency(predictor.getDatasetGroupArn(), predictor.getPredictorArn());
+        }
+        for (DatasetImportJobSummary job : inventory.getDatasetImportJobs()) {
+            plan.addDependency(ForecastResourceType.getParentArn(job.getDatasetImportJobArn()), job.getDatasetImportJobArn());
+        }
+
+        log.info(String.format("Planned the cleanup of [%d] outdated resources, [%d] of them are blocked by their children",
+                plan.size(), plan.getBlockedArns().size()));
+        return plan;
+    }
+
+    /**
+     * @return the forecasts of the outdated predictors, and the oldest active forecasts of the preserved predictor
+     * beyond the preserved ones
+     */
+    private List<ForecastSummary> listOutdatedForecasts(final String preservedPredictorArn,
+                                                        final String preservedForecastArn) {
+        List<ForecastSummary> outdatedForecasts = inventory.getForecasts().stream()
+                .filter(forecast -> !StringUtils.equals(preservedPredictorArn, forecast.getPredictorArn()))
+                .collect(Collectors.toList());
+
+        List<ForecastSummary> preservedActiveForecasts = inventory.getForecasts().stream()
+                .filter(forecast -> StringUtils.equals(preservedPredictorArn, forecast.getPredictorArn()))
+                .filter(forecast -> RESOURCE_ACTIVE_STATUS.equals(forecast.getStatus()))
+                .filter(forecast -> !StringUtils.equals(preservedForecastArn, forecast.getForecastArn()))
+                .sorted(Comparator.comparing(ForecastSummary::getCreationTime))
+                .collect(Collectors.toList());
+        int numberOfOutdatedForecasts = preservedActiveForecasts.size() - NUMBER_OF_PRESERVED_FORECASTS;
+        if (numberOfOutdatedForecasts > 0) {
+            outdatedForecasts.addAll(preservedActiveForecasts.subList(0, numberOfOutdatedForecasts));
+        }
+        return outdatedForecasts;
+    }
+
+    private static boolean isDeleting(final String status) {
+        return RESOURCE_DELETING_STATUSES.contains(status);
+    }
+}
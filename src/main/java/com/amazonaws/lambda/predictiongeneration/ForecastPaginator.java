@@ -0,0 +1,76 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import lombok.NonNull;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the resources of a Forecast list API page by page, e.g. ListDatasets or ListPredictors, following the
+ * nextToken of every page. A page is only requested when the resources of the previous one have all been consumed, so
+ * a caller which stops early, e.g. with {@link Stream#anyMatch}, doesn't request the remaining pages at all.
+ *
+ * @param <P> the result type of the list API, e.g. ListDatasetsResult
+ * @param <T> the resource summary type of the list API, e.g. DatasetSummary
+ */
+final class ForecastPaginator<P, T> implements Iterator<T> {
+
+    private final Function<String, P> pageLoader;
+    private final Function<P, List<T>> resourcesGetter;
+    private final Function<P, String> nextTokenGetter;
+
+    private Iterator<T> pageResources = Collections.emptyIterator();
+    private String nextToken;
+    private boolean lastPageLoaded;
+
+    private ForecastPaginator(final Function<String, P> pageLoader,
+                              final Function<P, List<T>> resourcesGetter,
+                              final Function<P, String> nextTokenGetter) {
+        this.pageLoader = pageLoader;
+        this.resourcesGetter = resourcesGetter;
+        this.nextTokenGetter = nextTokenGetter;
+    }
+
+    /**
+     * @param pageLoader calls the list API with the given nextToken, which is null for the first page, e.g.
+     *                   {@code nextToken -> forecastClient.listDatasets(new ListDatasetsRequest().withNextToken(nextToken))}
+     * @param resourcesGetter gets the resources of a page, e.g. {@code ListDatasetsResult::getDatasets}
+     * @param nextTokenGetter gets the nextToken of a page, null for the last one, e.g. {@code ListDatasetsResult::getNextToken}
+     * @return a lazy sequential stream of the resources of all the pages
+     */
+    static <P, T> Stream<T> paginate(@NonNull final Function<String, P> pageLoader,
+                                     @NonNull final Function<P, List<T>> resourcesGetter,
+                                     @NonNull final Function<P, String> nextTokenGetter) {
+        Iterator<T> paginator = new ForecastPaginator<>(pageLoader, resourcesGetter, nextTokenGetter);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(paginator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        // Skip the empty pages, Forecast may return one with a nextToken when the resources are filtered
+        while (!pageResources.hasNext() && !lastPageLoaded) {
+            P page = pageLoader.apply(nextToken);
+            List<T> resources = resourcesGetter.apply(page);
+            pageResources = resources == null ? Collections.emptyIterator() : resources.iterator();
+            nextToken = nextTokenGetter.apply(page);
+            lastPageLoaded = nextToken == null;
+        }
+        return pageResources.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("There is no more resource to list");
+        }
+        return pageResources.next();
+    }
+}
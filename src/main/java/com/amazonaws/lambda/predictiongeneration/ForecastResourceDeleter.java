@@ -0,0 +1,167 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.SdkBaseException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.forecast.model.LimitExceededException;
+import com.amazonaws.services.forecast.model.ResourceInUseException;
+import com.amazonaws.services.forecast.model.ResourceNotFoundException;
+import com.google.common.annotations.VisibleForTesting;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Deletes many Forecast resources of the same type concurrently, instead of one at a time, under a token bucket
+ * rate limit so that the Delete calls stay within the Forecast API quota instead of being throttled.
+ *
+ * A resource which is not found any more counts as deleted, so a retry of the cleanup doesn't fail on the resources
+ * deleted by the previous attempt. The resources in use or throttled are reported as pending for the next retry, as
+ * well as the ones not attempted within the time budget, which is kept below the Lambda timeout so that the report
+ * is always returned.
+ */
+@Slf4j
+public class ForecastResourceDeleter {
+
+    // Forecast allows a few Delete calls per second per account, shared by the functions of all the state machines
+    private static final double DEFAULT_DELETE_REQUESTS_PER_SECOND = 4;
+    private static final double DELETE_REQUESTS_PER_SECOND = NumberUtils.toDouble(
+            System.getenv("FORECAST_DELETE_REQUESTS_PER_SECOND"), DEFAULT_DELETE_REQUESTS_PER_SECOND);
+    private static final int DEFAULT_MAX_CONCURRENT_DELETES = 4;
+    private static final int MAX_CONCURRENT_DELETES = NumberUtils.toInt(
+            System.getenv("FORECAST_MAX_CONCURRENT_DELETES"), DEFAULT_MAX_CONCURRENT_DELETES);
+    // Below the 180 seconds timeout of the functions
+    private static final long DEFAULT_DELETE_TIME_BUDGET_IN_SECONDS = 120L;
+    private static final long DELETE_TIME_BUDGET_IN_SECONDS = NumberUtils.toLong(
+            System.getenv("FORECAST_DELETE_TIME_BUDGET_IN_SECONDS"), DEFAULT_DELETE_TIME_BUDGET_IN_SECONDS);
+
+    private final ExecutorService deleteExecutor;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final long timeBudgetInNanos;
+
+    public ForecastResourceDeleter() {
+        this(MAX_CONCURRENT_DELETES,
+                new TokenBucketRateLimiter(DELETE_REQUESTS_PER_SECOND, (int) Math.ceil(DELETE_REQUESTS_PER_SECOND)),
+                TimeUnit.SECONDS.toMillis(DELETE_TIME_BUDGET_IN_SECONDS));
+    }
+
+    @VisibleForTesting
+    ForecastResourceDeleter(final int maxConcurrentDeletes,
+                            @NonNull final TokenBucketRateLimiter rateLimiter,
+                            final long timeBudgetInMillis) {
+        if (maxConcurrentDeletes <= 0) {
+            throw new IllegalArgumentException(String.format("maxConcurrentDeletes [%d] should be positive",
+                    maxConcurrentDeletes));
+        }
+        this.deleteExecutor = Executors.newFixedThreadPool(maxConcurrentDeletes, runnable -> {
+            Thread thread = new Thread(runnable, "forecast-resource-delete");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rateLimiter = rateLimiter;
+        this.timeBudgetInNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetInMillis);
+    }
+
+    /**
+     * Delete the resources concurrently and wait for all the Delete calls to return.
+     *
+     * @param resourceType the type of the resources for the logs, e.g. forecast
+     * @param arns the arns of the resources to delete
+     * @param deleteFunction calls the Delete API of the resource type with an arn
+     * @return the outcome of every resource, in the order of the arns
+     */
+    public ForecastResourceDeletionReport deleteAll(@NonNull final String resourceType,
+                                                    @NonNull final Collection<String> arns,
+                                                    @NonNull final Consumer<String> deleteFunction) {
+        long deadlineNanos = System.nanoTime() + timeBudgetInNanos;
+        Set<String> pendingArns = ConcurrentHashMap.newKeySet();
+        Map<String, String> failedArns = new ConcurrentHashMap<>();
+
+        List<Future<?>> deleteFutures = new ArrayList<>();
+        Set<String> uniqueArns = new LinkedHashSet<>(arns);
+        for (String arn : uniqueArns) {
+            deleteFutures.add(deleteExecutor.submit(
+                    () -> delete(resourceType, arn, deleteFunction, deadlineNanos, pendingArns, failedArns)));
+        }
+        for (Future<?> deleteFuture : deleteFutures) {
+            try {
+                deleteFuture.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(String.format("Interrupted while deleting %ss", resourceType), e);
+            } catch (ExecutionException e) {
+                // Every error of a delete is caught into the report already
+                throw new IllegalStateException(String.format("Failed to delete %ss", resourceType), e.getCause());
+            }
+        }
+
+        List<String> deletedArns = new ArrayList<>();
+        List<String> orderedPendingArns = new ArrayList<>();
+        Map<String, String> orderedFailedArns = new LinkedHashMap<>();
+        for (String arn : uniqueArns) {
+            if (failedArns.containsKey(arn)) {
+                orderedFailedArns.put(arn, failedArns.get(arn));
+            } else if (pendingArns.contains(arn)) {
+                orderedPendingArns.add(arn);
+            } else {
+                deletedArns.add(arn);
+            }
+        }
+        log.info(String.format("Deleted [%d] %ss, [%d] pending and [%d] failed",
+                deletedArns.size(), resourceType, orderedPendingArns.size(), orderedFailedArns.size()));
+
+        return ForecastResourceDeletionReport.builder()
+                .resourceType(resourceType)
+                .deletedArns(deletedArns)
+                .pendingArns(orderedPendingArns)
+                .failedArns(orderedFailedArns)
+                .build();
+    }
+
+    private void delete(final String resourceType,
+                        final String arn,
+                        final Consumer<String> deleteFunction,
+                        final long deadlineNanos,
+                        final Set<String> pendingArns,
+                        final Map<String, String> failedArns) {
+        try {
+            if (!rateLimiter.tryAcquire(deadlineNanos)) {
+                log.info(String.format("Leave %s [%s] for the next attempt, out of the time budget", resourceType, arn));
+                pendingArns.add(arn);
+                return;
+            }
+            log.info(String.format("About to delete %s [%s]", resourceType, arn));
+            deleteFunction.accept(arn);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingArns.add(arn);
+        } catch (ResourceNotFoundException e) {
+            log.info(String.format("%s [%s] has already been deleted", resourceType, arn));
+        } catch (ResourceInUseException | LimitExceededException e) {
+            log.info(String.format("%s [%s] cannot be deleted yet: %s", resourceType, arn, e.getErrorMessage()));
+            pendingArns.add(arn);
+        } catch (RuntimeException e) {
+            if (e instanceof SdkBaseException && RetryUtils.isThrottlingException((SdkBaseException) e)) {
+                log.info(String.format("%s [%s] deletion is throttled", resourceType, arn));
+                pendingArns.add(arn);
+                return;
+            }
+            log.error(String.format("Failed to delete %s [%s]", resourceType, arn), e);
+            failedArns.put(arn, String.valueOf(e.getMessage()));
+        }
+    }
+}
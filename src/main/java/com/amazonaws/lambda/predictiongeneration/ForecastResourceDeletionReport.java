@@ -0,0 +1,38 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of deleting a set of Forecast resources of the same type with {@link ForecastResourceDeleter}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ForecastResourceDeletionReport {
+
+    private String resourceType;
+
+    // The resources whose deletion is accepted, or which had been deleted already
+    private List<String> deletedArns;
+
+    // The resources which could not be deleted yet, e.g. in use by another resource, throttled, or not attempted
+    // within the time budget, they're expected to be deleted by a retry
+    private List<String> pendingArns;
+
+    // The resources which failed to be deleted, with the error message of every resource
+    private Map<String, String> failedArns;
+
+    /**
+     * @return true if all the resources are deleted or being deleted
+     */
+    public boolean isComplete() {
+        return pendingArns.isEmpty() && failedArns.isEmpty();
+    }
+}
@@ -0,0 +1,104 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.services.forecast.AmazonForecast;
+import com.amazonaws.services.forecast.model.DatasetGroupSummary;
+import com.amazonaws.services.forecast.model.DatasetImportJobSummary;
+import com.amazonaws.services.forecast.model.DatasetSummary;
+import com.amazonaws.services.forecast.model.ForecastExportJobSummary;
+import com.amazonaws.services.forecast.model.ForecastSummary;
+import com.amazonaws.services.forecast.model.PredictorSummary;
+import lombok.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.streamDatasetGroups;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.streamDatasetImportJobs;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.streamDatasets;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.streamForecastExportJobs;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.streamForecasts;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.streamPredictors;
+
+/**
+ * A snapshot of the existing Forecast resources shared by the steps of a handler run, so that every kind of resource
+ * is listed at most once per run however many times the handler looks it up, e.g. the forecasts of every outdated
+ * predictor are all found in a single listing instead of one listing per predictor.
+ *
+ * Every kind of resource is listed lazily on its first lookup. The snapshot doesn't see the changes made after the
+ * listing, so it should be invalidated after deleting or creating resources to list them again on the next lookup.
+ */
+public class ForecastResourceInventory {
+
+    private final AmazonForecast forecastClient;
+
+    private List<DatasetGroupSummary> datasetGroups;
+    private List<DatasetSummary> datasets;
+    private List<DatasetImportJobSummary> datasetImportJobs;
+    private List<PredictorSummary> predictors;
+    private List<ForecastSummary> forecasts;
+    private List<ForecastExportJobSummary> forecastExportJobs;
+
+    public ForecastResourceInventory(@NonNull final AmazonForecast forecastClient) {
+        this.forecastClient = forecastClient;
+    }
+
+    public List<DatasetGroupSummary> getDatasetGroups() {
+        if (datasetGroups == null) {
+            datasetGroups = snapshot(streamDatasetGroups(forecastClient));
+        }
+        return datasetGroups;
+    }
+
+    public List<DatasetSummary> getDatasets() {
+        if (datasets == null) {
+            datasets = snapshot(streamDatasets(forecastClient));
+        }
+        return datasets;
+    }
+
+    public List<DatasetImportJobSummary> getDatasetImportJobs() {
+        if (datasetImportJobs == null) {
+            datasetImportJobs = snapshot(streamDatasetImportJobs(forecastClient));
+        }
+        return datasetImportJobs;
+    }
+
+    public List<PredictorSummary> getPredictors() {
+        if (predictors == null) {
+            predictors = snapshot(streamPredictors(forecastClient));
+        }
+        return predictors;
+    }
+
+    public List<ForecastSummary> getForecasts() {
+        if (forecasts == null) {
+            forecasts = snapshot(streamForecasts(forecastClient));
+        }
+        return forecasts;
+    }
+
+    public List<ForecastExportJobSummary> getForecastExportJobs() {
+        if (forecastExportJobs == null) {
+            forecastExportJobs = snapshot(streamForecastExportJobs(forecastClient));
+        }
+        return forecastExportJobs;
+    }
+
+    /**
+     * Drop the snapshot of every kind of resource, as deleting a resource may delete its child resources as well.
+     */
+    public void invalidate() {
+        datasetGroups = null;
+        datasets = null;
+        datasetImportJobs = null;
+        predictors = null;
+        forecasts = null;
+        forecastExportJobs = null;
+    }
+
+    private static <T> List<T> snapshot(final Stream<T> resources) {
+        return Collections.unmodifiableList(resources.collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,123 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.services.forecast.AmazonForecast;
+import com.amazonaws.services.forecast.model.DeleteDatasetGroupRequest;
+import com.amazonaws.services.forecast.model.DeleteDatasetImportJobRequest;
+import com.amazonaws.services.forecast.model.DeleteDatasetRequest;
+import com.amazonaws.services.forecast.model.DeleteForecastExportJobRequest;
+import com.amazonaws.services.forecast.model.DeleteForecastRequest;
+import com.amazonaws.services.forecast.model.DeletePredictorRequest;
+import lombok.NonNull;
+
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.ARN_COMPONENT_SPLITTER;
+
+/**
+ * The types of the Forecast resources cleaned up by the state machines, named by the resource type in their arns,
+ * e.g. arn:aws:forecast:us-west-2:0123456789:dataset-import-job/ds_1588888888/dsij_1588888888.
+ *
+ * The arn of a job is made of the name of the resource it belongs to, so the arn of that resource is derived from the
+ * arn of the job, without the Describe call of the job.
+ */
+public enum ForecastResourceType {
+
+    DATASET_GROUP("dataset-group") {
+        @Override
+        public void delete(final AmazonForecast forecastClient, final String arn) {
+            forecastClient.deleteDatasetGroup(new DeleteDatasetGroupRequest().withDatasetGroupArn(arn));
+        }
+    },
+
+    DATASET("dataset") {
+        @Override
+        public void delete(final AmazonForecast forecastClient, final String arn) {
+            forecastClient.deleteDataset(new DeleteDatasetRequest().withDatasetArn(arn));
+        }
+    },
+
+    DATASET_IMPORT_JOB("dataset-import-job") {
+        @Override
+        public void delete(final AmazonForecast forecastClient, final String arn) {
+            forecastClient.deleteDatasetImportJob(new DeleteDatasetImportJobRequest().withDatasetImportJobArn(arn));
+        }
+    },
+
+    PREDICTOR("predictor") {
+        @Override
+        public void delete(final AmazonForecast forecastClient, final String arn) {
+            forecastClient.deletePredictor(new DeletePredictorRequest().withPredictorArn(arn));
+        }
+    },
+
+    FORECAST("forecast") {
+        @Override
+        public void delete(final AmazonForecast forecastClient, final String arn) {
+            forecastClient.deleteForecast(new DeleteForecastRequest().withForecastArn(arn));
+        }
+    },
+
+    FORECAST_EXPORT_JOB("forecast-export-job") {
+        @Override
+        public void delete(final AmazonForecast forecastClient, final String arn) {
+            forecastClient.deleteForecastExportJob(new DeleteForecastExportJobRequest().withForecastExportJobArn(arn));
+        }
+    };
+
+    private static final String RESOURCE_PATH_SPLITTER = "/";
+
+    private final String arnResourceType;
+
+    ForecastResourceType(final String arnResourceType) {
+        this.arnResourceType = arnResourceType;
+    }
+
+    /**
+     * Call the Delete API of the resource type.
+     */
+    public abstract void delete(AmazonForecast forecastClient, String arn);
+
+    /**
+     * @throws IllegalArgumentException if the arn is not of a Forecast resource type above
+     */
+    public static ForecastResourceType fromArn(@NonNull final String arn) {
+        String resourceType = getResourcePath(arn)[0];
+        for (ForecastResourceType type : values()) {
+            if (type.arnResourceType.equals(resourceType)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown Forecast resource type of arn [%s]", arn));
+    }
+
+    /**
+     * Derive the arn of the dataset of a dataset import job, or of the forecast of a forecast export job, e.g.
+     * arn:aws:forecast:us-west-2:0123456789:dataset/ds_1588888888 of the dataset import job above.
+     *
+     * @throws IllegalArgumentException if the arn is not of a job
+     */
+    public static String getParentArn(@NonNull final String jobArn) {
+        String[] resourcePath = getResourcePath(jobArn);
+        ForecastResourceType parentType;
+        switch (fromArn(jobArn)) {
+            case DATASET_IMPORT_JOB:
+                parentType = DATASET;
+                break;
+            case FORECAST_EXPORT_JOB:
+                parentType = FORECAST;
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Arn [%s] is not of a job", jobArn));
+        }
+        if (resourcePath.length < 3) {
+            throw new IllegalArgumentException(String.format("Arn [%s] has no parent resource name", jobArn));
+        }
+        String arnPrefix = jobArn.substring(0, jobArn.lastIndexOf(ARN_COMPONENT_SPLITTER) + 1);
+        return arnPrefix + parentType.arnResourceType + RESOURCE_PATH_SPLITTER + resourcePath[1];
+    }
+
+    /**
+     * @return the resource type and names after the last component of the arn, e.g. [dataset, ds_1588888888]
+     */
+    private static String[] getResourcePath(final String arn) {
+        return arn.substring(arn.lastIndexOf(ARN_COMPONENT_SPLITTER) + 1).split(RESOURCE_PATH_SPLITTER);
+    }
+}
@@ -1,6 +1,7 @@
 package com.amazonaws.lambda.predictiongeneration;
 
 import com.amazonaws.dagger.DaggerLambdaFunctionsComponent;
+import com.amazonaws.lambda.common.TrainingDataLayout;
 import com.amazonaws.lambda.predictiongeneration.exception.ResourceSetupInProgressException;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
@@ -17,9 +18,10 @@ import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
 import java.time.Clock;
-import java.time.Duration;
 import java.util.Map;
 
+import static com.amazonaws.lambda.common.ForecastDataFrequency.PREDICTION_WINDOW_SIZE_DURATION;
+import static com.amazonaws.lambda.common.ForecastDataFrequency.getForecastDataFrequencyStr;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.DATASET_ARN_KEY;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.DATASET_GROUP_ARN_KEY;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.DATASET_GROUP_NAME_KEY;
@@ -34,19 +36,19 @@ import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtil
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.FORECAST_NAME_KEY;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.FORECAST_NAME_PREFIX;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.FORECAST_RESOURCE_ARN_PREFIX_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.INPUT_SIZE_IN_BYTES_KEY;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.PREDICTOR_ARN_KEY;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.PREDICTOR_NAME_KEY;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.PREDICTOR_NAME_PREFIX;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.deriveForecastResourceArnPrefixFromLambdaFunctionArn;
-import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.getForecastDataFrequencyStr;
 
 @Slf4j
 public class GenerateForecastResourcesIdsHandler implements RequestHandler<Void, String> {
 
-    private static final Duration PREDICTION_WINDOW_SIZE_DURATION = Duration.ofSeconds(2000);
     private static final String PREDICTION_S3_BUCKET_NAME = System.getenv("PREDICTION_S3_BUCKET_NAME");
-    private static final String PREDICTION_S3_HISTORICAL_DEMAND_FOLDER = System.getenv("SRC_S3_FOLDER");
-    private static final String PREDICTION_S3_HISTORICAL_DEMAND_FILE_NAME = System.getenv("S3_TRAINING_DATA_FILE_NAME");
+    private static final TrainingDataLayout TRAINING_DATA_LAYOUT = TrainingDataLayout.fromEnvironment();
+    // The first shard is enough to tell whether the demand is published
+    private static final String PREDICTION_S3_HISTORICAL_DEMAND_FILE_KEY = TRAINING_DATA_LAYOUT.getShardKey(0);
 
     private final Clock clock;
 
@@ -71,7 +73,8 @@ public class GenerateForecastResourcesIdsHandler implements RequestHandler<Void,
 
     public String handleRequest(Void input, Context context) {
 
-        sanityCheck();
+        // The shards are about the same size, so the first one tells the size of the input data of the pipeline
+        long inputSizeInBytes = sanityCheck() * TRAINING_DATA_LAYOUT.getNumberOfShards();
 
         long currentTime = clock.millis();
 
@@ -79,7 +82,10 @@ public class GenerateForecastResourcesIdsHandler implements RequestHandler<Void,
         String forecastResourceArnPrefix = deriveForecastResourceArnPrefixFromLambdaFunctionArn(functionArn);
 
         String dataFrequencyValue = getForecastDataFrequencyStr(PREDICTION_WINDOW_SIZE_DURATION);
-        Map<String,String> resourceIdMap = buildResourceIdMap(currentTime, forecastResourceArnPrefix, dataFrequencyValue);
+        Map<String,String> resourceIdMap = ImmutableMap.<String, String>builder()
+                .putAll(buildResourceIdMap(currentTime, forecastResourceArnPrefix, dataFrequencyValue))
+                .put(INPUT_SIZE_IN_BYTES_KEY, String.valueOf(inputSizeInBytes))
+                .build();
 
         String resourceIdMapAsJson;
         try {
@@ -94,13 +100,14 @@ public class GenerateForecastResourcesIdsHandler implements RequestHandler<Void,
         return resourceIdMapAsJson;
     }
 
-    private void sanityCheck() {
+    /**
+     * @return the size of the demand source file
+     */
+    private long sanityCheck() {
         ObjectMetadata s3ObjectMetadata;
         try {
             GetObjectMetadataRequest getObjectMetadataRequest =
-                    new GetObjectMetadataRequest(PREDICTION_S3_BUCKET_NAME,
-                            String.format("%s/%s", PREDICTION_S3_HISTORICAL_DEMAND_FOLDER,
-                                    PREDICTION_S3_HISTORICAL_DEMAND_FILE_NAME));
+                    new GetObjectMetadataRequest(PREDICTION_S3_BUCKET_NAME, PREDICTION_S3_HISTORICAL_DEMAND_FILE_KEY);
             s3ObjectMetadata = s3Client.getObjectMetadata(getObjectMetadataRequest);
         } catch (AmazonS3Exception e) {
             throw new ResourceSetupInProgressException(String.format("Got exception while getting info of the demand source file: %s",
@@ -110,6 +117,7 @@ public class GenerateForecastResourcesIdsHandler implements RequestHandler<Void,
         if (s3ObjectMetadata.getContentLength() == 0) {
             throw new ResourceSetupInProgressException("The demand source file is empty");
         }
+        return s3ObjectMetadata.getContentLength();
     }
 
     @VisibleForTesting
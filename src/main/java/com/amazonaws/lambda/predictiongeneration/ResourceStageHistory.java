@@ -0,0 +1,177 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.google.common.annotations.VisibleForTesting;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The DynamoDB table of the time every stage of the pipeline took, i.e. from the creation of a Forecast resource to
+ * it becoming ACTIVE, keyed by the resource type and the size class of the input data, and sorted by the creation.
+ *
+ * The history only tunes the polling of the resources, so the failures of the table are logged instead of failing
+ * the pipeline, and there is no history without the table name, e.g. in the functions not creating any resource.
+ */
+@Slf4j
+public class ResourceStageHistory {
+
+    private static final String DYNAMODB_RESOURCE_STAGE_HISTORY_TABLE_NAME = System.getenv("RESOURCE_STAGE_HISTORY_TABLE_NAME");
+
+    @VisibleForTesting
+    static final String STAGE_KEY_ATTRIBUTE_NAME = "stageKey";
+    @VisibleForTesting
+    static final String START_TIME_ATTRIBUTE_NAME = "startTime";
+    @VisibleForTesting
+    static final String ACTIVE_TIME_ATTRIBUTE_NAME = "activeTime";
+    @VisibleForTesting
+    static final String DURATION_ATTRIBUTE_NAME = "durationInMillis";
+    @VisibleForTesting
+    static final String RESOURCE_ARN_ATTRIBUTE_NAME = "resourceArn";
+    private static final String INPUT_SIZE_ATTRIBUTE_NAME = "inputSizeInBytes";
+    private static final String EXPIRATION_TIME_ATTRIBUTE_NAME = "expirationTime";
+
+    private static final String QUERY_KEY_CONDITION_EXPRESSION = "#stageKey = :stageKey";
+    // The stage of a resource is keyed by its creation, so a resource recorded before is found by the same key
+    private static final String PUT_CONDITION_EXPRESSION = "attribute_not_exists(#stageKey)";
+    private static final String UNKNOWN_INPUT_SIZE_CLASS = "unknown";
+    private static final long BYTES_IN_A_MEGABYTE = 1024L * 1024L;
+
+    // Old enough to be irrelevant to the current data size and Forecast performance
+    private static final long ITEM_LIFESPAN_IN_DAYS = 180L;
+
+    @VisibleForTesting
+    static final int HISTORY_SIZE = 10;
+
+    private final AmazonDynamoDB ddbClient;
+    private final String tableName;
+
+    public ResourceStageHistory(@NonNull final AmazonDynamoDB ddbClient) {
+        this(ddbClient, DYNAMODB_RESOURCE_STAGE_HISTORY_TABLE_NAME);
+    }
+
+    @VisibleForTesting
+    ResourceStageHistory(@NonNull final AmazonDynamoDB ddbClient, final String tableName) {
+        this.ddbClient = ddbClient;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Record the time a resource took to become ACTIVE, unless the resource is recorded already, e.g. by an earlier
+     * run of the same step.
+     *
+     * @param inputSizeInBytes the size of the input data of the pipeline, or null if unknown
+     * @return false if the resource was recorded already, true otherwise even if the record failed
+     */
+    public boolean record(@NonNull final ForecastResourceType resourceType,
+                          @NonNull final String resourceArn,
+                          final Long inputSizeInBytes,
+                          @NonNull final Instant startTime,
+                          @NonNull final Instant activeTime) {
+        if (StringUtils.isBlank(tableName)) {
+            return true;
+        }
+
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(STAGE_KEY_ATTRIBUTE_NAME, new AttributeValue(buildStageKey(resourceType, inputSizeInBytes)));
+        item.put(START_TIME_ATTRIBUTE_NAME, new AttributeValue().withN(String.valueOf(startTime.toEpochMilli())));
+        item.put(ACTIVE_TIME_ATTRIBUTE_NAME, new AttributeValue().withN(String.valueOf(activeTime.toEpochMilli())));
+        item.put(DURATION_ATTRIBUTE_NAME, new AttributeValue().withN(
+                String.valueOf(Duration.between(startTime, activeTime).toMillis())));
+        item.put(RESOURCE_ARN_ATTRIBUTE_NAME, new AttributeValue(resourceArn));
+        if (inputSizeInBytes != null) {
+            item.put(INPUT_SIZE_ATTRIBUTE_NAME, new AttributeValue().withN(String.valueOf(inputSizeInBytes)));
+        }
+        item.put(EXPIRATION_TIME_ATTRIBUTE_NAME, new AttributeValue().withN(
+                String.valueOf(activeTime.plus(ITEM_LIFESPAN_IN_DAYS, ChronoUnit.DAYS).getEpochSecond())));
+
+        try {
+            ddbClient.putItem(new PutItemRequest()
+                    .withTableName(tableName)
+                    .withItem(item)
+                    .withConditionExpression(PUT_CONDITION_EXPRESSION)
+                    .withExpressionAttributeNames(Collections.singletonMap("#stageKey", STAGE_KEY_ATTRIBUTE_NAME)));
+        } catch (ConditionalCheckFailedException e) {
+            log.info(String.format("The stage of [%s] is recorded already", resourceArn));
+            return false;
+        } catch (RuntimeException e) {
+            log.warn(String.format("Failed to record the stage of [%s]: %s", resourceArn, e.getMessage()));
+        }
+        return true;
+    }
+
+    /**
+     * @param inputSizeInBytes the size of the input data of the pipeline, or null if unknown
+     * @return the times the latest resources of the type and input size class took to become ACTIVE, newest first
+     */
+    public List<Duration> getRecentDurations(@NonNull final ForecastResourceType resourceType,
+                                             final Long inputSizeInBytes) {
+        return getRecentDurations(resourceType, inputSizeInBytes, null);
+    }
+
+    /**
+     * @param inputSizeInBytes the size of the input data of the pipeline, or null if unknown
+     * @param excludedResourceArn the resource whose own stage is left out, e.g. just recorded, or null
+     * @return the times the latest resources of the type and input size class took to become ACTIVE, newest first
+     */
+    public List<Duration> getRecentDurations(@NonNull final ForecastResourceType resourceType,
+                                             final Long inputSizeInBytes,
+                                             final String excludedResourceArn) {
+        if (StringUtils.isBlank(tableName)) {
+            return Collections.emptyList();
+        }
+
+        Map<String, String> expressionAttributeNames = new HashMap<>();
+        expressionAttributeNames.put("#stageKey", STAGE_KEY_ATTRIBUTE_NAME);
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":stageKey", new AttributeValue(buildStageKey(resourceType, inputSizeInBytes)));
+
+        QueryRequest queryRequest = new QueryRequest()
+                .withTableName(tableName)
+                .withKeyConditionExpression(QUERY_KEY_CONDITION_EXPRESSION)
+                .withExpressionAttributeNames(expressionAttributeNames)
+                .withExpressionAttributeValues(expressionAttributeValues)
+                .withScanIndexForward(false) /* descending order for the range key*/
+                .withLimit(excludedResourceArn == null ? HISTORY_SIZE : HISTORY_SIZE + 1);
+
+        QueryResult queryResult;
+        try {
+            queryResult = ddbClient.query(queryRequest);
+        } catch (RuntimeException e) {
+            log.warn(String.format("Failed to query the stage history of [%s]: %s", resourceType, e.getMessage()));
+            return Collections.emptyList();
+        }
+        return queryResult.getItems().stream()
+                .filter(item -> excludedResourceArn == null || !item.containsKey(RESOURCE_ARN_ATTRIBUTE_NAME)
+                        || !excludedResourceArn.equals(item.get(RESOURCE_ARN_ATTRIBUTE_NAME).getS()))
+                .limit(HISTORY_SIZE)
+                .map(item -> Duration.ofMillis(Long.parseLong(item.get(DURATION_ATTRIBUTE_NAME).getN())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The input sizes are classed by the power of 2 of their megabytes, e.g. PREDICTOR#size-4 for 8MB to 16MB, since
+     * the time of a stage grows with the size of the data but doesn't change much between close sizes.
+     */
+    @VisibleForTesting
+    static String buildStageKey(final ForecastResourceType resourceType, final Long inputSizeInBytes) {
+        String inputSizeClass = inputSizeInBytes == null
+                ? UNKNOWN_INPUT_SIZE_CLASS
+                : String.valueOf(Long.SIZE - Long.numberOfLeadingZeros(inputSizeInBytes / BYTES_IN_A_MEGABYTE));
+        return String.format("%s#size-%s", resourceType, inputSizeClass);
+    }
+}
@@ -0,0 +1,27 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * When to poll a Forecast resource being created, chosen by {@link ResourceStageScheduler} from the time the latest
+ * resources of the same type and input size took from their creation to ACTIVE.
+ */
+@Value
+public class ResourceStageSchedule {
+
+    // The typical time from the creation to ACTIVE, or null without any history
+    private final Duration expectedDuration;
+
+    // The time after the creation when the resource may be done at the earliest, or null without any history
+    private final Duration initialWait;
+
+    // The interval to poll at once the initial wait is over
+    @NonNull
+    private final Duration pollInterval;
+
+    // The number of durations the schedule is based on
+    private final int sampleSize;
+}
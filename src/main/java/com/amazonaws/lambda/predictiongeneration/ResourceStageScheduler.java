@@ -0,0 +1,192 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.lambda.metrics.MetricsEmitter;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.RESOURCE_ACTIVE_STATUS;
+
+/**
+ * Schedules the polling of the Forecast resources being created from the time the stages of the pipeline took before,
+ * and records the time of the stages as the resources become ACTIVE.
+ *
+ * The durations of the same resource type and input size class in the {@link ResourceStageHistory} are read once per
+ * run of a step, which drops them with {@link #invalidate()}, so that a container kept warm for long sees the stages
+ * recorded meanwhile by the other containers. Without any history, the polls start right away at the shortest interval.
+ *
+ * A resource still in progress at the end of the run is polled again by the state machine, after the wait given by
+ * {@link #nextPollWait}.
+ *
+ * A resource is only recorded once, so the re-runs of a step seeing the same ACTIVE resource neither record it nor
+ * flag it again. Every stage recorded emits the StageRegressions metric, 1 if the stage is flagged and 0 otherwise,
+ * so that the regressions can be alarmed on.
+ */
+@Slf4j
+public class ResourceStageScheduler {
+
+    @VisibleForTesting
+    static final Duration MIN_POLL_INTERVAL = Duration.ofSeconds(5);
+    @VisibleForTesting
+    static final Duration MAX_POLL_INTERVAL = Duration.ofSeconds(30);
+
+    // The longest the state machine waits before running the step of a resource in progress again
+    @VisibleForTesting
+    static final Duration MAX_NEXT_POLL_WAIT = Duration.ofMinutes(10);
+    // Without any history, the step is run again after that share of the time the resource has taken so far
+    private static final int NEXT_POLL_WAITS_PER_ELAPSED_TIME = 4;
+
+    // The polls while the resource may be done, e.g. every 3 minutes for a predictor expected to take an hour
+    private static final int NUMBER_OF_POLLS_PER_EXPECTED_DURATION = 20;
+
+    // A stage taking that much longer than usual is flagged, with enough history to tell
+    @VisibleForTesting
+    static final double REGRESSION_THRESHOLD = 1.5;
+    @VisibleForTesting
+    static final int MIN_SAMPLE_SIZE_FOR_REGRESSION = 3;
+
+    private static final String METRICS_NAMESPACE = "AutomatedForecast/PredictionGeneration";
+    @VisibleForTesting
+    static final String STAGE_REGRESSIONS_METRIC_NAME = "StageRegressions";
+
+    private final ResourceStageHistory history;
+    private final MetricsEmitter metricsEmitter;
+    // The recent durations by stage key, read before the resources of this container are recorded
+    private final Map<String, List<Duration>> recentDurationsCache = new ConcurrentHashMap<>();
+    private final Set<String> recordedResourceArns = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param history the stage history, or null to schedule without any, e.g. without the table
+     */
+    public ResourceStageScheduler(final ResourceStageHistory history) {
+        this(history, new MetricsEmitter(METRICS_NAMESPACE));
+    }
+
+    @VisibleForTesting
+    ResourceStageScheduler(final ResourceStageHistory history,
+                           @NonNull final MetricsEmitter metricsEmitter) {
+        this.history = history;
+        this.metricsEmitter = metricsEmitter;
+    }
+
+    /**
+     * @param inputSizeInBytes the size of the input data of the pipeline, or null if unknown
+     */
+    public ResourceStageSchedule schedule(@NonNull final ForecastResourceType resourceType, final Long inputSizeInBytes) {
+        List<Duration> durations = history == null
+                ? Collections.emptyList()
+                : recentDurationsCache.computeIfAbsent(ResourceStageHistory.buildStageKey(resourceType, inputSizeInBytes),
+                        stageKey -> history.getRecentDurations(resourceType, inputSizeInBytes));
+        if (durations.isEmpty()) {
+            return new ResourceStageSchedule(null, null, MIN_POLL_INTERVAL, 0);
+        }
+
+        List<Duration> sortedDurations = new ArrayList<>(durations);
+        Collections.sort(sortedDurations);
+        // The median, so that a single slow or fast resource doesn't skew the estimate
+        Duration expectedDuration = sortedDurations.get(sortedDurations.size() / 2);
+        // The lower quartile, so that a resource faster than usual is not left waiting for long
+        Duration initialWait = sortedDurations.get(sortedDurations.size() / 4);
+        Duration pollInterval = expectedDuration.dividedBy(NUMBER_OF_POLLS_PER_EXPECTED_DURATION);
+        if (pollInterval.compareTo(MIN_POLL_INTERVAL) < 0) {
+            pollInterval = MIN_POLL_INTERVAL;
+        } else if (pollInterval.compareTo(MAX_POLL_INTERVAL) > 0) {
+            pollInterval = MAX_POLL_INTERVAL;
+        }
+        return new ResourceStageSchedule(expectedDuration, initialWait, pollInterval, sortedDurations.size());
+    }
+
+    /**
+     * The time to wait before the step is run again for a resource still in progress: until it may be done at the
+     * earliest, and then the poll interval. Without any history, a share of the time it has taken so far, so that a
+     * long stage is not polled every few seconds for hours.
+     *
+     * @param inputSizeInBytes the size of the input data of the pipeline, or null if unknown
+     * @param elapsedSinceCreation the time since the creation of the resource
+     */
+    public Duration nextPollWait(@NonNull final ForecastResourceType resourceType,
+                                 final Long inputSizeInBytes,
+                                 @NonNull final Duration elapsedSinceCreation) {
+        ResourceStageSchedule schedule = schedule(resourceType, inputSizeInBytes);
+        Duration nextPollWait = schedule.getInitialWait() == null
+                ? elapsedSinceCreation.dividedBy(NEXT_POLL_WAITS_PER_ELAPSED_TIME)
+                : schedule.getInitialWait().minus(elapsedSinceCreation);
+        if (nextPollWait.compareTo(schedule.getPollInterval()) < 0) {
+            return schedule.getPollInterval();
+        }
+        return nextPollWait.compareTo(MAX_NEXT_POLL_WAIT) > 0 ? MAX_NEXT_POLL_WAIT : nextPollWait;
+    }
+
+    /**
+     * Drop the durations read from the history, so that the next run of a step reads them again.
+     */
+    public void invalidate() {
+        recentDurationsCache.clear();
+    }
+
+    /**
+     * Record the time an ACTIVE resource took since its creation, and flag it as a regression if it took much longer
+     * than the latest resources of the same type and input size class. The resources recorded already are skipped.
+     *
+     * @param inputSizeInBytes the size of the input data of the pipeline, or null if unknown
+     * @return true if the stage is flagged as a regression
+     */
+    public boolean recordCompletion(@NonNull final ForecastResourceType resourceType,
+                                    @NonNull final String resourceArn,
+                                    final Long inputSizeInBytes,
+                                    @NonNull final ResourceStatus resourceStatus) {
+        if (history == null
+                || !RESOURCE_ACTIVE_STATUS.equals(resourceStatus.getStatus())
+                || resourceStatus.getCreationTime() == null
+                || resourceStatus.getLastModificationTime() == null
+                || !recordedResourceArns.add(resourceArn)) {
+            return false;
+        }
+
+        String stageKey = ResourceStageHistory.buildStageKey(resourceType, inputSizeInBytes);
+        List<Duration> recentDurations = recentDurationsCache.remove(stageKey);
+        if (!history.record(resourceType, resourceArn, inputSizeInBytes,
+                resourceStatus.getCreationTime().toInstant(), resourceStatus.getLastModificationTime().toInstant())) {
+            return false;
+        }
+        // Only read when the resource was ACTIVE at the first check, leaving out the stage just recorded
+        if (recentDurations == null) {
+            recentDurations = history.getRecentDurations(resourceType, inputSizeInBytes, resourceArn);
+        }
+
+        Duration duration = Duration.between(resourceStatus.getCreationTime().toInstant(),
+                resourceStatus.getLastModificationTime().toInstant());
+        boolean regression = isRegression(resourceType, resourceArn, duration, recentDurations);
+        metricsEmitter.emitCounts(ImmutableMap.of("ResourceType", resourceType.name()),
+                ImmutableMap.of(STAGE_REGRESSIONS_METRIC_NAME, regression ? 1 : 0));
+        return regression;
+    }
+
+    private static boolean isRegression(final ForecastResourceType resourceType,
+                                        final String resourceArn,
+                                        final Duration duration,
+                                        final List<Duration> recentDurations) {
+        if (recentDurations.size() < MIN_SAMPLE_SIZE_FOR_REGRESSION) {
+            return false;
+        }
+        List<Duration> sortedDurations = new ArrayList<>(recentDurations);
+        Collections.sort(sortedDurations);
+        Duration expectedDuration = sortedDurations.get(sortedDurations.size() / 2);
+        if (duration.toMillis() <= expectedDuration.toMillis() * REGRESSION_THRESHOLD) {
+            return false;
+        }
+        log.warn(String.format("Regression of %s stage: [%s] took [%s] to become %s, while the latest [%d] took [%s] "
+                        + "typically", resourceType, resourceArn, duration, RESOURCE_ACTIVE_STATUS,
+                sortedDurations.size(), expectedDuration));
+        return true;
+    }
+}
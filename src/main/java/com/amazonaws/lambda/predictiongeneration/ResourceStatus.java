@@ -0,0 +1,21 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import lombok.Value;
+
+import java.util.Date;
+
+/**
+ * The status of a Forecast resource as described by its Describe API, with the times of its creation and last status
+ * change, e.g. the time it became ACTIVE.
+ */
+@Value
+public class ResourceStatus {
+
+    private final String status;
+
+    // Null if unknown
+    private final Date creationTime;
+
+    // Null if unknown
+    private final Date lastModificationTime;
+}
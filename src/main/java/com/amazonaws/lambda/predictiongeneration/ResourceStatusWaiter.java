@@ -0,0 +1,141 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.google.common.annotations.VisibleForTesting;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.RESOURCE_ACTIVE_STATUS;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.RESOURCE_FAILED_STATUS;
+
+/**
+ * Waits for a Forecast resource being created to become ACTIVE within the run of a handler, so that a resource
+ * finishing shortly is picked up by the same run instead of a retry of the state machine.
+ *
+ * The resource is polled as scheduled by {@link ResourceStageScheduler}: once it may be done at the earliest, and
+ * then at a growing interval from the scheduled one. The handler doesn't wait at all, since the idle wait is billed,
+ * if the resource is not expected to be done within the time budget or there is no history of the stage to tell, and
+ * leaves it to the next run of the step after the Wait state of the state machine.
+ */
+@Slf4j
+public class ResourceStatusWaiter {
+
+    // Below the 180 seconds timeout of the functions, with the time of the Create and Describe calls
+    private static final long DEFAULT_WAIT_TIME_BUDGET_IN_SECONDS = 120L;
+    private static final long WAIT_TIME_BUDGET_IN_SECONDS = NumberUtils.toLong(
+            System.getenv("FORECAST_RESOURCE_WAIT_TIME_BUDGET_IN_SECONDS"), DEFAULT_WAIT_TIME_BUDGET_IN_SECONDS);
+
+    // The growing poll interval is capped by the max scheduled one, unless the scheduled one is longer
+    @VisibleForTesting
+    static final long MAX_POLL_INTERVAL_IN_MILLIS = ResourceStageScheduler.MAX_POLL_INTERVAL.toMillis();
+    private static final double POLL_INTERVAL_GROWTH_RATE = 1.5;
+
+    /**
+     * Sleeps the current thread, replaced by the tests.
+     */
+    @VisibleForTesting
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    private final long timeBudgetInMillis;
+    private final LongSupplier currentTimeMillis;
+    private final Sleeper sleeper;
+
+    public ResourceStatusWaiter() {
+        this(TimeUnit.SECONDS.toMillis(WAIT_TIME_BUDGET_IN_SECONDS), System::currentTimeMillis, Thread::sleep);
+    }
+
+    /**
+     * @param timeBudgetInMillis the max time to wait for a resource, 0 to never wait
+     */
+    @VisibleForTesting
+    ResourceStatusWaiter(final long timeBudgetInMillis,
+                         @NonNull final LongSupplier currentTimeMillis,
+                         @NonNull final Sleeper sleeper) {
+        if (timeBudgetInMillis < 0) {
+            throw new IllegalArgumentException(String.format("timeBudgetInMillis [%d] should not be negative",
+                    timeBudgetInMillis));
+        }
+        this.timeBudgetInMillis = timeBudgetInMillis;
+        this.currentTimeMillis = currentTimeMillis;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Poll the status of a resource until it's ACTIVE or FAILED, or the time budget runs out.
+     *
+     * @param resourceName the name or arn of the resource for the logs
+     * @param currentStatus the status of the resource just described
+     * @param scheduleSupplier schedules the polls of the resource, only called if the resource is still in progress
+     * @param statusSupplier describes the current status of the resource
+     * @return the last status of the resource
+     */
+    public ResourceStatus waitForStatus(@NonNull final String resourceName,
+                                        @NonNull final ResourceStatus currentStatus,
+                                        @NonNull final Supplier<ResourceStageSchedule> scheduleSupplier,
+                                        @NonNull final Supplier<ResourceStatus> statusSupplier) {
+        if (isCompleted(currentStatus.getStatus()) || timeBudgetInMillis == 0) {
+            return currentStatus;
+        }
+
+        long now = currentTimeMillis.getAsLong();
+        long deadline = now + timeBudgetInMillis;
+        long creationTimeMillis = currentStatus.getCreationTime() == null ? now : currentStatus.getCreationTime().getTime();
+        ResourceStageSchedule schedule = scheduleSupplier.get();
+        if (schedule.getExpectedDuration() == null) {
+            log.info(String.format("[%s] with status [%s] has no stage history to tell when it's done",
+                    resourceName, currentStatus.getStatus()));
+            return currentStatus;
+        }
+        long expectedRemainingMillis = schedule.getExpectedDuration().toMillis() - (now - creationTimeMillis);
+        if (expectedRemainingMillis > timeBudgetInMillis) {
+            log.info(String.format("[%s] with status [%s] is expected to be done in [%d] ms, beyond the time budget",
+                    resourceName, currentStatus.getStatus(), expectedRemainingMillis));
+            return currentStatus;
+        }
+        log.info(String.format("[%s] is expected to be done in [%s] since its creation, polling from [%s] every [%s]",
+                resourceName, schedule.getExpectedDuration(), schedule.getInitialWait(), schedule.getPollInterval()));
+
+        ResourceStatus status = currentStatus;
+        long pollIntervalInMillis = schedule.getPollInterval().toMillis();
+        long maxPollIntervalInMillis = Math.max(pollIntervalInMillis, MAX_POLL_INTERVAL_IN_MILLIS);
+        boolean initialWaitOver = schedule.getInitialWait() == null
+                || now - creationTimeMillis >= schedule.getInitialWait().toMillis();
+        while (!isCompleted(status.getStatus())) {
+            long waitMillis = initialWaitOver
+                    ? pollIntervalInMillis
+                    : Math.max(pollIntervalInMillis, schedule.getInitialWait().toMillis() - (now - creationTimeMillis));
+            if (waitMillis > deadline - now) {
+                log.info(String.format("[%s] with status [%s] is not expected to be done within the time budget",
+                        resourceName, status.getStatus()));
+                return status;
+            }
+
+            try {
+                sleeper.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return status;
+            }
+            status = statusSupplier.get();
+            now = currentTimeMillis.getAsLong();
+            if (initialWaitOver) {
+                pollIntervalInMillis = Math.min(maxPollIntervalInMillis,
+                        (long) (pollIntervalInMillis * POLL_INTERVAL_GROWTH_RATE));
+            }
+            initialWaitOver = true;
+            log.info(String.format("[%s] status is [%s] after waiting [%d] ms", resourceName, status.getStatus(), waitMillis));
+        }
+        return status;
+    }
+
+    private static boolean isCompleted(final String status) {
+        return RESOURCE_ACTIVE_STATUS.equals(status) || StringUtils.contains(status, RESOURCE_FAILED_STATUS);
+    }
+}
@@ -0,0 +1,84 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket shared by the threads calling an API, so that they don't call it more often than its quota on
+ * average, while a burst of up to the capacity of the bucket is allowed after a quiet period.
+ *
+ * A token is reserved under the lock, and the thread waits for it outside of the lock, so that the next thread can
+ * reserve the token after it meanwhile.
+ */
+public class TokenBucketRateLimiter {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double permitsPerSecond;
+    private final double capacity;
+    private final LongSupplier nanoTime;
+
+    // May be negative, when the tokens are reserved ahead of the time they are refilled at
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param permitsPerSecond the average number of calls per second
+     * @param capacity the max number of calls at once after a quiet period, the bucket starts full
+     */
+    public TokenBucketRateLimiter(final double permitsPerSecond, final int capacity) {
+        this(permitsPerSecond, capacity, System::nanoTime);
+    }
+
+    @VisibleForTesting
+    TokenBucketRateLimiter(final double permitsPerSecond, final int capacity, final LongSupplier nanoTime) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException(String.format("permitsPerSecond [%s] should be positive", permitsPerSecond));
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(String.format("capacity [%d] should be positive", capacity));
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = capacity;
+        this.nanoTime = nanoTime;
+        this.tokens = capacity;
+        this.lastRefillNanos = nanoTime.getAsLong();
+    }
+
+    /**
+     * Take a token, waiting until it's refilled if the bucket is empty.
+     *
+     * @param deadlineNanos the {@link System#nanoTime()} to give up at
+     * @return false without taking a token if it could not be taken before the deadline
+     */
+    public boolean tryAcquire(final long deadlineNanos) throws InterruptedException {
+        long waitNanos = reserve(deadlineNanos);
+        if (waitNanos < 0) {
+            return false;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return true;
+    }
+
+    /**
+     * @return the nanoseconds to wait for the reserved token, or -1 without reserving it if it would be after the
+     * deadline
+     */
+    @VisibleForTesting
+    synchronized long reserve(final long deadlineNanos) {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * permitsPerSecond / NANOS_PER_SECOND);
+        lastRefillNanos = now;
+
+        long waitNanos = tokens >= 1 ? 0L : (long) Math.ceil((1 - tokens) * NANOS_PER_SECOND / permitsPerSecond);
+        if (waitNanos > deadlineNanos - now) {
+            return -1L;
+        }
+        tokens -= 1;
+        return waitNanos;
+    }
+}
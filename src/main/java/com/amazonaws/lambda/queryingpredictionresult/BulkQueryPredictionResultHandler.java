@@ -0,0 +1,53 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.dagger.DaggerLambdaFunctionsComponent;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.google.common.annotations.VisibleForTesting;
+import lombok.NonNull;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Returns the latest p10/p50/p90 predictions of many items within a time range, e.g. invoked with:
+ *  {"itemIds": ["wp100", "wp101"], "startDate": "2019-01-01T00:00:00Z", "endDate": "2019-01-02T00:00:00Z"}
+ */
+public class BulkQueryPredictionResultHandler implements RequestHandler<BulkQueryPredictionResultRequest, BulkQueryPredictionResultResponse> {
+
+    // The whole response has to fit in the 6 MB synchronous Lambda response payload
+    private static final int DEFAULT_MAX_ITEMS_PER_REQUEST = 500;
+    private static final int MAX_ITEMS_PER_REQUEST = NumberUtils.toInt(
+            System.getenv("MAX_ITEMS_PER_BULK_QUERY"), DEFAULT_MAX_ITEMS_PER_REQUEST);
+
+    @Inject
+    @NonNull
+    AmazonDynamoDB ddbClient;
+
+    private final PredictionResultQueryService predictionResultQueryService;
+
+    public BulkQueryPredictionResultHandler() {
+        DaggerLambdaFunctionsComponent.create().inject(this);
+        this.predictionResultQueryService = new PredictionResultQueryService(ddbClient);
+    }
+
+    @VisibleForTesting
+    BulkQueryPredictionResultHandler(@NonNull final PredictionResultQueryService predictionResultQueryService) {
+        this.predictionResultQueryService = predictionResultQueryService;
+    }
+
+    @Override
+    public BulkQueryPredictionResultResponse handleRequest(BulkQueryPredictionResultRequest request, Context context) {
+        if (request != null && request.getItemIds() != null && request.getItemIds().size() > MAX_ITEMS_PER_REQUEST) {
+            throw new IllegalArgumentException(String.format("Cannot query more than %d items in a request, got %d",
+                    MAX_ITEMS_PER_REQUEST, request.getItemIds().size()));
+        }
+
+        List<QueryPredictionResultResponse> results = new ArrayList<>();
+        predictionResultQueryService.bulkQuery(request, results::add);
+        return new BulkQueryPredictionResultResponse(results);
+    }
+}
@@ -0,0 +1,22 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Query the latest predictions of many items within the same [startDate, endDate], see {@link QueryPredictionResultRequest}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkQueryPredictionResultRequest {
+
+    private List<String> itemIds;
+    private String startDate;
+    private String endDate;
+}
@@ -0,0 +1,18 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkQueryPredictionResultResponse {
+
+    // In the same order as the requested item ids
+    private List<QueryPredictionResultResponse> results;
+}
@@ -0,0 +1,113 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.dagger.DaggerLambdaFunctionsComponent;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.event.S3EventNotification;
+import com.amazonaws.services.s3.event.S3EventNotification.S3EventNotificationRecord;
+import com.google.common.annotations.VisibleForTesting;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the prediction result files notified through an SQS queue, which receives the S3 event notifications
+ * of the target folder. A single invocation receives the notifications of many part files of an export,
+ * and loads them concurrently. Only the messages whose files failed to load are reported back for retrying.
+ */
+@Slf4j
+public class LoadDataFromSqsToDynamoDBHandler implements RequestHandler<SQSEvent, SQSBatchResponse> {
+
+    // The max number of prediction result files loaded concurrently, they share the in-flight batch writes anyway
+    private static final int DEFAULT_MAX_CONCURRENT_PREDICTION_RESULT_FILES = 4;
+    private static final int MAX_CONCURRENT_PREDICTION_RESULT_FILES = NumberUtils.toInt(
+            System.getenv("MAX_CONCURRENT_PREDICTION_RESULT_FILES"), DEFAULT_MAX_CONCURRENT_PREDICTION_RESULT_FILES);
+
+    @Inject
+    @NonNull
+    AmazonS3 s3Client;
+
+    @Inject
+    @NonNull
+    AmazonDynamoDB ddbClient;
+
+    private final PredictionResultFileLoader predictionResultFileLoader;
+    private final ExecutorService predictionResultFileExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_PREDICTION_RESULT_FILES);
+
+    public LoadDataFromSqsToDynamoDBHandler() {
+        DaggerLambdaFunctionsComponent.create().inject(this);
+        this.predictionResultFileLoader = new PredictionResultFileLoader(s3Client, ddbClient);
+    }
+
+    @VisibleForTesting
+    LoadDataFromSqsToDynamoDBHandler(@NonNull final AmazonS3 s3Client, @NonNull final AmazonDynamoDB ddbClient) {
+        this.s3Client = s3Client;
+        this.ddbClient = ddbClient;
+        this.predictionResultFileLoader = new PredictionResultFileLoader(s3Client, ddbClient);
+    }
+
+    @Override
+    public SQSBatchResponse handleRequest(SQSEvent sqsEvent, Context context) {
+        // Kick off the loading of all the files first, then wait for them, keeping the message order for the logs
+        Map<String, List<Future<?>>> messageIdToLoadingFutures = new LinkedHashMap<>();
+        List<SQSBatchResponse.BatchItemFailure> batchItemFailures = new ArrayList<>();
+        for (SQSMessage message : sqsEvent.getRecords()) {
+            List<Future<?>> loadingFutures = new ArrayList<>();
+            try {
+                S3EventNotification s3EventNotification = S3EventNotification.parseJson(message.getBody());
+                // The s3:TestEvent sent when the notification is configured has no record, there is nothing to load
+                if (s3EventNotification.getRecords() != null) {
+                    for (S3EventNotificationRecord record : s3EventNotification.getRecords()) {
+                        String srcBucket = record.getS3().getBucket().getName();
+                        String srcKey = record.getS3().getObject().getKey();
+                        loadingFutures.add(predictionResultFileExecutor.submit(
+                                () -> predictionResultFileLoader.load(srcBucket, srcKey)));
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error(String.format("Failed to parse the S3 event notification from message %s: %s",
+                        message.getMessageId(), message.getBody()), e);
+                batchItemFailures.add(new SQSBatchResponse.BatchItemFailure(message.getMessageId()));
+                continue;
+            }
+            messageIdToLoadingFutures.put(message.getMessageId(), loadingFutures);
+        }
+
+        for (Map.Entry<String, List<Future<?>>> entry : messageIdToLoadingFutures.entrySet()) {
+            boolean failed = false;
+            for (Future<?> loadingFuture : entry.getValue()) {
+                try {
+                    loadingFuture.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for the prediction result files to load", e);
+                } catch (ExecutionException e) {
+                    log.error(String.format("Failed to load the prediction result file from message %s",
+                            entry.getKey()), e.getCause());
+                    failed = true;
+                }
+            }
+            if (failed) {
+                batchItemFailures.add(new SQSBatchResponse.BatchItemFailure(entry.getKey()));
+            }
+        }
+
+        log.info(String.format("Finish loading prediction result files from %d messages, %d of them failed",
+                sqsEvent.getRecords().size(), batchItemFailures.size()));
+        return new SQSBatchResponse(batchItemFailures);
+    }
+}
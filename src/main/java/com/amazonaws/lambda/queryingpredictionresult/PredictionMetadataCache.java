@@ -0,0 +1,266 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.lambda.metrics.MetricsEmitter;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.Get;
+import com.amazonaws.services.dynamodbv2.model.ItemResponse;
+import com.amazonaws.services.dynamodbv2.model.TransactGetItem;
+import com.amazonaws.services.dynamodbv2.model.TransactGetItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactGetItemsResult;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process cache of the latest prediction metadata (LatestPredictionUUID and LatestPredictionDataFrequencyInSeconds),
+ * so that the hot query path only needs a single DynamoDB call for the predictions themselves.
+ *
+ * Both metadata items are read in a single TransactGetItems call, the same way they are written by
+ * {@link PredictionResultFileLoader}, so a cached version never mixes the export job of one prediction
+ * with the data frequency of another.
+ *
+ * The cached version is:
+ *  - served as it is within the refresh-ahead window,
+ *  - served as it is while being refreshed in background once it gets older than the refresh-ahead window,
+ *  - refreshed synchronously once it gets older than the TTL, and still served if the refresh fails.
+ *
+ * The {@link CacheStats} counted since the previous emission are emitted as metrics at most once a minute, by the
+ * first get() after the minute is over, so the counts of the last minute of a container are never emitted.
+ */
+@Slf4j
+public class PredictionMetadataCache {
+
+    private static final String DYNAMODB_PREDICTION_METADATA_TABLE_NAME = System.getenv("PREDICTION_METADATA_TABLE_NAME");
+    private static final String DYNAMODB_PREDICTION_METADATA_HASH_KEY_NAME = System.getenv("PREDICTION_METADATA_TABLE_HASH_KEY");
+    private static final String DYNAMODB_PREDICTION_METADATA_ATTRIBUTE_NAME = System.getenv("PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME");
+
+    // A new prediction is exported every 2 hours by the ForecastExportCronStateMachine, so a few minutes of staleness is fine
+    private static final long DEFAULT_TTL_IN_SECONDS = 300L;
+    private static final Duration PREDICTION_METADATA_CACHE_TTL = Duration.ofSeconds(NumberUtils.toLong(
+            System.getenv("PREDICTION_METADATA_CACHE_TTL_IN_SECONDS"), DEFAULT_TTL_IN_SECONDS));
+    // Start refreshing in background once the cached version gets older than 80% of the TTL
+    private static final double REFRESH_AHEAD_RATIO = 0.8;
+
+    private static final String METRICS_NAMESPACE = "AutomatedForecast/QueryingPredictionResult";
+    private static final Map<String, String> METRICS_DIMENSIONS = ImmutableMap.of("Cache", "PredictionMetadata");
+    // The resolution of the CloudWatch standard metrics
+    @VisibleForTesting
+    static final Duration STATS_EMISSION_INTERVAL = Duration.ofMinutes(1);
+
+    private final AmazonDynamoDB ddbClient;
+    private final Clock clock;
+    private final Executor refreshExecutor;
+    private final Duration ttl;
+    private final Duration refreshAheadAge;
+    private final MetricsEmitter metricsEmitter;
+
+    private volatile CachedPredictionMetadata cachedPredictionMetadata;
+    private final AtomicBoolean refreshingAhead = new AtomicBoolean(false);
+
+    private final AtomicLong numberOfHits = new AtomicLong();
+    private final AtomicLong numberOfMisses = new AtomicLong();
+    private final AtomicLong numberOfRefreshAheads = new AtomicLong();
+    private final AtomicLong numberOfRefreshFailures = new AtomicLong();
+    private final AtomicLong numberOfStaleServes = new AtomicLong();
+    private final AtomicLong numberOfVersionChanges = new AtomicLong();
+
+    private volatile Instant nextStatsEmissionTime;
+    private CacheStats emittedStats = new CacheStats(0, 0, 0, 0, 0, 0);
+
+    public PredictionMetadataCache(@NonNull final AmazonDynamoDB ddbClient) {
+        this(ddbClient, Clock.systemUTC(), Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "prediction-metadata-refresher");
+            thread.setDaemon(true);
+            return thread;
+        }), PREDICTION_METADATA_CACHE_TTL, new MetricsEmitter(METRICS_NAMESPACE));
+    }
+
+    @VisibleForTesting
+    PredictionMetadataCache(@NonNull final AmazonDynamoDB ddbClient,
+                            @NonNull final Clock clock,
+                            @NonNull final Executor refreshExecutor,
+                            @NonNull final Duration ttl,
+                            @NonNull final MetricsEmitter metricsEmitter) {
+        this.ddbClient = ddbClient;
+        this.clock = clock;
+        this.refreshExecutor = refreshExecutor;
+        this.ttl = ttl;
+        this.refreshAheadAge = Duration.ofMillis((long) (ttl.toMillis() * REFRESH_AHEAD_RATIO));
+        this.metricsEmitter = metricsEmitter;
+        this.nextStatsEmissionTime = clock.instant().plus(STATS_EMISSION_INTERVAL);
+    }
+
+    /**
+     * @return the latest prediction metadata, which may be stale by up to the TTL, or longer if DynamoDB is unavailable
+     * @throws IllegalStateException if there is no prediction result loaded yet
+     */
+    public PredictionMetadata get() {
+        CachedPredictionMetadata cached = cachedPredictionMetadata;
+        Instant now = clock.instant();
+        emitStatsPeriodically(now);
+        if (cached == null) {
+            numberOfMisses.incrementAndGet();
+            return refresh(null);
+        }
+
+        Duration age = Duration.between(cached.getLoadTime(), now);
+        if (age.compareTo(ttl) >= 0) {
+            numberOfMisses.incrementAndGet();
+            try {
+                return refresh(cached);
+            } catch (RuntimeException e) {
+                numberOfRefreshFailures.incrementAndGet();
+                numberOfStaleServes.incrementAndGet();
+                log.warn(String.format("Failed to refresh the prediction metadata, keep serving %s loaded at %s",
+                        cached.getPredictionMetadata(), cached.getLoadTime()), e);
+                return cached.getPredictionMetadata();
+            }
+        }
+
+        numberOfHits.incrementAndGet();
+        if (age.compareTo(refreshAheadAge) >= 0 && refreshingAhead.compareAndSet(false, true)) {
+            numberOfRefreshAheads.incrementAndGet();
+            try {
+                refreshExecutor.execute(() -> {
+                    try {
+                        refresh(cached);
+                    } catch (RuntimeException e) {
+                        numberOfRefreshFailures.incrementAndGet();
+                        log.warn("Failed to refresh the prediction metadata ahead of its expiration", e);
+                    } finally {
+                        refreshingAhead.set(false);
+                    }
+                });
+            } catch (RuntimeException e) {
+                refreshingAhead.set(false);
+                log.warn("Failed to schedule the prediction metadata refresh", e);
+            }
+        }
+        return cached.getPredictionMetadata();
+    }
+
+    /**
+     * Drop the cached version, e.g. when the caller knows there is a newer prediction loaded.
+     */
+    public void invalidate() {
+        cachedPredictionMetadata = null;
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(numberOfHits.get(), numberOfMisses.get(), numberOfRefreshAheads.get(),
+                numberOfRefreshFailures.get(), numberOfStaleServes.get(), numberOfVersionChanges.get());
+    }
+
+    /**
+     * Emit the stats counted since the previous emission, once the emission interval is over.
+     */
+    private void emitStatsPeriodically(final Instant now) {
+        if (now.isBefore(nextStatsEmissionTime)) {
+            return;
+        }
+        synchronized (this) {
+            if (now.isBefore(nextStatsEmissionTime)) {
+                return;
+            }
+            nextStatsEmissionTime = now.plus(STATS_EMISSION_INTERVAL);
+            CacheStats stats = getStats();
+            try {
+                metricsEmitter.emitCounts(METRICS_DIMENSIONS, ImmutableMap.<String, Long>builder()
+                        .put("Hits", stats.getNumberOfHits() - emittedStats.getNumberOfHits())
+                        .put("Misses", stats.getNumberOfMisses() - emittedStats.getNumberOfMisses())
+                        .put("RefreshAheads",
+                                stats.getNumberOfRefreshAheads() - emittedStats.getNumberOfRefreshAheads())
+                        .put("RefreshFailures",
+                                stats.getNumberOfRefreshFailures() - emittedStats.getNumberOfRefreshFailures())
+                        .put("StaleServes", stats.getNumberOfStaleServes() - emittedStats.getNumberOfStaleServes())
+                        .put("VersionChanges",
+                                stats.getNumberOfVersionChanges() - emittedStats.getNumberOfVersionChanges())
+                        .build());
+                emittedStats = stats;
+            } catch (RuntimeException e) {
+                // The stats are emitted along with the next ones
+                log.warn("Failed to emit the prediction metadata cache stats", e);
+            }
+        }
+    }
+
+    private PredictionMetadata refresh(final CachedPredictionMetadata previous) {
+        Instant loadTime = clock.instant();
+        PredictionMetadata predictionMetadata = load();
+
+        if (previous != null && !previous.getPredictionMetadata().equals(predictionMetadata)) {
+            numberOfVersionChanges.incrementAndGet();
+            log.info(String.format("The prediction metadata changed from %s to %s",
+                    previous.getPredictionMetadata(), predictionMetadata));
+        }
+        cachedPredictionMetadata = new CachedPredictionMetadata(predictionMetadata, loadTime);
+        return predictionMetadata;
+    }
+
+    private PredictionMetadata load() {
+        List<String> metadataKeys = Arrays.asList(
+                PredictionResultFileLoader.DYNAMODB_PREDICTION_METADATA_LATEST_PRED_UUID_ATTR_NAME,
+                PredictionResultFileLoader.DYNAMODB_PREDICTION_METADATA_LATEST_PRED_DATA_FREQ_IN_SEC_ATTR_NAME);
+        TransactGetItem[] transactGetItems = metadataKeys.stream()
+                .map(metadataKey -> new TransactGetItem().withGet(new Get()
+                        .withTableName(DYNAMODB_PREDICTION_METADATA_TABLE_NAME)
+                        .withKey(Collections.singletonMap(DYNAMODB_PREDICTION_METADATA_HASH_KEY_NAME, new AttributeValue(metadataKey)))))
+                .toArray(TransactGetItem[]::new);
+        TransactGetItemsResult transactGetItemsResult = ddbClient.transactGetItems(
+                new TransactGetItemsRequest().withTransactItems(transactGetItems));
+
+        // The responses are in the same order as the requested items
+        List<ItemResponse> responses = transactGetItemsResult.getResponses();
+        String forecastExportJobName = getMetadataValue(responses.get(0), metadataKeys.get(0));
+        String dataFrequencyInSeconds = getMetadataValue(responses.get(1), metadataKeys.get(1));
+        return new PredictionMetadata(forecastExportJobName, Long.parseLong(dataFrequencyInSeconds));
+    }
+
+    private String getMetadataValue(final ItemResponse response, final String metadataKey) {
+        Map<String, AttributeValue> item = response == null ? null : response.getItem();
+        if (item == null || item.get(DYNAMODB_PREDICTION_METADATA_ATTRIBUTE_NAME) == null) {
+            throw new IllegalStateException(String.format("Cannot find [%s] in table %s, no prediction result has been loaded yet",
+                    metadataKey, DYNAMODB_PREDICTION_METADATA_TABLE_NAME));
+        }
+        return item.get(DYNAMODB_PREDICTION_METADATA_ATTRIBUTE_NAME).getS();
+    }
+
+    @Value
+    public static class PredictionMetadata {
+        // The forecast export job name of the latest prediction, which works as the version of the prediction result
+        String forecastExportJobName;
+        long dataFrequencyInSeconds;
+    }
+
+    @Value
+    public static class CacheStats {
+        long numberOfHits;
+        long numberOfMisses;
+        long numberOfRefreshAheads;
+        long numberOfRefreshFailures;
+        long numberOfStaleServes;
+        long numberOfVersionChanges;
+    }
+
+    @Value
+    private static class CachedPredictionMetadata {
+        PredictionMetadata predictionMetadata;
+        Instant loadTime;
+    }
+}
@@ -0,0 +1,221 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.lambda.metrics.MetricsEmitter;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * An in-process LRU cache of the predictions of the hot items, bounded by the total number of the cached predictions.
+ *
+ * The whole forecast horizon of an item is cached, keyed by (forecastExportJobName, itemId). A prediction result
+ * is never changed once loaded, so an entry only gets stale when its items expire from the table: once a new prediction
+ * is loaded, the new export job name makes a different key, and the entries of the outdated prediction are evicted as
+ * the least recently used ones. An entry is dropped once the earliest expirationTime of its items is reached though.
+ *
+ * An item without any prediction is not cached, since the prediction is loaded one part file at a time, and the item
+ * may be in a part file not loaded yet.
+ *
+ * The hits, misses, hit ratio and evictions since the previous emission are emitted as metrics at most once a minute,
+ * by the first get() after the minute is over.
+ */
+@Slf4j
+public class PredictionResultCache {
+
+    // The forecast horizon is a few days, so an item has a few hundreds of predictions at most
+    private static final long DEFAULT_MAX_WEIGHT = 200_000L;
+    private static final long PREDICTION_RESULT_CACHE_MAX_WEIGHT = NumberUtils.toLong(
+            System.getenv("PREDICTION_RESULT_CACHE_MAX_NUMBER_OF_PREDICTIONS"), DEFAULT_MAX_WEIGHT);
+
+    private static final String METRICS_NAMESPACE = "AutomatedForecast/QueryingPredictionResult";
+    private static final Map<String, String> METRICS_DIMENSIONS = ImmutableMap.of("Cache", "PredictionResult");
+    // The resolution of the CloudWatch standard metrics
+    @VisibleForTesting
+    static final Duration STATS_EMISSION_INTERVAL = Duration.ofMinutes(1);
+
+    private final long maxWeight;
+    private final Clock clock;
+    private final MetricsEmitter metricsEmitter;
+    // In access order, the eldest entry is the least recently used one
+    private final LinkedHashMap<Key, ItemPredictions> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private long numberOfHits;
+    private long numberOfMisses;
+    private long numberOfEvictions;
+    private long numberOfEvictedPredictions;
+
+    private Instant nextStatsEmissionTime;
+    private CacheStats emittedStats = new CacheStats(0, 0, 0, 0, 0, 0);
+
+    public PredictionResultCache() {
+        this(PREDICTION_RESULT_CACHE_MAX_WEIGHT);
+    }
+
+    /**
+     * @param maxWeight the max total number of the cached predictions, 0 to disable the cache
+     */
+    @VisibleForTesting
+    PredictionResultCache(final long maxWeight) {
+        this(maxWeight, Clock.systemUTC());
+    }
+
+    @VisibleForTesting
+    PredictionResultCache(final long maxWeight, @NonNull final Clock clock) {
+        this(maxWeight, clock, new MetricsEmitter(METRICS_NAMESPACE));
+    }
+
+    @VisibleForTesting
+    PredictionResultCache(final long maxWeight,
+                          @NonNull final Clock clock,
+                          @NonNull final MetricsEmitter metricsEmitter) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException(String.format("maxWeight [%d] should not be negative", maxWeight));
+        }
+        this.maxWeight = maxWeight;
+        this.clock = clock;
+        this.metricsEmitter = metricsEmitter;
+        this.nextStatsEmissionTime = clock.instant().plus(STATS_EMISSION_INTERVAL);
+    }
+
+    /**
+     * @return the cached predictions of the item, or the ones from the loader if not cached yet or expired. The loader
+     *         runs outside the lock, so two threads missing the same item at the same time may both load it.
+     */
+    public List<QueryPredictionResultResponse.Prediction> get(@NonNull final String forecastExportJobName,
+                                                              @NonNull final String itemId,
+                                                              @NonNull final Supplier<ItemPredictions> loader) {
+        Key key = new Key(forecastExportJobName, itemId);
+        synchronized (this) {
+            emitStatsPeriodically();
+            ItemPredictions itemPredictions = entries.get(key);
+            if (itemPredictions != null && !isExpired(itemPredictions)) {
+                numberOfHits++;
+                return itemPredictions.getPredictions();
+            }
+            if (itemPredictions != null) {
+                remove(key);
+            }
+            numberOfMisses++;
+        }
+
+        ItemPredictions itemPredictions = loader.get();
+        put(key, itemPredictions);
+        return itemPredictions.getPredictions();
+    }
+
+    public boolean isEnabled() {
+        return maxWeight > 0;
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(numberOfHits, numberOfMisses, numberOfEvictions, numberOfEvictedPredictions,
+                entries.size(), weight);
+    }
+
+    private synchronized void put(final Key key, final ItemPredictions itemPredictions) {
+        // An unknown item may be in a part file not loaded yet, and an entry heavier than the whole cache would evict
+        // everything else, don't cache them at all
+        long entryWeight = itemPredictions.getPredictions().size();
+        if (entryWeight == 0 || entryWeight > maxWeight || isExpired(itemPredictions)) {
+            return;
+        }
+        remove(key);
+        entries.put(key, itemPredictions);
+        weight += entryWeight;
+
+        while (weight > maxWeight) {
+            Map.Entry<Key, ItemPredictions> eldest = entries.entrySet().iterator().next();
+            numberOfEvictions++;
+            numberOfEvictedPredictions += eldest.getValue().getPredictions().size();
+            remove(eldest.getKey());
+        }
+    }
+
+    private void remove(final Key key) {
+        ItemPredictions removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.getPredictions().size();
+        }
+    }
+
+    private boolean isExpired(final ItemPredictions itemPredictions) {
+        return clock.instant().getEpochSecond() >= itemPredictions.getExpirationTime();
+    }
+
+    /**
+     * Emit the stats counted since the previous emission, once the emission interval is over. The hit ratio is only
+     * emitted if there is any request within the interval.
+     */
+    private void emitStatsPeriodically() {
+        Instant now = clock.instant();
+        if (now.isBefore(nextStatsEmissionTime)) {
+            return;
+        }
+        nextStatsEmissionTime = now.plus(STATS_EMISSION_INTERVAL);
+        CacheStats stats = getStats();
+        long numberOfIntervalHits = stats.getNumberOfHits() - emittedStats.getNumberOfHits();
+        long numberOfIntervalMisses = stats.getNumberOfMisses() - emittedStats.getNumberOfMisses();
+        try {
+            metricsEmitter.emitCounts(METRICS_DIMENSIONS, ImmutableMap.<String, Long>builder()
+                    .put("Hits", numberOfIntervalHits)
+                    .put("Misses", numberOfIntervalMisses)
+                    .put("Evictions", stats.getNumberOfEvictions() - emittedStats.getNumberOfEvictions())
+                    .put("EvictedPredictions",
+                            stats.getNumberOfEvictedPredictions() - emittedStats.getNumberOfEvictedPredictions())
+                    .build());
+            if (numberOfIntervalHits + numberOfIntervalMisses > 0) {
+                metricsEmitter.emit(METRICS_DIMENSIONS, ImmutableMap.of("HitRatio",
+                        100.0 * numberOfIntervalHits / (numberOfIntervalHits + numberOfIntervalMisses)),
+                        MetricsEmitter.PERCENT_UNIT);
+            }
+            emittedStats = stats;
+        } catch (RuntimeException e) {
+            // The stats are emitted along with the next ones
+            log.warn("Failed to emit the prediction result cache stats", e);
+        }
+    }
+
+    @Value
+    public static class CacheStats {
+        long numberOfHits;
+        long numberOfMisses;
+        long numberOfEvictions;
+        long numberOfEvictedPredictions;
+        long numberOfEntries;
+        // The number of the cached predictions
+        long weight;
+
+        public double getHitRatio() {
+            long numberOfRequests = numberOfHits + numberOfMisses;
+            return numberOfRequests == 0 ? 0 : (double) numberOfHits / numberOfRequests;
+        }
+    }
+
+    /**
+     * The predictions of an item with the earliest expirationTime of their items in the table, in epoch seconds.
+     */
+    @Value
+    public static class ItemPredictions {
+        @NonNull
+        List<QueryPredictionResultResponse.Prediction> predictions;
+        long expirationTime;
+    }
+
+    @Value
+    private static class Key {
+        String forecastExportJobName;
+        String itemId;
+    }
+}
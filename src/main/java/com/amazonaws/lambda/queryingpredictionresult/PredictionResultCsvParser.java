@@ -0,0 +1,360 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A specialized parser for the prediction result files exported by Forecast, e.g.:
+ *  date,item_id,mean,p10,p50,p90
+ *  2019-01-01T00:00:00Z,wp100,21,-8,21,49
+ *
+ * Compared with the opencsv {@link com.opencsv.bean.CsvToBean}, it doesn't bind the columns by reflection,
+ * and works directly on a byte buffer: the quantiles are parsed into doubles without any intermediate String,
+ * and the records are filled into a {@link PredictionResultItem} provided (and reused) by the caller.
+ *
+ * The columns are located by the header, so the column order doesn't matter and unknown columns (like "mean")
+ * are skipped. Quoted fields are supported, but a record is not allowed to span multiple lines.
+ */
+public class PredictionResultCsvParser implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final List<String> REQUIRED_COLUMNS = Arrays.asList(
+            PredictionResultItem.Attribute.ITEM_ID,
+            PredictionResultItem.Attribute.DATE,
+            PredictionResultItem.Attribute.P10,
+            PredictionResultItem.Attribute.P50,
+            PredictionResultItem.Attribute.P90);
+
+    /*
+     * A double can be exactly computed from its decimal mantissa and exponent if both of them are
+     * exactly representable as a double, refer to:
+     * William D. Clinger, How to Read Floating Point Numbers Accurately (1990)
+     */
+    private static final long MAX_EXACT_DOUBLE_MANTISSA = 1L << 53;
+    private static final int MAX_SIGNIFICANT_DIGITS = 18;
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream inputStream;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfStream;
+
+    // Boundaries of the current line and its fields, they are reused across records
+    private int lineStart;
+    private int lineEnd;
+    private long lineNumber;
+    private final int numberOfColumns;
+    private final int[] fieldStarts;
+    private final int[] fieldEnds;
+    private final boolean[] fieldQuoted;
+
+    private final int itemIdColumnIndex;
+    private final int dateColumnIndex;
+    private final int p10ColumnIndex;
+    private final int p50ColumnIndex;
+    private final int p90ColumnIndex;
+
+    public PredictionResultCsvParser(final InputStream inputStream) throws IOException {
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    @VisibleForTesting
+    PredictionResultCsvParser(final InputStream inputStream, final int bufferSize) throws IOException {
+        this.inputStream = inputStream;
+        this.buffer = new byte[bufferSize];
+
+        if (!nextLine()) {
+            // An empty file, which has no header and no record
+            this.numberOfColumns = 0;
+            this.fieldStarts = new int[0];
+            this.fieldEnds = new int[0];
+            this.fieldQuoted = new boolean[0];
+            this.itemIdColumnIndex = this.dateColumnIndex = -1;
+            this.p10ColumnIndex = this.p50ColumnIndex = this.p90ColumnIndex = -1;
+            return;
+        }
+
+        if (lineEnd - lineStart >= UTF8_BOM.length
+                && buffer[lineStart] == UTF8_BOM[0] && buffer[lineStart + 1] == UTF8_BOM[1] && buffer[lineStart + 2] == UTF8_BOM[2]) {
+            lineStart += UTF8_BOM.length;
+        }
+        String[] header = new String(buffer, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8).split(",", -1);
+        for (int i = 0; i < header.length; i++) {
+            header[i] = header[i].trim();
+        }
+        List<String> columns = Arrays.asList(header);
+        for (String requiredColumn : REQUIRED_COLUMNS) {
+            if (!columns.contains(requiredColumn)) {
+                throw new IllegalArgumentException(String.format("Prediction result file header %s is missing the required column [%s]",
+                        columns, requiredColumn));
+            }
+        }
+
+        this.numberOfColumns = header.length;
+        this.fieldStarts = new int[numberOfColumns];
+        this.fieldEnds = new int[numberOfColumns];
+        this.fieldQuoted = new boolean[numberOfColumns];
+        this.itemIdColumnIndex = columns.indexOf(PredictionResultItem.Attribute.ITEM_ID);
+        this.dateColumnIndex = columns.indexOf(PredictionResultItem.Attribute.DATE);
+        this.p10ColumnIndex = columns.indexOf(PredictionResultItem.Attribute.P10);
+        this.p50ColumnIndex = columns.indexOf(PredictionResultItem.Attribute.P50);
+        this.p90ColumnIndex = columns.indexOf(PredictionResultItem.Attribute.P90);
+    }
+
+    /**
+     * Parse the next record into the given item. Only the hashKey(item_id), sortKey(date),
+     * p10, p50 and p90 are set, the other attributes of the item are left untouched.
+     *
+     * @return false if there is no more record
+     * @throws IllegalArgumentException if the record is malformed, e.g. with a quantile which is NaN or infinite
+     */
+    public boolean next(final PredictionResultItem item) throws IOException {
+        do {
+            if (!nextLine()) {
+                return false;
+            }
+        } while (lineStart == lineEnd); // skip blank lines
+
+        splitFields();
+        item.setHashKey(fieldAsString(itemIdColumnIndex));
+        item.setSortKey(fieldAsString(dateColumnIndex));
+        item.setP10(fieldAsDouble(p10ColumnIndex));
+        item.setP50(fieldAsDouble(p50ColumnIndex));
+        item.setP90(fieldAsDouble(p90ColumnIndex));
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    /**
+     * Locate the next line in the buffer, refilling (and growing, for a line longer than the buffer) it when needed.
+     */
+    private boolean nextLine() throws IOException {
+        int scanFrom = position;
+        while (true) {
+            for (int i = scanFrom; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    setCurrentLine(position, i);
+                    position = i + 1;
+                    return true;
+                }
+            }
+
+            int numberOfScannedBytes = limit - position;
+            if (endOfStream || !fillBuffer()) {
+                if (position < limit) {
+                    // The last line doesn't end with a line break
+                    setCurrentLine(position, limit);
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+            scanFrom = position + numberOfScannedBytes;
+        }
+    }
+
+    private void setCurrentLine(final int start, final int end) {
+        lineStart = start;
+        lineEnd = end > start && buffer[end - 1] == '\r' ? end - 1 : end;
+        lineNumber++;
+    }
+
+    /**
+     * Move the unconsumed bytes to the beginning of the buffer and read more bytes after them.
+     *
+     * @return false if the end of the stream is reached
+     */
+    private boolean fillBuffer() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+
+        int numberOfReadBytes = inputStream.read(buffer, limit, buffer.length - limit);
+        if (numberOfReadBytes < 0) {
+            endOfStream = true;
+            return false;
+        }
+        limit += numberOfReadBytes;
+        return true;
+    }
+
+    private void splitFields() {
+        int column = 0;
+        int i = lineStart;
+        while (true) {
+            if (column >= numberOfColumns) {
+                throw malformedRecord(String.format("it has more than %d columns", numberOfColumns));
+            }
+
+            // Ignore the leading white spaces, in the same way as CsvToBeanBuilder#withIgnoreLeadingWhiteSpace
+            while (i < lineEnd && buffer[i] == ' ') {
+                i++;
+            }
+            if (i < lineEnd && buffer[i] == '"') {
+                i++;
+                fieldStarts[column] = i;
+                fieldQuoted[column] = true;
+                while (true) {
+                    if (i >= lineEnd) {
+                        throw malformedRecord("it has an unterminated quoted field");
+                    }
+                    if (buffer[i] == '"') {
+                        if (i + 1 < lineEnd && buffer[i + 1] == '"') {
+                            i += 2; // an escaped quote
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                fieldEnds[column] = i;
+                i++; // skip the closing quote
+                if (i < lineEnd && buffer[i] != ',') {
+                    throw malformedRecord("it has unexpected characters after a quoted field");
+                }
+            } else {
+                fieldStarts[column] = i;
+                fieldQuoted[column] = false;
+                while (i < lineEnd && buffer[i] != ',') {
+                    i++;
+                }
+                fieldEnds[column] = i;
+            }
+
+            column++;
+            if (i >= lineEnd) {
+                break;
+            }
+            i++; // skip the comma
+        }
+
+        if (column != numberOfColumns) {
+            throw malformedRecord(String.format("it has %d columns instead of %d", column, numberOfColumns));
+        }
+    }
+
+    private String fieldAsString(final int column) {
+        int start = fieldStarts[column];
+        int end = fieldEnds[column];
+        if (start == end) {
+            throw malformedRecord(String.format("the required field at column %d is empty", column));
+        }
+        String field = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        return fieldQuoted[column] ? field.replace("\"\"", "\"") : field;
+    }
+
+    private double fieldAsDouble(final int column) {
+        int start = fieldStarts[column];
+        int end = fieldEnds[column];
+        while (end > start && buffer[end - 1] == ' ') {
+            end--;
+        }
+        if (start == end) {
+            throw malformedRecord(String.format("the required field at column %d is empty", column));
+        }
+
+        double value;
+        try {
+            value = parseDouble(buffer, start, end);
+        } catch (NumberFormatException e) {
+            throw malformedRecord(String.format("the field at column %d is not a number", column));
+        }
+        // DynamoDB numbers cannot be NaN or infinite, e.g. "NaN" or an overflowing "1e400"
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw malformedRecord(String.format("the field at column %d is not a finite number", column));
+        }
+        return value;
+    }
+
+    /**
+     * Parse a decimal number like "-12.5e-3" directly from the bytes. The numbers which cannot be parsed exactly
+     * on the fast path (too many significant digits, huge exponents, "NaN", etc.) fall back to {@link Double#parseDouble}.
+     */
+    @VisibleForTesting
+    static double parseDouble(final byte[] bytes, final int start, final int end) {
+        int i = start;
+        boolean negative = false;
+        if (bytes[i] == '-' || bytes[i] == '+') {
+            negative = bytes[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int numberOfSignificantDigits = 0;
+        int exponent = 0;
+        boolean hasDigit = false;
+        for (; i < end && isDigit(bytes[i]); i++) {
+            hasDigit = true;
+            if (mantissa != 0 || bytes[i] != '0') {
+                mantissa = mantissa * 10 + (bytes[i] - '0');
+                numberOfSignificantDigits++;
+            }
+        }
+        if (i < end && bytes[i] == '.') {
+            for (i++; i < end && isDigit(bytes[i]); i++) {
+                hasDigit = true;
+                if (mantissa != 0 || bytes[i] != '0') {
+                    mantissa = mantissa * 10 + (bytes[i] - '0');
+                    numberOfSignificantDigits++;
+                }
+                exponent--;
+            }
+        }
+        if (hasDigit && i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+                negativeExponent = bytes[i] == '-';
+                i++;
+            }
+            int explicitExponent = 0;
+            int exponentStart = i;
+            for (; i < end && isDigit(bytes[i]) && i - exponentStart < 4; i++) {
+                explicitExponent = explicitExponent * 10 + (bytes[i] - '0');
+            }
+            if (i == exponentStart) {
+                hasDigit = false;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (!hasDigit || i != end || numberOfSignificantDigits > MAX_SIGNIFICANT_DIGITS
+                || mantissa > MAX_EXACT_DOUBLE_MANTISSA || Math.abs(exponent) >= EXACT_POWERS_OF_TEN.length) {
+            return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.US_ASCII));
+        }
+
+        double value = exponent < 0
+                ? mantissa / EXACT_POWERS_OF_TEN[-exponent]
+                : mantissa * EXACT_POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    private static boolean isDigit(final byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private IllegalArgumentException malformedRecord(final String reason) {
+        return new IllegalArgumentException(String.format("Malformed prediction result record at line %d, %s: %s",
+                lineNumber, reason, new String(buffer, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,268 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.lambda.common.S3MultipartUploadOutputStream;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.joda.time.Duration;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Loads a prediction result file from S3 to the DynamoDB tables, and points the prediction metadata to it.
+ *
+ * All the files loaded by the same loader, even concurrently, share a single pool of in-flight BatchWriteItem calls,
+ * so the write pressure on the prediction table stays bounded no matter how many files are being loaded at once.
+ *
+ * Along the way, a {@link PredictionSnapshotFormat prediction snapshot} of the file is built and uploaded to the
+ * snapshot folder, so that the bulk consumers don't have to parse the csv file again.
+ */
+@Slf4j
+public class PredictionResultFileLoader {
+
+    private static final String DYNAMODB_PREDICTION_TABLE_NAME = System.getenv("PREDICTION_TABLE_NAME");
+    private static final String DYNAMODB_PREDICTION_TABLE_HASH_KEY_NAME = System.getenv("PREDICTION_TABLE_HASH_KEY");
+    private static final String DYNAMODB_PREDICTION_TABLE_RANGE_KEY_NAME = System.getenv("PREDICTION_TABLE_RANGE_KEY");
+
+    // The item lifespan should be aligned with the forecast horizon
+    private static final String DYNAMODB_PREDICTION_TABLE_ITEM_LIFESPAN_IN_DAY_STR = System.getenv("FORECAST_HORIZON_IN_DAYS");
+    private static final long DYNAMODB_PREDICTION_TABLE_ITEM_EXPIRATION_TIME = Instant.now()
+            .plus(Long.parseLong(DYNAMODB_PREDICTION_TABLE_ITEM_LIFESPAN_IN_DAY_STR), ChronoUnit.DAYS).getEpochSecond();
+    private static final DateTimeFormatter PREDICTION_TIMESTAMP_FORMATTER = DateTimeFormat.forPattern("YYYY-MM-dd'T'HH:mm:ss'Z'");
+    private static final int REQUIRED_NUMBER_OF_PREDICTION_RESULT_ITEMS_FOR_DERIVING_DATA_FREQUENCY = 2;
+
+    private static final String DYNAMODB_PREDICTION_METADATA_TABLE_NAME = System.getenv("PREDICTION_METADATA_TABLE_NAME");
+    private static final String DYNAMODB_PREDICTION_METADATA_HASH_KEY_NAME = System.getenv("PREDICTION_METADATA_TABLE_HASH_KEY");
+    private static final String DYNAMODB_PREDICTION_METADATA_ATTRIBUTE_NAME = System.getenv("PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME");
+
+    // The hash key of the prediction table is composed of the item id and the forecast export job name, e.g. "wp100$fej_1"
+    static final String PREDICTION_TABLE_CSV_VALUE_SPLITTER = "$";
+    // The max number of concurrent BatchWriteItem calls, it should be tuned along with the table's write capacity
+    private static final int DEFAULT_MAX_IN_FLIGHT_BATCH_WRITES = 8;
+    private static final int DYNAMODB_PREDICTION_TABLE_MAX_IN_FLIGHT_BATCH_WRITES = NumberUtils.toInt(
+            System.getenv("PREDICTION_TABLE_MAX_IN_FLIGHT_BATCH_WRITES"), DEFAULT_MAX_IN_FLIGHT_BATCH_WRITES);
+    static final String DYNAMODB_PREDICTION_METADATA_LATEST_PRED_UUID_ATTR_NAME = "LatestPredictionUUID";
+    static final String DYNAMODB_PREDICTION_METADATA_LATEST_PRED_DATA_FREQ_IN_SEC_ATTR_NAME = "LatestPredictionDataFrequencyInSeconds";
+
+    // No snapshot is built if the folder is not configured
+    private static final String PREDICTION_SNAPSHOT_S3_FOLDER = System.getenv("PREDICTION_SNAPSHOT_S3_FOLDER");
+    private static final String PREDICTION_SNAPSHOT_CONTENT_TYPE = "application/octet-stream";
+    // The snapshot is written a few bytes at a time, so they are copied to the upload parts in larger chunks
+    private static final int SNAPSHOT_WRITE_BUFFER_SIZE = 64 * 1024;
+
+    // An example of prediction file name: target/fej_1571260106456_2019-10-16T21-40-00Z_part0.csv
+    private static final String PREDICTION_RESULT_FILE_NAME_REGEX =
+                    "^([a-zA-Z0-9_-]+)/" +                              // for matching string like, "target/
+                    "([a-zA-Z0-9_-]+)" +                                // for matching forecastExportJob file name string like "fej_1571260106456"
+                    "_(\\d{4}-\\d{2}-\\d{2}T\\d{2}-\\d{2}-\\d{2}Z)" +   // for matching timestamp like "_2019-10-16T21-40-00Z"
+                    "_(part\\d{1}.csv)$";                               // for matching the suffix like "_part0.csv";
+    private static final String PREDICTION_RESULT_FILE_EXTENSION = ".csv";
+    private static final Pattern PREDICTION_RESULT_FILE_NAME_PATTERN = Pattern.compile(PREDICTION_RESULT_FILE_NAME_REGEX);
+
+    /*
+     * Refer to: https://docs.oracle.com/javase/7/docs/api/java/util/regex/Matcher.html#group%28int%29
+     * group(0) will match the entire group, group(1) is the first group within the parentheses
+     */
+    private static final int FORECAST_EXPORT_JOB_NAME_INDEX = 2;
+
+    private final AmazonS3 s3Client;
+    private final AmazonDynamoDB ddbClient;
+    private final ExecutorService batchWriteExecutor;
+    private final Semaphore inFlightBatchWrites;
+
+    public PredictionResultFileLoader(@NonNull final AmazonS3 s3Client, @NonNull final AmazonDynamoDB ddbClient) {
+        this.s3Client = s3Client;
+        this.ddbClient = ddbClient;
+        this.batchWriteExecutor = Executors.newFixedThreadPool(DYNAMODB_PREDICTION_TABLE_MAX_IN_FLIGHT_BATCH_WRITES);
+        this.inFlightBatchWrites = new Semaphore(DYNAMODB_PREDICTION_TABLE_MAX_IN_FLIGHT_BATCH_WRITES);
+    }
+
+    /**
+     * Load a prediction result file like "target/fej_1571260106456_2019-10-16T21-40-00Z_part0.csv".
+     * It is safe to load multiple files concurrently from different threads.
+     */
+    public void load(final String srcBucket, final String srcKey) {
+        Matcher predictionResultUuidMatcher = PREDICTION_RESULT_FILE_NAME_PATTERN.matcher(srcKey);
+        String forecastExportJobName;
+        if (predictionResultUuidMatcher.matches()) {
+            forecastExportJobName = predictionResultUuidMatcher.group(FORECAST_EXPORT_JOB_NAME_INDEX);
+        } else {
+            String errorMsg = String.format("Cannot parse prediction result object key: %s", srcKey);
+            throw new RuntimeException(errorMsg);
+        }
+
+        S3Object s3Object = s3Client.getObject(new GetObjectRequest(srcBucket, srcKey));
+        log.info(String.format("Start processing s3 object: %s, with forecast export job name: %s",
+                s3Object.toString(), forecastExportJobName));
+
+        /*
+         * Stream the records directly from S3, parse them into a single reused PredictionResultItem one by one,
+         * and write them to DynamoDB with several concurrent in-flight batches. In this way, the memory footprint
+         * stays flat no matter how big the prediction result file is, except for the primitive columns of the snapshot.
+         */
+        String firstItemHashKey = null;
+        long numberOfNewItems = 0;
+        PredictionResultItem item = new PredictionResultItem();
+        PredictionSnapshotBuilder snapshotBuilder = StringUtils.isBlank(PREDICTION_SNAPSHOT_S3_FOLDER)
+                ? null : new PredictionSnapshotBuilder();
+        try (PredictionResultCsvParser csvParser = new PredictionResultCsvParser(s3Object.getObjectContent());
+             PredictionResultItemBatchWriter batchWriter = new PredictionResultItemBatchWriter(ddbClient,
+                     DYNAMODB_PREDICTION_TABLE_NAME, batchWriteExecutor, inFlightBatchWrites)) {
+            while (csvParser.next(item)) {
+                if (snapshotBuilder != null) {
+                    snapshotBuilder.add(item.getHashKey(), item);
+                }
+                item.setHashKey(String.format("%s%s%s",
+                        item.getHashKey(), PREDICTION_TABLE_CSV_VALUE_SPLITTER, forecastExportJobName));
+                item.setExpirationTime(DYNAMODB_PREDICTION_TABLE_ITEM_EXPIRATION_TIME);
+                if (firstItemHashKey == null) {
+                    firstItemHashKey = item.getHashKey();
+                }
+
+                batchWriter.write(item);
+                numberOfNewItems++;
+            }
+
+            if (numberOfNewItems == 0) {
+                throw new RuntimeException(String.format("Prediction result file %s contains no record.", srcKey));
+            }
+            batchWriter.flush();
+            log.info(String.format("Finish loading and writing %d new items from S3 to DynamoDB Table with stats %s.",
+                    numberOfNewItems, batchWriter.getStats()));
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Failed to read prediction result file %s", srcKey), e);
+        }
+
+        // Upload the snapshot before pointing the prediction metadata to the new prediction
+        if (snapshotBuilder != null) {
+            uploadSnapshot(srcBucket, srcKey, snapshotBuilder);
+        }
+
+        // After populating the PredictionResultItem table, we get the first 2 items for any hashKey
+        // and calculate the data frequency by comparing the rangeKey(sortKey)
+        Condition hashKeyCondition = new Condition()
+                .withComparisonOperator(ComparisonOperator.EQ)
+                .withAttributeValueList(new AttributeValue(firstItemHashKey));
+        Map<String, Condition> keyConditions = new HashMap<>();
+        keyConditions.put(DYNAMODB_PREDICTION_TABLE_HASH_KEY_NAME, hashKeyCondition);
+        QueryRequest queryRequest = new QueryRequest()
+                .withTableName(DYNAMODB_PREDICTION_TABLE_NAME)
+                .withKeyConditions(keyConditions)
+                .withConsistentRead(true)
+                .withScanIndexForward(true) /* ascending order for the range key*/
+                .withLimit(REQUIRED_NUMBER_OF_PREDICTION_RESULT_ITEMS_FOR_DERIVING_DATA_FREQUENCY); /* get the first 2 items */
+        QueryResult queryResult = ddbClient.query(queryRequest);
+        long predictionDataFreqInSecs = derivePredDataFreqFromConsecutiveItems(queryResult.getItems());
+
+        // Write latestPredictionUUID and latestPredictionDataFrequency to PredictionMetadata table IN A SINGLE TRANSACTION
+        Map<String, AttributeValue> latestPredictionUUIDItem = new HashMap<>();
+        latestPredictionUUIDItem.put(DYNAMODB_PREDICTION_METADATA_HASH_KEY_NAME,
+                new AttributeValue(DYNAMODB_PREDICTION_METADATA_LATEST_PRED_UUID_ATTR_NAME));
+        latestPredictionUUIDItem.put(DYNAMODB_PREDICTION_METADATA_ATTRIBUTE_NAME, new AttributeValue(forecastExportJobName));
+        Put latestPredictionUUIDItemWrite = new Put()
+                .withTableName(DYNAMODB_PREDICTION_METADATA_TABLE_NAME)
+                .withItem(latestPredictionUUIDItem);
+
+        Map<String, AttributeValue> latestPredictionDataFrequencyItem = new HashMap<>();
+        latestPredictionDataFrequencyItem.put(DYNAMODB_PREDICTION_METADATA_HASH_KEY_NAME,
+                new AttributeValue(DYNAMODB_PREDICTION_METADATA_LATEST_PRED_DATA_FREQ_IN_SEC_ATTR_NAME));
+        latestPredictionDataFrequencyItem.put(DYNAMODB_PREDICTION_METADATA_ATTRIBUTE_NAME,
+                new AttributeValue(String.valueOf(predictionDataFreqInSecs)));
+        Put latestPredictionDataFrequencyWrite = new Put()
+                .withTableName(DYNAMODB_PREDICTION_METADATA_TABLE_NAME)
+                .withItem(latestPredictionDataFrequencyItem);
+
+        Collection<TransactWriteItem> transactWrites = Arrays.asList(
+                new TransactWriteItem().withPut(latestPredictionUUIDItemWrite),
+                new TransactWriteItem().withPut(latestPredictionDataFrequencyWrite)
+        );
+        TransactWriteItemsRequest writeItemsRequest = new TransactWriteItemsRequest()
+                .withTransactItems(transactWrites);
+
+        ddbClient.transactWriteItems(writeItemsRequest);
+        log.info(String.format("Finish updating new metadata items for the latest prediction from %s", srcKey));
+    }
+
+    /**
+     * Upload the snapshot of "target/fej_1571260106456_2019-10-16T21-40-00Z_part0.csv" to
+     * "snapshot/fej_1571260106456_2019-10-16T21-40-00Z_part0.snapshot".
+     */
+    private void uploadSnapshot(final String srcBucket, final String srcKey, final PredictionSnapshotBuilder snapshotBuilder) {
+        String fileName = srcKey.substring(srcKey.indexOf('/') + 1);
+        String snapshotKey = String.format("%s/%s%s", PREDICTION_SNAPSHOT_S3_FOLDER,
+                StringUtils.removeEnd(fileName, PREDICTION_RESULT_FILE_EXTENSION), PredictionSnapshotFormat.FILE_EXTENSION);
+
+        /*
+         * Stream the snapshot to S3 as it is written, so that only a few upload parts are held in memory however big
+         * the snapshot is, instead of the whole snapshot and its copy for every file being loaded concurrently.
+         */
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentType(PREDICTION_SNAPSHOT_CONTENT_TYPE);
+        S3MultipartUploadOutputStream s3OutputStream = new S3MultipartUploadOutputStream(s3Client, srcBucket, snapshotKey,
+                objectMetadata);
+        long snapshotSize;
+        try {
+            snapshotSize = snapshotBuilder.writeTo(new BufferedOutputStream(s3OutputStream, SNAPSHOT_WRITE_BUFFER_SIZE));
+            s3OutputStream.close();
+        } catch (IOException | RuntimeException e) {
+            s3OutputStream.abort();
+            throw new RuntimeException(String.format("Failed to upload the prediction snapshot of %s", srcKey), e);
+        }
+        log.info(String.format("Finish uploading the prediction snapshot of %d records to %s in %d bytes",
+                snapshotBuilder.getNumberOfRows(), snapshotKey, snapshotSize));
+    }
+
+    /**
+     * Derive the data frequency by calculating the diff on the rangeKey(timestamp) for the top two items.
+     * We can make the assumption that one prediction result file can only have one data frequency.
+     * @return The data frequency(window size) in seconds
+     */
+    private long derivePredDataFreqFromConsecutiveItems(List<Map<String, AttributeValue>> items) {
+        if (items == null || items.size() < REQUIRED_NUMBER_OF_PREDICTION_RESULT_ITEMS_FOR_DERIVING_DATA_FREQUENCY) {
+            throw new RuntimeException(String.format("Passed in items contains %d item, which is less than 2.",
+                    items == null ? 0 : items.size()));
+        }
+
+        Map<String, AttributeValue> firstItem = items.get(0);
+        Map<String, AttributeValue> secondItem = items.get(1);
+        String firstTsStr = firstItem.get(DYNAMODB_PREDICTION_TABLE_RANGE_KEY_NAME).getS();
+        String secondTsStr = secondItem.get(DYNAMODB_PREDICTION_TABLE_RANGE_KEY_NAME).getS();
+        long dataFreqInSeconds = Math.abs(new Duration(PREDICTION_TIMESTAMP_FORMATTER.parseDateTime(firstTsStr),
+                PREDICTION_TIMESTAMP_FORMATTER.parseDateTime(secondTsStr)).getStandardSeconds());
+
+        if (dataFreqInSeconds == 0) {
+            throw new RuntimeException(String.format("dataFreqInSeconds [%d] derived from firstItem [%s] and secondItem [%s] is 0",
+                    dataFreqInSeconds, firstItem.toString(), secondItem.toString()));
+        }
+        return dataFreqInSeconds;
+    }
+}
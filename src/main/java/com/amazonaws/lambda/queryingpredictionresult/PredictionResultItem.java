@@ -4,12 +4,16 @@ import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBRangeKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.opencsv.bean.CsvBindByName;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -51,5 +55,20 @@ public class PredictionResultItem {
     @DynamoDBAttribute(attributeName = Attribute.EXPIRATION_TIME)
     @CsvBindByName
     private long expirationTime;
+
+    /**
+     * Convert the item to its DynamoDB representation without going through the reflection of {@link
+     * com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper}, the attribute names are the same as the mapped ones.
+     */
+    public Map<String, AttributeValue> toAttributeValueMap() {
+        Map<String, AttributeValue> attributeValueMap = new HashMap<>();
+        attributeValueMap.put(Attribute.ITEM_ID, new AttributeValue(hashKey));
+        attributeValueMap.put(Attribute.DATE, new AttributeValue(sortKey));
+        attributeValueMap.put(Attribute.P10, new AttributeValue().withN(String.valueOf(p10)));
+        attributeValueMap.put(Attribute.P50, new AttributeValue().withN(String.valueOf(p50)));
+        attributeValueMap.put(Attribute.P90, new AttributeValue().withN(String.valueOf(p90)));
+        attributeValueMap.put(Attribute.EXPIRATION_TIME, new AttributeValue().withN(String.valueOf(expirationTime)));
+        return attributeValueMap;
+    }
 }
 
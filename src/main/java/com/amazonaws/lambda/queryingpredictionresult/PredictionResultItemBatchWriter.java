@@ -0,0 +1,280 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.google.common.annotations.VisibleForTesting;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Writes {@link PredictionResultItem}s to DynamoDB with multiple concurrent in-flight BatchWriteItem calls.
+ *
+ * Items are grouped into 25-item batches (the BatchWriteItem limit), and each batch is sent on a worker thread.
+ * The number of in-flight batches is bounded, so the producer blocks instead of buffering the whole file
+ * when DynamoDB cannot keep up. UnprocessedItems returned by DynamoDB (i.e. throttled writes) are retried
+ * with exponential backoff and full jitter.
+ *
+ * The worker threads and the in-flight limit can also be shared by several writers, e.g. for loading multiple files
+ * concurrently without multiplying the write pressure on the table.
+ *
+ * This class is not thread-safe, it is expected to be fed by a single producer thread.
+ */
+@Slf4j
+public class PredictionResultItemBatchWriter implements AutoCloseable {
+
+    // Refer to: https://docs.aws.amazon.com/amazondynamodb/latest/APIReference/API_BatchWriteItem.html
+    @VisibleForTesting
+    static final int MAX_NUMBER_OF_ITEMS_PER_BATCH_WRITE = 25;
+    @VisibleForTesting
+    static final int MAX_NUMBER_OF_BATCH_WRITE_ATTEMPTS = 10;
+    private static final long BASE_BACKOFF_IN_MILLIS = 50L;
+    private static final long MAX_BACKOFF_IN_MILLIS = 5000L;
+
+    private final AmazonDynamoDB ddbClient;
+    private final String tableName;
+    private final long baseBackoffInMillis;
+    private final ExecutorService batchWriteExecutor;
+    private final boolean ownsBatchWriteExecutor;
+    private final Semaphore inFlightBatchWrites;
+    private final Deque<Future<?>> inFlightBatchWriteFutures = new ArrayDeque<>();
+    private List<WriteRequest> pendingWriteRequests = new ArrayList<>(MAX_NUMBER_OF_ITEMS_PER_BATCH_WRITE);
+    private volatile boolean closed;
+
+    private final AtomicLong numberOfItems = new AtomicLong();
+    private final AtomicLong numberOfBatchWrites = new AtomicLong();
+    private final AtomicLong numberOfBatchWriteCalls = new AtomicLong();
+    private final AtomicLong numberOfThrottledBatchWriteCalls = new AtomicLong();
+    private final AtomicLong totalBatchWriteLatencyInMillis = new AtomicLong();
+    private final LongAccumulator maxBatchWriteLatencyInMillis = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * @param ddbClient the DynamoDB client used for sending the BatchWriteItem requests
+     * @param tableName the table the items are written to
+     * @param maxNumberOfInFlightBatchWrites the max number of concurrent BatchWriteItem calls
+     */
+    public PredictionResultItemBatchWriter(final AmazonDynamoDB ddbClient,
+                                           final String tableName,
+                                           final int maxNumberOfInFlightBatchWrites) {
+        this(ddbClient, tableName, maxNumberOfInFlightBatchWrites, BASE_BACKOFF_IN_MILLIS);
+    }
+
+    /**
+     * @param ddbClient the DynamoDB client used for sending the BatchWriteItem requests
+     * @param tableName the table the items are written to
+     * @param batchWriteExecutor the shared worker threads, there should be at least as many threads as the permits
+     *                           of inFlightBatchWrites. It is not shut down when the writer is closed.
+     * @param inFlightBatchWrites the shared limit of concurrent BatchWriteItem calls
+     */
+    public PredictionResultItemBatchWriter(final AmazonDynamoDB ddbClient,
+                                           final String tableName,
+                                           final ExecutorService batchWriteExecutor,
+                                           final Semaphore inFlightBatchWrites) {
+        this(ddbClient, tableName, batchWriteExecutor, false, inFlightBatchWrites, BASE_BACKOFF_IN_MILLIS);
+    }
+
+    @VisibleForTesting
+    PredictionResultItemBatchWriter(final AmazonDynamoDB ddbClient,
+                                    final String tableName,
+                                    final int maxNumberOfInFlightBatchWrites,
+                                    final long baseBackoffInMillis) {
+        this(ddbClient, tableName, newBatchWriteExecutor(maxNumberOfInFlightBatchWrites), true,
+                new Semaphore(maxNumberOfInFlightBatchWrites), baseBackoffInMillis);
+    }
+
+    private PredictionResultItemBatchWriter(final AmazonDynamoDB ddbClient,
+                                            final String tableName,
+                                            final ExecutorService batchWriteExecutor,
+                                            final boolean ownsBatchWriteExecutor,
+                                            final Semaphore inFlightBatchWrites,
+                                            final long baseBackoffInMillis) {
+        this.ddbClient = ddbClient;
+        this.tableName = tableName;
+        this.baseBackoffInMillis = baseBackoffInMillis;
+        this.batchWriteExecutor = batchWriteExecutor;
+        this.ownsBatchWriteExecutor = ownsBatchWriteExecutor;
+        this.inFlightBatchWrites = inFlightBatchWrites;
+    }
+
+    private static ExecutorService newBatchWriteExecutor(final int maxNumberOfInFlightBatchWrites) {
+        if (maxNumberOfInFlightBatchWrites <= 0) {
+            throw new IllegalArgumentException(String.format("maxNumberOfInFlightBatchWrites [%d] should be positive",
+                    maxNumberOfInFlightBatchWrites));
+        }
+        return Executors.newFixedThreadPool(maxNumberOfInFlightBatchWrites);
+    }
+
+    /**
+     * Buffer the item, and send the buffered items once there are enough of them for a full batch.
+     * The item is converted to its DynamoDB representation right away, so the caller is free to reuse it.
+     */
+    public void write(final PredictionResultItem item) {
+        pendingWriteRequests.add(new WriteRequest().withPutRequest(new PutRequest().withItem(item.toAttributeValueMap())));
+        if (pendingWriteRequests.size() >= MAX_NUMBER_OF_ITEMS_PER_BATCH_WRITE) {
+            submitPendingWriteRequests();
+        }
+    }
+
+    /**
+     * Send the remaining buffered items and wait until all the in-flight batches are written.
+     *
+     * @throws RuntimeException if any batch cannot be written after all the retries
+     */
+    public void flush() {
+        submitPendingWriteRequests();
+        while (!inFlightBatchWriteFutures.isEmpty()) {
+            waitForCompletion(inFlightBatchWriteFutures.poll());
+        }
+    }
+
+    public BatchWriteStats getStats() {
+        long batchWrites = numberOfBatchWrites.get();
+        return new BatchWriteStats(numberOfItems.get(),
+                batchWrites,
+                numberOfBatchWriteCalls.get(),
+                numberOfThrottledBatchWriteCalls.get(),
+                batchWrites == 0 ? 0L : totalBatchWriteLatencyInMillis.get() / batchWrites,
+                maxBatchWriteLatencyInMillis.get());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (ownsBatchWriteExecutor) {
+            batchWriteExecutor.shutdownNow();
+        }
+    }
+
+    private void submitPendingWriteRequests() {
+        if (pendingWriteRequests.isEmpty()) {
+            return;
+        }
+        final List<WriteRequest> batch = pendingWriteRequests;
+        pendingWriteRequests = new ArrayList<>(MAX_NUMBER_OF_ITEMS_PER_BATCH_WRITE);
+
+        // Block the producer while there are too many batches in flight, it bounds both the memory and the concurrency
+        try {
+            inFlightBatchWrites.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for an in-flight batch write to finish", e);
+        }
+        try {
+            inFlightBatchWriteFutures.add(batchWriteExecutor.submit(() -> {
+                try {
+                    // The queued batches of a closed writer are dropped, e.g. when the loading failed in the middle
+                    if (!closed) {
+                        writeBatch(batch);
+                    }
+                } finally {
+                    inFlightBatchWrites.release();
+                }
+            }));
+        } catch (RuntimeException e) {
+            inFlightBatchWrites.release();
+            throw e;
+        }
+
+        // Surface the failures of the finished batches as early as possible
+        Iterator<Future<?>> inFlightBatchWriteFuturesIterator = inFlightBatchWriteFutures.iterator();
+        while (inFlightBatchWriteFuturesIterator.hasNext()) {
+            Future<?> batchWriteFuture = inFlightBatchWriteFuturesIterator.next();
+            if (batchWriteFuture.isDone()) {
+                inFlightBatchWriteFuturesIterator.remove();
+                waitForCompletion(batchWriteFuture);
+            }
+        }
+    }
+
+    private void writeBatch(final List<WriteRequest> batch) {
+        long batchWriteStartTime = System.currentTimeMillis();
+        Map<String, List<WriteRequest>> requestItems = Collections.singletonMap(tableName, batch);
+
+        for (int attempt = 1; ; attempt++) {
+            numberOfBatchWriteCalls.incrementAndGet();
+            Map<String, List<WriteRequest>> unprocessedItems;
+            try {
+                BatchWriteItemResult batchWriteItemResult = ddbClient.batchWriteItem(
+                        new BatchWriteItemRequest().withRequestItems(requestItems));
+                unprocessedItems = batchWriteItemResult.getUnprocessedItems();
+            } catch (ProvisionedThroughputExceededException e) {
+                // The client already retried internally, so we keep retrying the whole batch with a longer backoff
+                unprocessedItems = requestItems;
+            }
+
+            if (unprocessedItems == null || unprocessedItems.isEmpty()) {
+                break;
+            }
+
+            numberOfThrottledBatchWriteCalls.incrementAndGet();
+            if (attempt >= MAX_NUMBER_OF_BATCH_WRITE_ATTEMPTS) {
+                throw new RuntimeException(String.format("Failed to write %d items to table %s after %d attempts",
+                        unprocessedItems.getOrDefault(tableName, Collections.emptyList()).size(), tableName, attempt));
+            }
+            requestItems = unprocessedItems;
+            sleepBeforeRetry(attempt);
+        }
+
+        long batchWriteLatencyInMillis = System.currentTimeMillis() - batchWriteStartTime;
+        numberOfItems.addAndGet(batch.size());
+        numberOfBatchWrites.incrementAndGet();
+        totalBatchWriteLatencyInMillis.addAndGet(batchWriteLatencyInMillis);
+        maxBatchWriteLatencyInMillis.accumulate(batchWriteLatencyInMillis);
+        log.debug(String.format("Wrote a batch of %d items in %d ms", batch.size(), batchWriteLatencyInMillis));
+    }
+
+    /**
+     * Exponential backoff with full jitter, refer to:
+     * https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/
+     */
+    private void sleepBeforeRetry(final int attempt) {
+        long backoffCapInMillis = Math.min(MAX_BACKOFF_IN_MILLIS, baseBackoffInMillis << Math.min(attempt, 16));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoffCapInMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while backing off the batch write retry", e);
+        }
+    }
+
+    private void waitForCompletion(final Future<?> batchWriteFuture) {
+        try {
+            batchWriteFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the batch write to finish", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    @Value
+    public static class BatchWriteStats {
+        long numberOfItems;
+        long numberOfBatchWrites;
+        long numberOfBatchWriteCalls;
+        long numberOfThrottledBatchWriteCalls;
+        long averageBatchWriteLatencyInMillis;
+        long maxBatchWriteLatencyInMillis;
+    }
+}
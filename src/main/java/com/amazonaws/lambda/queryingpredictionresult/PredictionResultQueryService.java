@@ -0,0 +1,341 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.google.common.annotations.VisibleForTesting;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the latest predictions back from the DynamoDB tables populated by {@link PredictionResultFileLoader}.
+ *
+ * The latest forecast export job name is resolved from the (cached) prediction metadata, then all the predictions
+ * of the item within the time range are fetched by a single (paginated) Query on the composite hash key
+ * "item_id$exportJobName", projecting only the attributes in the response. The whole forecast horizon of the hot items
+ * is kept in a {@link PredictionResultCache}, so that their repeated queries are served in memory.
+ *
+ * For many items at once, the Queries are fanned out on a bounded number of threads, and the results are streamed
+ * back in the same order as the requested items.
+ */
+@Slf4j
+public class PredictionResultQueryService {
+
+    private static final String DYNAMODB_PREDICTION_TABLE_NAME = System.getenv("PREDICTION_TABLE_NAME");
+    private static final String DYNAMODB_PREDICTION_TABLE_HASH_KEY_NAME = System.getenv("PREDICTION_TABLE_HASH_KEY");
+    private static final String DYNAMODB_PREDICTION_TABLE_RANGE_KEY_NAME = System.getenv("PREDICTION_TABLE_RANGE_KEY");
+
+    // "date" is a DynamoDB reserved word, so all the attribute names are referenced by placeholders
+    private static final String QUERY_HASH_KEY_CONDITION_EXPRESSION = "#hashKey = :hashKey";
+    private static final String QUERY_KEY_CONDITION_EXPRESSION = QUERY_HASH_KEY_CONDITION_EXPRESSION + " AND #rangeKey BETWEEN :startDate AND :endDate";
+    private static final String QUERY_PROJECTION_EXPRESSION = "#rangeKey, #p10, #p50, #p90, #expirationTime";
+
+    // A Query returns at most 1 MB per page, no need to limit the page size unless testing the pagination
+    private static final Integer DEFAULT_QUERY_PAGE_SIZE = null;
+
+    // The max number of concurrent Query calls of a bulk query, it should be tuned along with the table's read capacity
+    private static final int DEFAULT_MAX_CONCURRENT_QUERIES = 16;
+    private static final int DYNAMODB_PREDICTION_TABLE_MAX_CONCURRENT_QUERIES = NumberUtils.toInt(
+            System.getenv("PREDICTION_TABLE_MAX_CONCURRENT_QUERIES"), DEFAULT_MAX_CONCURRENT_QUERIES);
+    // Keep more queries in flight than the threads, so that a slow item doesn't drain the pipeline
+    private static final int IN_FLIGHT_QUERIES_PER_THREAD = 2;
+    @VisibleForTesting
+    static final int MAX_NUMBER_OF_QUERY_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_IN_MILLIS = 50L;
+    private static final long MAX_BACKOFF_IN_MILLIS = 2000L;
+
+    private final AmazonDynamoDB ddbClient;
+    private final PredictionMetadataCache predictionMetadataCache;
+    private final PredictionResultCache predictionResultCache;
+    private final Integer queryPageSize;
+    private final ExecutorService queryExecutor;
+    private final int maxNumberOfInFlightQueries;
+    private final long baseBackoffInMillis;
+
+    public PredictionResultQueryService(@NonNull final AmazonDynamoDB ddbClient) {
+        this(ddbClient, new PredictionMetadataCache(ddbClient), new PredictionResultCache(), DEFAULT_QUERY_PAGE_SIZE,
+                DYNAMODB_PREDICTION_TABLE_MAX_CONCURRENT_QUERIES, BASE_BACKOFF_IN_MILLIS);
+    }
+
+    @VisibleForTesting
+    PredictionResultQueryService(@NonNull final AmazonDynamoDB ddbClient,
+                                 @NonNull final PredictionMetadataCache predictionMetadataCache,
+                                 final Integer queryPageSize) {
+        this(ddbClient, predictionMetadataCache, queryPageSize, DYNAMODB_PREDICTION_TABLE_MAX_CONCURRENT_QUERIES,
+                BASE_BACKOFF_IN_MILLIS);
+    }
+
+    @VisibleForTesting
+    PredictionResultQueryService(@NonNull final AmazonDynamoDB ddbClient,
+                                 @NonNull final PredictionMetadataCache predictionMetadataCache,
+                                 final Integer queryPageSize,
+                                 final int maxNumberOfConcurrentQueries,
+                                 final long baseBackoffInMillis) {
+        // The prediction result cache is disabled, so that every query reaches DynamoDB
+        this(ddbClient, predictionMetadataCache, new PredictionResultCache(0L), queryPageSize,
+                maxNumberOfConcurrentQueries, baseBackoffInMillis);
+    }
+
+    @VisibleForTesting
+    PredictionResultQueryService(@NonNull final AmazonDynamoDB ddbClient,
+                                 @NonNull final PredictionMetadataCache predictionMetadataCache,
+                                 @NonNull final PredictionResultCache predictionResultCache,
+                                 final Integer queryPageSize,
+                                 final int maxNumberOfConcurrentQueries,
+                                 final long baseBackoffInMillis) {
+        if (maxNumberOfConcurrentQueries <= 0) {
+            throw new IllegalArgumentException(String.format("maxNumberOfConcurrentQueries [%d] should be positive",
+                    maxNumberOfConcurrentQueries));
+        }
+        this.ddbClient = ddbClient;
+        this.predictionMetadataCache = predictionMetadataCache;
+        this.predictionResultCache = predictionResultCache;
+        this.queryPageSize = queryPageSize;
+        this.queryExecutor = Executors.newFixedThreadPool(maxNumberOfConcurrentQueries, runnable -> {
+            Thread thread = new Thread(runnable, "prediction-result-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxNumberOfInFlightQueries = maxNumberOfConcurrentQueries * IN_FLIGHT_QUERIES_PER_THREAD;
+        this.baseBackoffInMillis = baseBackoffInMillis;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the request is invalid
+     * @throws IllegalStateException if there is no prediction result loaded yet
+     */
+    public QueryPredictionResultResponse query(final QueryPredictionResultRequest request) {
+        if (request == null || StringUtils.isBlank(request.getItemId())) {
+            throw new IllegalArgumentException("itemId is required");
+        }
+        validateDateRange(request.getStartDate(), request.getEndDate());
+
+        PredictionMetadataCache.PredictionMetadata predictionMetadata = predictionMetadataCache.get();
+        return makeResponse(request.getItemId(), predictionMetadata, getPredictions(request.getItemId(),
+                request.getStartDate(), request.getEndDate(), predictionMetadata.getForecastExportJobName()));
+    }
+
+    /**
+     * Query the predictions of many items within the same time range, all of them from the same latest prediction.
+     * The items are queried concurrently, while the results are passed to the consumer one by one on the calling thread,
+     * in the same order as the requested items. An item without any prediction gets an empty list of predictions.
+     *
+     * Only a bounded number of results are buffered, so the whole catalog can be streamed through a consumer
+     * without holding all of it in memory.
+     *
+     * @throws IllegalArgumentException if the request is invalid
+     * @throws IllegalStateException if there is no prediction result loaded yet
+     * @throws RuntimeException if any item cannot be queried after all the retries
+     */
+    public void bulkQuery(final BulkQueryPredictionResultRequest request,
+                          final Consumer<QueryPredictionResultResponse> responseConsumer) {
+        if (request == null || request.getItemIds() == null || request.getItemIds().isEmpty()) {
+            throw new IllegalArgumentException("itemIds is required");
+        }
+        if (request.getItemIds().stream().anyMatch(StringUtils::isBlank)) {
+            throw new IllegalArgumentException("itemIds should not contain any blank item id");
+        }
+        validateDateRange(request.getStartDate(), request.getEndDate());
+
+        PredictionMetadataCache.PredictionMetadata predictionMetadata = predictionMetadataCache.get();
+        String forecastExportJobName = predictionMetadata.getForecastExportJobName();
+        long startTime = System.currentTimeMillis();
+
+        Iterator<String> itemIdIterator = request.getItemIds().iterator();
+        Deque<InFlightQuery> inFlightQueries = new ArrayDeque<>();
+        try {
+            while (itemIdIterator.hasNext() || !inFlightQueries.isEmpty()) {
+                // Keep the sliding window full, then hand over the result of its oldest item
+                while (itemIdIterator.hasNext() && inFlightQueries.size() < maxNumberOfInFlightQueries) {
+                    String itemId = itemIdIterator.next();
+                    inFlightQueries.add(new InFlightQuery(itemId, queryExecutor.submit(() -> getPredictions(
+                            itemId, request.getStartDate(), request.getEndDate(), forecastExportJobName))));
+                }
+
+                InFlightQuery oldestQuery = inFlightQueries.poll();
+                responseConsumer.accept(makeResponse(oldestQuery.getItemId(), predictionMetadata,
+                        waitForCompletion(oldestQuery)));
+            }
+        } finally {
+            // Stop the remaining queries if the consumer or any query failed
+            inFlightQueries.forEach(inFlightQuery -> inFlightQuery.getPredictionsFuture().cancel(true));
+        }
+
+        log.info(String.format("Finish querying the predictions of %d items from %s in %d ms",
+                request.getItemIds().size(), forecastExportJobName, System.currentTimeMillis() - startTime));
+    }
+
+    private QueryPredictionResultResponse makeResponse(final String itemId,
+                                                       final PredictionMetadataCache.PredictionMetadata predictionMetadata,
+                                                       final List<QueryPredictionResultResponse.Prediction> predictions) {
+        return QueryPredictionResultResponse.builder()
+                .itemId(itemId)
+                .forecastExportJobName(predictionMetadata.getForecastExportJobName())
+                .dataFrequencyInSeconds(predictionMetadata.getDataFrequencyInSeconds())
+                .predictions(predictions)
+                .build();
+    }
+
+    private List<QueryPredictionResultResponse.Prediction> getPredictions(final String itemId,
+                                                                          final String startDate,
+                                                                          final String endDate,
+                                                                          final String forecastExportJobName) {
+        if (!predictionResultCache.isEnabled()) {
+            return queryPredictions(itemId, startDate, endDate, forecastExportJobName).getPredictions();
+        }
+
+        // The dates are compared as strings, the same way as the BETWEEN condition of the Query
+        List<QueryPredictionResultResponse.Prediction> horizon = predictionResultCache.get(forecastExportJobName, itemId,
+                () -> queryPredictions(itemId, null, null, forecastExportJobName));
+        return horizon.stream()
+                .filter(prediction -> prediction.getDate().compareTo(startDate) >= 0 && prediction.getDate().compareTo(endDate) <= 0)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param startDate null together with the endDate to query the whole forecast horizon of the item
+     * @return the predictions with the earliest expirationTime of their items, Long.MAX_VALUE without any
+     */
+    private PredictionResultCache.ItemPredictions queryPredictions(final String itemId,
+                                                                            final String startDate,
+                                                                            final String endDate,
+                                                                            final String forecastExportJobName) {
+        Map<String, String> expressionAttributeNames = new HashMap<>();
+        expressionAttributeNames.put("#hashKey", DYNAMODB_PREDICTION_TABLE_HASH_KEY_NAME);
+        expressionAttributeNames.put("#rangeKey", DYNAMODB_PREDICTION_TABLE_RANGE_KEY_NAME);
+        expressionAttributeNames.put("#p10", PredictionResultItem.Attribute.P10);
+        expressionAttributeNames.put("#p50", PredictionResultItem.Attribute.P50);
+        expressionAttributeNames.put("#p90", PredictionResultItem.Attribute.P90);
+        expressionAttributeNames.put("#expirationTime", PredictionResultItem.Attribute.EXPIRATION_TIME);
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":hashKey", new AttributeValue(String.format("%s%s%s",
+                itemId, PredictionResultFileLoader.PREDICTION_TABLE_CSV_VALUE_SPLITTER, forecastExportJobName)));
+        String keyConditionExpression = QUERY_HASH_KEY_CONDITION_EXPRESSION;
+        if (startDate != null) {
+            expressionAttributeValues.put(":startDate", new AttributeValue(startDate));
+            expressionAttributeValues.put(":endDate", new AttributeValue(endDate));
+            keyConditionExpression = QUERY_KEY_CONDITION_EXPRESSION;
+        }
+
+        QueryRequest queryRequest = new QueryRequest()
+                .withTableName(DYNAMODB_PREDICTION_TABLE_NAME)
+                .withKeyConditionExpression(keyConditionExpression)
+                .withProjectionExpression(QUERY_PROJECTION_EXPRESSION)
+                .withExpressionAttributeNames(expressionAttributeNames)
+                .withExpressionAttributeValues(expressionAttributeValues)
+                .withScanIndexForward(true) /* ascending order for the range key*/
+                .withLimit(queryPageSize);
+
+        List<QueryPredictionResultResponse.Prediction> predictions = new ArrayList<>();
+        long expirationTime = Long.MAX_VALUE;
+        int numberOfPages = 0;
+        do {
+            QueryResult queryResult = queryWithRetry(queryRequest);
+            for (Map<String, AttributeValue> item : queryResult.getItems()) {
+                predictions.add(QueryPredictionResultResponse.Prediction.builder()
+                        .date(item.get(DYNAMODB_PREDICTION_TABLE_RANGE_KEY_NAME).getS())
+                        .p10(Double.parseDouble(item.get(PredictionResultItem.Attribute.P10).getN()))
+                        .p50(Double.parseDouble(item.get(PredictionResultItem.Attribute.P50).getN()))
+                        .p90(Double.parseDouble(item.get(PredictionResultItem.Attribute.P90).getN()))
+                        .build());
+                AttributeValue itemExpirationTime = item.get(PredictionResultItem.Attribute.EXPIRATION_TIME);
+                if (itemExpirationTime != null) {
+                    expirationTime = Math.min(expirationTime, Long.parseLong(itemExpirationTime.getN()));
+                }
+            }
+            numberOfPages++;
+            queryRequest.setExclusiveStartKey(queryResult.getLastEvaluatedKey());
+        } while (queryRequest.getExclusiveStartKey() != null);
+
+        log.debug(String.format("Found %d predictions of item %s from %s in %d pages",
+                predictions.size(), itemId, forecastExportJobName, numberOfPages));
+        return new PredictionResultCache.ItemPredictions(Collections.unmodifiableList(predictions), expirationTime);
+    }
+
+    /**
+     * The client already retried the throttled Query internally, under a bulk query the whole fan-out is likely
+     * throttled though, so the page is retried again with exponential backoff and full jitter.
+     */
+    private QueryResult queryWithRetry(final QueryRequest queryRequest) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return ddbClient.query(queryRequest);
+            } catch (ProvisionedThroughputExceededException e) {
+                if (attempt >= MAX_NUMBER_OF_QUERY_ATTEMPTS) {
+                    throw new RuntimeException(String.format("Failed to query %s from table %s after %d attempts",
+                            queryRequest.getExpressionAttributeValues().get(":hashKey").getS(),
+                            DYNAMODB_PREDICTION_TABLE_NAME, attempt), e);
+                }
+                long backoffCapInMillis = Math.min(MAX_BACKOFF_IN_MILLIS, baseBackoffInMillis << attempt);
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(backoffCapInMillis + 1));
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while backing off the query retry", interruptedException);
+                }
+            }
+        }
+    }
+
+    private List<QueryPredictionResultResponse.Prediction> waitForCompletion(final InFlightQuery inFlightQuery) {
+        try {
+            return inFlightQuery.getPredictionsFuture().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the query to finish", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                    : new RuntimeException(String.format("Failed to query the predictions of item %s", inFlightQuery.getItemId()), cause);
+        }
+    }
+
+    private void validateDateRange(final String startDate, final String endDate) {
+        Instant startTime = parseDate(startDate, "startDate");
+        Instant endTime = parseDate(endDate, "endDate");
+        if (startTime.isAfter(endTime)) {
+            throw new IllegalArgumentException(String.format("startDate [%s] is after endDate [%s]", startDate, endDate));
+        }
+    }
+
+    private Instant parseDate(final String date, final String fieldName) {
+        if (StringUtils.isBlank(date)) {
+            throw new IllegalArgumentException(String.format("%s is required", fieldName));
+        }
+        try {
+            return Instant.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(String.format("%s [%s] should be like 2019-01-01T00:00:00Z", fieldName, date), e);
+        }
+    }
+
+    @Value
+    private static class InFlightQuery {
+        String itemId;
+        Future<List<QueryPredictionResultResponse.Prediction>> predictionsFuture;
+    }
+}
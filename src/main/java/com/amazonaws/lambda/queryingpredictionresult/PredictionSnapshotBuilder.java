@@ -0,0 +1,249 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a prediction snapshot, see {@link PredictionSnapshotFormat}, from the records of a prediction result file.
+ *
+ * The columns are only known in full at the end of the file, so the records are kept in primitive arrays in the
+ * meantime, which takes about 20 bytes per record plus the distinct item ids, instead of a PredictionResultItem each.
+ */
+public class PredictionSnapshotBuilder {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Integer> itemIdIndices = new HashMap<>();
+    private final List<String> itemIds = new ArrayList<>();
+
+    private int numberOfRows;
+    private int[] rowItemIndices = new int[INITIAL_CAPACITY];
+    private long[] rowDates = new long[INITIAL_CAPACITY];
+    private float[] rowP10s = new float[INITIAL_CAPACITY];
+    private float[] rowP50s = new float[INITIAL_CAPACITY];
+    private float[] rowP90s = new float[INITIAL_CAPACITY];
+
+    /**
+     * @param itemId the item id as it is in the prediction result file, without the forecast export job name
+     * @param item the hash key of the item is ignored, so the item can be reused once added
+     */
+    public void add(final String itemId, final PredictionResultItem item) {
+        if (itemId.getBytes(StandardCharsets.UTF_8).length > PredictionSnapshotFormat.MAX_ITEM_ID_LENGTH) {
+            throw new IllegalArgumentException(String.format("item_id [%s] is longer than %d bytes",
+                    itemId, PredictionSnapshotFormat.MAX_ITEM_ID_LENGTH));
+        }
+        long date;
+        try {
+            date = Instant.parse(item.getSortKey()).getEpochSecond();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(String.format("date [%s] of item_id [%s] should be like 2019-01-01T00:00:00Z",
+                    item.getSortKey(), itemId), e);
+        }
+
+        Integer itemIndex = itemIdIndices.get(itemId);
+        if (itemIndex == null) {
+            itemIndex = itemIds.size();
+            itemIdIndices.put(itemId, itemIndex);
+            itemIds.add(itemId);
+        }
+
+        if (numberOfRows == rowDates.length) {
+            int capacity = rowDates.length * 2;
+            rowItemIndices = Arrays.copyOf(rowItemIndices, capacity);
+            rowDates = Arrays.copyOf(rowDates, capacity);
+            rowP10s = Arrays.copyOf(rowP10s, capacity);
+            rowP50s = Arrays.copyOf(rowP50s, capacity);
+            rowP90s = Arrays.copyOf(rowP90s, capacity);
+        }
+        rowItemIndices[numberOfRows] = itemIndex;
+        rowDates[numberOfRows] = date;
+        rowP10s[numberOfRows] = (float) item.getP10();
+        rowP50s[numberOfRows] = (float) item.getP50();
+        rowP90s[numberOfRows] = (float) item.getP90();
+        numberOfRows++;
+    }
+
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * Write the snapshot in a single sequential pass, so it can be streamed without being held in memory.
+     *
+     * @return the number of bytes written
+     */
+    public long writeTo(final OutputStream outputStream) throws IOException {
+        // Sort the items by their UTF-8 bytes, which is the order a reader compares them in
+        int numberOfItems = itemIds.size();
+        byte[][] itemIdBytes = new byte[numberOfItems][];
+        Integer[] sortedItemIndices = new Integer[numberOfItems];
+        for (int i = 0; i < numberOfItems; i++) {
+            itemIdBytes[i] = itemIds.get(i).getBytes(StandardCharsets.UTF_8);
+            sortedItemIndices[i] = i;
+        }
+        Arrays.sort(sortedItemIndices, (a, b) -> compareUnsigned(itemIdBytes[a], itemIdBytes[b]));
+        int[] itemRanks = new int[numberOfItems];
+        for (int rank = 0; rank < numberOfItems; rank++) {
+            itemRanks[sortedItemIndices[rank]] = rank;
+        }
+
+        // Bucket the rows by item in a single pass, the rows of an item are contiguous after that
+        int[] firstRows = new int[numberOfItems + 1];
+        for (int row = 0; row < numberOfRows; row++) {
+            firstRows[itemRanks[rowItemIndices[row]] + 1]++;
+        }
+        for (int rank = 0; rank < numberOfItems; rank++) {
+            firstRows[rank + 1] += firstRows[rank];
+        }
+        int[] sortedRows = new int[numberOfRows];
+        int[] nextRows = Arrays.copyOf(firstRows, numberOfItems);
+        for (int row = 0; row < numberOfRows; row++) {
+            sortedRows[nextRows[itemRanks[rowItemIndices[row]]]++] = row;
+        }
+
+        CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+        DataOutputStream out = new DataOutputStream(countingOutputStream);
+        out.write(PredictionSnapshotFormat.MAGIC);
+        out.writeInt(PredictionSnapshotFormat.VERSION);
+
+        long dictionaryOffset = countingOutputStream.getCount();
+        int[] itemIdOffsets = new int[numberOfItems];
+        for (int rank = 0; rank < numberOfItems; rank++) {
+            byte[] bytes = itemIdBytes[sortedItemIndices[rank]];
+            itemIdOffsets[rank] = toIntOffset(countingOutputStream.getCount() - dictionaryOffset);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+
+        long dateColumnOffset = countingOutputStream.getCount();
+        int[] dateOffsets = new int[numberOfItems];
+        for (int rank = 0; rank < numberOfItems; rank++) {
+            sortByDate(sortedRows, firstRows[rank], firstRows[rank + 1]);
+            dateOffsets[rank] = toIntOffset(countingOutputStream.getCount() - dateColumnOffset);
+            long previousDate = 0;
+            for (int i = firstRows[rank]; i < firstRows[rank + 1]; i++) {
+                long date = rowDates[sortedRows[i]];
+                writeZigzagVarLong(out, date - previousDate);
+                previousDate = date;
+            }
+        }
+
+        long p10ColumnOffset = writeFloatColumn(out, countingOutputStream, rowP10s, sortedRows);
+        long p50ColumnOffset = writeFloatColumn(out, countingOutputStream, rowP50s, sortedRows);
+        long p90ColumnOffset = writeFloatColumn(out, countingOutputStream, rowP90s, sortedRows);
+
+        long indexOffset = countingOutputStream.getCount();
+        for (int rank = 0; rank < numberOfItems; rank++) {
+            out.writeInt(itemIdOffsets[rank]);
+            out.writeInt(firstRows[rank]);
+            out.writeInt(firstRows[rank + 1] - firstRows[rank]);
+            out.writeInt(dateOffsets[rank]);
+        }
+
+        out.writeInt(numberOfItems);
+        out.writeInt(numberOfRows);
+        out.writeLong(dictionaryOffset);
+        out.writeLong(dateColumnOffset);
+        out.writeLong(p10ColumnOffset);
+        out.writeLong(p50ColumnOffset);
+        out.writeLong(p90ColumnOffset);
+        out.writeLong(indexOffset);
+        out.write(PredictionSnapshotFormat.MAGIC);
+        out.flush();
+        return countingOutputStream.getCount();
+    }
+
+    private long writeFloatColumn(final DataOutputStream out, final CountingOutputStream countingOutputStream,
+                                  final float[] values, final int[] sortedRows) throws IOException {
+        long columnOffset = countingOutputStream.getCount();
+        for (int i = 0; i < numberOfRows; i++) {
+            out.writeFloat(values[sortedRows[i]]);
+        }
+        return columnOffset;
+    }
+
+    /**
+     * The rows of an item are sorted by date in the prediction result file already, so an insertion sort is
+     * a single pass in practice, and it sorts the row indices in place without boxing them.
+     */
+    private void sortByDate(final int[] rows, final int from, final int to) {
+        for (int i = from + 1; i < to; i++) {
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= from && rowDates[rows[j]] > rowDates[row]) {
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            rows[j + 1] = row;
+        }
+    }
+
+    @VisibleForTesting
+    static void writeZigzagVarLong(final DataOutputStream out, final long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    @VisibleForTesting
+    static int compareUnsigned(final byte[] a, final byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int compared = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    private static int toIntOffset(final long offset) {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalStateException(String.format("Offset %d is too large for a prediction snapshot", offset));
+        }
+        return (int) offset;
+    }
+
+    /**
+     * {@link DataOutputStream#size()} is an int which overflows after 2 GB, so the written bytes are counted as a long.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(final OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
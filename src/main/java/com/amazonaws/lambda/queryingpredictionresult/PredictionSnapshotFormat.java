@@ -0,0 +1,39 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+/**
+ * The layout of a prediction snapshot, a compact binary columnar copy of a prediction result file for bulk consumers.
+ * All the numbers are big-endian, and all the offsets are from the beginning of the file.
+ *
+ * <pre>
+ * +----------------------------------------------------------------------------------------------------------+
+ * | header      | magic (4 bytes) | version (int)                                                          |
+ * | dictionary  | for each item: length of item_id (unsigned short) | UTF-8 bytes of item_id                 |
+ * | date column | for each item: zigzag varint deltas of the epoch seconds, the first one is from 0          |
+ * | p10 column  | for each row: float                                                                        |
+ * | p50 column  | for each row: float                                                                        |
+ * | p90 column  | for each row: float                                                                        |
+ * | index       | for each item: item_id offset (int) | first row (int) | number of rows (int) | date offset (int) |
+ * | footer      | number of items (int) | number of rows (int) | offsets of dictionary, date column, p10 column, |
+ * |             | p50 column, p90 column and index (long each) | magic (4 bytes)                                  |
+ * +----------------------------------------------------------------------------------------------------------+
+ * </pre>
+ *
+ * The items are sorted by the unsigned bytes of their UTF-8 item_id, both in the dictionary and in the index, and
+ * the rows of an item are contiguous and sorted by date. So a consumer can range-read the fixed size footer first,
+ * then binary search the index for an item, and only read the rows of that item from the columns it needs.
+ */
+final class PredictionSnapshotFormat {
+
+    static final byte[] MAGIC = {'P', 'S', 'N', 'P'};
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = MAGIC.length + Integer.BYTES;
+    static final int INDEX_ENTRY_SIZE = 4 * Integer.BYTES;
+    static final int FOOTER_SIZE = 2 * Integer.BYTES + 6 * Long.BYTES + MAGIC.length;
+    static final int MAX_ITEM_ID_LENGTH = 0xFFFF;
+
+    static final String FILE_EXTENSION = ".snapshot";
+
+    private PredictionSnapshotFormat() {
+    }
+}
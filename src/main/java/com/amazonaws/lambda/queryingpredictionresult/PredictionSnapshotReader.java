@@ -0,0 +1,274 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only reader of a downloaded prediction snapshot, see {@link PredictionSnapshotFormat}, for the batch
+ * consumers that need the predictions of many items without going through DynamoDB, e.g.
+ * <pre>
+ *     try (PredictionSnapshotReader reader = PredictionSnapshotReader.open(Paths.get("fej_1_part0.snapshot"))) {
+ *         PredictionSnapshotReader.PredictionSeries series = reader.getSeries("wp100");
+ *     }
+ * </pre>
+ *
+ * The file is memory-mapped, so only the pages being read are loaded and they are shared by all the readers of
+ * the file on the host. An item is found by a binary search over the sorted index, comparing the item ids in place,
+ * and its rows are decoded straight into primitive arrays. Nothing is allocated per row, and the caller can reuse
+ * its own arrays by calling the read methods with the item index.
+ *
+ * A reader is safe to be used from multiple threads, since it only reads the mapped buffer at absolute positions.
+ */
+public class PredictionSnapshotReader implements Closeable {
+
+    private final FileChannel fileChannel;
+    private final ByteBuffer snapshot;
+
+    private final int numberOfItems;
+    private final int numberOfRows;
+    private final int dictionaryOffset;
+    private final int dateColumnOffset;
+    private final int p10ColumnOffset;
+    private final int p50ColumnOffset;
+    private final int p90ColumnOffset;
+    private final int indexOffset;
+
+    /**
+     * @throws IllegalArgumentException if the file is not a prediction snapshot of a supported version
+     */
+    public static PredictionSnapshotReader open(@NonNull final Path path) throws IOException {
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (fileChannel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(String.format("Prediction snapshot %s of %d bytes is too large to be mapped",
+                        path, fileChannel.size()));
+            }
+            MappedByteBuffer snapshot = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            return new PredictionSnapshotReader(fileChannel, snapshot, path.toString());
+        } catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read a snapshot already in memory, e.g. range-read from S3.
+     */
+    public static PredictionSnapshotReader wrap(@NonNull final ByteBuffer snapshot) {
+        return new PredictionSnapshotReader(null, snapshot.slice(), "in memory");
+    }
+
+    private PredictionSnapshotReader(final FileChannel fileChannel, final ByteBuffer snapshot, final String source) {
+        this.fileChannel = fileChannel;
+        this.snapshot = snapshot;
+
+        int size = snapshot.limit();
+        if (size < PredictionSnapshotFormat.HEADER_SIZE + PredictionSnapshotFormat.FOOTER_SIZE
+                || !hasMagic(0) || !hasMagic(size - PredictionSnapshotFormat.MAGIC.length)) {
+            throw new IllegalArgumentException(String.format("Prediction snapshot %s is not a prediction snapshot", source));
+        }
+        int version = snapshot.getInt(PredictionSnapshotFormat.MAGIC.length);
+        if (version != PredictionSnapshotFormat.VERSION) {
+            throw new IllegalArgumentException(String.format("Prediction snapshot %s is of unsupported version %d",
+                    source, version));
+        }
+
+        int footerOffset = size - PredictionSnapshotFormat.FOOTER_SIZE;
+        this.numberOfItems = snapshot.getInt(footerOffset);
+        this.numberOfRows = snapshot.getInt(footerOffset + Integer.BYTES);
+        int offset = footerOffset + 2 * Integer.BYTES;
+        this.dictionaryOffset = (int) snapshot.getLong(offset);
+        this.dateColumnOffset = (int) snapshot.getLong(offset + Long.BYTES);
+        this.p10ColumnOffset = (int) snapshot.getLong(offset + 2 * Long.BYTES);
+        this.p50ColumnOffset = (int) snapshot.getLong(offset + 3 * Long.BYTES);
+        this.p90ColumnOffset = (int) snapshot.getLong(offset + 4 * Long.BYTES);
+        this.indexOffset = (int) snapshot.getLong(offset + 5 * Long.BYTES);
+        if (indexOffset + (long) numberOfItems * PredictionSnapshotFormat.INDEX_ENTRY_SIZE != footerOffset) {
+            throw new IllegalArgumentException(String.format("Prediction snapshot %s is corrupted, its index of %d items "
+                    + "doesn't end at the footer", source, numberOfItems));
+        }
+    }
+
+    public int getNumberOfItems() {
+        return numberOfItems;
+    }
+
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * @return the index of the item in [0, numberOfItems), or a negative number if the item is not in the snapshot
+     */
+    public int indexOf(@NonNull final String itemId) {
+        byte[] key = itemId.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = numberOfItems - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compared = compareItemId(middle, key);
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    public String getItemId(final int itemIndex) {
+        int itemIdOffset = getItemIdOffset(itemIndex);
+        byte[] itemId = new byte[getItemIdLength(itemIdOffset)];
+        for (int i = 0; i < itemId.length; i++) {
+            itemId[i] = snapshot.get(itemIdOffset + Short.BYTES + i);
+        }
+        return new String(itemId, StandardCharsets.UTF_8);
+    }
+
+    public int getNumberOfRows(final int itemIndex) {
+        return snapshot.getInt(getIndexEntryOffset(itemIndex) + 2 * Integer.BYTES);
+    }
+
+    /**
+     * Decode the dates of the item, in epoch seconds and ascending order, into the beginning of the given array.
+     */
+    public void readDates(final int itemIndex, final long[] dates) {
+        int numberOfItemRows = checkCapacity(itemIndex, dates.length);
+        int position = dateColumnOffset + snapshot.getInt(getIndexEntryOffset(itemIndex) + 3 * Integer.BYTES);
+        long date = 0;
+        for (int row = 0; row < numberOfItemRows; row++) {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = snapshot.get(position++);
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            date += (zigzag >>> 1) ^ -(zigzag & 1);
+            dates[row] = date;
+        }
+    }
+
+    public void readP10s(final int itemIndex, final float[] p10s) {
+        readFloatColumn(p10ColumnOffset, itemIndex, p10s);
+    }
+
+    public void readP50s(final int itemIndex, final float[] p50s) {
+        readFloatColumn(p50ColumnOffset, itemIndex, p50s);
+    }
+
+    public void readP90s(final int itemIndex, final float[] p90s) {
+        readFloatColumn(p90ColumnOffset, itemIndex, p90s);
+    }
+
+    /**
+     * @return all the predictions of the item, or null if the item is not in the snapshot
+     */
+    public PredictionSeries getSeries(@NonNull final String itemId) {
+        int itemIndex = indexOf(itemId);
+        if (itemIndex < 0) {
+            return null;
+        }
+        int numberOfItemRows = getNumberOfRows(itemIndex);
+        long[] dates = new long[numberOfItemRows];
+        float[] p10s = new float[numberOfItemRows];
+        float[] p50s = new float[numberOfItemRows];
+        float[] p90s = new float[numberOfItemRows];
+        readDates(itemIndex, dates);
+        readP10s(itemIndex, p10s);
+        readP50s(itemIndex, p50s);
+        readP90s(itemIndex, p90s);
+        return new PredictionSeries(itemId, dates, p10s, p50s, p90s);
+    }
+
+    /**
+     * Close the file, the mapped pages are released once the reader is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        if (fileChannel != null) {
+            fileChannel.close();
+        }
+    }
+
+    private void readFloatColumn(final int columnOffset, final int itemIndex, final float[] values) {
+        int numberOfItemRows = checkCapacity(itemIndex, values.length);
+        int position = columnOffset + snapshot.getInt(getIndexEntryOffset(itemIndex) + Integer.BYTES) * Float.BYTES;
+        for (int row = 0; row < numberOfItemRows; row++) {
+            values[row] = snapshot.getFloat(position);
+            position += Float.BYTES;
+        }
+    }
+
+    private int checkCapacity(final int itemIndex, final int capacity) {
+        int numberOfItemRows = getNumberOfRows(itemIndex);
+        if (capacity < numberOfItemRows) {
+            throw new IllegalArgumentException(String.format("Array of length %d cannot hold the %d rows of item %s",
+                    capacity, numberOfItemRows, getItemId(itemIndex)));
+        }
+        return numberOfItemRows;
+    }
+
+    private int compareItemId(final int itemIndex, final byte[] key) {
+        int itemIdOffset = getItemIdOffset(itemIndex);
+        int length = getItemIdLength(itemIdOffset);
+        int position = itemIdOffset + Short.BYTES;
+        int commonLength = Math.min(length, key.length);
+        for (int i = 0; i < commonLength; i++) {
+            int compared = Integer.compare(snapshot.get(position + i) & 0xFF, key[i] & 0xFF);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private int getItemIdOffset(final int itemIndex) {
+        return dictionaryOffset + snapshot.getInt(getIndexEntryOffset(itemIndex));
+    }
+
+    private int getItemIdLength(final int itemIdOffset) {
+        return snapshot.getShort(itemIdOffset) & 0xFFFF;
+    }
+
+    private int getIndexEntryOffset(final int itemIndex) {
+        if (itemIndex < 0 || itemIndex >= numberOfItems) {
+            throw new IndexOutOfBoundsException(String.format("Item index %d is out of [0, %d)", itemIndex, numberOfItems));
+        }
+        return indexOffset + itemIndex * PredictionSnapshotFormat.INDEX_ENTRY_SIZE;
+    }
+
+    private boolean hasMagic(final int offset) {
+        for (int i = 0; i < PredictionSnapshotFormat.MAGIC.length; i++) {
+            if (snapshot.get(offset + i) != PredictionSnapshotFormat.MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The predictions of an item, all the arrays are of the same length and in the ascending order of the dates.
+     */
+    @Value
+    public static class PredictionSeries {
+        String itemId;
+        // In epoch seconds
+        long[] dates;
+        float[] p10s;
+        float[] p50s;
+        float[] p90s;
+    }
+}
@@ -0,0 +1,38 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.dagger.DaggerLambdaFunctionsComponent;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.google.common.annotations.VisibleForTesting;
+import lombok.NonNull;
+
+import javax.inject.Inject;
+
+/**
+ * Returns the latest p10/p50/p90 predictions of an item within a time range, e.g. invoked with:
+ *  {"itemId": "wp100", "startDate": "2019-01-01T00:00:00Z", "endDate": "2019-01-02T00:00:00Z"}
+ */
+public class QueryPredictionResultHandler implements RequestHandler<QueryPredictionResultRequest, QueryPredictionResultResponse> {
+
+    @Inject
+    @NonNull
+    AmazonDynamoDB ddbClient;
+
+    private final PredictionResultQueryService predictionResultQueryService;
+
+    public QueryPredictionResultHandler() {
+        DaggerLambdaFunctionsComponent.create().inject(this);
+        this.predictionResultQueryService = new PredictionResultQueryService(ddbClient);
+    }
+
+    @VisibleForTesting
+    QueryPredictionResultHandler(@NonNull final PredictionResultQueryService predictionResultQueryService) {
+        this.predictionResultQueryService = predictionResultQueryService;
+    }
+
+    @Override
+    public QueryPredictionResultResponse handleRequest(QueryPredictionResultRequest request, Context context) {
+        return predictionResultQueryService.query(request);
+    }
+}
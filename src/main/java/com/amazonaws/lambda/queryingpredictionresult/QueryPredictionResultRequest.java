@@ -0,0 +1,21 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Query the latest predictions of an item within [startDate, endDate], both of them are inclusive and
+ * in the same format as the prediction result, e.g. "2019-01-01T00:00:00Z".
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class QueryPredictionResultRequest {
+
+    private String itemId;
+    private String startDate;
+    private String endDate;
+}
@@ -0,0 +1,34 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class QueryPredictionResultResponse {
+
+    private String itemId;
+    // The forecast export job of the latest prediction, which the predictions are from
+    private String forecastExportJobName;
+    // The interval between two consecutive predictions
+    private long dataFrequencyInSeconds;
+    // Sorted by the date in ascending order
+    private List<Prediction> predictions;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class Prediction {
+        private String date;
+        private double p10;
+        private double p50;
+        private double p90;
+    }
+}
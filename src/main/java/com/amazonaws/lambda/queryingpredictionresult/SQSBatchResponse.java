@@ -0,0 +1,29 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The partial batch response of a Lambda function with the ReportBatchItemFailures response type, only the messages
+ * listed in batchItemFailures are made visible again in the queue for retrying. Refer to:
+ * https://docs.aws.amazon.com/lambda/latest/dg/with-sqs.html#services-sqs-batchfailurereporting
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SQSBatchResponse {
+
+    private List<BatchItemFailure> batchItemFailures;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class BatchItemFailure {
+
+        // The messageId of the failed SQS message
+        private String itemIdentifier;
+    }
+}
@@ -0,0 +1,175 @@
+package com.amazonaws.lambda.common;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.amazonaws.util.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class S3MultipartUploadOutputStreamTest {
+
+    private static final String TEST_BUCKET_NAME = "testBucket";
+    private static final String TEST_KEY = "testSrc/testDemandFile";
+    private static final String TEST_UPLOAD_ID = "testUploadId";
+    private static final int TEST_PART_SIZE = 10;
+    private static final int TEST_MAX_IN_FLIGHT_PARTS = 2;
+
+    private AmazonS3 mockS3Client;
+    // The content of the uploaded parts by the part number
+    private Map<Integer, String> uploadedParts;
+
+    @BeforeEach
+    void setup() {
+        mockS3Client = mock(AmazonS3.class);
+        uploadedParts = new ConcurrentHashMap<>();
+        when(mockS3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenReturn(new InitiateMultipartUploadResult() {{
+                    setUploadId(TEST_UPLOAD_ID);
+                }});
+        when(mockS3Client.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            assertEquals(TEST_UPLOAD_ID, request.getUploadId());
+            String content = IOUtils.toString(request.getInputStream());
+            assertEquals(request.getPartSize(), content.length());
+            uploadedParts.put(request.getPartNumber(), content);
+
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag" + request.getPartNumber());
+            return result;
+        });
+    }
+
+    @Test
+    public void testWrite_WithSinglePutObject() throws IOException {
+        try (S3MultipartUploadOutputStream outputStream = makeOutputStream()) {
+            outputStream.write("0123456789".getBytes(StandardCharsets.UTF_8));
+        }
+
+        ArgumentCaptor<PutObjectRequest> putObjectRequestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3Client).putObject(putObjectRequestCaptor.capture());
+        assertEquals("0123456789", IOUtils.toString(putObjectRequestCaptor.getValue().getInputStream()));
+        assertEquals(TEST_PART_SIZE, putObjectRequestCaptor.getValue().getMetadata().getContentLength());
+        verify(mockS3Client, never()).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+    }
+
+    @Test
+    public void testWrite_WithMultipartUpload() throws IOException {
+        // Many more parts than the buffers, written in chunks across the part boundaries and byte by byte
+        String content = IntStream.range(0, 200).mapToObj(String::valueOf).collect(Collectors.joining(","));
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        try (S3MultipartUploadOutputStream outputStream = makeOutputStream()) {
+            int half = bytes.length / 2;
+            for (int offset = 0; offset < half; offset += 7) {
+                outputStream.write(bytes, offset, Math.min(7, half - offset));
+            }
+            for (int offset = half; offset < bytes.length; offset++) {
+                outputStream.write(bytes[offset]);
+            }
+        }
+
+        int numberOfParts = (bytes.length + TEST_PART_SIZE - 1) / TEST_PART_SIZE;
+        assertEquals(numberOfParts, uploadedParts.size());
+        assertEquals(content, IntStream.rangeClosed(1, numberOfParts).mapToObj(uploadedParts::get).collect(Collectors.joining()));
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeRequestCaptor =
+                ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(mockS3Client).completeMultipartUpload(completeRequestCaptor.capture());
+        assertEquals(TEST_UPLOAD_ID, completeRequestCaptor.getValue().getUploadId());
+        assertEquals(IntStream.rangeClosed(1, numberOfParts).boxed().collect(Collectors.toList()),
+                completeRequestCaptor.getValue().getPartETags().stream().map(PartETag::getPartNumber).collect(Collectors.toList()));
+        verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    public void testWrite_WithFailedPartUpload() {
+        when(mockS3Client.uploadPart(any(UploadPartRequest.class))).thenThrow(new RuntimeException("S3 is unavailable"));
+
+        IOException thrown = assertThrows(IOException.class, () -> {
+            try (S3MultipartUploadOutputStream outputStream = makeOutputStream()) {
+                outputStream.write(new byte[TEST_PART_SIZE * 3 + 1]);
+            }
+        });
+
+        assertEquals(String.format("Failed to upload a part of s3://%s/%s", TEST_BUCKET_NAME, TEST_KEY), thrown.getMessage());
+        verify(mockS3Client, times(1)).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(mockS3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    public void testAbort() throws IOException {
+        S3MultipartUploadOutputStream outputStream = makeOutputStream();
+        outputStream.write(new byte[TEST_PART_SIZE * 2 + 1]);
+
+        outputStream.abort();
+        outputStream.close();
+
+        ArgumentCaptor<AbortMultipartUploadRequest> abortRequestCaptor = ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(mockS3Client, times(1)).abortMultipartUpload(abortRequestCaptor.capture());
+        assertEquals(TEST_UPLOAD_ID, abortRequestCaptor.getValue().getUploadId());
+        verify(mockS3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        assertThrows(IOException.class, () -> outputStream.write(1));
+    }
+
+    @Test
+    public void testFinish_WithSmallObject() throws IOException {
+        S3MultipartUploadOutputStream outputStream = makeOutputStream();
+        outputStream.write("01234".getBytes(StandardCharsets.UTF_8));
+
+        // Uploaded as a single part, and only created once it's closed
+        outputStream.finish();
+        assertEquals(Collections.singletonMap(1, "01234"), uploadedParts);
+        verify(mockS3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        assertThrows(IOException.class, () -> outputStream.write(1));
+
+        outputStream.close();
+        verify(mockS3Client, times(1)).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    public void testFinish_ThenAbort() throws IOException {
+        S3MultipartUploadOutputStream outputStream = makeOutputStream();
+        outputStream.write(new byte[TEST_PART_SIZE * 2 + 1]);
+
+        // Another object written together failed
+        outputStream.finish();
+        outputStream.abort();
+        outputStream.close();
+
+        assertEquals(3, uploadedParts.size());
+        verify(mockS3Client, times(1)).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(mockS3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    private S3MultipartUploadOutputStream makeOutputStream() {
+        return new S3MultipartUploadOutputStream(mockS3Client, TEST_BUCKET_NAME, TEST_KEY, new ObjectMetadata(),
+                TEST_PART_SIZE, TEST_MAX_IN_FLIGHT_PARTS);
+    }
+}
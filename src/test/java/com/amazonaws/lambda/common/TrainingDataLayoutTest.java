@@ -0,0 +1,61 @@
+package com.amazonaws.lambda.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrainingDataLayoutTest {
+
+    private static final String PREDICTION_S3_BUCKET_NAME = "testBucket";
+
+    @Test
+    public void testSingleShard() {
+        TrainingDataLayout trainingDataLayout = new TrainingDataLayout("source", "historical_demand.csv",
+                TrainingDataCompression.GZIP, 1);
+
+        assertEquals(Arrays.asList("source/historical_demand.csv.gz"), trainingDataLayout.getShardKeys());
+        assertEquals("s3://testBucket/source/historical_demand.csv.gz",
+                trainingDataLayout.getImportS3Path(PREDICTION_S3_BUCKET_NAME));
+        assertEquals(0, trainingDataLayout.getShard("5"));
+    }
+
+    @Test
+    public void testMultipleShards() {
+        TrainingDataLayout trainingDataLayout = new TrainingDataLayout("source", "historical_demand.csv",
+                TrainingDataCompression.NONE, 3);
+
+        assertEquals(Arrays.asList("source/historical_demand/part-00000.csv",
+                "source/historical_demand/part-00001.csv",
+                "source/historical_demand/part-00002.csv"), trainingDataLayout.getShardKeys());
+        assertEquals("s3://testBucket/source/historical_demand/",
+                trainingDataLayout.getImportS3Path(PREDICTION_S3_BUCKET_NAME));
+    }
+
+    @Test
+    public void testGetShard() {
+        // The sequential item ids are spread over all the shards
+        TrainingDataLayout trainingDataLayout = new TrainingDataLayout("source", "historical_demand.csv",
+                TrainingDataCompression.NONE, 4);
+        int[] numberOfItemsPerShard = new int[4];
+        for (int itemId = 0; itemId < 1000; itemId++) {
+            int shard = trainingDataLayout.getShard(String.valueOf(itemId));
+            assertEquals(shard, trainingDataLayout.getShard(String.valueOf(itemId)));
+            numberOfItemsPerShard[shard]++;
+        }
+        for (int numberOfItems : numberOfItemsPerShard) {
+            assertTrue(numberOfItems > 200, Arrays.toString(numberOfItemsPerShard));
+        }
+    }
+
+    @Test
+    public void testInvalidNumberOfShards() {
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> new TrainingDataLayout("source", "historical_demand.csv", TrainingDataCompression.NONE, 0));
+
+        assertEquals("Number of shards [0] should be within [1, 32]", thrown.getMessage());
+    }
+}
@@ -0,0 +1,309 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import com.amazonaws.lambda.common.TrainingDataCompression;
+import com.amazonaws.lambda.common.TrainingDataLayout;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.amazonaws.util.IOUtils;
+import org.junit.Rule;
+import org.junit.contrib.java.lang.system.EnvironmentVariables;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CompactDemandHandlerTest {
+
+    private static final String PREDICTION_S3_BUCKET_NAME = "testBucket";
+    private static final String SRC_S3_FOLDER = "testSrc";
+    private static final String S3_TRAINING_DATA_FILE_NAME = "testDemandFile";
+    private static final String TRAINING_FILE_KEY = "testSrc/testDemandFile";
+    private static final String WATERMARK_KEY = "testSrc/state/demand_watermark";
+    private static final String FIRST_DELTA_KEY = "testSrc/deltas/demand_after_20200201T000000.csv";
+    private static final String SECOND_DELTA_KEY = "testSrc/deltas/demand_after_20200215T000000.csv";
+    private static final String DELTAS_PREFIX = "testSrc/deltas/";
+    // Starts at the watermark, so it may still be uploaded again by a retry of the publishing
+    private static final String UNCOMMITTED_DELTA_KEY = "testSrc/deltas/demand_after_20200301T010100.csv";
+
+    @Rule
+    public final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+
+    @Mock
+    private Context context;
+
+    private AmazonS3 mockS3Client;
+    private CompactDemandHandler handler;
+
+    @BeforeEach
+    void setup() {
+        environmentVariables.set("PREDICTION_S3_BUCKET_NAME", PREDICTION_S3_BUCKET_NAME);
+        environmentVariables.set("SRC_S3_FOLDER", SRC_S3_FOLDER);
+        environmentVariables.set("S3_TRAINING_DATA_FILE_NAME", S3_TRAINING_DATA_FILE_NAME);
+
+        mockS3Client = mock(AmazonS3.class);
+        handler = new CompactDemandHandler(mockS3Client, makeLayout(TrainingDataCompression.NONE, 1));
+
+        when(mockS3Client.getObjectAsString(PREDICTION_S3_BUCKET_NAME, WATERMARK_KEY)).thenReturn("2020-03-01T01:01");
+        ListObjectsV2Result listObjectsResult = new ListObjectsV2Result();
+        for (String deltaKey : Arrays.asList(FIRST_DELTA_KEY, SECOND_DELTA_KEY, UNCOMMITTED_DELTA_KEY)) {
+            S3ObjectSummary objectSummary = new S3ObjectSummary();
+            objectSummary.setKey(deltaKey);
+            listObjectsResult.getObjectSummaries().add(objectSummary);
+        }
+        // Only the deltas are listed, the folder of the shards has no stale part file
+        when(mockS3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(invocation ->
+                invocation.<ListObjectsV2Request>getArgument(0).getPrefix().startsWith(DELTAS_PREFIX)
+                        ? listObjectsResult
+                        : new ListObjectsV2Result());
+        when(mockS3Client.getObject(PREDICTION_S3_BUCKET_NAME, FIRST_DELTA_KEY))
+                .thenReturn(makeS3Object(FIRST_DELTA_KEY, "item_id,timestamp,target_value\n7,2020-02-10 00:00:00,3", null));
+        when(mockS3Client.getObject(PREDICTION_S3_BUCKET_NAME, SECOND_DELTA_KEY))
+                .thenReturn(makeS3Object(SECOND_DELTA_KEY, "item_id,timestamp,target_value\n1,2020-02-20 12:00:00,4\n", null));
+    }
+
+    @Test
+    public void testCompactDemand() throws Exception {
+        // The record of 2019-12-31 is out of the lookback window ending at the watermark
+        when(mockS3Client.getObject(PREDICTION_S3_BUCKET_NAME, TRAINING_FILE_KEY)).thenReturn(makeS3Object(
+                TRAINING_FILE_KEY, "item_id,timestamp,target_value\n5,2019-12-31 00:00:00,1\n5,2020-01-15 00:00:00,2", null));
+
+        handler.handleRequest(null, context);
+
+        ArgumentCaptor<PutObjectRequest> putObjectRequestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3Client, times(1)).putObject(putObjectRequestCaptor.capture());
+        assertEquals(TRAINING_FILE_KEY, putObjectRequestCaptor.getValue().getKey());
+        assertEquals("item_id,timestamp,target_value\n5,2020-01-15 00:00:00,2\n7,2020-02-10 00:00:00,3\n1,2020-02-20 12:00:00,4",
+                IOUtils.toString(putObjectRequestCaptor.getValue().getInputStream()));
+        assertEquals(SECOND_DELTA_KEY, putObjectRequestCaptor.getValue().getMetadata()
+                .getUserMetaDataOf(CompactDemandHandler.LAST_COMPACTED_DELTA_METADATA_KEY));
+        verifyDeletedDeltas();
+    }
+
+    @Test
+    public void testCompactDemand_WithCompactedDelta() throws Exception {
+        // The previous run failed to delete the first delta after compacting it
+        when(mockS3Client.getObject(PREDICTION_S3_BUCKET_NAME, TRAINING_FILE_KEY)).thenReturn(makeS3Object(
+                TRAINING_FILE_KEY, "item_id,timestamp,target_value\n5,2020-01-15 00:00:00,2\n7,2020-02-10 00:00:00,3", FIRST_DELTA_KEY));
+
+        handler.handleRequest(null, context);
+
+        ArgumentCaptor<PutObjectRequest> putObjectRequestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3Client, times(1)).putObject(putObjectRequestCaptor.capture());
+        assertEquals("item_id,timestamp,target_value\n5,2020-01-15 00:00:00,2\n7,2020-02-10 00:00:00,3\n1,2020-02-20 12:00:00,4",
+                IOUtils.toString(putObjectRequestCaptor.getValue().getInputStream()));
+        verify(mockS3Client, never()).getObject(PREDICTION_S3_BUCKET_NAME, FIRST_DELTA_KEY);
+        verifyDeletedDeltas();
+    }
+
+    @Test
+    public void testCompactDemand_WithGzipCompression() throws Exception {
+        // The deltas written before the compression was turned on are still read as they are
+        String trainingFileKey = TRAINING_FILE_KEY + ".gz";
+        S3Object trainingFile = makeS3Object(trainingFileKey, "", null);
+        trainingFile.setObjectContent(new ByteArrayInputStream(gzip("item_id,timestamp,target_value\n5,2020-01-15 00:00:00,2")));
+        when(mockS3Client.getObject(PREDICTION_S3_BUCKET_NAME, trainingFileKey)).thenReturn(trainingFile);
+        handler = new CompactDemandHandler(mockS3Client, makeLayout(TrainingDataCompression.GZIP, 1));
+
+        handler.handleRequest(null, context);
+
+        ArgumentCaptor<PutObjectRequest> putObjectRequestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3Client, times(1)).putObject(putObjectRequestCaptor.capture());
+        assertEquals(trainingFileKey, putObjectRequestCaptor.getValue().getKey());
+        assertEquals("gzip", putObjectRequestCaptor.getValue().getMetadata().getContentEncoding());
+        assertEquals("item_id,timestamp,target_value\n5,2020-01-15 00:00:00,2\n7,2020-02-10 00:00:00,3\n1,2020-02-20 12:00:00,4",
+                IOUtils.toString(new GZIPInputStream(putObjectRequestCaptor.getValue().getInputStream())));
+        verifyDeletedDeltas();
+    }
+
+    @Test
+    public void testCompactDemand_WithShards() throws Exception {
+        // The previous run only completed the shard of item 7 before failing, so the others still miss the first delta
+        TrainingDataLayout trainingDataLayout = makeLayout(TrainingDataCompression.NONE, 2);
+        int compactedShard = trainingDataLayout.getShard("7");
+        for (int shard = 0; shard < 2; shard++) {
+            String shardKey = trainingDataLayout.getShardKey(shard);
+            when(mockS3Client.getObject(PREDICTION_S3_BUCKET_NAME, shardKey)).thenReturn(shard == compactedShard
+                    ? makeS3Object(shardKey, "item_id,timestamp,target_value\n7,2020-02-10 00:00:00,3", FIRST_DELTA_KEY)
+                    : makeS3Object(shardKey, "item_id,timestamp,target_value", null));
+        }
+        handler = new CompactDemandHandler(mockS3Client, trainingDataLayout);
+
+        Map<String, String> shardContents = stubMultipartUploads();
+
+        handler.handleRequest(null, context);
+
+        // The shards are uploaded in parts, so that none of them is replaced unless all of them are uploaded
+        ArgumentCaptor<InitiateMultipartUploadRequest> initiateRequestCaptor =
+                ArgumentCaptor.forClass(InitiateMultipartUploadRequest.class);
+        verify(mockS3Client, times(2)).initiateMultipartUpload(initiateRequestCaptor.capture());
+        for (InitiateMultipartUploadRequest initiateRequest : initiateRequestCaptor.getAllValues()) {
+            assertEquals(SECOND_DELTA_KEY, initiateRequest.getObjectMetadata()
+                    .getUserMetaDataOf(CompactDemandHandler.LAST_COMPACTED_DELTA_METADATA_KEY));
+        }
+        verify(mockS3Client, times(2)).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+        for (int shard = 0; shard < 2; shard++) {
+            StringBuilder expectedDemandRecords = new StringBuilder("item_id,timestamp,target_value");
+            for (String row : Arrays.asList("7,2020-02-10 00:00:00,3", "1,2020-02-20 12:00:00,4")) {
+                if (trainingDataLayout.getShard(row.substring(0, 1)) == shard) {
+                    expectedDemandRecords.append('\n').append(row);
+                }
+            }
+            assertEquals(expectedDemandRecords.toString(), shardContents.get(trainingDataLayout.getShardKey(shard)));
+        }
+        verifyDeletedDeltas();
+    }
+
+    @Test
+    public void testCompactDemand_WithMoreShards() throws Exception {
+        // Compacted into 2 shards before, so the third one is not in the bucket yet, and a stale part file is left
+        TrainingDataLayout trainingDataLayout = makeLayout(TrainingDataCompression.NONE, 3);
+        for (int shard = 0; shard < 2; shard++) {
+            String shardKey = trainingDataLayout.getShardKey(shard);
+            when(mockS3Client.getObject(PREDICTION_S3_BUCKET_NAME, shardKey))
+                    .thenReturn(makeS3Object(shardKey, "item_id,timestamp,target_value", FIRST_DELTA_KEY));
+        }
+        AmazonS3Exception notFoundException = new AmazonS3Exception("The specified key does not exist.");
+        notFoundException.setStatusCode(404);
+        when(mockS3Client.getObject(PREDICTION_S3_BUCKET_NAME, trainingDataLayout.getShardKey(2))).thenThrow(notFoundException);
+        String stalePartKey = "testSrc/testDemandFile/part-00003.csv";
+        ListObjectsV2Result shardsListObjectsResult = new ListObjectsV2Result();
+        for (String key : Arrays.asList(trainingDataLayout.getShardKey(0), stalePartKey)) {
+            S3ObjectSummary objectSummary = new S3ObjectSummary();
+            objectSummary.setKey(key);
+            shardsListObjectsResult.getObjectSummaries().add(objectSummary);
+        }
+        doReturn(shardsListObjectsResult).when(mockS3Client).listObjectsV2(argThat((ListObjectsV2Request request) ->
+                request.getPrefix().startsWith("testSrc/testDemandFile/part-")));
+        Map<String, String> shardContents = stubMultipartUploads();
+        handler = new CompactDemandHandler(mockS3Client, trainingDataLayout);
+
+        handler.handleRequest(null, context);
+
+        // The missing shard is compacted as an empty one, with all the deltas of its items
+        verify(mockS3Client, times(3)).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        StringBuilder expectedDemandRecords = new StringBuilder("item_id,timestamp,target_value");
+        for (String row : Arrays.asList("7,2020-02-10 00:00:00,3", "1,2020-02-20 12:00:00,4")) {
+            if (trainingDataLayout.getShard(row.substring(0, 1)) == 2) {
+                expectedDemandRecords.append('\n').append(row);
+            }
+        }
+        assertEquals(expectedDemandRecords.toString(), shardContents.get(trainingDataLayout.getShardKey(2)));
+
+        // The stale part file is deleted once the new shards are completed, and then the deltas
+        ArgumentCaptor<DeleteObjectsRequest> deleteObjectsRequestCaptor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(mockS3Client, times(2)).deleteObjects(deleteObjectsRequestCaptor.capture());
+        assertEquals(Collections.singletonList(stalePartKey), deleteObjectsRequestCaptor.getAllValues().get(0).getKeys()
+                .stream()
+                .map(DeleteObjectsRequest.KeyVersion::getKey)
+                .collect(Collectors.toList()));
+        assertEquals(Arrays.asList(FIRST_DELTA_KEY, SECOND_DELTA_KEY), deleteObjectsRequestCaptor.getAllValues().get(1)
+                .getKeys()
+                .stream()
+                .map(DeleteObjectsRequest.KeyVersion::getKey)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testCompactDemand_WithoutWatermark() {
+        AmazonS3Exception notFoundException = new AmazonS3Exception("The specified key does not exist.");
+        notFoundException.setStatusCode(404);
+        when(mockS3Client.getObjectAsString(PREDICTION_S3_BUCKET_NAME, WATERMARK_KEY)).thenThrow(notFoundException);
+
+        handler.handleRequest(null, context);
+
+        verify(mockS3Client, never()).getObject(anyString(), anyString());
+        verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+        verify(mockS3Client, never()).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
+    private void verifyDeletedDeltas() {
+        ArgumentCaptor<DeleteObjectsRequest> deleteObjectsRequestCaptor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(mockS3Client, times(1)).deleteObjects(deleteObjectsRequestCaptor.capture());
+        assertEquals(Arrays.asList(FIRST_DELTA_KEY, SECOND_DELTA_KEY), deleteObjectsRequestCaptor.getValue().getKeys()
+                .stream()
+                .map(DeleteObjectsRequest.KeyVersion::getKey)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return the content uploaded to every key, filled as the parts are uploaded
+     */
+    private Map<String, String> stubMultipartUploads() {
+        Map<String, String> uploadedContents = new ConcurrentHashMap<>();
+        when(mockS3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenAnswer(invocation -> {
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId("upload-" + invocation.<InitiateMultipartUploadRequest>getArgument(0).getKey());
+            return result;
+        });
+        when(mockS3Client.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            uploadedContents.merge(request.getKey(), IOUtils.toString(request.getInputStream()), String::concat);
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag" + request.getPartNumber());
+            return result;
+        });
+        return uploadedContents;
+    }
+
+    private static TrainingDataLayout makeLayout(final TrainingDataCompression compression, final int numberOfShards) {
+        return new TrainingDataLayout(SRC_S3_FOLDER, S3_TRAINING_DATA_FILE_NAME, compression, numberOfShards);
+    }
+
+    private static byte[] gzip(final String content) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static S3Object makeS3Object(final String key, final String content, final String lastCompactedDeltaKey) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        if (lastCompactedDeltaKey != null) {
+            objectMetadata.addUserMetadata(CompactDemandHandler.LAST_COMPACTED_DELTA_METADATA_KEY, lastCompactedDeltaKey);
+        }
+        S3Object s3Object = new S3Object();
+        s3Object.setKey(key);
+        s3Object.setObjectContent(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        s3Object.setObjectMetadata(objectMetadata);
+        return s3Object;
+    }
+}
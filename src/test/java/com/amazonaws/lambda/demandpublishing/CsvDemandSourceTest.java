@@ -0,0 +1,64 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CsvDemandSourceTest {
+
+    private static final String TEST_DEMAND_FILE_PATH = "/test_raw_demand_requests_with_duplicates.csv";
+
+    @Test
+    public void testReadDemandBatches() {
+        CsvDemandSource demandSource = new CsvDemandSource(TEST_DEMAND_FILE_PATH);
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Integer> malformedRecords = new ArrayList<>();
+
+        long numberOfDemandRecords = demandSource.readDemandBatches(LocalDateTime.of(2020, 1, 1, 0, 0),
+                LocalDateTime.of(2020, 2, 1, 3, 53, 14), new DemandBatch(new DemandItemDictionary()), batch -> {
+                    batchSizes.add(batch.size());
+                    malformedRecords.add(batch.getNumberOfMalformedRecords());
+                });
+
+        // The row with an invalid target value and the one with an invalid timestamp
+        assertEquals(6, numberOfDemandRecords);
+        assertEquals(Arrays.asList(4, 0), batchSizes);
+        assertEquals(Arrays.asList(0, 2), malformedRecords);
+    }
+
+    @Test
+    public void testReadDemandBatches_ReportsMalformedRecordsOnce() {
+        CsvDemandSource demandSource = new CsvDemandSource(TEST_DEMAND_FILE_PATH);
+        DemandBatch demandBatch = new DemandBatch(new DemandItemDictionary());
+        List<Integer> malformedRecords = new ArrayList<>();
+
+        // Two consecutive windows of an incremental publishing, from the same warm container
+        demandSource.readDemandBatches(LocalDateTime.of(2020, 1, 1, 0, 0), LocalDateTime.of(2020, 1, 15, 0, 0),
+                demandBatch, batch -> malformedRecords.add(batch.getNumberOfMalformedRecords()));
+        long numberOfDemandRecords = demandSource.readDemandBatches(LocalDateTime.of(2020, 1, 15, 0, 0),
+                LocalDateTime.of(2020, 3, 1, 0, 0), demandBatch, batch -> {
+                    assertEquals(0, batch.getNumberOfMalformedRecords());
+                    assertEquals(2, batch.size());
+                });
+
+        assertEquals(2, malformedRecords.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(2, numberOfDemandRecords);
+    }
+
+    @Test
+    public void testReadDemandBatches_WithMissingFile() {
+        CsvDemandSource demandSource = new CsvDemandSource("/missing_demand.csv");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> demandSource.readDemandBatches(
+                LocalDateTime.of(2020, 1, 1, 0, 0), LocalDateTime.of(2020, 2, 1, 0, 0),
+                new DemandBatch(new DemandItemDictionary()), batch -> { }));
+
+        assertEquals("Demand file /missing_demand.csv is not found in the classpath", thrown.getMessage());
+    }
+}
@@ -0,0 +1,146 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DemandAggregatorTest {
+
+    private static final long TEST_START = LocalDateTime.of(2020, 1, 1, 3, 0, 0).toEpochSecond(ZoneOffset.UTC);
+
+    private final List<String> aggregatedRows = new ArrayList<>();
+    private DemandItemDictionary itemDictionary;
+    private Consumer<DemandBatch> aggregatedRowCollector;
+
+    @BeforeEach
+    public void setup() {
+        itemDictionary = new DemandItemDictionary();
+        aggregatedRowCollector = aggregatedBatch -> {
+            for (int record = 0; record < aggregatedBatch.size(); record++) {
+                aggregatedRows.add(String.format("%s,%d,%s", aggregatedBatch.getItemId(record),
+                        aggregatedBatch.getEpochSecond(record) - TEST_START,
+                        DemandBatch.formatTargetValue(aggregatedBatch.getTargetValue(record))));
+            }
+        };
+    }
+
+    @Test
+    public void testAggregate() {
+        DemandAggregator demandAggregator = new DemandAggregator("H", new DemandBatch(itemDictionary, 2),
+                aggregatedRowCollector);
+        DemandBatch batch = new DemandBatch(itemDictionary, 3);
+        batch.add("5", TEST_START, 3);
+        batch.add("7", TEST_START + 600, 2.5);
+        batch.add("5", TEST_START + 3033, 14);
+        demandAggregator.add(batch);
+        batch.clear();
+        batch.add("7", TEST_START + 3599, 1.5);
+        demandAggregator.add(batch);
+
+        // The window is still open
+        assertTrue(aggregatedRows.isEmpty());
+
+        batch.clear();
+        batch.add("5", TEST_START + 3600, 16);
+        demandAggregator.add(batch);
+
+        // Closed by the record of the next window
+        assertEquals(Arrays.asList("5,0,17", "7,0,4"), aggregatedRows);
+
+        demandAggregator.flush();
+
+        assertEquals(5, demandAggregator.getNumberOfRecords());
+        assertEquals(3, demandAggregator.getNumberOfAggregatedRecords());
+        assertEquals(Arrays.asList("5,0,17", "7,0,4", "5,3600,16"), aggregatedRows);
+    }
+
+    @Test
+    public void testAggregate_WithOutOfOrderRecord() {
+        DemandAggregator demandAggregator = new DemandAggregator("H", new DemandBatch(itemDictionary),
+                aggregatedRowCollector);
+        DemandBatch batch = new DemandBatch(itemDictionary);
+        batch.add("5", TEST_START, 3);
+        batch.add("5", TEST_START + 3600, 16);
+        batch.add("5", TEST_START + 60, 2);
+        batch.add("5", TEST_START + 3660, 1);
+        demandAggregator.add(batch);
+
+        demandAggregator.flush();
+
+        // The late record is published as another record of its closed window
+        assertEquals(Arrays.asList("5,0,3", "5,0,2", "5,3600,17"), aggregatedRows);
+    }
+
+    @Test
+    public void testAggregate_WithManyItemsAndWindows() {
+        // Enough items in a window to grow the hash map a few times, and enough windows to reuse it
+        DemandAggregator demandAggregator = new DemandAggregator("15min", new DemandBatch(itemDictionary),
+                aggregatedRowCollector);
+        DemandBatch batch = new DemandBatch(itemDictionary);
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            for (int item = 0; item < 2000; item++) {
+                batch.add(String.valueOf(item), TEST_START + minute * 60L, 1);
+                if (batch.isFull()) {
+                    demandAggregator.add(batch);
+                    batch.clear();
+                }
+            }
+        }
+        demandAggregator.add(batch);
+
+        demandAggregator.flush();
+
+        assertEquals(2000 * 96, demandAggregator.getNumberOfAggregatedRecords());
+        assertEquals(2000 * 96, aggregatedRows.size());
+        assertTrue(aggregatedRows.stream().allMatch(row -> row.endsWith(",15")));
+        assertEquals("0,0,15", aggregatedRows.get(0));
+        assertEquals(String.format("1999,%d,15", (23 * 60 + 45) * 60), aggregatedRows.get(aggregatedRows.size() - 1));
+    }
+
+    @Test
+    public void testFlush_WithoutRecords() {
+        DemandAggregator demandAggregator = new DemandAggregator("H", new DemandBatch(itemDictionary),
+                aggregatedBatch -> aggregatedRows.add("empty batch"));
+
+        demandAggregator.flush();
+
+        assertEquals(Collections.emptyList(), aggregatedRows);
+        assertEquals(0, demandAggregator.getNumberOfAggregatedRecords());
+    }
+
+    @Test
+    public void testIsSupported() {
+        for (String dataFrequency : Arrays.asList("1min", "5min", "10min", "15min", "30min", "H", "D")) {
+            assertTrue(DemandAggregator.isSupported(dataFrequency), dataFrequency);
+        }
+        for (String dataFrequency : Arrays.asList("W", "M", "Y", "2H")) {
+            assertFalse(DemandAggregator.isSupported(dataFrequency), dataFrequency);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new DemandAggregator("M", new DemandBatch(itemDictionary), aggregatedRowCollector));
+    }
+
+    @Test
+    public void testAdd_WithTimestampOutOfRange() {
+        DemandAggregator demandAggregator = new DemandAggregator("H", new DemandBatch(itemDictionary),
+                aggregatedRowCollector);
+        DemandBatch batch = new DemandBatch(itemDictionary);
+        batch.add("5", -1L, 14);
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () -> demandAggregator.add(batch));
+
+        assertEquals("timestamp [1969-12-31T23:59:59] of item_id [5] is out of range", thrown.getMessage());
+    }
+}
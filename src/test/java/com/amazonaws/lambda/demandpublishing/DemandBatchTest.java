@@ -0,0 +1,81 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DemandBatchTest {
+
+    private static final long EPOCH_SECOND = LocalDateTime.of(2020, 1, 1, 3, 50, 33).toEpochSecond(ZoneOffset.UTC);
+
+    @Test
+    public void testAdd() {
+        DemandItemDictionary itemDictionary = new DemandItemDictionary();
+        DemandBatch batch = new DemandBatch(itemDictionary, 4);
+
+        batch.add("5", EPOCH_SECOND, 14);
+        batch.add("7", EPOCH_SECOND + 1, 2.5);
+        batch.add("5", EPOCH_SECOND + 2, 16);
+
+        assertEquals(3, batch.size());
+        assertEquals(2, itemDictionary.size());
+        assertEquals(Arrays.asList(0, 1, 0), Arrays.asList(batch.getItemIndex(0), batch.getItemIndex(1), batch.getItemIndex(2)));
+        assertEquals("7", batch.getItemId(1));
+        assertEquals(EPOCH_SECOND, batch.getEpochSecond(0));
+        assertEquals(14, batch.getTargetValue(0));
+        assertEquals(2.5, batch.getTargetValue(1));
+    }
+
+    @Test
+    public void testAdd_WhenFull() {
+        DemandBatch batch = new DemandBatch(new DemandItemDictionary(), 1);
+        batch.add("5", EPOCH_SECOND, 14);
+
+        assertTrue(batch.isFull());
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> batch.add("5", EPOCH_SECOND, 14));
+        assertEquals("Demand batch is full with 1 records", thrown.getMessage());
+
+        batch.clear();
+        assertTrue(batch.isEmpty());
+    }
+
+    @Test
+    public void testRetainWithin() {
+        DemandBatch batch = new DemandBatch(new DemandItemDictionary());
+        for (int i = 0; i < 5; i++) {
+            batch.add(String.valueOf(i), EPOCH_SECOND + i, i);
+        }
+
+        // The start is excluded and the end is included, like the window of the demand sources
+        int removed = batch.retainWithin(EPOCH_SECOND + 1, EPOCH_SECOND + 3);
+
+        assertEquals(3, removed);
+        assertEquals(2, batch.size());
+        assertEquals("2", batch.getItemId(0));
+        assertEquals(EPOCH_SECOND + 3, batch.getEpochSecond(1));
+        assertEquals(3, batch.getTargetValue(1));
+    }
+
+    @Test
+    public void testParseTargetValue_WithInvalidTargetValue() {
+        for (String targetValue : new String[]{"abc", "", "NaN", "Infinity", null}) {
+            IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                    () -> DemandBatch.parseTargetValue("5", targetValue), targetValue);
+            assertEquals(String.format("target_value [%s] of item_id [5] is not a number", targetValue), thrown.getMessage());
+        }
+    }
+
+    @Test
+    public void testFormatTargetValue() {
+        assertEquals("28", DemandBatch.formatTargetValue(28.0));
+        assertEquals("1.5", DemandBatch.formatTargetValue(1.50));
+        assertEquals("0.0000001", DemandBatch.formatTargetValue(1e-7));
+    }
+
+}
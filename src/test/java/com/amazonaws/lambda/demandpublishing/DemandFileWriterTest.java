@@ -0,0 +1,102 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import com.amazonaws.lambda.common.TrainingDataCompression;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DemandFileWriterTest {
+
+    private static final String TEST_BUCKET_NAME = "testBucket";
+    private static final List<String> TEST_SHARD_KEYS = Arrays.asList(
+            "testSrc/historical_demand/part-00000.csv", "testSrc/historical_demand/part-00001.csv");
+
+    private AmazonS3 mockS3Client;
+
+    @BeforeEach
+    void setup() {
+        mockS3Client = mock(AmazonS3.class);
+        when(mockS3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenAnswer(invocation -> {
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId("upload-" + invocation.<InitiateMultipartUploadRequest>getArgument(0).getKey());
+            return result;
+        });
+        when(mockS3Client.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag" + request.getPartNumber());
+            return result;
+        });
+    }
+
+    @Test
+    public void testClose_WithShards() throws IOException {
+        DemandFileWriter demandFileWriter = makeDemandFileWriter();
+        demandFileWriter.write("item_a", "item_a,2020-01-01 00:00:00,1");
+        demandFileWriter.write("item_b", "item_b,2020-01-01 00:00:00,2");
+
+        demandFileWriter.close();
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeRequestCaptor =
+                ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(mockS3Client, times(2)).completeMultipartUpload(completeRequestCaptor.capture());
+        assertEquals(TEST_SHARD_KEYS, completeRequestCaptor.getAllValues().stream()
+                .map(CompleteMultipartUploadRequest::getKey).sorted().collect(Collectors.toList()));
+        verify(mockS3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    public void testClose_WithFailedShard() throws IOException {
+        when(mockS3Client.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            if (request.getKey().equals(TEST_SHARD_KEYS.get(1))) {
+                throw new RuntimeException("S3 is unavailable");
+            }
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag" + request.getPartNumber());
+            return result;
+        });
+        DemandFileWriter demandFileWriter = makeDemandFileWriter();
+        demandFileWriter.write("item_a", "item_a,2020-01-01 00:00:00,1");
+        demandFileWriter.write("item_b", "item_b,2020-01-01 00:00:00,2");
+
+        IOException thrown = assertThrows(IOException.class, demandFileWriter::close);
+
+        // None of the shards is replaced, so the training data is not a mix of the previous and the new shards
+        assertEquals(String.format("Failed to finish the upload of s3://%s/%s", TEST_BUCKET_NAME, TEST_SHARD_KEYS.get(1)),
+                thrown.getMessage());
+        verify(mockS3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(mockS3Client, times(2)).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    private DemandFileWriter makeDemandFileWriter() throws IOException {
+        return new DemandFileWriter(mockS3Client, TEST_BUCKET_NAME, TEST_SHARD_KEYS,
+                itemId -> itemId.equals("item_a") ? 0 : 1, TrainingDataCompression.NONE,
+                TrainingDataCompression.NONE.makeObjectMetadata());
+    }
+}
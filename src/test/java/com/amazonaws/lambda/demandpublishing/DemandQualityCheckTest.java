@@ -0,0 +1,96 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DemandQualityCheckTest {
+
+    private static final long EPOCH_SECOND = LocalDateTime.of(2020, 1, 1, 3, 50, 33).toEpochSecond(ZoneOffset.UTC);
+
+    @Test
+    public void testCheck() {
+        DemandItemDictionary itemDictionary = new DemandItemDictionary();
+        DemandQualityCheck qualityCheck = new DemandQualityCheck(itemDictionary, 1);
+        DemandBatch batch = new DemandBatch(itemDictionary);
+        batch.add("5", EPOCH_SECOND + 60, 14);
+        batch.add("5", EPOCH_SECOND + 60, 14);
+        batch.add("5", EPOCH_SECOND, 3);
+        batch.add("7", EPOCH_SECOND, 2.5);
+        batch.add("7", EPOCH_SECOND, 1.5);
+        batch.addMalformed(2);
+
+        int removed = qualityCheck.check(batch);
+
+        assertEquals(1, removed);
+        assertEquals(4, batch.size());
+        assertEquals(4, qualityCheck.getNumberOfRecords());
+        assertEquals(1, qualityCheck.getNumberOfDuplicateRecords());
+        assertEquals(2, qualityCheck.getNumberOfMalformedRecords());
+        assertEquals(1, qualityCheck.getNumberOfOutOfOrderRecords());
+        assertEquals(2, qualityCheck.getNumberOfItems());
+        List<Map<String, Object>> itemStatistics = qualityCheck.getItemStatistics();
+        assertEquals("5", itemStatistics.get(0).get("item_id"));
+        assertEquals(2L, itemStatistics.get(0).get("number_of_records"));
+        assertEquals("2020-01-01 03:50:33", itemStatistics.get(0).get("first_timestamp"));
+        assertEquals("2020-01-01 03:51:33", itemStatistics.get(0).get("last_timestamp"));
+        assertEquals(2L, itemStatistics.get(1).get("number_of_records"));
+    }
+
+    @Test
+    public void testCheck_AcrossBatches() {
+        // The duplicates are found across the batches of a publishing, and the new items of a batch are tracked
+        DemandItemDictionary itemDictionary = new DemandItemDictionary();
+        DemandQualityCheck qualityCheck = new DemandQualityCheck(itemDictionary, 1);
+        DemandBatch batch = new DemandBatch(itemDictionary, 1000);
+        long numberOfRecords = 0;
+        for (int round = 0; round < 2; round++) {
+            for (int item = 0; item < 100 * (round + 1); item++) {
+                for (int hour = 0; hour < 5; hour++) {
+                    batch.add(String.valueOf(item), EPOCH_SECOND + hour * 3600, hour);
+                }
+            }
+            qualityCheck.check(batch);
+            numberOfRecords += batch.size();
+            batch.clear();
+        }
+
+        assertEquals(1000, numberOfRecords);
+        assertEquals(1000, qualityCheck.getNumberOfRecords());
+        assertEquals(500, qualityCheck.getNumberOfDuplicateRecords());
+        assertEquals(200, qualityCheck.getNumberOfItems());
+    }
+
+    @Test
+    public void testCheck_WithoutDeduplication() {
+        DemandItemDictionary itemDictionary = new DemandItemDictionary();
+        DemandQualityCheck qualityCheck = new DemandQualityCheck(itemDictionary, 0);
+        DemandBatch batch = new DemandBatch(itemDictionary);
+        batch.add("5", EPOCH_SECOND, 14);
+        batch.add("5", EPOCH_SECOND, 14);
+
+        assertEquals(0, qualityCheck.check(batch));
+        assertEquals(2, qualityCheck.getNumberOfRecords());
+    }
+
+    @Test
+    public void testCheck_WithAnotherItemDictionary() {
+        DemandQualityCheck qualityCheck = new DemandQualityCheck(new DemandItemDictionary(), 1);
+
+        assertThrows(IllegalArgumentException.class, () -> qualityCheck.check(new DemandBatch(new DemandItemDictionary())));
+    }
+
+    @Test
+    public void testConstructor_WithInvalidFilterSize() {
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> new DemandQualityCheck(new DemandItemDictionary(), -1));
+
+        assertEquals("Filter size [-1] MB should be within [0, 512]", thrown.getMessage());
+    }
+}
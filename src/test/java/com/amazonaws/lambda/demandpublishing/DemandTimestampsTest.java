@@ -0,0 +1,72 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import static com.amazonaws.lambda.demandpublishing.DemandRecord.LocalDateTimeConverter.FORECAST_DATE_TIME_FORMATTER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DemandTimestampsTest {
+
+    @Test
+    public void testParseAndFormat() {
+        // Any second from year 0 to 9999, which all take the fast path
+        Random random = new Random(0L);
+        long minEpochSecond = LocalDateTime.of(0, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+        long maxEpochSecond = LocalDateTime.of(9999, 12, 31, 23, 59, 59).toEpochSecond(ZoneOffset.UTC);
+        char[] buffer = new char[DemandTimestamps.MAX_LENGTH];
+        for (int i = 0; i < 100000; i++) {
+            long epochSecond = minEpochSecond + (long) (random.nextDouble() * (maxEpochSecond - minEpochSecond));
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+            String text = FORECAST_DATE_TIME_FORMATTER.format(timestamp);
+
+            assertEquals(text, new String(buffer, 0, DemandTimestamps.format(timestamp, buffer, 0)));
+            assertEquals(timestamp, DemandTimestamps.parse(text));
+            assertEquals(epochSecond, DemandTimestamps.parseEpochSecond(text, 0, text.length()));
+        }
+    }
+
+    @Test
+    public void testParse_WithinRow() {
+        String row = "item,2020-02-29 23:59:59,14";
+
+        assertEquals(LocalDateTime.of(2020, 2, 29, 23, 59, 59), DemandTimestamps.parse(row, 5, 24));
+    }
+
+    @Test
+    public void testParse_ResolvedByFormatter() {
+        // Out of the strict ranges, so resolved the same way as the formatter does
+        for (String text : new String[]{"2020-02-30 00:00:00", "2019-02-29 10:00:00", "2020-01-01 24:00:00"}) {
+            assertEquals(LocalDateTime.parse(text, FORECAST_DATE_TIME_FORMATTER), DemandTimestamps.parse(text));
+        }
+    }
+
+    @Test
+    public void testParse_WithInvalidTimestamp() {
+        for (String text : new String[]{"2020-13-01 00:00:00", "2020-1-01 00:00:00", "2020-01-01T00:00:00", "abcd-01-01 00:00:00", ""}) {
+            assertThrows(DateTimeParseException.class, () -> DemandTimestamps.parse(text), text);
+        }
+    }
+
+    @Test
+    public void testFormat_WithNanosAndLargeYear() {
+        char[] buffer = new char[DemandTimestamps.MAX_LENGTH];
+
+        assertEquals("2020-01-01 03:50:33", new String(buffer, 0,
+                DemandTimestamps.format(LocalDateTime.of(2020, 1, 1, 3, 50, 33, 999), buffer, 0)));
+        assertEquals("+12345-01-01 00:00:00", new String(buffer, 0,
+                DemandTimestamps.format(LocalDateTime.of(12345, 1, 1, 0, 0), buffer, 0)));
+    }
+
+    @Test
+    public void testToCsvRowString() {
+        DemandRecord record = new DemandRecord("5", LocalDateTime.of(2020, 1, 1, 3, 50, 33), "14");
+
+        assertEquals("5,2020-01-01 03:50:33,14", record.toCsvRowString());
+    }
+}
@@ -0,0 +1,138 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JdbcDemandSourceTest {
+
+    private static final String TEST_JDBC_URL = "jdbc:h2:mem:demand;DB_CLOSE_DELAY=-1";
+    private static final String TEST_USER = "sa";
+    private static final String TEST_PASSWORD = "";
+    private static final String TEST_TABLE_NAME = "demand";
+
+    // The connection keeps the in-memory database alive for the test
+    private Connection connection;
+
+    @BeforeEach
+    void setup() throws SQLException {
+        connection = DriverManager.getConnection(TEST_JDBC_URL, TEST_USER, TEST_PASSWORD);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE demand (item_id VARCHAR(256), timestamp TIMESTAMP, target_value VARCHAR(64))");
+            statement.execute("CREATE INDEX demand_timestamp ON demand (timestamp)");
+            statement.execute("INSERT INTO demand VALUES "
+                    + "('5', '2020-01-01 03:50:33', '14'), "
+                    + "('5', '2020-02-01 03:53:14', '14'), "
+                    + "('7', '2020-02-15 12:00:00', '23'), "
+                    + "('5', '2020-03-01 03:55:18', '16'), "
+                    + "('1', '2020-06-01 08:30:42', '16')");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE demand");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void testReadDemandBatches() {
+        // The window excludes its start, so the record at 2020-01-01 03:50:33 is left out, and includes its end
+        JdbcDemandSource demandSource = new JdbcDemandSource(TEST_JDBC_URL, TEST_USER, TEST_PASSWORD, TEST_TABLE_NAME, 2);
+        List<String> rows = new ArrayList<>();
+        char[] timestampChars = new char[DemandTimestamps.MAX_LENGTH];
+
+        long numberOfDemandRecords = demandSource.readDemandBatches(LocalDateTime.of(2020, 1, 1, 3, 50, 33),
+                LocalDateTime.of(2020, 3, 1, 3, 55, 18), new DemandBatch(new DemandItemDictionary(), 2), batch -> {
+                    for (int record = 0; record < batch.size(); record++) {
+                        rows.add(String.join(",", batch.getItemId(record),
+                                new String(timestampChars, 0, DemandTimestamps.formatEpochSecond(batch.getEpochSecond(record), timestampChars, 0)),
+                                DemandBatch.formatTargetValue(batch.getTargetValue(record))));
+                    }
+                });
+
+        // In the order of their timestamps
+        assertEquals(3, numberOfDemandRecords);
+        assertEquals(Arrays.asList("5,2020-02-01 03:53:14,14", "7,2020-02-15 12:00:00,23", "5,2020-03-01 03:55:18,16"), rows);
+    }
+
+    @Test
+    public void testReadDemandBatches_WithMorePagesThanFetchSize() {
+        JdbcDemandSource demandSource = new JdbcDemandSource(TEST_JDBC_URL, TEST_USER, TEST_PASSWORD, TEST_TABLE_NAME, 2);
+        List<Integer> batchSizes = new ArrayList<>();
+
+        long numberOfDemandRecords = demandSource.readDemandBatches(LocalDateTime.of(2019, 1, 1, 0, 0),
+                LocalDateTime.of(2021, 1, 1, 0, 0), new DemandBatch(new DemandItemDictionary(), 3),
+                batch -> batchSizes.add(batch.size()));
+
+        assertEquals(5, numberOfDemandRecords);
+        assertEquals(Arrays.asList(3, 2), batchSizes);
+    }
+
+    @Test
+    public void testReadDemandBatches_WithEmptyWindow() {
+        JdbcDemandSource demandSource = new JdbcDemandSource(TEST_JDBC_URL, TEST_USER, TEST_PASSWORD, TEST_TABLE_NAME);
+
+        long numberOfDemandRecords = demandSource.readDemandBatches(LocalDateTime.of(2020, 7, 1, 0, 0),
+                LocalDateTime.of(2020, 8, 1, 0, 0), new DemandBatch(new DemandItemDictionary()), batch -> {
+                    throw new AssertionError("No batch is expected");
+                });
+
+        assertEquals(0, numberOfDemandRecords);
+    }
+
+    @Test
+    public void testReadDemandBatches_WithMissingTable() {
+        JdbcDemandSource demandSource = new JdbcDemandSource(TEST_JDBC_URL, TEST_USER, TEST_PASSWORD, "missing_demand");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> demandSource.readDemandBatches(
+                LocalDateTime.of(2020, 1, 1, 0, 0), LocalDateTime.of(2020, 2, 1, 0, 0),
+                new DemandBatch(new DemandItemDictionary()), batch -> { }));
+
+        assertTrue(thrown.getMessage().startsWith("Failed to read the demand records within"));
+        assertTrue(thrown.getCause() instanceof SQLException);
+    }
+
+    @Test
+    public void testConstructor_WithInvalidTableName() {
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () -> new JdbcDemandSource(
+                TEST_JDBC_URL, TEST_USER, TEST_PASSWORD, "demand; DROP TABLE demand"));
+
+        assertEquals("Table name [demand; DROP TABLE demand] is not a valid table name", thrown.getMessage());
+    }
+
+    @Test
+    public void testMakeConnectionProperties_WithMySql() {
+        Properties connectionProperties = JdbcDemandSource.makeConnectionProperties(
+                "jdbc:mysql://localhost:3306/demand", TEST_USER, TEST_PASSWORD);
+
+        // Connector/J ignores the fetch size without a server-side cursor
+        assertEquals("true", connectionProperties.getProperty("useCursorFetch"));
+        assertEquals(TEST_USER, connectionProperties.getProperty("user"));
+    }
+
+    @Test
+    public void testMakeConnectionProperties_WithUseCursorFetchInUrl() {
+        assertNull(JdbcDemandSource.makeConnectionProperties("jdbc:mysql://localhost:3306/demand?useCursorFetch=false",
+                TEST_USER, TEST_PASSWORD).getProperty("useCursorFetch"));
+        assertNull(JdbcDemandSource.makeConnectionProperties(TEST_JDBC_URL, TEST_USER, TEST_PASSWORD)
+                .getProperty("useCursorFetch"));
+    }
+}
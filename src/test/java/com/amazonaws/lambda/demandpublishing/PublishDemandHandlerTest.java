@@ -1,10 +1,28 @@
 package com.amazonaws.lambda.demandpublishing;
 
+import com.amazonaws.lambda.common.TrainingDataCompression;
+import com.amazonaws.lambda.common.TrainingDataLayout;
+import com.amazonaws.lambda.metrics.MetricsEmitter;
 import com.amazonaws.services.lambda.runtime.Context;
-import com.amazonaws.services.s3.model.ObjectMetadata;
-import com.amazonaws.services.s3.transfer.TransferManager;
-import com.amazonaws.services.s3.transfer.Upload;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.amazonaws.services.secretsmanager.AWSSecretsManager;
+import com.amazonaws.services.secretsmanager.model.GetSecretValueRequest;
+import com.amazonaws.services.secretsmanager.model.GetSecretValueResult;
 import com.amazonaws.util.IOUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
 import org.junit.Rule;
 import org.junit.contrib.java.lang.system.EnvironmentVariables;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,16 +30,25 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
-import java.io.InputStream;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -31,6 +58,8 @@ public class PublishDemandHandlerTest {
     private static final String PREDICTION_S3_BUCKET_NAME = "testBucket";
     private static final String SRC_S3_FOLDER = "testSrc";
     private static final String S3_TRAINING_DATA_FILE_NAME = "testDemandFile";
+    private static final String WATERMARK_KEY = "testSrc/state/demand_watermark";
+    private static final Duration TEST_DEMAND_LATENESS = Duration.ofMinutes(30);
 
     @Rule
     public final EnvironmentVariables environmentVariables = new EnvironmentVariables();
@@ -40,7 +69,8 @@ public class PublishDemandHandlerTest {
 
     private Clock fixedClock;
     private String testRawDemandRequestsFilePath;
-    private TransferManager mockTransferManager;
+    private AmazonS3 mockS3Client;
+    private MetricsEmitter mockMetricsEmitter;
     private PublishDemandHandler handler;
 
     @BeforeEach
@@ -52,27 +82,265 @@ public class PublishDemandHandlerTest {
         fixedClock = Clock.fixed(LocalDateTime.of(2023, 3, 1, 1, 1)
                 .toInstant(ZoneOffset.UTC), ZoneId.of("UTC"));
         testRawDemandRequestsFilePath = "/test_raw_demand_requests.csv";
-        mockTransferManager = mock(TransferManager.class);
-        handler = new PublishDemandHandler(fixedClock, testRawDemandRequestsFilePath, mockTransferManager);
+        mockS3Client = mock(AmazonS3.class);
+        mockMetricsEmitter = mock(MetricsEmitter.class);
+        handler = makeHandler(PublishDemandHandler.PublishingMode.FULL);
     }
 
     @Test
     public void testPublishDemand() throws Exception {
         // Check the first two records in src/test/resources/test_raw_demand_requests.csv for such info
         String expectedDemandRecordsStr = "item_id,timestamp,target_value\n5,2020-01-01 03:50:33,14\n5,2020-02-01 03:53:14,14";
-        ObjectMetadata expectedMetadata = new ObjectMetadata();
-        expectedMetadata.setContentLength(expectedDemandRecordsStr.length());
-        when(mockTransferManager.upload(any(String.class), any(String.class), any(InputStream.class), any(ObjectMetadata.class)))
-                .thenReturn(mock(Upload.class));
 
         handler.handleRequest(null, context);
 
-        ArgumentCaptor<InputStream> streamCaptor = ArgumentCaptor.forClass(InputStream.class);
-        ArgumentCaptor<ObjectMetadata> objectMetadataCaptor = ArgumentCaptor.forClass(ObjectMetadata.class);
-        verify(mockTransferManager, times(1)).upload(eq(PREDICTION_S3_BUCKET_NAME),
-                eq(String.format("%s/%s", SRC_S3_FOLDER, S3_TRAINING_DATA_FILE_NAME)),
-                streamCaptor.capture(), objectMetadataCaptor.capture());
-        assertEquals(expectedDemandRecordsStr, IOUtils.toString(streamCaptor.getValue()));
-        assertEquals(expectedMetadata.getContentLength(), objectMetadataCaptor.getValue().getContentLength());
+        // The demand is far smaller than a part, so it is uploaded in a single request
+        ArgumentCaptor<PutObjectRequest> putObjectRequestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3Client, times(1)).putObject(putObjectRequestCaptor.capture());
+        PutObjectRequest putObjectRequest = putObjectRequestCaptor.getValue();
+        assertEquals(PREDICTION_S3_BUCKET_NAME, putObjectRequest.getBucketName());
+        assertEquals(String.format("%s/%s", SRC_S3_FOLDER, S3_TRAINING_DATA_FILE_NAME), putObjectRequest.getKey());
+        assertEquals(expectedDemandRecordsStr, IOUtils.toString(putObjectRequest.getInputStream()));
+        assertEquals(expectedDemandRecordsStr.length(), putObjectRequest.getMetadata().getContentLength());
+    }
+
+    @Test
+    public void testPublishDemand_WithUploadFailure() {
+        when(mockS3Client.putObject(any(PutObjectRequest.class))).thenThrow(new RuntimeException("S3 is unavailable"));
+
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> handler.handleRequest(null, context));
+
+        assertEquals(String.format("Failed to publish the historical demand to s3://%s/%s/%s",
+                PREDICTION_S3_BUCKET_NAME, SRC_S3_FOLDER, S3_TRAINING_DATA_FILE_NAME), thrown.getMessage());
+        assertEquals("S3 is unavailable", thrown.getCause().getMessage());
+    }
+
+    @Test
+    public void testPublishDemand_IncrementallyWithoutWatermark() throws Exception {
+        // The initial run publishes the whole lookback window as the training file
+        String expectedDemandRecordsStr = "item_id,timestamp,target_value\n5,2020-01-01 03:50:33,14\n5,2020-02-01 03:53:14,14";
+        AmazonS3Exception notFoundException = new AmazonS3Exception("The specified key does not exist.");
+        notFoundException.setStatusCode(404);
+        when(mockS3Client.getObjectAsString(PREDICTION_S3_BUCKET_NAME, WATERMARK_KEY)).thenThrow(notFoundException);
+        handler = makeHandler(PublishDemandHandler.PublishingMode.INCREMENTAL);
+
+        handler.handleRequest(null, context);
+
+        ArgumentCaptor<PutObjectRequest> putObjectRequestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3Client, times(1)).putObject(putObjectRequestCaptor.capture());
+        assertEquals(String.format("%s/%s", SRC_S3_FOLDER, S3_TRAINING_DATA_FILE_NAME), putObjectRequestCaptor.getValue().getKey());
+        assertEquals(expectedDemandRecordsStr, IOUtils.toString(putObjectRequestCaptor.getValue().getInputStream()));
+        // The watermark trails the end of the window by the lateness, for the records committed late
+        verify(mockS3Client, times(1)).putObject(PREDICTION_S3_BUCKET_NAME, WATERMARK_KEY, "2020-03-01T00:31");
+    }
+
+    @Test
+    public void testPublishDemand_IncrementallyWithWatermark() throws Exception {
+        // Only the records after the watermark are published, as a delta named after the watermark
+        String expectedDemandRecordsStr = "item_id,timestamp,target_value\n5,2020-02-01 03:53:14,14";
+        when(mockS3Client.getObjectAsString(PREDICTION_S3_BUCKET_NAME, WATERMARK_KEY)).thenReturn("2020-01-01T03:50:33");
+        handler = makeHandler(PublishDemandHandler.PublishingMode.INCREMENTAL);
+
+        handler.handleRequest(null, context);
+
+        ArgumentCaptor<PutObjectRequest> putObjectRequestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3Client, times(1)).putObject(putObjectRequestCaptor.capture());
+        assertEquals(String.format("%s/deltas/demand_after_20200101T035033.csv", SRC_S3_FOLDER),
+                putObjectRequestCaptor.getValue().getKey());
+        assertEquals(expectedDemandRecordsStr, IOUtils.toString(putObjectRequestCaptor.getValue().getInputStream()));
+        // The watermark trails the end of the window by the lateness, for the records committed late
+        verify(mockS3Client, times(1)).putObject(PREDICTION_S3_BUCKET_NAME, WATERMARK_KEY, "2020-03-01T00:31");
+    }
+
+    @Test
+    public void testPublishDemand_IncrementallyWithUploadFailure() {
+        // The watermark stays, so that the next run publishes the same records again
+        when(mockS3Client.getObjectAsString(PREDICTION_S3_BUCKET_NAME, WATERMARK_KEY)).thenReturn("2020-01-01T03:50:33");
+        when(mockS3Client.putObject(any(PutObjectRequest.class))).thenThrow(new RuntimeException("S3 is unavailable"));
+        handler = makeHandler(PublishDemandHandler.PublishingMode.INCREMENTAL);
+
+        assertThrows(RuntimeException.class, () -> handler.handleRequest(null, context));
+
+        verify(mockS3Client, never()).putObject(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testPublishDemand_IncrementallyWithUpToDateWatermark() {
+        when(mockS3Client.getObjectAsString(PREDICTION_S3_BUCKET_NAME, WATERMARK_KEY)).thenReturn("2020-03-01T01:01");
+        handler = makeHandler(PublishDemandHandler.PublishingMode.INCREMENTAL);
+
+        handler.handleRequest(null, context);
+
+        verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+        verify(mockS3Client, never()).putObject(eq(PREDICTION_S3_BUCKET_NAME), eq(WATERMARK_KEY), anyString());
+    }
+
+    @Test
+    public void testPublishDemand_IncrementallyWithinLateness() {
+        // The records after the watermark may not all be committed yet, so they are left to the next run
+        when(mockS3Client.getObjectAsString(PREDICTION_S3_BUCKET_NAME, WATERMARK_KEY)).thenReturn("2020-03-01T00:45");
+        handler = makeHandler(PublishDemandHandler.PublishingMode.INCREMENTAL);
+
+        handler.handleRequest(null, context);
+
+        verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+        verify(mockS3Client, never()).putObject(eq(PREDICTION_S3_BUCKET_NAME), eq(WATERMARK_KEY), anyString());
+    }
+
+    @Test
+    public void testPublishDemand_WithAggregation() throws Exception {
+        // Both records are in different hours, so only their timestamps are truncated to the hour
+        String expectedDemandRecordsStr = "item_id,timestamp,target_value\n5,2020-01-01 03:00:00,14\n5,2020-02-01 03:00:00,14";
+        handler = new PublishDemandHandler(fixedClock, new CsvDemandSource(testRawDemandRequestsFilePath), mockS3Client,
+                PublishDemandHandler.PublishingMode.FULL, "H", makeLayout(TrainingDataCompression.NONE, 1),
+                TEST_DEMAND_LATENESS, mockMetricsEmitter);
+
+        handler.handleRequest(null, context);
+
+        ArgumentCaptor<PutObjectRequest> putObjectRequestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3Client, times(1)).putObject(putObjectRequestCaptor.capture());
+        assertEquals(expectedDemandRecordsStr, IOUtils.toString(putObjectRequestCaptor.getValue().getInputStream()));
+    }
+
+    @Test
+    public void testPublishDemand_WithGzipCompression() throws Exception {
+        String expectedDemandRecordsStr = "item_id,timestamp,target_value\n5,2020-01-01 03:50:33,14\n5,2020-02-01 03:53:14,14";
+        handler = new PublishDemandHandler(fixedClock, new CsvDemandSource(testRawDemandRequestsFilePath), mockS3Client,
+                PublishDemandHandler.PublishingMode.FULL, null, makeLayout(TrainingDataCompression.GZIP, 1),
+                TEST_DEMAND_LATENESS, mockMetricsEmitter);
+
+        handler.handleRequest(null, context);
+
+        ArgumentCaptor<PutObjectRequest> putObjectRequestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3Client, times(1)).putObject(putObjectRequestCaptor.capture());
+        PutObjectRequest putObjectRequest = putObjectRequestCaptor.getValue();
+        assertEquals(String.format("%s/%s.gz", SRC_S3_FOLDER, S3_TRAINING_DATA_FILE_NAME), putObjectRequest.getKey());
+        assertEquals("gzip", putObjectRequest.getMetadata().getContentEncoding());
+        assertEquals("text/csv", putObjectRequest.getMetadata().getContentType());
+        assertEquals(expectedDemandRecordsStr, IOUtils.toString(new GZIPInputStream(putObjectRequest.getInputStream())));
+    }
+
+    @Test
+    public void testPublishDemand_WithShards() throws Exception {
+        // Every shard is a part file with the header, and the records of an item are all in the part of its shard
+        TrainingDataLayout trainingDataLayout = makeLayout(TrainingDataCompression.NONE, 2);
+        String stalePartKey = String.format("%s/%s/part-00002.csv", SRC_S3_FOLDER, S3_TRAINING_DATA_FILE_NAME);
+        ListObjectsV2Result listObjectsResult = new ListObjectsV2Result();
+        for (String key : Arrays.asList(trainingDataLayout.getShardKey(0), trainingDataLayout.getShardKey(1), stalePartKey)) {
+            S3ObjectSummary objectSummary = new S3ObjectSummary();
+            objectSummary.setKey(key);
+            listObjectsResult.getObjectSummaries().add(objectSummary);
+        }
+        when(mockS3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(listObjectsResult);
+        handler = new PublishDemandHandler(fixedClock, new CsvDemandSource(testRawDemandRequestsFilePath), mockS3Client,
+                PublishDemandHandler.PublishingMode.FULL, null, trainingDataLayout, TEST_DEMAND_LATENESS,
+                mockMetricsEmitter);
+
+        Map<String, String> shardContents = stubMultipartUploads();
+
+        handler.handleRequest(null, context);
+
+        // The shards are uploaded in parts, so that none of them is replaced unless all of them are uploaded
+        verify(mockS3Client, times(2)).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        assertEquals(new HashSet<>(Arrays.asList(String.format("%s/%s/part-00000.csv", SRC_S3_FOLDER, S3_TRAINING_DATA_FILE_NAME),
+                String.format("%s/%s/part-00001.csv", SRC_S3_FOLDER, S3_TRAINING_DATA_FILE_NAME))), shardContents.keySet());
+        String itemShardKey = trainingDataLayout.getShardKey(trainingDataLayout.getShard("5"));
+        assertEquals("item_id,timestamp,target_value\n5,2020-01-01 03:50:33,14\n5,2020-02-01 03:53:14,14",
+                shardContents.remove(itemShardKey));
+        assertEquals("item_id,timestamp,target_value", shardContents.values().iterator().next());
+
+        ArgumentCaptor<DeleteObjectsRequest> deleteObjectsRequestCaptor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(mockS3Client, times(1)).deleteObjects(deleteObjectsRequestCaptor.capture());
+        assertEquals(1, deleteObjectsRequestCaptor.getValue().getKeys().size());
+        assertEquals(stalePartKey, deleteObjectsRequestCaptor.getValue().getKeys().get(0).getKey());
+    }
+
+    @Test
+    public void testPublishDemand_WithDuplicatesAndMalformedRecords() throws Exception {
+        // The duplicate and the rows with an invalid target value or timestamp are dropped, and reported in the manifest
+        String expectedDemandRecordsStr = "item_id,timestamp,target_value\n5,2020-01-01 03:50:33,14\n7,2020-02-01 03:53:14,2.5\n5,2020-02-01 03:53:14,14";
+        handler = new PublishDemandHandler(fixedClock, new CsvDemandSource("/test_raw_demand_requests_with_duplicates.csv"),
+                mockS3Client, PublishDemandHandler.PublishingMode.FULL, null, makeLayout(TrainingDataCompression.NONE, 1),
+                TEST_DEMAND_LATENESS, mockMetricsEmitter);
+
+        handler.handleRequest(null, context);
+
+        ArgumentCaptor<PutObjectRequest> putObjectRequestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3Client, times(1)).putObject(putObjectRequestCaptor.capture());
+        assertEquals(expectedDemandRecordsStr, IOUtils.toString(putObjectRequestCaptor.getValue().getInputStream()));
+
+        ArgumentCaptor<String> manifestCaptor = ArgumentCaptor.forClass(String.class);
+        verify(mockS3Client, times(1)).putObject(eq(PREDICTION_S3_BUCKET_NAME),
+                eq(String.format("%s/manifests/%s.json", SRC_S3_FOLDER, S3_TRAINING_DATA_FILE_NAME)), manifestCaptor.capture());
+        JsonNode manifest = new ObjectMapper().readTree(manifestCaptor.getValue());
+        assertEquals(String.format("s3://%s/%s/%s", PREDICTION_S3_BUCKET_NAME, SRC_S3_FOLDER, S3_TRAINING_DATA_FILE_NAME),
+                manifest.get("s3_path").asText());
+        assertEquals(3, manifest.get("number_of_records").asLong());
+        assertEquals(3, manifest.get("number_of_published_records").asLong());
+        assertEquals(1, manifest.get("number_of_duplicate_records").asLong());
+        assertEquals(2, manifest.get("number_of_malformed_records").asLong());
+        assertEquals(0, manifest.get("number_of_out_of_order_records").asLong());
+        assertEquals(2, manifest.get("items").size());
+        JsonNode itemStatistic = manifest.get("items").get(0);
+        assertEquals("5", itemStatistic.get("item_id").asText());
+        assertEquals(2, itemStatistic.get("number_of_records").asLong());
+        assertEquals("2020-01-01 03:50:33", itemStatistic.get("first_timestamp").asText());
+        assertEquals("2020-02-01 03:53:14", itemStatistic.get("last_timestamp").asText());
+
+        ArgumentCaptor<Map<String, Long>> countsCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(mockMetricsEmitter, times(1)).emitCounts(eq(ImmutableMap.of("PublishingMode", "FULL")),
+                countsCaptor.capture());
+        assertEquals(1L, countsCaptor.getValue().get("DuplicateDemandRecords").longValue());
+        assertEquals(2L, countsCaptor.getValue().get("MalformedDemandRecords").longValue());
+        assertEquals(3L, countsCaptor.getValue().get("PublishedDemandRecords").longValue());
+    }
+
+    @Test
+    public void testGetJdbcPassword() {
+        AWSSecretsManager mockSecretsManagerClient = mock(AWSSecretsManager.class);
+        when(mockSecretsManagerClient.getSecretValue(new GetSecretValueRequest().withSecretId("plainSecret")))
+                .thenReturn(new GetSecretValueResult().withSecretString("p@ssw0rd"));
+        when(mockSecretsManagerClient.getSecretValue(new GetSecretValueRequest().withSecretId("rdsSecret")))
+                .thenReturn(new GetSecretValueResult().withSecretString("{\"username\":\"forecast\",\"password\":\"p@ssw0rd\"}"));
+        when(mockSecretsManagerClient.getSecretValue(new GetSecretValueRequest().withSecretId("otherSecret")))
+                .thenReturn(new GetSecretValueResult().withSecretString("{\"username\":\"forecast\"}"));
+
+        assertEquals("p@ssw0rd", PublishDemandHandler.getJdbcPassword(mockSecretsManagerClient, "plainSecret"));
+        assertEquals("p@ssw0rd", PublishDemandHandler.getJdbcPassword(mockSecretsManagerClient, "rdsSecret"));
+        assertThrows(IllegalStateException.class,
+                () -> PublishDemandHandler.getJdbcPassword(mockSecretsManagerClient, "otherSecret"));
+        // No secret for a database without password
+        assertNull(PublishDemandHandler.getJdbcPassword(mockSecretsManagerClient, ""));
+    }
+
+    private PublishDemandHandler makeHandler(final PublishDemandHandler.PublishingMode publishingMode) {
+        return new PublishDemandHandler(fixedClock, new CsvDemandSource(testRawDemandRequestsFilePath), mockS3Client,
+                publishingMode, null, makeLayout(TrainingDataCompression.NONE, 1),
+                TEST_DEMAND_LATENESS, mockMetricsEmitter);
+    }
+
+    /**
+     * @return the content uploaded to every key, filled as the parts are uploaded
+     */
+    private Map<String, String> stubMultipartUploads() {
+        Map<String, String> uploadedContents = new ConcurrentHashMap<>();
+        when(mockS3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenAnswer(invocation -> {
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId("upload-" + invocation.<InitiateMultipartUploadRequest>getArgument(0).getKey());
+            return result;
+        });
+        when(mockS3Client.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            uploadedContents.merge(request.getKey(), IOUtils.toString(request.getInputStream()), String::concat);
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag" + request.getPartNumber());
+            return result;
+        });
+        return uploadedContents;
+    }
+
+    private static TrainingDataLayout makeLayout(final TrainingDataCompression compression, final int numberOfShards) {
+        return new TrainingDataLayout(SRC_S3_FOLDER, S3_TRAINING_DATA_FILE_NAME, compression, numberOfShards);
     }
 }
@@ -0,0 +1,89 @@
+package com.amazonaws.lambda.demandpublishing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TimeSortedDemandIndexTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0, 0);
+
+    @Test
+    public void testSelect() {
+        // Added out of order, with two records at the same timestamp
+        TimeSortedDemandIndex index = TimeSortedDemandIndex.builder()
+                .add(new DemandRecord("5", START.plusHours(3), "16"))
+                .add(new DemandRecord("5", START.plusHours(1), "14"))
+                .add(new DemandRecord("7", START.plusHours(2), "23"))
+                .add(new DemandRecord("1", START.plusHours(1), "2.5"))
+                .add(new DemandRecord("7", START, "1"))
+                .build();
+        List<String> rows = new ArrayList<>();
+
+        // The window excludes its start and includes its end
+        long numberOfDemandRecords = index.select(START, START.plusHours(2),
+                new DemandBatch(index.getItemDictionary()), batch -> {
+                    for (int record = 0; record < batch.size(); record++) {
+                        rows.add(String.format("%s,%s,%s", batch.getItemId(record),
+                                LocalDateTime.ofEpochSecond(batch.getEpochSecond(record), 0, ZoneOffset.UTC),
+                                DemandBatch.formatTargetValue(batch.getTargetValue(record))));
+                    }
+                });
+
+        assertEquals(5, index.size());
+        assertEquals(3, numberOfDemandRecords);
+        assertEquals(Arrays.asList("5,2020-01-01T01:00,14", "1,2020-01-01T01:00,2.5", "7,2020-01-01T02:00,23"), rows);
+    }
+
+    @Test
+    public void testSelect_IntoBatches() {
+        TimeSortedDemandIndex.Builder builder = TimeSortedDemandIndex.builder();
+        for (int minute = 24 * 60 - 1; minute >= 0; minute--) {
+            builder.add(String.valueOf(minute % 3), START.plusMinutes(minute).toEpochSecond(ZoneOffset.UTC), minute);
+        }
+        TimeSortedDemandIndex index = builder.build();
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Double> targetValues = new ArrayList<>();
+
+        // The batch has its own item dictionary, so the item indices are mapped into it
+        DemandItemDictionary itemDictionary = new DemandItemDictionary();
+        itemDictionary.intern("2");
+        long numberOfDemandRecords = index.select(START.plusHours(1), START.plusHours(2),
+                new DemandBatch(itemDictionary, 25), batch -> {
+                    batchSizes.add(batch.size());
+                    for (int record = 0; record < batch.size(); record++) {
+                        assertEquals(String.valueOf((int) batch.getTargetValue(record) % 3), batch.getItemId(record));
+                        targetValues.add(batch.getTargetValue(record));
+                    }
+                });
+
+        assertEquals(60, numberOfDemandRecords);
+        assertEquals(60, index.count(START.plusHours(1).toEpochSecond(ZoneOffset.UTC),
+                START.plusHours(2).toEpochSecond(ZoneOffset.UTC)));
+        assertEquals(Arrays.asList(25, 25, 10), batchSizes);
+        assertEquals(61.0, targetValues.get(0));
+        assertEquals(120.0, targetValues.get(59));
+    }
+
+    @Test
+    public void testSelect_OutsideHistory() {
+        TimeSortedDemandIndex index = TimeSortedDemandIndex.builder()
+                .add(new DemandRecord("5", START, "14"))
+                .build();
+
+        assertEquals(0, index.select(START.plusDays(1), START.plusDays(2), new DemandBatch(index.getItemDictionary()),
+                batch -> {
+                    throw new AssertionError("No batch is expected");
+                }));
+        assertEquals(0, index.count(START.minusDays(1).toEpochSecond(ZoneOffset.UTC),
+                START.minusSeconds(1).toEpochSecond(ZoneOffset.UTC)));
+        assertEquals(0, TimeSortedDemandIndex.builder().build().select(START, START.plusDays(1),
+                new DemandBatch(new DemandItemDictionary()), batch -> { }));
+    }
+}
@@ -0,0 +1,64 @@
+package com.amazonaws.lambda.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MetricsEmitterTest {
+
+    private static final String TEST_NAMESPACE = "AutomatedForecast/Test";
+    private static final Instant TEST_NOW = Instant.parse("2020-05-01T00:00:00Z");
+
+    private final List<String> logLines = new ArrayList<>();
+
+    private MetricsEmitter metricsEmitter;
+
+    @BeforeEach
+    public void setup() {
+        metricsEmitter = new MetricsEmitter(TEST_NAMESPACE, Clock.fixed(TEST_NOW, ZoneId.of("UTC")), logLines::add);
+    }
+
+    @Test
+    public void testEmitCounts() throws Exception {
+        metricsEmitter.emitCounts(ImmutableMap.of("PublishingMode", "FULL"),
+                ImmutableMap.of("DemandRecords", 10L, "MalformedDemandRecords", 2L));
+
+        // A single log line in the embedded metric format
+        assertEquals(1, logLines.size());
+        JsonNode metrics = new ObjectMapper().readTree(logLines.get(0));
+        JsonNode metadata = metrics.get("_aws");
+        assertEquals(TEST_NOW.toEpochMilli(), metadata.get("Timestamp").asLong());
+        JsonNode metricDirective = metadata.get("CloudWatchMetrics").get(0);
+        assertEquals(TEST_NAMESPACE, metricDirective.get("Namespace").asText());
+        assertEquals("PublishingMode", metricDirective.get("Dimensions").get(0).get(0).asText());
+        assertEquals(2, metricDirective.get("Metrics").size());
+        assertEquals("DemandRecords", metricDirective.get("Metrics").get(0).get("Name").asText());
+        assertEquals("Count", metricDirective.get("Metrics").get(0).get("Unit").asText());
+        assertEquals("FULL", metrics.get("PublishingMode").asText());
+        assertEquals(10L, metrics.get("DemandRecords").asLong());
+        assertEquals(2L, metrics.get("MalformedDemandRecords").asLong());
+    }
+
+    @Test
+    public void testEmit_withPercentUnit() throws Exception {
+        metricsEmitter.emit(ImmutableMap.of("Cache", "PredictionResult"), ImmutableMap.of("HitRatio", 75.0),
+                MetricsEmitter.PERCENT_UNIT);
+
+        assertEquals(1, logLines.size());
+        JsonNode metrics = new ObjectMapper().readTree(logLines.get(0));
+        JsonNode metricDefinition = metrics.get("_aws").get("CloudWatchMetrics").get(0).get("Metrics").get(0);
+        assertEquals("HitRatio", metricDefinition.get("Name").asText());
+        assertEquals("Percent", metricDefinition.get("Unit").asText());
+        assertEquals(75.0, metrics.get("HitRatio").asDouble());
+    }
+}
@@ -18,6 +18,10 @@ public class BaseTest {
 
     static final String DEFAULT_DATA_FREQUENCY_VALUE = "30min";
 
+    // Doesn't wait for the resources in progress, so that the handlers return right away
+    static final ResourceStatusWaiter NO_WAIT_STATUS_WAITER =
+            new ResourceStatusWaiter(0L, System::currentTimeMillis, millis -> { });
+
     protected AmazonForecast mockForecastClient;
     protected Map<String, String> testResourceIdMap;
 
@@ -28,6 +28,7 @@ public class CreateDatasetHandlerTest extends BaseTest {
     @BeforeEach
     public void setup() {
         handler = new CreateDatasetHandler(mockForecastClient);
+        handler.statusWaiter = NO_WAIT_STATUS_WAITER;
     }
 
     @Test
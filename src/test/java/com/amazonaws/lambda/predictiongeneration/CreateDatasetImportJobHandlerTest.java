@@ -28,6 +28,7 @@ public class CreateDatasetImportJobHandlerTest extends BaseTest {
     @BeforeEach
     public void setup() {
         handler = new CreateDatasetImportJobHandler(mockForecastClient);
+        handler.statusWaiter = NO_WAIT_STATUS_WAITER;
     }
 
     @Test
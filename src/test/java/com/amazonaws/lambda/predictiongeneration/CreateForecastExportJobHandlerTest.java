@@ -41,6 +41,7 @@ public class CreateForecastExportJobHandlerTest extends BaseTest {
         environmentVariables.set("TGT_S3_FOLDER", TEST_TGT_S3_FOLDER);
 
         handler = new CreateForecastExportJobHandler(mockForecastClient);
+        handler.statusWaiter = NO_WAIT_STATUS_WAITER;
     }
 
     @Test
@@ -6,14 +6,24 @@ import com.amazonaws.services.forecast.model.CreateForecastRequest;
 import com.amazonaws.services.forecast.model.DescribeForecastRequest;
 import com.amazonaws.services.forecast.model.DescribeForecastResult;
 import com.amazonaws.services.forecast.model.ResourceNotFoundException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
 import static com.amazonaws.lambda.predictiongeneration.GenerateForecastResourcesIdsHandler.buildResourceIdMap;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.NEXT_POLL_WAIT_IN_SECONDS_KEY;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.RESOURCE_ACTIVE_STATUS;
 import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.RESOURCE_FAILED_STATUS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
@@ -28,6 +38,7 @@ public class CreateForecastHandlerTest extends BaseTest {
     @BeforeEach
     public void setup() {
         handler = new CreateForecastHandler(mockForecastClient);
+        handler.statusWaiter = NO_WAIT_STATUS_WAITER;
     }
 
     @Test
@@ -105,4 +116,38 @@ public class CreateForecastHandlerTest extends BaseTest {
         verify(mockForecastClient, times(2)).describeForecast(any(DescribeForecastRequest.class));
         verify(mockForecastClient, times(1)).createForecast(any(CreateForecastRequest.class));
     }
+
+    @Test
+    public void testHandleRequest_withInProgressStatus() throws IOException {
+        // Created 20 minutes ago, without any stage history
+        DescribeForecastResult dummyDescribeForecastResult = new DescribeForecastResult()
+                .withStatus(TEST_RESOURCE_CREATING_STATUS)
+                .withCreationTime(new Date(System.currentTimeMillis() - 20L * 60L * 1000L));
+        when(mockForecastClient.describeForecast(any(DescribeForecastRequest.class))).thenReturn(dummyDescribeForecastResult);
+
+        String output = handler.handleRequest(new ObjectMapper().writeValueAsString(testResourceIdMap), null);
+
+        Map<String, Object> outputMap = new ObjectMapper().readValue(output, new TypeReference<Map<String, Object>>() {
+        });
+        // A number of seconds, for the SecondsPath of the Wait state
+        assertEquals(300, outputMap.remove(NEXT_POLL_WAIT_IN_SECONDS_KEY));
+        assertEquals(testResourceIdMap, outputMap);
+        verify(mockForecastClient, never()).createForecast(any(CreateForecastRequest.class));
+    }
+
+    @Test
+    public void testHandleRequest_withActiveStatusAfterWait() throws IOException {
+        DescribeForecastResult dummyDescribeForecastResult = new DescribeForecastResult().withStatus(RESOURCE_ACTIVE_STATUS);
+        when(mockForecastClient.describeForecast(any(DescribeForecastRequest.class))).thenReturn(dummyDescribeForecastResult);
+        // The output of the previous run, passed on by the Wait state
+        Map<String, Object> input = new HashMap<>(testResourceIdMap);
+        input.put(NEXT_POLL_WAIT_IN_SECONDS_KEY, 300);
+
+        String output = handler.handleRequest(new ObjectMapper().writeValueAsString(input), null);
+
+        Map<String, String> outputMap = new ObjectMapper().readValue(output, new TypeReference<Map<String, String>>() {
+        });
+        assertFalse(outputMap.containsKey(NEXT_POLL_WAIT_IN_SECONDS_KEY));
+        assertEquals(testResourceIdMap, outputMap);
+    }
 }
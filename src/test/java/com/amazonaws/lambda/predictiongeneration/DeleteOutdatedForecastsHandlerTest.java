@@ -0,0 +1,102 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.lambda.predictiongeneration.exception.ResourceCleanupInProgressException;
+import com.amazonaws.services.forecast.model.DeleteForecastRequest;
+import com.amazonaws.services.forecast.model.ForecastSummary;
+import com.amazonaws.services.forecast.model.ListForecastsRequest;
+import com.amazonaws.services.forecast.model.ListForecastsResult;
+import com.amazonaws.services.forecast.model.ListPredictorsRequest;
+import com.amazonaws.services.forecast.model.ListPredictorsResult;
+import com.amazonaws.services.forecast.model.PredictorSummary;
+import com.amazonaws.services.forecast.model.ResourceInUseException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.FORECAST_ARN_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.PREDICTOR_ARN_KEY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeleteOutdatedForecastsHandlerTest extends BaseTest {
+
+    DeleteOutdatedForecastsHandler handler;
+
+    @BeforeEach
+    public void setup() {
+        handler = new DeleteOutdatedForecastsHandler(mockForecastClient);
+    }
+
+    @Test
+    public void testProcess_withOutdatedPredictors() {
+        String preservedPredictorArn = testResourceIdMap.get(PREDICTOR_ARN_KEY);
+        when(mockForecastClient.listPredictors(any(ListPredictorsRequest.class))).thenReturn(new ListPredictorsResult()
+                .withPredictors(new PredictorSummary().withPredictorArn(preservedPredictorArn),
+                        new PredictorSummary().withPredictorArn("dummyPredictor1"),
+                        new PredictorSummary().withPredictorArn("dummyPredictor2")));
+        when(mockForecastClient.listForecasts(any(ListForecastsRequest.class))).thenReturn(new ListForecastsResult()
+                .withForecasts(new ForecastSummary().withForecastArn("dummyForecast1").withPredictorArn("dummyPredictor1"),
+                        new ForecastSummary().withForecastArn("dummyForecast2").withPredictorArn("dummyPredictor2"),
+                        new ForecastSummary().withForecastArn(testResourceIdMap.get(FORECAST_ARN_KEY))
+                                .withPredictorArn(preservedPredictorArn).withStatus("ACTIVE")));
+
+        handler.process(testResourceIdMap);
+
+        // The forecasts of all the predictors are listed once
+        verify(mockForecastClient, times(1)).listForecasts(any(ListForecastsRequest.class));
+        verify(mockForecastClient, times(2)).deleteForecast(any(DeleteForecastRequest.class));
+        verify(mockForecastClient, times(1)).deleteForecast(eq(new DeleteForecastRequest().withForecastArn("dummyForecast1")));
+        verify(mockForecastClient, times(1)).deleteForecast(eq(new DeleteForecastRequest().withForecastArn("dummyForecast2")));
+    }
+
+    @Test
+    public void testProcess_withTooManyActiveForecasts() {
+        String preservedPredictorArn = testResourceIdMap.get(PREDICTOR_ARN_KEY);
+        when(mockForecastClient.listPredictors(any(ListPredictorsRequest.class))).thenReturn(new ListPredictorsResult()
+                .withPredictors(new PredictorSummary().withPredictorArn(preservedPredictorArn)));
+        List<ForecastSummary> forecasts = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            forecasts.add(new ForecastSummary().withForecastArn("dummyForecast" + i)
+                    .withPredictorArn(preservedPredictorArn).withStatus("ACTIVE").withCreationTime(new Date(i)));
+        }
+        forecasts.add(new ForecastSummary().withForecastArn("dummyCreatingForecast")
+                .withPredictorArn(preservedPredictorArn).withStatus(TEST_RESOURCE_CREATING_STATUS).withCreationTime(new Date(0)));
+        when(mockForecastClient.listForecasts(any(ListForecastsRequest.class)))
+                .thenReturn(new ListForecastsResult().withForecasts(forecasts));
+
+        handler.process(testResourceIdMap);
+
+        // Only keep the latest 5 active forecasts besides the current one
+        verify(mockForecastClient, times(2)).deleteForecast(any(DeleteForecastRequest.class));
+        verify(mockForecastClient, times(1)).deleteForecast(eq(new DeleteForecastRequest().withForecastArn("dummyForecast0")));
+        verify(mockForecastClient, times(1)).deleteForecast(eq(new DeleteForecastRequest().withForecastArn("dummyForecast1")));
+        verify(mockForecastClient, never()).deleteForecast(eq(new DeleteForecastRequest().withForecastArn("dummyCreatingForecast")));
+    }
+
+    @Test
+    public void testProcess_withForecastInUse() {
+        when(mockForecastClient.listPredictors(any(ListPredictorsRequest.class))).thenReturn(new ListPredictorsResult()
+                .withPredictors(new PredictorSummary().withPredictorArn("dummyPredictor1")));
+        when(mockForecastClient.listForecasts(any(ListForecastsRequest.class))).thenReturn(new ListForecastsResult()
+                .withForecasts(new ForecastSummary().withForecastArn("dummyForecast1").withPredictorArn("dummyPredictor1"),
+                        new ForecastSummary().withForecastArn("dummyForecast2").withPredictorArn("dummyPredictor1")));
+        when(mockForecastClient.deleteForecast(eq(new DeleteForecastRequest().withForecastArn("dummyForecast2"))))
+                .thenThrow(new ResourceInUseException("dummyForecast2 is being created"));
+
+        ResourceCleanupInProgressException thrown = assertThrows(ResourceCleanupInProgressException.class,
+                () -> handler.process(testResourceIdMap));
+
+        // The other forecast is still deleted, the one in use is left for the retry
+        assertEquals("Outdated forecasts cleanup is in progress with pending forecasts [dummyForecast2]", thrown.getMessage());
+        verify(mockForecastClient, times(2)).deleteForecast(any(DeleteForecastRequest.class));
+    }
+}
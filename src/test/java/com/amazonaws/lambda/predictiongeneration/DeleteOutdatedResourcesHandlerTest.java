@@ -0,0 +1,106 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.lambda.predictiongeneration.exception.ResourceCleanupInProgressException;
+import com.amazonaws.services.forecast.model.DatasetGroupSummary;
+import com.amazonaws.services.forecast.model.DatasetSummary;
+import com.amazonaws.services.forecast.model.DeleteDatasetGroupRequest;
+import com.amazonaws.services.forecast.model.DeleteDatasetRequest;
+import com.amazonaws.services.forecast.model.DeleteForecastRequest;
+import com.amazonaws.services.forecast.model.DeletePredictorRequest;
+import com.amazonaws.services.forecast.model.ForecastSummary;
+import com.amazonaws.services.forecast.model.ListDatasetGroupsRequest;
+import com.amazonaws.services.forecast.model.ListDatasetGroupsResult;
+import com.amazonaws.services.forecast.model.ListDatasetImportJobsRequest;
+import com.amazonaws.services.forecast.model.ListDatasetImportJobsResult;
+import com.amazonaws.services.forecast.model.ListDatasetsRequest;
+import com.amazonaws.services.forecast.model.ListDatasetsResult;
+import com.amazonaws.services.forecast.model.ListForecastExportJobsRequest;
+import com.amazonaws.services.forecast.model.ListForecastExportJobsResult;
+import com.amazonaws.services.forecast.model.ListForecastsRequest;
+import com.amazonaws.services.forecast.model.ListForecastsResult;
+import com.amazonaws.services.forecast.model.ListPredictorsRequest;
+import com.amazonaws.services.forecast.model.ListPredictorsResult;
+import com.amazonaws.services.forecast.model.PredictorSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.DATASET_ARN_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.DATASET_GROUP_ARN_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.PREDICTOR_ARN_KEY;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeleteOutdatedResourcesHandlerTest extends BaseTest {
+
+    static final String OUTDATED_DATASET_GROUP_ARN = TEST_FORECAST_RESOURCE_ARN + "dataset-group/dsg_1";
+    static final String OUTDATED_DATASET_ARN = TEST_FORECAST_RESOURCE_ARN + "dataset/ds_1";
+    static final String OUTDATED_PREDICTOR_ARN = TEST_FORECAST_RESOURCE_ARN + "predictor/p_1";
+    static final String OUTDATED_FORECAST_ARN = TEST_FORECAST_RESOURCE_ARN + "forecast/f_1";
+
+    DeleteOutdatedResourcesHandler handler;
+
+    @BeforeEach
+    public void setup() {
+        handler = new DeleteOutdatedResourcesHandler(mockForecastClient);
+        when(mockForecastClient.listDatasetGroups(any(ListDatasetGroupsRequest.class))).thenReturn(new ListDatasetGroupsResult()
+                .withDatasetGroups(new DatasetGroupSummary().withDatasetGroupArn(testResourceIdMap.get(DATASET_GROUP_ARN_KEY))));
+        when(mockForecastClient.listDatasets(any(ListDatasetsRequest.class))).thenReturn(new ListDatasetsResult()
+                .withDatasets(new DatasetSummary().withDatasetArn(testResourceIdMap.get(DATASET_ARN_KEY))));
+        when(mockForecastClient.listDatasetImportJobs(any(ListDatasetImportJobsRequest.class)))
+                .thenReturn(new ListDatasetImportJobsResult().withDatasetImportJobs());
+        when(mockForecastClient.listPredictors(any(ListPredictorsRequest.class))).thenReturn(new ListPredictorsResult()
+                .withPredictors(new PredictorSummary().withPredictorArn(testResourceIdMap.get(PREDICTOR_ARN_KEY))));
+        when(mockForecastClient.listForecasts(any(ListForecastsRequest.class)))
+                .thenReturn(new ListForecastsResult().withForecasts());
+        when(mockForecastClient.listForecastExportJobs(any(ListForecastExportJobsRequest.class)))
+                .thenReturn(new ListForecastExportJobsResult().withForecastExportJobs());
+    }
+
+    @Test
+    public void testProcess_withOutdatedLineages() {
+        when(mockForecastClient.listDatasetGroups(any(ListDatasetGroupsRequest.class))).thenReturn(new ListDatasetGroupsResult()
+                .withDatasetGroups(new DatasetGroupSummary().withDatasetGroupArn(testResourceIdMap.get(DATASET_GROUP_ARN_KEY)),
+                        new DatasetGroupSummary().withDatasetGroupArn(OUTDATED_DATASET_GROUP_ARN)));
+        when(mockForecastClient.listDatasets(any(ListDatasetsRequest.class))).thenReturn(new ListDatasetsResult()
+                .withDatasets(new DatasetSummary().withDatasetArn(testResourceIdMap.get(DATASET_ARN_KEY)),
+                        new DatasetSummary().withDatasetArn(OUTDATED_DATASET_ARN)));
+        when(mockForecastClient.listPredictors(any(ListPredictorsRequest.class))).thenReturn(new ListPredictorsResult()
+                .withPredictors(new PredictorSummary().withPredictorArn(testResourceIdMap.get(PREDICTOR_ARN_KEY)),
+                        new PredictorSummary().withPredictorArn(OUTDATED_PREDICTOR_ARN)
+                                .withDatasetGroupArn(OUTDATED_DATASET_GROUP_ARN)));
+        when(mockForecastClient.listForecasts(any(ListForecastsRequest.class))).thenReturn(new ListForecastsResult()
+                .withForecasts(new ForecastSummary().withForecastArn(OUTDATED_FORECAST_ARN).withPredictorArn(OUTDATED_PREDICTOR_ARN)
+                        .withDatasetGroupArn(OUTDATED_DATASET_GROUP_ARN)));
+
+        assertThrows(ResourceCleanupInProgressException.class, () -> handler.process(testResourceIdMap));
+
+        // The leaves of both lineages are deleted together, their parents are left for the retry
+        verify(mockForecastClient, times(1)).deleteForecast(eq(new DeleteForecastRequest().withForecastArn(OUTDATED_FORECAST_ARN)));
+        verify(mockForecastClient, times(1)).deleteDataset(eq(new DeleteDatasetRequest().withDatasetArn(OUTDATED_DATASET_ARN)));
+        verify(mockForecastClient, never()).deletePredictor(any(DeletePredictorRequest.class));
+        verify(mockForecastClient, never()).deleteDatasetGroup(any(DeleteDatasetGroupRequest.class));
+    }
+
+    @Test
+    public void testProcess_withFailedDelete() {
+        when(mockForecastClient.listPredictors(any(ListPredictorsRequest.class))).thenReturn(new ListPredictorsResult()
+                .withPredictors(new PredictorSummary().withPredictorArn(OUTDATED_PREDICTOR_ARN)));
+        when(mockForecastClient.deletePredictor(any(DeletePredictorRequest.class)))
+                .thenThrow(new IllegalArgumentException("dummy error"));
+
+        assertThrows(IllegalStateException.class, () -> handler.process(testResourceIdMap));
+    }
+
+    @Test
+    public void testProcess_withoutOutdatedResources() {
+        handler.process(testResourceIdMap);
+
+        verify(mockForecastClient, never()).deletePredictor(any(DeletePredictorRequest.class));
+        verify(mockForecastClient, never()).deleteDatasetGroup(any(DeleteDatasetGroupRequest.class));
+    }
+}
@@ -0,0 +1,180 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.services.forecast.model.DatasetGroupSummary;
+import com.amazonaws.services.forecast.model.DatasetImportJobSummary;
+import com.amazonaws.services.forecast.model.DatasetSummary;
+import com.amazonaws.services.forecast.model.ForecastExportJobSummary;
+import com.amazonaws.services.forecast.model.ForecastSummary;
+import com.amazonaws.services.forecast.model.ListDatasetGroupsRequest;
+import com.amazonaws.services.forecast.model.ListDatasetGroupsResult;
+import com.amazonaws.services.forecast.model.ListDatasetImportJobsRequest;
+import com.amazonaws.services.forecast.model.ListDatasetImportJobsResult;
+import com.amazonaws.services.forecast.model.ListDatasetsRequest;
+import com.amazonaws.services.forecast.model.ListDatasetsResult;
+import com.amazonaws.services.forecast.model.ListForecastExportJobsRequest;
+import com.amazonaws.services.forecast.model.ListForecastExportJobsResult;
+import com.amazonaws.services.forecast.model.ListForecastsRequest;
+import com.amazonaws.services.forecast.model.ListForecastsResult;
+import com.amazonaws.services.forecast.model.ListPredictorsRequest;
+import com.amazonaws.services.forecast.model.ListPredictorsResult;
+import com.amazonaws.services.forecast.model.PredictorSummary;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.DATASET_ARN_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.DATASET_GROUP_ARN_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.DATASET_IMPORT_JOB_ARN_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.FORECAST_ARN_KEY;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.PREDICTOR_ARN_KEY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class ForecastCleanupPlannerTest extends BaseTest {
+
+    static final String OUTDATED_DATASET_GROUP_ARN = TEST_FORECAST_RESOURCE_ARN + "dataset-group/dsg_1";
+    static final String OUTDATED_DATASET_ARN = TEST_FORECAST_RESOURCE_ARN + "dataset/ds_1";
+    static final String OUTDATED_DATASET_IMPORT_JOB_ARN = TEST_FORECAST_RESOURCE_ARN + "dataset-import-job/ds_1/dsij_1";
+    static final String OUTDATED_PREDICTOR_ARN = TEST_FORECAST_RESOURCE_ARN + "predictor/p_1";
+    static final String OUTDATED_FORECAST_ARN = TEST_FORECAST_RESOURCE_ARN + "forecast/f_1";
+    static final String DELETING_FORECAST_ARN = TEST_FORECAST_RESOURCE_ARN + "forecast/f_2";
+    static final String OUTDATED_FORECAST_EXPORT_JOB_ARN = TEST_FORECAST_RESOURCE_ARN + "forecast-export-job/f_1/fej_1";
+
+    ForecastCleanupPlanner planner;
+
+    @BeforeEach
+    public void setup() {
+        planner = new ForecastCleanupPlanner(new ForecastResourceInventory(mockForecastClient));
+    }
+
+    @Test
+    public void testPlan_withOutdatedLineages() {
+        mockOutdatedLineages();
+
+        ForecastCleanupPlan plan = planner.plan(testResourceIdMap);
+
+        // Only the leaves are deleted first, the forecast being deleted already is not deleted again
+        assertEquals(7, plan.size());
+        assertEquals(Arrays.asList(OUTDATED_FORECAST_EXPORT_JOB_ARN, OUTDATED_DATASET_IMPORT_JOB_ARN), plan.getDeletableArns());
+        assertEquals(Arrays.asList(OUTDATED_FORECAST_ARN, OUTDATED_PREDICTOR_ARN, OUTDATED_DATASET_ARN, OUTDATED_DATASET_GROUP_ARN),
+                plan.getBlockedArns());
+        assertEquals(ImmutableSet.of(OUTDATED_FORECAST_ARN, DELETING_FORECAST_ARN), plan.getChildArns(OUTDATED_PREDICTOR_ARN));
+        assertEquals(ImmutableSet.of(OUTDATED_PREDICTOR_ARN, OUTDATED_FORECAST_ARN, DELETING_FORECAST_ARN),
+                plan.getChildArns(OUTDATED_DATASET_GROUP_ARN));
+    }
+
+    @Test
+    public void testPlan_withChildrenGone() {
+        mockListResults(Collections.singletonList(new DatasetGroupSummary().withDatasetGroupArn(OUTDATED_DATASET_GROUP_ARN)),
+                Collections.singletonList(new DatasetSummary().withDatasetArn(OUTDATED_DATASET_ARN)),
+                Collections.emptyList(),
+                Collections.singletonList(new PredictorSummary().withPredictorArn(OUTDATED_PREDICTOR_ARN)
+                        .withDatasetGroupArn(OUTDATED_DATASET_GROUP_ARN).withStatus("DELETE_IN_PROGRESS")),
+                Collections.emptyList(),
+                Collections.emptyList());
+
+        ForecastCleanupPlan plan = planner.plan(testResourceIdMap);
+
+        // The dataset group still waits for its predictor being deleted, while the dataset doesn't wait for it
+        assertEquals(Collections.singletonList(OUTDATED_DATASET_ARN), plan.getDeletableArns());
+        assertEquals(Collections.singletonList(OUTDATED_DATASET_GROUP_ARN), plan.getBlockedArns());
+    }
+
+    @Test
+    public void testPlan_withTooManyActiveForecasts() {
+        String preservedPredictorArn = testResourceIdMap.get(PREDICTOR_ARN_KEY);
+        List<ForecastSummary> forecasts = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            forecasts.add(new ForecastSummary().withForecastArn(TEST_FORECAST_RESOURCE_ARN + "forecast/f_" + i)
+                    .withPredictorArn(preservedPredictorArn).withStatus("ACTIVE").withCreationTime(new Date(i)));
+        }
+        forecasts.add(new ForecastSummary().withForecastArn(testResourceIdMap.get(FORECAST_ARN_KEY))
+                .withPredictorArn(preservedPredictorArn).withStatus(TEST_RESOURCE_CREATING_STATUS).withCreationTime(new Date(0)));
+        mockListResults(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+                Collections.singletonList(new PredictorSummary().withPredictorArn(preservedPredictorArn)),
+                forecasts, Collections.emptyList());
+
+        ForecastCleanupPlan plan = planner.plan(testResourceIdMap);
+
+        // Only keep the latest 5 active forecasts besides the current one
+        assertEquals(Arrays.asList(TEST_FORECAST_RESOURCE_ARN + "forecast/f_0", TEST_FORECAST_RESOURCE_ARN + "forecast/f_1"),
+                plan.getDeletableArns());
+    }
+
+    @Test
+    public void testPlan_withoutOutdatedResources() {
+        mockListResults(
+                Collections.singletonList(new DatasetGroupSummary().withDatasetGroupArn(testResourceIdMap.get(DATASET_GROUP_ARN_KEY))),
+                Collections.singletonList(new DatasetSummary().withDatasetArn(testResourceIdMap.get(DATASET_ARN_KEY))),
+                Collections.singletonList(new DatasetImportJobSummary()
+                        .withDatasetImportJobArn(testResourceIdMap.get(DATASET_IMPORT_JOB_ARN_KEY))),
+                Collections.singletonList(new PredictorSummary().withPredictorArn(testResourceIdMap.get(PREDICTOR_ARN_KEY))),
+                Collections.singletonList(new ForecastSummary().withForecastArn(testResourceIdMap.get(FORECAST_ARN_KEY))
+                        .withPredictorArn(testResourceIdMap.get(PREDICTOR_ARN_KEY)).withStatus("ACTIVE")),
+                Collections.singletonList(new ForecastExportJobSummary()
+                        .withForecastExportJobArn(exportJobArnOf(testResourceIdMap.get(FORECAST_ARN_KEY)))));
+
+        assertTrue(planner.plan(testResourceIdMap).isEmpty());
+    }
+
+    /**
+     * Mock an outdated dataset group with a predictor, 2 forecasts and an export job, and an outdated dataset with an
+     * import job, besides the preserved resources.
+     */
+    void mockOutdatedLineages() {
+        String preservedDatasetGroupArn = testResourceIdMap.get(DATASET_GROUP_ARN_KEY);
+        String preservedPredictorArn = testResourceIdMap.get(PREDICTOR_ARN_KEY);
+        String preservedForecastArn = testResourceIdMap.get(FORECAST_ARN_KEY);
+        mockListResults(
+                Arrays.asList(new DatasetGroupSummary().withDatasetGroupArn(preservedDatasetGroupArn),
+                        new DatasetGroupSummary().withDatasetGroupArn(OUTDATED_DATASET_GROUP_ARN)),
+                Arrays.asList(new DatasetSummary().withDatasetArn(testResourceIdMap.get(DATASET_ARN_KEY)),
+                        new DatasetSummary().withDatasetArn(OUTDATED_DATASET_ARN)),
+                Arrays.asList(new DatasetImportJobSummary().withDatasetImportJobArn(testResourceIdMap.get(DATASET_IMPORT_JOB_ARN_KEY)),
+                        new DatasetImportJobSummary().withDatasetImportJobArn(OUTDATED_DATASET_IMPORT_JOB_ARN)),
+                Arrays.asList(new PredictorSummary().withPredictorArn(preservedPredictorArn)
+                                .withDatasetGroupArn(preservedDatasetGroupArn),
+                        new PredictorSummary().withPredictorArn(OUTDATED_PREDICTOR_ARN)
+                                .withDatasetGroupArn(OUTDATED_DATASET_GROUP_ARN)),
+                Arrays.asList(new ForecastSummary().withForecastArn(preservedForecastArn).withPredictorArn(preservedPredictorArn)
+                                .withDatasetGroupArn(preservedDatasetGroupArn).withStatus("ACTIVE"),
+                        new ForecastSummary().withForecastArn(OUTDATED_FORECAST_ARN).withPredictorArn(OUTDATED_PREDICTOR_ARN)
+                                .withDatasetGroupArn(OUTDATED_DATASET_GROUP_ARN).withStatus("ACTIVE"),
+                        new ForecastSummary().withForecastArn(DELETING_FORECAST_ARN).withPredictorArn(OUTDATED_PREDICTOR_ARN)
+                                .withDatasetGroupArn(OUTDATED_DATASET_GROUP_ARN).withStatus("DELETE_IN_PROGRESS")),
+                Arrays.asList(new ForecastExportJobSummary().withForecastExportJobArn(exportJobArnOf(preservedForecastArn)),
+                        new ForecastExportJobSummary().withForecastExportJobArn(OUTDATED_FORECAST_EXPORT_JOB_ARN)));
+    }
+
+    void mockListResults(final List<DatasetGroupSummary> datasetGroups,
+                         final List<DatasetSummary> datasets,
+                         final List<DatasetImportJobSummary> datasetImportJobs,
+                         final List<PredictorSummary> predictors,
+                         final List<ForecastSummary> forecasts,
+                         final List<ForecastExportJobSummary> forecastExportJobs) {
+        when(mockForecastClient.listDatasetGroups(any(ListDatasetGroupsRequest.class)))
+                .thenReturn(new ListDatasetGroupsResult().withDatasetGroups(datasetGroups));
+        when(mockForecastClient.listDatasets(any(ListDatasetsRequest.class)))
+                .thenReturn(new ListDatasetsResult().withDatasets(datasets));
+        when(mockForecastClient.listDatasetImportJobs(any(ListDatasetImportJobsRequest.class)))
+                .thenReturn(new ListDatasetImportJobsResult().withDatasetImportJobs(datasetImportJobs));
+        when(mockForecastClient.listPredictors(any(ListPredictorsRequest.class)))
+                .thenReturn(new ListPredictorsResult().withPredictors(predictors));
+        when(mockForecastClient.listForecasts(any(ListForecastsRequest.class)))
+                .thenReturn(new ListForecastsResult().withForecasts(forecasts));
+        when(mockForecastClient.listForecastExportJobs(any(ListForecastExportJobsRequest.class)))
+                .thenReturn(new ListForecastExportJobsResult().withForecastExportJobs(forecastExportJobs));
+    }
+
+    static String exportJobArnOf(final String forecastArn) {
+        return forecastArn.replace(":forecast/", ":forecast-export-job/") + "/fej_1";
+    }
+}
@@ -0,0 +1,64 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.services.forecast.model.DatasetSummary;
+import com.amazonaws.services.forecast.model.ListDatasetsRequest;
+import com.amazonaws.services.forecast.model.ListDatasetsResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ForecastPaginatorTest extends BaseTest {
+
+    @Test
+    public void testPaginate() {
+        when(mockForecastClient.listDatasets(eq(new ListDatasetsRequest())))
+                .thenReturn(new ListDatasetsResult()
+                        .withDatasets(new DatasetSummary().withDatasetArn("ds1"), new DatasetSummary().withDatasetArn("ds2"))
+                        .withNextToken("token1"));
+        // An empty page in the middle doesn't stop the pagination
+        when(mockForecastClient.listDatasets(eq(new ListDatasetsRequest().withNextToken("token1"))))
+                .thenReturn(new ListDatasetsResult().withDatasets().withNextToken("token2"));
+        when(mockForecastClient.listDatasets(eq(new ListDatasetsRequest().withNextToken("token2"))))
+                .thenReturn(new ListDatasetsResult().withDatasets(new DatasetSummary().withDatasetArn("ds3")));
+
+        List<String> datasetArns = PredictionGenerationUtils.streamDatasets(mockForecastClient)
+                .map(DatasetSummary::getDatasetArn).collect(Collectors.toList());
+
+        assertEquals(3, datasetArns.size());
+        assertEquals("ds1", datasetArns.get(0));
+        assertEquals("ds3", datasetArns.get(2));
+        verify(mockForecastClient, times(3)).listDatasets(any(ListDatasetsRequest.class));
+    }
+
+    @Test
+    public void testPaginate_IsLazy() {
+        when(mockForecastClient.listDatasets(eq(new ListDatasetsRequest())))
+                .thenReturn(new ListDatasetsResult()
+                        .withDatasets(new DatasetSummary().withDatasetArn("ds1"))
+                        .withNextToken("token1"));
+
+        assertTrue(PredictionGenerationUtils.streamDatasets(mockForecastClient)
+                .anyMatch(dataset -> "ds1".equals(dataset.getDatasetArn())));
+
+        // The second page is never requested as the first one has the dataset already
+        verify(mockForecastClient, times(1)).listDatasets(any(ListDatasetsRequest.class));
+        verify(mockForecastClient, never()).listDatasets(eq(new ListDatasetsRequest().withNextToken("token1")));
+    }
+
+    @Test
+    public void testPaginate_WithoutConsuming() {
+        PredictionGenerationUtils.streamDatasets(mockForecastClient);
+
+        verify(mockForecastClient, never()).listDatasets(any(ListDatasetsRequest.class));
+    }
+}
@@ -0,0 +1,75 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.forecast.model.ResourceInUseException;
+import com.amazonaws.services.forecast.model.ResourceNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ForecastResourceDeleterTest {
+
+    @Test
+    public void testDeleteAll() {
+        ForecastResourceDeleter deleter = new ForecastResourceDeleter(4, new TokenBucketRateLimiter(1000, 1000), 60000L);
+        Set<String> deletedArns = ConcurrentHashMap.newKeySet();
+
+        ForecastResourceDeletionReport report = deleter.deleteAll("forecast",
+                Arrays.asList("f1", "f2", "f3", "f4", "f5", "f1"), arn -> {
+                    switch (arn) {
+                        case "f2":
+                            throw new ResourceNotFoundException("not found");
+                        case "f3":
+                            throw new ResourceInUseException("in use");
+                        case "f4":
+                            AmazonServiceException throttled = new AmazonServiceException("Rate exceeded");
+                            throttled.setErrorCode("ThrottlingException");
+                            throw throttled;
+                        case "f5":
+                            throw new IllegalArgumentException("invalid arn");
+                        default:
+                            deletedArns.add(arn);
+                    }
+                });
+
+        assertEquals("forecast", report.getResourceType());
+        // The duplicated arn is only deleted once, and a resource not found counts as deleted
+        assertEquals(Collections.singleton("f1"), deletedArns);
+        assertEquals(Arrays.asList("f1", "f2"), report.getDeletedArns());
+        assertEquals(Arrays.asList("f3", "f4"), report.getPendingArns());
+        assertEquals(Collections.singletonMap("f5", "invalid arn"), report.getFailedArns());
+        assertFalse(report.isComplete());
+    }
+
+    @Test
+    public void testDeleteAll_OutOfTimeBudget() {
+        // A token every 10 seconds, only the first delete is issued within the time budget
+        ForecastResourceDeleter deleter = new ForecastResourceDeleter(2, new TokenBucketRateLimiter(0.1, 1), 1000L);
+
+        ForecastResourceDeletionReport report = deleter.deleteAll("predictor", Arrays.asList("p1", "p2", "p3"), arn -> {
+        });
+
+        assertEquals(1, report.getDeletedArns().size());
+        assertEquals(2, report.getPendingArns().size());
+        assertTrue(report.getFailedArns().isEmpty());
+    }
+
+    @Test
+    public void testDeleteAll_WithNothingToDelete() {
+        ForecastResourceDeleter deleter = new ForecastResourceDeleter();
+
+        ForecastResourceDeletionReport report = deleter.deleteAll("dataset", Collections.emptyList(), arn -> {
+            throw new IllegalStateException();
+        });
+
+        assertTrue(report.isComplete());
+        assertTrue(report.getDeletedArns().isEmpty());
+    }
+}
@@ -0,0 +1,47 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.services.forecast.model.ListPredictorsRequest;
+import com.amazonaws.services.forecast.model.ListPredictorsResult;
+import com.amazonaws.services.forecast.model.PredictorSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ForecastResourceInventoryTest extends BaseTest {
+
+    ForecastResourceInventory inventory;
+
+    @BeforeEach
+    public void setup() {
+        inventory = new ForecastResourceInventory(mockForecastClient);
+    }
+
+    @Test
+    public void testGetPredictors_ListedOnce() {
+        when(mockForecastClient.listPredictors(any(ListPredictorsRequest.class)))
+                .thenReturn(new ListPredictorsResult().withPredictors(new PredictorSummary().withPredictorArn("p1")));
+
+        assertEquals(1, inventory.getPredictors().size());
+        assertEquals("p1", inventory.getPredictors().get(0).getPredictorArn());
+
+        verify(mockForecastClient, times(1)).listPredictors(any(ListPredictorsRequest.class));
+    }
+
+    @Test
+    public void testGetPredictors_AfterInvalidate() {
+        when(mockForecastClient.listPredictors(any(ListPredictorsRequest.class)))
+                .thenReturn(new ListPredictorsResult().withPredictors(new PredictorSummary().withPredictorArn("p1")))
+                .thenReturn(new ListPredictorsResult().withPredictors());
+
+        assertEquals(1, inventory.getPredictors().size());
+        inventory.invalidate();
+        assertEquals(0, inventory.getPredictors().size());
+
+        verify(mockForecastClient, times(2)).listPredictors(any(ListPredictorsRequest.class));
+    }
+}
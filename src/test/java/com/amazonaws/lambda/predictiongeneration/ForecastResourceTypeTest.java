@@ -0,0 +1,41 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ForecastResourceTypeTest {
+
+    private static final String TEST_ARN_PREFIX = "arn:aws:forecast:us-east-1:012345678901:";
+
+    @Test
+    public void testFromArn() {
+        assertEquals(ForecastResourceType.DATASET_GROUP, ForecastResourceType.fromArn(TEST_ARN_PREFIX + "dataset-group/dsg_1"));
+        assertEquals(ForecastResourceType.DATASET, ForecastResourceType.fromArn(TEST_ARN_PREFIX + "dataset/ds_1"));
+        assertEquals(ForecastResourceType.DATASET_IMPORT_JOB,
+                ForecastResourceType.fromArn(TEST_ARN_PREFIX + "dataset-import-job/ds_1/dsij_1"));
+        assertEquals(ForecastResourceType.PREDICTOR, ForecastResourceType.fromArn(TEST_ARN_PREFIX + "predictor/p_1"));
+        assertEquals(ForecastResourceType.FORECAST, ForecastResourceType.fromArn(TEST_ARN_PREFIX + "forecast/f_1"));
+        assertEquals(ForecastResourceType.FORECAST_EXPORT_JOB,
+                ForecastResourceType.fromArn(TEST_ARN_PREFIX + "forecast-export-job/f_1/fej_1"));
+    }
+
+    @Test
+    public void testFromArn_withUnknownType() {
+        assertThrows(IllegalArgumentException.class, () -> ForecastResourceType.fromArn(TEST_ARN_PREFIX + "unknown/u_1"));
+    }
+
+    @Test
+    public void testGetParentArn() {
+        assertEquals(TEST_ARN_PREFIX + "dataset/ds_1",
+                ForecastResourceType.getParentArn(TEST_ARN_PREFIX + "dataset-import-job/ds_1/dsij_1"));
+        assertEquals(TEST_ARN_PREFIX + "forecast/f_1",
+                ForecastResourceType.getParentArn(TEST_ARN_PREFIX + "forecast-export-job/f_1/fej_1"));
+    }
+
+    @Test
+    public void testGetParentArn_withoutJob() {
+        assertThrows(IllegalArgumentException.class, () -> ForecastResourceType.getParentArn(TEST_ARN_PREFIX + "dataset/ds_1"));
+    }
+}
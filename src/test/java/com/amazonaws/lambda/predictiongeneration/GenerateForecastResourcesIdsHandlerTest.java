@@ -8,6 +8,7 @@ import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -17,8 +18,9 @@ import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.Map;
 
+import static com.amazonaws.lambda.common.ForecastDataFrequency.ONE_HOUR_DATA_FREQUENCY_STRING;
 import static com.amazonaws.lambda.predictiongeneration.GenerateForecastResourcesIdsHandler.buildResourceIdMap;
-import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.ONE_HOUR_DATA_FREQUENCY_STRING;
+import static com.amazonaws.lambda.predictiongeneration.PredictionGenerationUtils.INPUT_SIZE_IN_BYTES_KEY;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
@@ -53,8 +55,10 @@ public class GenerateForecastResourcesIdsHandlerTest extends BaseTest {
     public void testHandleRequest() throws Exception {
 
         long currentTime = fixedClock.millis();
-        Map<String, String> expectedResourceIdMap = buildResourceIdMap(currentTime, TEST_FORECAST_RESOURCE_ARN,
-                ONE_HOUR_DATA_FREQUENCY_STRING);
+        Map<String, String> expectedResourceIdMap = ImmutableMap.<String, String>builder()
+                .putAll(buildResourceIdMap(currentTime, TEST_FORECAST_RESOURCE_ARN, ONE_HOUR_DATA_FREQUENCY_STRING))
+                .put(INPUT_SIZE_IN_BYTES_KEY, "100")
+                .build();
 
         Context mockContext = mock(Context.class);
         when(mockContext.getInvokedFunctionArn()).thenReturn(TEST_FUNCTION_ARN);
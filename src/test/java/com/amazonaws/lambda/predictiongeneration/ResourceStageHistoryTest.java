@@ -0,0 +1,151 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static com.amazonaws.lambda.predictiongeneration.ResourceStageHistory.ACTIVE_TIME_ATTRIBUTE_NAME;
+import static com.amazonaws.lambda.predictiongeneration.ResourceStageHistory.DURATION_ATTRIBUTE_NAME;
+import static com.amazonaws.lambda.predictiongeneration.ResourceStageHistory.HISTORY_SIZE;
+import static com.amazonaws.lambda.predictiongeneration.ResourceStageHistory.RESOURCE_ARN_ATTRIBUTE_NAME;
+import static com.amazonaws.lambda.predictiongeneration.ResourceStageHistory.STAGE_KEY_ATTRIBUTE_NAME;
+import static com.amazonaws.lambda.predictiongeneration.ResourceStageHistory.START_TIME_ATTRIBUTE_NAME;
+import static com.amazonaws.lambda.predictiongeneration.ResourceStageHistory.buildStageKey;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class ResourceStageHistoryTest {
+
+    private static final String TEST_TABLE_NAME = "ForecastResourceStageHistory";
+    private static final String TEST_PREDICTOR_ARN = "arn:aws:forecast:us-west-2:0123456789:predictor/predictor_1";
+    private static final Long TEST_INPUT_SIZE_IN_BYTES = 10L * 1024L * 1024L;
+    private static final Instant TEST_START_TIME = Instant.parse("2020-05-01T00:00:00Z");
+
+    private AmazonDynamoDB mockDDBClient;
+    private ResourceStageHistory history;
+
+    @BeforeEach
+    public void setup() {
+        mockDDBClient = mock(AmazonDynamoDB.class);
+        history = new ResourceStageHistory(mockDDBClient, TEST_TABLE_NAME);
+    }
+
+    @Test
+    public void testRecord() {
+        assertTrue(history.record(ForecastResourceType.PREDICTOR, TEST_PREDICTOR_ARN, TEST_INPUT_SIZE_IN_BYTES,
+                TEST_START_TIME, TEST_START_TIME.plus(Duration.ofMinutes(45))));
+
+        ArgumentCaptor<PutItemRequest> requestCaptor = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(mockDDBClient).putItem(requestCaptor.capture());
+        assertEquals(TEST_TABLE_NAME, requestCaptor.getValue().getTableName());
+        // Only if the resource is not recorded yet
+        assertEquals("attribute_not_exists(#stageKey)", requestCaptor.getValue().getConditionExpression());
+        Map<String, AttributeValue> item = requestCaptor.getValue().getItem();
+        assertEquals("PREDICTOR#size-4", item.get(STAGE_KEY_ATTRIBUTE_NAME).getS());
+        assertEquals(String.valueOf(TEST_START_TIME.toEpochMilli()), item.get(START_TIME_ATTRIBUTE_NAME).getN());
+        assertEquals(String.valueOf(TEST_START_TIME.plus(Duration.ofMinutes(45)).toEpochMilli()),
+                item.get(ACTIVE_TIME_ATTRIBUTE_NAME).getN());
+        assertEquals(String.valueOf(Duration.ofMinutes(45).toMillis()), item.get(DURATION_ATTRIBUTE_NAME).getN());
+        assertTrue(item.containsKey("expirationTime"));
+    }
+
+    @Test
+    public void testRecord_withResourceRecordedAlready() {
+        when(mockDDBClient.putItem(any(PutItemRequest.class))).thenThrow(ConditionalCheckFailedException.class);
+
+        assertFalse(history.record(ForecastResourceType.PREDICTOR, TEST_PREDICTOR_ARN, TEST_INPUT_SIZE_IN_BYTES,
+                TEST_START_TIME, TEST_START_TIME.plus(Duration.ofMinutes(45))));
+    }
+
+    @Test
+    public void testRecord_withFailure() {
+        when(mockDDBClient.putItem(any(PutItemRequest.class))).thenThrow(AmazonDynamoDBException.class);
+
+        // The pipeline goes on without the record
+        assertTrue(history.record(ForecastResourceType.PREDICTOR, TEST_PREDICTOR_ARN, null,
+                TEST_START_TIME, TEST_START_TIME.plus(Duration.ofMinutes(45))));
+    }
+
+    @Test
+    public void testGetRecentDurations() {
+        when(mockDDBClient.query(any(QueryRequest.class))).thenReturn(new QueryResult().withItems(
+                ImmutableMap.of(DURATION_ATTRIBUTE_NAME, new AttributeValue().withN("60000")),
+                ImmutableMap.of(DURATION_ATTRIBUTE_NAME, new AttributeValue().withN("30000"))));
+
+        assertEquals(Arrays.asList(Duration.ofMinutes(1), Duration.ofSeconds(30)),
+                history.getRecentDurations(ForecastResourceType.DATASET_IMPORT_JOB, TEST_INPUT_SIZE_IN_BYTES));
+
+        ArgumentCaptor<QueryRequest> requestCaptor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(mockDDBClient).query(requestCaptor.capture());
+        QueryRequest request = requestCaptor.getValue();
+        assertEquals(TEST_TABLE_NAME, request.getTableName());
+        assertEquals("DATASET_IMPORT_JOB#size-4", request.getExpressionAttributeValues().get(":stageKey").getS());
+        assertFalse(request.getScanIndexForward());
+        assertEquals(HISTORY_SIZE, request.getLimit().intValue());
+    }
+
+    @Test
+    public void testGetRecentDurations_excludingResource() {
+        when(mockDDBClient.query(any(QueryRequest.class))).thenReturn(new QueryResult().withItems(
+                ImmutableMap.of(DURATION_ATTRIBUTE_NAME, new AttributeValue().withN("90000"),
+                        RESOURCE_ARN_ATTRIBUTE_NAME, new AttributeValue(TEST_PREDICTOR_ARN)),
+                ImmutableMap.of(DURATION_ATTRIBUTE_NAME, new AttributeValue().withN("60000"),
+                        RESOURCE_ARN_ATTRIBUTE_NAME, new AttributeValue("arn:aws:forecast:us-west-2:0123456789:predictor/predictor_0"))));
+
+        // The stage just recorded is left out
+        assertEquals(Collections.singletonList(Duration.ofMinutes(1)),
+                history.getRecentDurations(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES, TEST_PREDICTOR_ARN));
+
+        ArgumentCaptor<QueryRequest> requestCaptor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(mockDDBClient).query(requestCaptor.capture());
+        assertEquals(HISTORY_SIZE + 1, requestCaptor.getValue().getLimit().intValue());
+    }
+
+    @Test
+    public void testGetRecentDurations_withFailure() {
+        when(mockDDBClient.query(any(QueryRequest.class))).thenThrow(AmazonDynamoDBException.class);
+
+        assertEquals(Collections.emptyList(),
+                history.getRecentDurations(ForecastResourceType.DATASET_IMPORT_JOB, TEST_INPUT_SIZE_IN_BYTES));
+    }
+
+    @Test
+    public void testWithoutTable() {
+        history = new ResourceStageHistory(mockDDBClient, null);
+
+        history.record(ForecastResourceType.PREDICTOR, TEST_PREDICTOR_ARN, TEST_INPUT_SIZE_IN_BYTES,
+                TEST_START_TIME, TEST_START_TIME.plus(Duration.ofMinutes(45)));
+        assertEquals(Collections.emptyList(), history.getRecentDurations(ForecastResourceType.PREDICTOR, null));
+        verifyZeroInteractions(mockDDBClient);
+    }
+
+    @Test
+    public void testBuildStageKey() {
+        assertEquals("FORECAST#size-unknown", buildStageKey(ForecastResourceType.FORECAST, null));
+        assertEquals("FORECAST#size-0", buildStageKey(ForecastResourceType.FORECAST, 1000L));
+        // 8MB to 16MB are in the same class
+        assertEquals("FORECAST#size-4", buildStageKey(ForecastResourceType.FORECAST, 8L * 1024L * 1024L));
+        assertEquals("FORECAST#size-4", buildStageKey(ForecastResourceType.FORECAST, 16L * 1024L * 1024L - 1L));
+        assertEquals("FORECAST#size-5", buildStageKey(ForecastResourceType.FORECAST, 16L * 1024L * 1024L));
+    }
+}
@@ -0,0 +1,237 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import com.amazonaws.lambda.metrics.MetricsEmitter;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static com.amazonaws.lambda.predictiongeneration.ResourceStageScheduler.MAX_NEXT_POLL_WAIT;
+import static com.amazonaws.lambda.predictiongeneration.ResourceStageScheduler.MAX_POLL_INTERVAL;
+import static com.amazonaws.lambda.predictiongeneration.ResourceStageScheduler.MIN_POLL_INTERVAL;
+import static com.amazonaws.lambda.predictiongeneration.ResourceStageScheduler.STAGE_REGRESSIONS_METRIC_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class ResourceStageSchedulerTest {
+
+    private static final String TEST_PREDICTOR_ARN = "arn:aws:forecast:us-west-2:0123456789:predictor/predictor_1";
+    private static final Long TEST_INPUT_SIZE_IN_BYTES = 10L * 1024L * 1024L;
+    private static final Instant TEST_CREATION_TIME = Instant.parse("2020-05-01T00:00:00Z");
+
+    private ResourceStageHistory mockHistory;
+    private MetricsEmitter mockMetricsEmitter;
+    private ResourceStageScheduler scheduler;
+
+    @BeforeEach
+    public void setup() {
+        mockHistory = mock(ResourceStageHistory.class);
+        mockMetricsEmitter = mock(MetricsEmitter.class);
+        when(mockHistory.record(any(), any(), any(), any(), any())).thenReturn(true);
+        scheduler = new ResourceStageScheduler(mockHistory, mockMetricsEmitter);
+    }
+
+    @Test
+    public void testSchedule_withHistory() {
+        when(mockHistory.getRecentDurations(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES)).thenReturn(
+                Arrays.asList(Duration.ofMinutes(50), Duration.ofMinutes(40), Duration.ofHours(5), Duration.ofMinutes(60)));
+
+        ResourceStageSchedule schedule = scheduler.schedule(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES);
+
+        // A single slow predictor doesn't skew the schedule
+        assertEquals(Duration.ofMinutes(60), schedule.getExpectedDuration());
+        assertEquals(Duration.ofMinutes(50), schedule.getInitialWait());
+        assertEquals(MAX_POLL_INTERVAL, schedule.getPollInterval());
+        assertEquals(4, schedule.getSampleSize());
+    }
+
+    @Test
+    public void testSchedule_readsHistoryOnce() {
+        when(mockHistory.getRecentDurations(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES)).thenReturn(
+                Arrays.asList(Duration.ofMinutes(50), Duration.ofMinutes(40), Duration.ofMinutes(60)));
+
+        // The retries of the step waiting for the same predictor
+        scheduler.schedule(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES);
+        ResourceStageSchedule schedule = scheduler.schedule(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES);
+
+        assertEquals(Duration.ofMinutes(50), schedule.getExpectedDuration());
+        verify(mockHistory, times(1)).getRecentDurations(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES);
+    }
+
+    @Test
+    public void testSchedule_readsHistoryAgainAfterInvalidate() {
+        when(mockHistory.getRecentDurations(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES)).thenReturn(
+                Arrays.asList(Duration.ofMinutes(50), Duration.ofMinutes(40), Duration.ofMinutes(60)));
+
+        scheduler.schedule(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES);
+        // The next run of the step, after the Wait state
+        scheduler.invalidate();
+        scheduler.schedule(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES);
+
+        verify(mockHistory, times(2)).getRecentDurations(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES);
+    }
+
+    @Test
+    public void testSchedule_withShortStages() {
+        when(mockHistory.getRecentDurations(ForecastResourceType.DATASET, TEST_INPUT_SIZE_IN_BYTES)).thenReturn(
+                Arrays.asList(Duration.ofSeconds(30), Duration.ofSeconds(20), Duration.ofSeconds(40)));
+
+        ResourceStageSchedule schedule = scheduler.schedule(ForecastResourceType.DATASET, TEST_INPUT_SIZE_IN_BYTES);
+
+        assertEquals(Duration.ofSeconds(30), schedule.getExpectedDuration());
+        assertEquals(Duration.ofSeconds(20), schedule.getInitialWait());
+        assertEquals(MIN_POLL_INTERVAL, schedule.getPollInterval());
+    }
+
+    @Test
+    public void testSchedule_withEmptyHistory() {
+        when(mockHistory.getRecentDurations(ForecastResourceType.FORECAST, null)).thenReturn(Collections.emptyList());
+
+        ResourceStageSchedule schedule = scheduler.schedule(ForecastResourceType.FORECAST, null);
+
+        assertNull(schedule.getExpectedDuration());
+        assertNull(schedule.getInitialWait());
+        assertEquals(MIN_POLL_INTERVAL, schedule.getPollInterval());
+        assertEquals(0, schedule.getSampleSize());
+    }
+
+    @Test
+    public void testSchedule_withoutHistory() {
+        scheduler = new ResourceStageScheduler(null, mockMetricsEmitter);
+
+        ResourceStageSchedule schedule = scheduler.schedule(ForecastResourceType.FORECAST, TEST_INPUT_SIZE_IN_BYTES);
+
+        assertNull(schedule.getExpectedDuration());
+        assertEquals(MIN_POLL_INTERVAL, schedule.getPollInterval());
+        assertEquals(0, schedule.getSampleSize());
+        assertFalse(scheduler.recordCompletion(ForecastResourceType.FORECAST, TEST_PREDICTOR_ARN, TEST_INPUT_SIZE_IN_BYTES,
+                buildActiveStatus(Duration.ofMinutes(10))));
+        verifyZeroInteractions(mockMetricsEmitter);
+    }
+
+    @Test
+    public void testNextPollWait_withHistory() {
+        when(mockHistory.getRecentDurations(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES)).thenReturn(
+                Arrays.asList(Duration.ofMinutes(50), Duration.ofMinutes(40), Duration.ofMinutes(60)));
+
+        // Until the predictor may be done at the earliest, then every poll interval
+        assertEquals(MAX_NEXT_POLL_WAIT, scheduler.nextPollWait(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES,
+                Duration.ofMinutes(1)));
+        assertEquals(Duration.ofMinutes(5), scheduler.nextPollWait(ForecastResourceType.PREDICTOR,
+                TEST_INPUT_SIZE_IN_BYTES, Duration.ofMinutes(35)));
+        assertEquals(MAX_POLL_INTERVAL, scheduler.nextPollWait(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES,
+                Duration.ofMinutes(45)));
+    }
+
+    @Test
+    public void testNextPollWait_withoutHistory() {
+        when(mockHistory.getRecentDurations(ForecastResourceType.FORECAST, null)).thenReturn(Collections.emptyList());
+
+        // A share of the time the forecast has taken so far
+        assertEquals(MIN_POLL_INTERVAL, scheduler.nextPollWait(ForecastResourceType.FORECAST, null, Duration.ZERO));
+        assertEquals(Duration.ofMinutes(5), scheduler.nextPollWait(ForecastResourceType.FORECAST, null,
+                Duration.ofMinutes(20)));
+        assertEquals(MAX_NEXT_POLL_WAIT, scheduler.nextPollWait(ForecastResourceType.FORECAST, null,
+                Duration.ofHours(3)));
+    }
+
+    @Test
+    public void testRecordCompletion() {
+        when(mockHistory.getRecentDurations(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES, TEST_PREDICTOR_ARN))
+                .thenReturn(Arrays.asList(Duration.ofMinutes(50), Duration.ofMinutes(40), Duration.ofMinutes(60)));
+
+        assertFalse(scheduler.recordCompletion(ForecastResourceType.PREDICTOR, TEST_PREDICTOR_ARN, TEST_INPUT_SIZE_IN_BYTES,
+                buildActiveStatus(Duration.ofMinutes(70))));
+        verify(mockHistory).record(ForecastResourceType.PREDICTOR, TEST_PREDICTOR_ARN, TEST_INPUT_SIZE_IN_BYTES,
+                TEST_CREATION_TIME, TEST_CREATION_TIME.plus(Duration.ofMinutes(70)));
+        verify(mockMetricsEmitter).emitCounts(ImmutableMap.of("ResourceType", "PREDICTOR"),
+                ImmutableMap.of(STAGE_REGRESSIONS_METRIC_NAME, 0));
+    }
+
+    @Test
+    public void testRecordCompletion_afterSchedule() {
+        when(mockHistory.getRecentDurations(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES)).thenReturn(
+                Arrays.asList(Duration.ofMinutes(50), Duration.ofMinutes(40), Duration.ofMinutes(60)));
+
+        scheduler.schedule(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES);
+        assertTrue(scheduler.recordCompletion(ForecastResourceType.PREDICTOR, TEST_PREDICTOR_ARN, TEST_INPUT_SIZE_IN_BYTES,
+                buildActiveStatus(Duration.ofMinutes(90))));
+
+        // The durations read for the schedule are compared with, without reading them again
+        verify(mockHistory, times(1)).getRecentDurations(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES);
+        verify(mockHistory, never()).getRecentDurations(any(), any(), any());
+    }
+
+    @Test
+    public void testRecordCompletion_withRegression() {
+        when(mockHistory.getRecentDurations(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES, TEST_PREDICTOR_ARN))
+                .thenReturn(Arrays.asList(Duration.ofMinutes(50), Duration.ofMinutes(40), Duration.ofMinutes(60)));
+
+        assertTrue(scheduler.recordCompletion(ForecastResourceType.PREDICTOR, TEST_PREDICTOR_ARN, TEST_INPUT_SIZE_IN_BYTES,
+                buildActiveStatus(Duration.ofMinutes(90))));
+        verify(mockMetricsEmitter).emitCounts(ImmutableMap.of("ResourceType", "PREDICTOR"),
+                ImmutableMap.of(STAGE_REGRESSIONS_METRIC_NAME, 1));
+    }
+
+    @Test
+    public void testRecordCompletion_withTooLittleHistoryForRegression() {
+        when(mockHistory.getRecentDurations(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES, TEST_PREDICTOR_ARN))
+                .thenReturn(Arrays.asList(Duration.ofMinutes(10), Duration.ofMinutes(10)));
+
+        assertFalse(scheduler.recordCompletion(ForecastResourceType.PREDICTOR, TEST_PREDICTOR_ARN, TEST_INPUT_SIZE_IN_BYTES,
+                buildActiveStatus(Duration.ofHours(5))));
+    }
+
+    @Test
+    public void testRecordCompletion_withResourceRecordedAlready() {
+        // Recorded by an earlier run of the step in another container
+        when(mockHistory.record(any(), any(), any(), any(), any())).thenReturn(false);
+
+        assertFalse(scheduler.recordCompletion(ForecastResourceType.PREDICTOR, TEST_PREDICTOR_ARN, TEST_INPUT_SIZE_IN_BYTES,
+                buildActiveStatus(Duration.ofMinutes(90))));
+        verify(mockHistory, never()).getRecentDurations(any(), any(), any());
+        verifyZeroInteractions(mockMetricsEmitter);
+    }
+
+    @Test
+    public void testRecordCompletion_twice() {
+        when(mockHistory.getRecentDurations(ForecastResourceType.PREDICTOR, TEST_INPUT_SIZE_IN_BYTES, TEST_PREDICTOR_ARN))
+                .thenReturn(Arrays.asList(Duration.ofMinutes(50), Duration.ofMinutes(40), Duration.ofMinutes(60)));
+
+        assertTrue(scheduler.recordCompletion(ForecastResourceType.PREDICTOR, TEST_PREDICTOR_ARN, TEST_INPUT_SIZE_IN_BYTES,
+                buildActiveStatus(Duration.ofMinutes(90))));
+        // A re-run of the step in the same container
+        assertFalse(scheduler.recordCompletion(ForecastResourceType.PREDICTOR, TEST_PREDICTOR_ARN, TEST_INPUT_SIZE_IN_BYTES,
+                buildActiveStatus(Duration.ofMinutes(90))));
+
+        verify(mockHistory, times(1)).record(any(), any(), any(), any(), any());
+        verify(mockHistory, times(1)).getRecentDurations(any(), any(), any());
+        verify(mockMetricsEmitter, times(1)).emitCounts(any(), any());
+    }
+
+    @Test
+    public void testRecordCompletion_withResourceInProgress() {
+        assertFalse(scheduler.recordCompletion(ForecastResourceType.PREDICTOR, TEST_PREDICTOR_ARN, TEST_INPUT_SIZE_IN_BYTES,
+                new ResourceStatus("CREATE_IN_PROGRESS", Date.from(TEST_CREATION_TIME), Date.from(TEST_CREATION_TIME))));
+        verify(mockHistory, never()).getRecentDurations(any(), any(), any());
+        verify(mockHistory, never()).record(any(), any(), any(), any(), any());
+    }
+
+    private static ResourceStatus buildActiveStatus(final Duration duration) {
+        return new ResourceStatus("ACTIVE", Date.from(TEST_CREATION_TIME), Date.from(TEST_CREATION_TIME.plus(duration)));
+    }
+}
@@ -0,0 +1,171 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.amazonaws.lambda.predictiongeneration.ResourceStatusWaiter.MAX_POLL_INTERVAL_IN_MILLIS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class ResourceStatusWaiterTest {
+
+    private static final long TEST_TIME_BUDGET_IN_MILLIS = TimeUnit.SECONDS.toMillis(120);
+    private static final String TEST_RESOURCE_NAME = "dummyPredictor";
+    private static final String TEST_RESOURCE_CREATING_STATUS = "CREATE_IN_PROGRESS";
+    private static final Duration TEST_POLL_INTERVAL = Duration.ofSeconds(5);
+    private static final ResourceStageSchedule TEST_SCHEDULE_WITHOUT_HISTORY =
+            new ResourceStageSchedule(null, null, TEST_POLL_INTERVAL, 0);
+    private static final ResourceStageSchedule TEST_SCHEDULE_WITH_SHORT_STAGES =
+            new ResourceStageSchedule(Duration.ofSeconds(30), Duration.ofSeconds(20), TEST_POLL_INTERVAL, 3);
+
+    private final AtomicLong currentTimeMillis = new AtomicLong(TimeUnit.DAYS.toMillis(1));
+    private final List<Long> sleptMillis = new ArrayList<>();
+
+    private ResourceStatusWaiter waiter;
+
+    @BeforeEach
+    public void setup() {
+        waiter = new ResourceStatusWaiter(TEST_TIME_BUDGET_IN_MILLIS, currentTimeMillis::get, millis -> {
+            sleptMillis.add(millis);
+            currentTimeMillis.addAndGet(millis);
+        });
+    }
+
+    @Test
+    public void testWaitForStatus_withCompletedStatus() {
+        ResourceStatus status = waiter.waitForStatus(TEST_RESOURCE_NAME, buildStatus("ACTIVE", null),
+                () -> fail("The schedule is not needed"), () -> fail("The resource is not described again"));
+
+        assertEquals("ACTIVE", status.getStatus());
+        assertTrue(sleptMillis.isEmpty());
+    }
+
+    @Test
+    public void testWaitForStatus_withInitialWaitWithinBudget() {
+        // Created 20 seconds ago and the fastest latest ones took half a minute
+        Date creationTime = new Date(currentTimeMillis.get() - TimeUnit.SECONDS.toMillis(20));
+        Iterator<ResourceStatus> statuses = Arrays.asList(buildStatus("ACTIVE", creationTime)).iterator();
+
+        ResourceStatus status = waiter.waitForStatus(TEST_RESOURCE_NAME, buildStatus(TEST_RESOURCE_CREATING_STATUS, creationTime),
+                () -> new ResourceStageSchedule(Duration.ofSeconds(60), Duration.ofSeconds(30), TEST_POLL_INTERVAL, 3),
+                statuses::next);
+
+        // Polled once when it may be done
+        assertEquals("ACTIVE", status.getStatus());
+        assertEquals(Collections.singletonList(TimeUnit.SECONDS.toMillis(10)), sleptMillis);
+    }
+
+    @Test
+    public void testWaitForStatus_withInitialWaitOver() {
+        Date creationTime = new Date(currentTimeMillis.get() - TimeUnit.SECONDS.toMillis(40));
+        Iterator<ResourceStatus> statuses = Arrays.asList(buildStatus(TEST_RESOURCE_CREATING_STATUS, creationTime),
+                buildStatus("ACTIVE", creationTime)).iterator();
+
+        ResourceStatus status = waiter.waitForStatus(TEST_RESOURCE_NAME, buildStatus(TEST_RESOURCE_CREATING_STATUS, creationTime),
+                () -> new ResourceStageSchedule(Duration.ofSeconds(60), Duration.ofSeconds(30), Duration.ofSeconds(8), 3),
+                statuses::next);
+
+        // Polled at the scheduled interval right away
+        assertEquals("ACTIVE", status.getStatus());
+        assertEquals(Arrays.asList(TimeUnit.SECONDS.toMillis(8), TimeUnit.SECONDS.toMillis(12)), sleptMillis);
+    }
+
+    @Test
+    public void testWaitForStatus_withInitialWaitBeyondBudget() {
+        Date creationTime = new Date(currentTimeMillis.get());
+
+        ResourceStatus status = waiter.waitForStatus(TEST_RESOURCE_NAME, buildStatus(TEST_RESOURCE_CREATING_STATUS, creationTime),
+                () -> new ResourceStageSchedule(Duration.ofHours(2), Duration.ofHours(1), Duration.ofMinutes(6), 5),
+                () -> fail("The resource is not described again"));
+
+        // Left to the next run of the step without waiting
+        assertEquals(TEST_RESOURCE_CREATING_STATUS, status.getStatus());
+        assertTrue(sleptMillis.isEmpty());
+    }
+
+    @Test
+    public void testWaitForStatus_withExpectedDurationBeyondBudget() {
+        Date creationTime = new Date(currentTimeMillis.get());
+
+        // The fastest latest ones were done within the budget, but not the typical one
+        ResourceStatus status = waiter.waitForStatus(TEST_RESOURCE_NAME, buildStatus(TEST_RESOURCE_CREATING_STATUS, creationTime),
+                () -> new ResourceStageSchedule(Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofSeconds(30), 5),
+                () -> fail("The resource is not described again"));
+
+        assertEquals(TEST_RESOURCE_CREATING_STATUS, status.getStatus());
+        assertTrue(sleptMillis.isEmpty());
+    }
+
+    @Test
+    public void testWaitForStatus_withoutHistory() {
+        ResourceStatus status = waiter.waitForStatus(TEST_RESOURCE_NAME, buildStatus(TEST_RESOURCE_CREATING_STATUS, null),
+                () -> TEST_SCHEDULE_WITHOUT_HISTORY, () -> fail("The resource is not described again"));
+
+        // Nothing tells when it's done, so it's left to the next run of the step without waiting
+        assertEquals(TEST_RESOURCE_CREATING_STATUS, status.getStatus());
+        assertTrue(sleptMillis.isEmpty());
+    }
+
+    @Test
+    public void testWaitForStatus_withOverdueResource() {
+        Date creationTime = new Date(currentTimeMillis.get() - TimeUnit.MINUTES.toMillis(1));
+        Iterator<ResourceStatus> statuses = Arrays.asList(buildStatus(TEST_RESOURCE_CREATING_STATUS, creationTime),
+                buildStatus(TEST_RESOURCE_CREATING_STATUS, creationTime), buildStatus("ACTIVE", creationTime)).iterator();
+
+        ResourceStatus status = waiter.waitForStatus(TEST_RESOURCE_NAME, buildStatus(TEST_RESOURCE_CREATING_STATUS, creationTime),
+                () -> TEST_SCHEDULE_WITH_SHORT_STAGES, statuses::next);
+
+        // Polled at a growing interval
+        long pollIntervalInMillis = TEST_POLL_INTERVAL.toMillis();
+        assertEquals("ACTIVE", status.getStatus());
+        assertEquals(Arrays.asList(pollIntervalInMillis, pollIntervalInMillis * 3 / 2, pollIntervalInMillis * 9 / 4),
+                sleptMillis);
+    }
+
+    @Test
+    public void testWaitForStatus_withFailedStatus() {
+        Iterator<ResourceStatus> statuses = Arrays.asList(buildStatus("CREATE_FAILED", null)).iterator();
+
+        ResourceStatus status = waiter.waitForStatus(TEST_RESOURCE_NAME, buildStatus(TEST_RESOURCE_CREATING_STATUS, null),
+                () -> TEST_SCHEDULE_WITH_SHORT_STAGES, statuses::next);
+
+        assertEquals("CREATE_FAILED", status.getStatus());
+        assertEquals(1, sleptMillis.size());
+    }
+
+    @Test
+    public void testWaitForStatus_OutOfBudget() {
+        ResourceStatus status = waiter.waitForStatus(TEST_RESOURCE_NAME, buildStatus(TEST_RESOURCE_CREATING_STATUS, null),
+                () -> TEST_SCHEDULE_WITH_SHORT_STAGES, () -> buildStatus(TEST_RESOURCE_CREATING_STATUS, null));
+
+        // Never waits beyond the budget, and the interval doesn't grow beyond the max
+        assertEquals(TEST_RESOURCE_CREATING_STATUS, status.getStatus());
+        assertTrue(sleptMillis.stream().mapToLong(Long::longValue).sum() <= TEST_TIME_BUDGET_IN_MILLIS);
+        assertTrue(sleptMillis.stream().allMatch(millis -> millis <= MAX_POLL_INTERVAL_IN_MILLIS));
+    }
+
+    @Test
+    public void testWaitForStatus_withoutBudget() {
+        waiter = new ResourceStatusWaiter(0L, currentTimeMillis::get, millis -> fail("Never sleeps"));
+
+        ResourceStatus status = waiter.waitForStatus(TEST_RESOURCE_NAME, buildStatus(TEST_RESOURCE_CREATING_STATUS, null),
+                () -> fail("The schedule is not needed"), () -> fail("The resource is not described again"));
+
+        assertEquals(TEST_RESOURCE_CREATING_STATUS, status.getStatus());
+    }
+
+    private static ResourceStatus buildStatus(final String status, final Date creationTime) {
+        return new ResourceStatus(status, creationTime, null);
+    }
+}
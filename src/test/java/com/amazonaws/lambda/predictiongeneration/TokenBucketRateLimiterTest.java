@@ -0,0 +1,53 @@
+package com.amazonaws.lambda.predictiongeneration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TokenBucketRateLimiterTest {
+
+    private static final long ONE_SECOND_IN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong nanoTime = new AtomicLong(0L);
+
+    @Test
+    public void testReserve() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(2, 2, nanoTime::get);
+
+        // The burst of the capacity is taken at once, then a token every half second
+        assertEquals(0L, rateLimiter.reserve(Long.MAX_VALUE));
+        assertEquals(0L, rateLimiter.reserve(Long.MAX_VALUE));
+        assertEquals(ONE_SECOND_IN_NANOS / 2, rateLimiter.reserve(Long.MAX_VALUE));
+        assertEquals(ONE_SECOND_IN_NANOS, rateLimiter.reserve(Long.MAX_VALUE));
+
+        // The reserved tokens are refilled first
+        nanoTime.set(ONE_SECOND_IN_NANOS);
+        assertEquals(ONE_SECOND_IN_NANOS / 2, rateLimiter.reserve(Long.MAX_VALUE));
+
+        // The bucket doesn't fill beyond its capacity after a quiet period
+        nanoTime.set(10 * ONE_SECOND_IN_NANOS);
+        assertEquals(0L, rateLimiter.reserve(Long.MAX_VALUE));
+        assertEquals(0L, rateLimiter.reserve(Long.MAX_VALUE));
+        assertEquals(ONE_SECOND_IN_NANOS / 2, rateLimiter.reserve(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testReserve_AfterDeadline() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1, 1, nanoTime::get);
+
+        assertEquals(0L, rateLimiter.reserve(0L));
+        assertEquals(-1L, rateLimiter.reserve(ONE_SECOND_IN_NANOS / 2));
+        // The token is not taken when it's after the deadline
+        assertEquals(ONE_SECOND_IN_NANOS, rateLimiter.reserve(ONE_SECOND_IN_NANOS));
+    }
+
+    @Test
+    public void testConstructor_WithInvalidRate() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(1, 0));
+    }
+}
@@ -0,0 +1,276 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.local.embedded.DynamoDBEmbedded;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.lambda.runtime.Context;
+import org.junit.Rule;
+import org.junit.contrib.java.lang.system.EnvironmentVariables;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.amazonaws.lambda.queryingpredictionresult.PredictionResultFileLoader.DYNAMODB_PREDICTION_METADATA_LATEST_PRED_DATA_FREQ_IN_SEC_ATTR_NAME;
+import static com.amazonaws.lambda.queryingpredictionresult.PredictionResultFileLoader.DYNAMODB_PREDICTION_METADATA_LATEST_PRED_UUID_ATTR_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BulkQueryPredictionResultHandlerTest {
+
+    private static final String AWS_REGION = "us-east-1";
+    private static final String PREDICTION_TABLE_NAME = "LocalTestTable";
+    private static final String PREDICTION_TABLE_HASH_KEY = PredictionResultItem.Attribute.ITEM_ID;
+    private static final String PREDICTION_TABLE_RANGE_KEY = PredictionResultItem.Attribute.DATE;
+    private static final String PREDICTION_METADATA_TABLE_NAME = "PredictionMetadata";
+    private static final String PREDICTION_METADATA_TABLE_HASH_KEY = "metadataKey";
+    private static final String PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME = "metadataValue";
+
+    private static final String TEST_FORECAST_EXPORT_JOB = "fej_1";
+    private static final Instant TEST_START_TIME = Instant.parse("2019-01-01T00:00:00Z");
+    private static final int TEST_NUMBER_OF_ITEMS = 30;
+    private static final int TEST_NUMBER_OF_HOURS = 6;
+    private static final long TEST_DATA_FREQUENCY_IN_SECONDS = 3600L;
+    private static final int TEST_QUERY_PAGE_SIZE = 4;
+    // Fewer threads than items, so that the sliding window of the in-flight queries moves
+    private static final int TEST_MAX_CONCURRENT_QUERIES = 3;
+    private static final long TEST_BASE_BACKOFF_IN_MILLIS = 1L;
+
+    @Rule
+    public final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+
+    @Mock
+    private Context context;
+
+    private AmazonDynamoDB localDdbClient;
+    private BulkQueryPredictionResultHandler handler;
+
+    @BeforeEach
+    void setup() {
+
+        // Setup Env variables
+        environmentVariables.set("AWS_REGION", AWS_REGION);
+        environmentVariables.set("PREDICTION_TABLE_NAME", PREDICTION_TABLE_NAME);
+        environmentVariables.set("PREDICTION_TABLE_HASH_KEY", PREDICTION_TABLE_HASH_KEY);
+        environmentVariables.set("PREDICTION_TABLE_RANGE_KEY", PREDICTION_TABLE_RANGE_KEY);
+        environmentVariables.set("PREDICTION_METADATA_TABLE_NAME", PREDICTION_METADATA_TABLE_NAME);
+        environmentVariables.set("PREDICTION_METADATA_TABLE_HASH_KEY", PREDICTION_METADATA_TABLE_HASH_KEY);
+        environmentVariables.set("PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME", PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME);
+
+        localDdbClient = initLocalDynamoDB();
+        handler = new BulkQueryPredictionResultHandler(new PredictionResultQueryService(localDdbClient,
+                new PredictionMetadataCache(localDdbClient), TEST_QUERY_PAGE_SIZE, TEST_MAX_CONCURRENT_QUERIES,
+                TEST_BASE_BACKOFF_IN_MILLIS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        localDdbClient.deleteTable(PREDICTION_METADATA_TABLE_NAME);
+        localDdbClient.deleteTable(PREDICTION_TABLE_NAME);
+        localDdbClient = null;
+        handler = null;
+    }
+
+    @Test
+    public void testBulkQueryPredictionResult() {
+        List<String> itemIds = IntStream.range(0, TEST_NUMBER_OF_ITEMS)
+                .mapToObj(this::getItemId)
+                .collect(Collectors.toList());
+        itemIds.forEach(this::putPredictions);
+        putLatestForecastExportJobName();
+
+        // Request the items in the reverse order with an unknown item in the middle
+        List<String> requestedItemIds = new ArrayList<>(itemIds);
+        Collections.reverse(requestedItemIds);
+        requestedItemIds.add(TEST_NUMBER_OF_ITEMS / 2, "unknownItem");
+
+        BulkQueryPredictionResultResponse response = handler.handleRequest(BulkQueryPredictionResultRequest.builder()
+                .itemIds(requestedItemIds)
+                .startDate(TEST_START_TIME.plus(1, ChronoUnit.HOURS).toString())
+                .endDate(TEST_START_TIME.plus(4, ChronoUnit.HOURS).toString())
+                .build(), context);
+
+        assertEquals(requestedItemIds, response.getResults().stream()
+                .map(QueryPredictionResultResponse::getItemId)
+                .collect(Collectors.toList()));
+        for (QueryPredictionResultResponse result : response.getResults()) {
+            assertEquals(TEST_FORECAST_EXPORT_JOB, result.getForecastExportJobName());
+            assertEquals(TEST_DATA_FREQUENCY_IN_SECONDS, result.getDataFrequencyInSeconds());
+            if (result.getItemId().equals("unknownItem")) {
+                assertTrue(result.getPredictions().isEmpty());
+                continue;
+            }
+
+            int itemIndex = Integer.parseInt(result.getItemId().substring("item".length()));
+            assertEquals(4, result.getPredictions().size());
+            for (int i = 0; i < result.getPredictions().size(); i++) {
+                int hour = i + 1;
+                assertEquals(TEST_START_TIME.plus(hour, ChronoUnit.HOURS).toString(), result.getPredictions().get(i).getDate());
+                assertEquals(itemIndex * 100 + hour, result.getPredictions().get(i).getP50());
+            }
+        }
+    }
+
+    @Test
+    public void testBulkQueryPredictionResult_WithThrottledQueries() {
+        AmazonDynamoDB mockDdbClient = mock(AmazonDynamoDB.class);
+        PredictionMetadataCache mockPredictionMetadataCache = mock(PredictionMetadataCache.class);
+        when(mockPredictionMetadataCache.get()).thenReturn(
+                new PredictionMetadataCache.PredictionMetadata(TEST_FORECAST_EXPORT_JOB, TEST_DATA_FREQUENCY_IN_SECONDS));
+        when(mockDdbClient.query(any(QueryRequest.class)))
+                .thenThrow(new ProvisionedThroughputExceededException("throttled"))
+                .thenThrow(new ProvisionedThroughputExceededException("throttled"))
+                .thenReturn(new QueryResult().withItems(Collections.emptyList()));
+        handler = new BulkQueryPredictionResultHandler(new PredictionResultQueryService(mockDdbClient,
+                mockPredictionMetadataCache, TEST_QUERY_PAGE_SIZE, 1, TEST_BASE_BACKOFF_IN_MILLIS));
+
+        BulkQueryPredictionResultResponse response = handler.handleRequest(BulkQueryPredictionResultRequest.builder()
+                .itemIds(Arrays.asList("item0", "item1"))
+                .startDate(TEST_START_TIME.toString())
+                .endDate(TEST_START_TIME.toString())
+                .build(), context);
+
+        assertEquals(2, response.getResults().size());
+        verify(mockDdbClient, times(4)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    public void testBulkQueryPredictionResult_WithPersistentlyThrottledQueries() {
+        AmazonDynamoDB mockDdbClient = mock(AmazonDynamoDB.class);
+        PredictionMetadataCache mockPredictionMetadataCache = mock(PredictionMetadataCache.class);
+        when(mockPredictionMetadataCache.get()).thenReturn(
+                new PredictionMetadataCache.PredictionMetadata(TEST_FORECAST_EXPORT_JOB, TEST_DATA_FREQUENCY_IN_SECONDS));
+        when(mockDdbClient.query(any(QueryRequest.class))).thenThrow(new ProvisionedThroughputExceededException("throttled"));
+        handler = new BulkQueryPredictionResultHandler(new PredictionResultQueryService(mockDdbClient,
+                mockPredictionMetadataCache, TEST_QUERY_PAGE_SIZE, 1, TEST_BASE_BACKOFF_IN_MILLIS));
+
+        RuntimeException thrown = assertThrows(RuntimeException.class,
+                () -> handler.handleRequest(BulkQueryPredictionResultRequest.builder()
+                        .itemIds(Collections.singletonList("item0"))
+                        .startDate(TEST_START_TIME.toString())
+                        .endDate(TEST_START_TIME.toString())
+                        .build(), context));
+
+        assertEquals(String.format("Failed to query item0$%s from table %s after %d attempts", TEST_FORECAST_EXPORT_JOB,
+                PREDICTION_TABLE_NAME, PredictionResultQueryService.MAX_NUMBER_OF_QUERY_ATTEMPTS), thrown.getMessage());
+        verify(mockDdbClient, times(PredictionResultQueryService.MAX_NUMBER_OF_QUERY_ATTEMPTS)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    public void testBulkQueryPredictionResult_WithInvalidRequest() {
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> handler.handleRequest(new BulkQueryPredictionResultRequest(), context));
+        assertEquals("itemIds is required", thrown.getMessage());
+
+        thrown = assertThrows(IllegalArgumentException.class,
+                () -> handler.handleRequest(BulkQueryPredictionResultRequest.builder()
+                        .itemIds(Arrays.asList("item0", " "))
+                        .startDate(TEST_START_TIME.toString())
+                        .endDate(TEST_START_TIME.toString())
+                        .build(), context));
+        assertEquals("itemIds should not contain any blank item id", thrown.getMessage());
+
+        thrown = assertThrows(IllegalArgumentException.class,
+                () -> handler.handleRequest(BulkQueryPredictionResultRequest.builder()
+                        .itemIds(IntStream.range(0, 501).mapToObj(this::getItemId).collect(Collectors.toList()))
+                        .startDate(TEST_START_TIME.toString())
+                        .endDate(TEST_START_TIME.toString())
+                        .build(), context));
+        assertEquals("Cannot query more than 500 items in a request, got 501", thrown.getMessage());
+    }
+
+    private String getItemId(final int itemIndex) {
+        return "item" + itemIndex;
+    }
+
+    /**
+     * Put the hourly predictions of the item, the p50 of each hour is (itemIndex * 100 + hour).
+     */
+    private void putPredictions(final String itemId) {
+        int itemIndex = Integer.parseInt(itemId.substring("item".length()));
+        for (int hour = 0; hour < TEST_NUMBER_OF_HOURS; hour++) {
+            double p50 = itemIndex * 100 + hour;
+            PredictionResultItem item = PredictionResultItem.builder()
+                    .hashKey(itemId + PredictionResultFileLoader.PREDICTION_TABLE_CSV_VALUE_SPLITTER + TEST_FORECAST_EXPORT_JOB)
+                    .sortKey(TEST_START_TIME.plus(hour, ChronoUnit.HOURS).toString())
+                    .p10(p50 - 1.5)
+                    .p50(p50)
+                    .p90(p50 + 1.5)
+                    .expirationTime(1L)
+                    .build();
+            localDdbClient.putItem(new PutItemRequest().withTableName(PREDICTION_TABLE_NAME).withItem(item.toAttributeValueMap()));
+        }
+    }
+
+    private void putLatestForecastExportJobName() {
+        putMetadata(DYNAMODB_PREDICTION_METADATA_LATEST_PRED_UUID_ATTR_NAME, TEST_FORECAST_EXPORT_JOB);
+        putMetadata(DYNAMODB_PREDICTION_METADATA_LATEST_PRED_DATA_FREQ_IN_SEC_ATTR_NAME, String.valueOf(TEST_DATA_FREQUENCY_IN_SECONDS));
+    }
+
+    private void putMetadata(final String metadataKey, final String metadataValue) {
+        Map<String, AttributeValue> metadataItem = new HashMap<>();
+        metadataItem.put(PREDICTION_METADATA_TABLE_HASH_KEY, new AttributeValue(metadataKey));
+        metadataItem.put(PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME, new AttributeValue(metadataValue));
+        localDdbClient.putItem(new PutItemRequest().withTableName(PREDICTION_METADATA_TABLE_NAME).withItem(metadataItem));
+    }
+
+    private AmazonDynamoDB initLocalDynamoDB() {
+        AmazonDynamoDB localDdbClient = DynamoDBEmbedded.create().amazonDynamoDB();
+        ProvisionedThroughput provisionedThroughput = new ProvisionedThroughput()
+                .withReadCapacityUnits(200L)
+                .withWriteCapacityUnits(200L);
+
+        // create local prediction result table
+        List<KeySchemaElement> predictionResultTableKeys = new ArrayList<>();
+        predictionResultTableKeys.add(new KeySchemaElement().withAttributeName(PREDICTION_TABLE_HASH_KEY).withKeyType(KeyType.HASH));
+        predictionResultTableKeys.add(new KeySchemaElement().withAttributeName(PREDICTION_TABLE_RANGE_KEY).withKeyType(KeyType.RANGE));
+        List<AttributeDefinition> predictionResultTableAttrs = new ArrayList<>();
+        predictionResultTableAttrs.add(new AttributeDefinition().withAttributeName(PREDICTION_TABLE_HASH_KEY).withAttributeType(ScalarAttributeType.S));
+        predictionResultTableAttrs.add(new AttributeDefinition().withAttributeName(PREDICTION_TABLE_RANGE_KEY).withAttributeType(ScalarAttributeType.S));
+        localDdbClient.createTable(new CreateTableRequest()
+                .withTableName(PREDICTION_TABLE_NAME)
+                .withKeySchema(predictionResultTableKeys)
+                .withAttributeDefinitions(predictionResultTableAttrs)
+                .withProvisionedThroughput(provisionedThroughput));
+
+        // create local prediction metadata table
+        localDdbClient.createTable(new CreateTableRequest()
+                .withTableName(PREDICTION_METADATA_TABLE_NAME)
+                .withKeySchema(Collections.singletonList(new KeySchemaElement()
+                        .withAttributeName(PREDICTION_METADATA_TABLE_HASH_KEY)
+                        .withKeyType(KeyType.HASH)))
+                .withAttributeDefinitions(Collections.singletonList(new AttributeDefinition()
+                        .withAttributeName(PREDICTION_METADATA_TABLE_HASH_KEY)
+                        .withAttributeType(ScalarAttributeType.S)))
+                .withProvisionedThroughput(provisionedThroughput));
+
+        return localDdbClient;
+    }
+}
@@ -20,18 +20,24 @@ import com.amazonaws.services.s3.event.S3EventNotification;
 import com.amazonaws.services.s3.event.S3EventNotification.S3EventNotificationRecord;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.Rule;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.LineNumberReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -40,12 +46,16 @@ import java.util.Map;
 
 import org.junit.contrib.java.lang.system.EnvironmentVariables;
 
-import static com.amazonaws.lambda.queryingpredictionresult.LoadDataFromS3ToDynamoDBHandler.DYNAMODB_PREDICTION_METADATA_LATEST_PRED_DATA_FREQ_IN_SEC_ATTR_NAME;
-import static com.amazonaws.lambda.queryingpredictionresult.LoadDataFromS3ToDynamoDBHandler.DYNAMODB_PREDICTION_METADATA_LATEST_PRED_UUID_ATTR_NAME;
+import static com.amazonaws.lambda.queryingpredictionresult.PredictionResultFileLoader.DYNAMODB_PREDICTION_METADATA_LATEST_PRED_DATA_FREQ_IN_SEC_ATTR_NAME;
+import static com.amazonaws.lambda.queryingpredictionresult.PredictionResultFileLoader.DYNAMODB_PREDICTION_METADATA_LATEST_PRED_UUID_ATTR_NAME;
+import static com.amazonaws.lambda.queryingpredictionresult.PredictionResultItemBatchWriter.MAX_NUMBER_OF_ITEMS_PER_BATCH_WRITE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class LoadDataFromS3ToDynamoDBHandlerTest {
@@ -60,6 +70,7 @@ public class LoadDataFromS3ToDynamoDBHandlerTest {
     private static final String PREDICTION_METADATA_TABLE_NAME = "PredictionMetadata";
     private static final String PREDICTION_METADATA_TABLE_HASH_KEY = "metadataKey";
     private static final String PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME = "metadataValue";
+    private static final String PREDICTION_SNAPSHOT_S3_FOLDER = "snapshot";
 
     // test csv files are located under folder: resources/tgt/
     private static final String TEST_EMPTY_FORECAST_EXPORT_JOB = "empty_forecast_export_job";
@@ -72,6 +83,9 @@ public class LoadDataFromS3ToDynamoDBHandlerTest {
     private static final String TEST_FORECAST_EXPORT_JOB_WITH_ONE_RECORD = "forecast_export_job_with_one_record";
     private static final String TEST_OBJECT_KEY2 = String.format("%s/%s_2019-10-16T21-40-00Z_part0.csv", UNIT_TEST_S3_FOLDER_NAME, TEST_FORECAST_EXPORT_JOB_WITH_ONE_RECORD);
 
+    private static final String TEST_FORECAST_EXPORT_JOB_WITH_MULTIPLE_WRITE_BATCHES = "forecast_export_job_with_multiple_write_batches";
+    private static final String TEST_OBJECT_KEY3 = String.format("%s/%s_2019-10-16T21-40-00Z_part0.csv", UNIT_TEST_S3_FOLDER_NAME, TEST_FORECAST_EXPORT_JOB_WITH_MULTIPLE_WRITE_BATCHES);
+
     @Rule
     public final EnvironmentVariables environmentVariables = new EnvironmentVariables();
 
@@ -94,6 +108,7 @@ public class LoadDataFromS3ToDynamoDBHandlerTest {
         environmentVariables.set("PREDICTION_METADATA_TABLE_NAME", PREDICTION_METADATA_TABLE_NAME);
         environmentVariables.set("PREDICTION_METADATA_TABLE_HASH_KEY", PREDICTION_METADATA_TABLE_HASH_KEY);
         environmentVariables.set("PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME", PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME);
+        environmentVariables.set("PREDICTION_SNAPSHOT_S3_FOLDER", PREDICTION_SNAPSHOT_S3_FOLDER);
 
         mockS3Client = initMockS3Client();
         localDdbClient = initLocalDynamoDB();
@@ -137,6 +152,47 @@ public class LoadDataFromS3ToDynamoDBHandlerTest {
         handler.handleRequest(makeMockS3Event(TEST_OBJECT_KEY1), context);
         verifyDynamoDB(TEST_FORECAST_EXPORT_JOB1);
 
+        // The snapshot is uploaded next to the prediction result file
+        ArgumentCaptor<PutObjectRequest> putObjectRequestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(mockS3Client).putObject(putObjectRequestCaptor.capture());
+        assertEquals(String.format("%s/%s_2019-10-16T21-40-00Z_part0.snapshot", PREDICTION_SNAPSHOT_S3_FOLDER, TEST_FORECAST_EXPORT_JOB1),
+                putObjectRequestCaptor.getValue().getKey());
+        assertEquals("application/octet-stream", putObjectRequestCaptor.getValue().getMetadata().getContentType());
+
+        // cleanup
+        refreshLocalDynamoDB();
+    }
+
+    @Test
+    public void testLoadDataFromS3ToDynamoDB_WithMultipleWriteBatches() {
+        // Generate a prediction result file which needs to be written to DynamoDB in many concurrent batches
+        int numberOfHours = MAX_NUMBER_OF_ITEMS_PER_BATCH_WRITE * 40 + 13;
+        String[] itemIds = {"wp100", "wp101"};
+        StringBuilder predictionResultFileContent = new StringBuilder("date,item_id,mean,p10,p50,p90");
+        Instant startTime = Instant.parse("2019-01-01T00:00:00Z");
+        for (int hour = 0; hour < numberOfHours; hour++) {
+            for (String itemId : itemIds) {
+                predictionResultFileContent.append(String.format("\n%s,%s,21,-8,21,49",
+                        startTime.plus(hour, ChronoUnit.HOURS), itemId));
+            }
+        }
+        doAnswer(invocationOnMock -> mockS3ObjectFromString(predictionResultFileContent.toString()))
+                .when(mockS3Client).getObject(argThat((GetObjectRequest req) -> TEST_OBJECT_KEY3.equals(req.getKey())));
+
+        handler.handleRequest(makeMockS3Event(TEST_OBJECT_KEY3), context);
+
+        ScanResult predictionTableScanResult = localDdbClient.scan(new ScanRequest().withTableName(PREDICTION_TABLE_NAME));
+        assertEquals(numberOfHours * itemIds.length, predictionTableScanResult.getItems().size());
+
+        Map<String, AttributeValue> latestPredictionDataFreqHashKey = new HashMap<>();
+        latestPredictionDataFreqHashKey.put(PREDICTION_METADATA_TABLE_HASH_KEY,
+                new AttributeValue(DYNAMODB_PREDICTION_METADATA_LATEST_PRED_DATA_FREQ_IN_SEC_ATTR_NAME));
+        GetItemResult getDataFreqItemResult = localDdbClient.getItem(new GetItemRequest()
+                .withTableName(PREDICTION_METADATA_TABLE_NAME)
+                .withKey(latestPredictionDataFreqHashKey));
+        assertEquals(new AttributeValue(String.valueOf(TEST_PREDICTION1_DATA_FREQUENCY_IN_SECONDS)),
+                getDataFreqItemResult.getItem().get(PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME));
+
         // cleanup
         refreshLocalDynamoDB();
     }
@@ -282,6 +338,14 @@ public class LoadDataFromS3ToDynamoDBHandlerTest {
         if (inputStream == null) {
             throw new NullPointerException();
         }
+        return mockS3ObjectFromInputStream(inputStream);
+    }
+
+    private S3Object mockS3ObjectFromString(String content) {
+        return mockS3ObjectFromInputStream(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private S3Object mockS3ObjectFromInputStream(InputStream inputStream) {
         S3Object s3Object = mock(S3Object.class);
 
         // mock an S3ObjectInputStream (stream returned from S3 GET response)
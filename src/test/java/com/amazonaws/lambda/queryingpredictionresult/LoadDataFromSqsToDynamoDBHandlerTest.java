@@ -0,0 +1,264 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.local.embedded.DynamoDBEmbedded;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import org.junit.Rule;
+import org.junit.contrib.java.lang.system.EnvironmentVariables;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.amazonaws.lambda.queryingpredictionresult.PredictionResultFileLoader.DYNAMODB_PREDICTION_METADATA_LATEST_PRED_UUID_ATTR_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LoadDataFromSqsToDynamoDBHandlerTest {
+
+    private static final String AWS_REGION = "us-east-1";
+    private static final String PREDICTION_TABLE_NAME = "LocalTestTable";
+    private static final String PREDICTION_TABLE_HASH_KEY = PredictionResultItem.Attribute.ITEM_ID;
+    private static final String PREDICTION_TABLE_RANGE_KEY = PredictionResultItem.Attribute.DATE;
+    private static final String FORECAST_HORIZON_IN_DAYS = "3";
+    private static final String PREDICTION_METADATA_TABLE_NAME = "PredictionMetadata";
+    private static final String PREDICTION_METADATA_TABLE_HASH_KEY = "metadataKey";
+    private static final String PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME = "metadataValue";
+    private static final String PREDICTION_SNAPSHOT_S3_FOLDER = "snapshot";
+
+    private static final String TEST_BUCKET_NAME = "dummyBucket";
+    private static final String TEST_FORECAST_EXPORT_JOB = "forecast_export_job_with_many_parts";
+    private static final int TEST_NUMBER_OF_PARTS = 6;
+    private static final int TEST_NUMBER_OF_HOURS_PER_PART = 50;
+    private static final String[] TEST_ITEM_IDS = {"wp100", "wp101"};
+
+    @Rule
+    public final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+
+    @Mock
+    private Context context;
+
+    private AmazonS3 mockS3Client;
+    private AmazonDynamoDB localDdbClient;
+    private LoadDataFromSqsToDynamoDBHandler handler;
+
+    @BeforeEach
+    void setup() {
+
+        // Setup Env variables
+        environmentVariables.set("AWS_REGION", AWS_REGION);
+        environmentVariables.set("PREDICTION_TABLE_NAME", PREDICTION_TABLE_NAME);
+        environmentVariables.set("PREDICTION_TABLE_HASH_KEY", PREDICTION_TABLE_HASH_KEY);
+        environmentVariables.set("PREDICTION_TABLE_RANGE_KEY", PREDICTION_TABLE_RANGE_KEY);
+        environmentVariables.set("FORECAST_HORIZON_IN_DAYS", FORECAST_HORIZON_IN_DAYS);
+        environmentVariables.set("PREDICTION_METADATA_TABLE_NAME", PREDICTION_METADATA_TABLE_NAME);
+        environmentVariables.set("PREDICTION_METADATA_TABLE_HASH_KEY", PREDICTION_METADATA_TABLE_HASH_KEY);
+        environmentVariables.set("PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME", PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME);
+        environmentVariables.set("PREDICTION_SNAPSHOT_S3_FOLDER", PREDICTION_SNAPSHOT_S3_FOLDER);
+
+        mockS3Client = initMockS3Client();
+        localDdbClient = initLocalDynamoDB();
+        handler = new LoadDataFromSqsToDynamoDBHandler(
+                mockS3Client,
+                localDdbClient
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        localDdbClient.deleteTable(PREDICTION_METADATA_TABLE_NAME);
+        localDdbClient.deleteTable(PREDICTION_TABLE_NAME);
+        localDdbClient = null;
+        mockS3Client = null;
+        handler = null;
+    }
+
+    @Test
+    public void testLoadDataFromSqsToDynamoDB_WithManyParts() {
+        List<SQSEvent.SQSMessage> messages = new ArrayList<>();
+        for (int part = 0; part < TEST_NUMBER_OF_PARTS; part++) {
+            messages.add(makeMessage("message" + part, makeS3EventNotificationJson(makePartObjectKey(part))));
+        }
+        // The test event sent by S3 when the notification is configured is simply ignored
+        messages.add(makeMessage("testEventMessage",
+                "{\"Service\":\"Amazon S3\",\"Event\":\"s3:TestEvent\",\"Bucket\":\"" + TEST_BUCKET_NAME + "\"}"));
+
+        SQSBatchResponse response = handler.handleRequest(makeSqsEvent(messages), context);
+
+        assertTrue(response.getBatchItemFailures().isEmpty());
+
+        ScanResult predictionTableScanResult = localDdbClient.scan(new ScanRequest().withTableName(PREDICTION_TABLE_NAME));
+        assertEquals(TEST_NUMBER_OF_PARTS * TEST_NUMBER_OF_HOURS_PER_PART * TEST_ITEM_IDS.length,
+                predictionTableScanResult.getItems().size());
+
+        Map<String, AttributeValue> latestPredictionUuidHashKey = new HashMap<>();
+        latestPredictionUuidHashKey.put(PREDICTION_METADATA_TABLE_HASH_KEY,
+                new AttributeValue(DYNAMODB_PREDICTION_METADATA_LATEST_PRED_UUID_ATTR_NAME));
+        GetItemResult getUuidItemResult = localDdbClient.getItem(new GetItemRequest()
+                .withTableName(PREDICTION_METADATA_TABLE_NAME)
+                .withKey(latestPredictionUuidHashKey));
+        assertEquals(new AttributeValue(TEST_FORECAST_EXPORT_JOB),
+                getUuidItemResult.getItem().get(PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME));
+    }
+
+    @Test
+    public void testLoadDataFromSqsToDynamoDB_WithPartialBatchFailures() {
+        List<SQSEvent.SQSMessage> messages = Arrays.asList(
+                makeMessage("goodMessage0", makeS3EventNotificationJson(makePartObjectKey(0))),
+                makeMessage("unparsableKeyMessage", makeS3EventNotificationJson("target/dummy.csv")),
+                makeMessage("goodMessage1", makeS3EventNotificationJson(makePartObjectKey(1))),
+                makeMessage("missingObjectMessage", makeS3EventNotificationJson(
+                        String.format("target/%s_2019-10-16T21-40-00Z_part9.csv", TEST_FORECAST_EXPORT_JOB))),
+                makeMessage("malformedMessage", "not a json"));
+
+        SQSBatchResponse response = handler.handleRequest(makeSqsEvent(messages), context);
+
+        List<String> failedMessageIds = response.getBatchItemFailures().stream()
+                .map(SQSBatchResponse.BatchItemFailure::getItemIdentifier)
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList("malformedMessage", "missingObjectMessage", "unparsableKeyMessage"), failedMessageIds);
+
+        ScanResult predictionTableScanResult = localDdbClient.scan(new ScanRequest().withTableName(PREDICTION_TABLE_NAME));
+        assertEquals(2 * TEST_NUMBER_OF_HOURS_PER_PART * TEST_ITEM_IDS.length, predictionTableScanResult.getItems().size());
+    }
+
+    private String makePartObjectKey(final int part) {
+        return String.format("target/%s_2019-10-16T21-40-00Z_part%d.csv", TEST_FORECAST_EXPORT_JOB, part);
+    }
+
+    /**
+     * Each part holds a different range of hours for the same items, just like a real export split into many files.
+     */
+    private String makePartContent(final int part) {
+        StringBuilder content = new StringBuilder("date,item_id,mean,p10,p50,p90");
+        Instant startTime = Instant.parse("2019-01-01T00:00:00Z").plus((long) part * TEST_NUMBER_OF_HOURS_PER_PART, ChronoUnit.HOURS);
+        for (int hour = 0; hour < TEST_NUMBER_OF_HOURS_PER_PART; hour++) {
+            for (String itemId : TEST_ITEM_IDS) {
+                content.append(String.format("\n%s,%s,21,-8,21,49", startTime.plus(hour, ChronoUnit.HOURS), itemId));
+            }
+        }
+        return content.toString();
+    }
+
+    private String makeS3EventNotificationJson(final String objectKey) {
+        return "{\"Records\":[{"
+                + "\"eventVersion\":\"2.1\","
+                + "\"eventSource\":\"aws:s3\","
+                + "\"awsRegion\":\"" + AWS_REGION + "\","
+                + "\"eventTime\":\"2019-10-16T21:40:00.000Z\","
+                + "\"eventName\":\"ObjectCreated:Put\","
+                + "\"s3\":{"
+                + "\"s3SchemaVersion\":\"1.0\","
+                + "\"configurationId\":\"dummyConfigurationId\","
+                + "\"bucket\":{\"name\":\"" + TEST_BUCKET_NAME + "\",\"arn\":\"arn:aws:s3:::" + TEST_BUCKET_NAME + "\"},"
+                + "\"object\":{\"key\":\"" + objectKey + "\",\"size\":1024,\"eTag\":\"dummyEtag\",\"sequencer\":\"0\"}"
+                + "}}]}";
+    }
+
+    private SQSEvent.SQSMessage makeMessage(final String messageId, final String body) {
+        SQSEvent.SQSMessage message = new SQSEvent.SQSMessage();
+        message.setMessageId(messageId);
+        message.setBody(body);
+        return message;
+    }
+
+    private SQSEvent makeSqsEvent(final List<SQSEvent.SQSMessage> messages) {
+        SQSEvent sqsEvent = new SQSEvent();
+        sqsEvent.setRecords(messages);
+        return sqsEvent;
+    }
+
+    private AmazonDynamoDB initLocalDynamoDB() {
+        AmazonDynamoDB localDdbClient = DynamoDBEmbedded.create().amazonDynamoDB();
+        ProvisionedThroughput provisionedThroughput = new ProvisionedThroughput()
+                .withReadCapacityUnits(200L)
+                .withWriteCapacityUnits(200L);
+
+        // create local prediction result table
+        List<KeySchemaElement> predictionResultTableKeys = new ArrayList<>();
+        predictionResultTableKeys.add(new KeySchemaElement().withAttributeName(PREDICTION_TABLE_HASH_KEY).withKeyType(KeyType.HASH));
+        predictionResultTableKeys.add(new KeySchemaElement().withAttributeName(PREDICTION_TABLE_RANGE_KEY).withKeyType(KeyType.RANGE));
+        List<AttributeDefinition> predictionResultTableAttrs = new ArrayList<>();
+        predictionResultTableAttrs.add(new AttributeDefinition().withAttributeName(PREDICTION_TABLE_HASH_KEY).withAttributeType(ScalarAttributeType.S));
+        predictionResultTableAttrs.add(new AttributeDefinition().withAttributeName(PREDICTION_TABLE_RANGE_KEY).withAttributeType(ScalarAttributeType.S));
+        localDdbClient.createTable(new CreateTableRequest()
+                .withTableName(PREDICTION_TABLE_NAME)
+                .withKeySchema(predictionResultTableKeys)
+                .withAttributeDefinitions(predictionResultTableAttrs)
+                .withProvisionedThroughput(provisionedThroughput));
+
+        // create local prediction metadata table
+        localDdbClient.createTable(new CreateTableRequest()
+                .withTableName(PREDICTION_METADATA_TABLE_NAME)
+                .withKeySchema(Collections.singletonList(new KeySchemaElement()
+                        .withAttributeName(PREDICTION_METADATA_TABLE_HASH_KEY)
+                        .withKeyType(KeyType.HASH)))
+                .withAttributeDefinitions(Collections.singletonList(new AttributeDefinition()
+                        .withAttributeName(PREDICTION_METADATA_TABLE_HASH_KEY)
+                        .withAttributeType(ScalarAttributeType.S)))
+                .withProvisionedThroughput(provisionedThroughput));
+
+        return localDdbClient;
+    }
+
+    private AmazonS3 initMockS3Client() {
+        AmazonS3 mockS3Client = mock(AmazonS3.class);
+        when(mockS3Client.getObject(any(GetObjectRequest.class))).thenAnswer(
+                invocationOnMock -> {
+                    GetObjectRequest req = invocationOnMock.getArgument(0);
+                    for (int part = 0; part < TEST_NUMBER_OF_PARTS; part++) {
+                        if (makePartObjectKey(part).equals(req.getKey())) {
+                            return mockS3ObjectFromString(makePartContent(part));
+                        }
+                    }
+                    // Any request that cannot find match key, we should throw an S3 Exception
+                    throw new AmazonS3Exception("Object not found or not available");
+                }
+        );
+        return mockS3Client;
+    }
+
+    private S3Object mockS3ObjectFromString(final String content) {
+        S3Object s3Object = mock(S3Object.class);
+
+        // mock an S3ObjectInputStream (stream returned from S3 GET response)
+        S3ObjectInputStream mockS3ObjectInputStream = new S3ObjectInputStream(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), null);
+
+        when(s3Object.getObjectContent()).thenReturn(mockS3ObjectInputStream);
+        return s3Object;
+    }
+}
@@ -0,0 +1,196 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.lambda.metrics.MetricsEmitter;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ItemResponse;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.TransactGetItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactGetItemsResult;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.contrib.java.lang.system.EnvironmentVariables;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class PredictionMetadataCacheTest {
+
+    private static final String PREDICTION_METADATA_TABLE_NAME = "PredictionMetadata";
+    private static final String PREDICTION_METADATA_TABLE_HASH_KEY = "metadataKey";
+    private static final String PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME = "metadataValue";
+
+    private static final Duration TEST_TTL = Duration.ofSeconds(100);
+    private static final Instant TEST_START_TIME = Instant.parse("2019-01-01T00:00:00Z");
+
+    @Rule
+    public final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+
+    private AmazonDynamoDB mockDdbClient;
+    private AtomicReference<Instant> now;
+    private List<Runnable> scheduledRefreshes;
+    private MetricsEmitter mockMetricsEmitter;
+    private PredictionMetadataCache cache;
+
+    @BeforeEach
+    void setup() {
+        environmentVariables.set("PREDICTION_METADATA_TABLE_NAME", PREDICTION_METADATA_TABLE_NAME);
+        environmentVariables.set("PREDICTION_METADATA_TABLE_HASH_KEY", PREDICTION_METADATA_TABLE_HASH_KEY);
+        environmentVariables.set("PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME", PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME);
+
+        mockDdbClient = mock(AmazonDynamoDB.class);
+        now = new AtomicReference<>(TEST_START_TIME);
+        Clock mockClock = mock(Clock.class);
+        when(mockClock.instant()).thenAnswer(invocation -> now.get());
+
+        // The refresh-ahead tasks are run manually, so that the tests can tell what is served before and after them
+        scheduledRefreshes = new ArrayList<>();
+        mockMetricsEmitter = mock(MetricsEmitter.class);
+        cache = new PredictionMetadataCache(mockDdbClient, mockClock, scheduledRefreshes::add, TEST_TTL,
+                mockMetricsEmitter);
+    }
+
+    @Test
+    public void testGet_withinRefreshAheadWindow() {
+        mockMetadata("fej_1", 3600L);
+
+        assertEquals(new PredictionMetadataCache.PredictionMetadata("fej_1", 3600L), cache.get());
+        advanceClock(Duration.ofSeconds(50));
+        assertEquals(new PredictionMetadataCache.PredictionMetadata("fej_1", 3600L), cache.get());
+
+        verify(mockDdbClient, times(1)).transactGetItems(any(TransactGetItemsRequest.class));
+        assertEquals(new PredictionMetadataCache.CacheStats(1, 1, 0, 0, 0, 0), cache.getStats());
+    }
+
+    @Test
+    public void testGet_withRefreshAhead() {
+        mockMetadata("fej_1", 3600L);
+        cache.get();
+
+        // The new version is only served after the background refresh
+        mockMetadata("fej_2", 3600L);
+        advanceClock(Duration.ofSeconds(90));
+        assertEquals("fej_1", cache.get().getForecastExportJobName());
+        assertEquals("fej_1", cache.get().getForecastExportJobName());
+        assertEquals(1, scheduledRefreshes.size());
+
+        scheduledRefreshes.get(0).run();
+        assertEquals("fej_2", cache.get().getForecastExportJobName());
+
+        verify(mockDdbClient, times(2)).transactGetItems(any(TransactGetItemsRequest.class));
+        assertEquals(new PredictionMetadataCache.CacheStats(3, 1, 1, 0, 0, 1), cache.getStats());
+    }
+
+    @Test
+    public void testGet_withExpiredVersion() {
+        mockMetadata("fej_1", 3600L);
+        cache.get();
+
+        mockMetadata("fej_2", 900L);
+        advanceClock(TEST_TTL);
+        assertEquals(new PredictionMetadataCache.PredictionMetadata("fej_2", 900L), cache.get());
+
+        verify(mockDdbClient, times(2)).transactGetItems(any(TransactGetItemsRequest.class));
+        assertEquals(new PredictionMetadataCache.CacheStats(0, 2, 0, 0, 0, 1), cache.getStats());
+    }
+
+    @Test
+    public void testGet_withRefreshFailureServingStaleVersion() {
+        mockMetadata("fej_1", 3600L);
+        cache.get();
+
+        when(mockDdbClient.transactGetItems(any(TransactGetItemsRequest.class)))
+                .thenThrow(new ProvisionedThroughputExceededException("throttled"));
+        advanceClock(TEST_TTL.multipliedBy(2));
+        assertEquals("fej_1", cache.get().getForecastExportJobName());
+
+        assertEquals(new PredictionMetadataCache.CacheStats(0, 2, 0, 1, 1, 0), cache.getStats());
+    }
+
+    @Test
+    public void testGet_withInvalidation() {
+        mockMetadata("fej_1", 3600L);
+        cache.get();
+
+        mockMetadata("fej_2", 3600L);
+        cache.invalidate();
+        assertEquals("fej_2", cache.get().getForecastExportJobName());
+
+        verify(mockDdbClient, times(2)).transactGetItems(any(TransactGetItemsRequest.class));
+    }
+
+    @Test
+    public void testGet_emitsStatsPeriodically() {
+        mockMetadata("fej_1", 3600L);
+        cache.get();
+        cache.get();
+        verifyZeroInteractions(mockMetricsEmitter);
+
+        // Only the stats counted before the emission are emitted, and only once per interval
+        advanceClock(PredictionMetadataCache.STATS_EMISSION_INTERVAL);
+        cache.get();
+        cache.get();
+        verify(mockMetricsEmitter, times(1)).emitCounts(ImmutableMap.of("Cache", "PredictionMetadata"),
+                makeStatsCounts(1, 1, 0, 0));
+
+        // Only the stats counted since the previous emission are emitted
+        advanceClock(PredictionMetadataCache.STATS_EMISSION_INTERVAL);
+        cache.get();
+        verify(mockMetricsEmitter, times(1)).emitCounts(ImmutableMap.of("Cache", "PredictionMetadata"),
+                makeStatsCounts(2, 0, 0, 0));
+    }
+
+    @Test
+    public void testGet_withNoPredictionLoaded() {
+        when(mockDdbClient.transactGetItems(any(TransactGetItemsRequest.class))).thenReturn(
+                new TransactGetItemsResult().withResponses(new ItemResponse(), new ItemResponse()));
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> cache.get());
+        assertEquals(String.format("Cannot find [%s] in table %s, no prediction result has been loaded yet",
+                PredictionResultFileLoader.DYNAMODB_PREDICTION_METADATA_LATEST_PRED_UUID_ATTR_NAME, PREDICTION_METADATA_TABLE_NAME),
+                thrown.getMessage());
+    }
+
+    private void mockMetadata(final String forecastExportJobName, final long dataFrequencyInSeconds) {
+        when(mockDdbClient.transactGetItems(any(TransactGetItemsRequest.class))).thenReturn(
+                new TransactGetItemsResult().withResponses(
+                        new ItemResponse().addItemEntry(PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME,
+                                new AttributeValue(forecastExportJobName)),
+                        new ItemResponse().addItemEntry(PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME,
+                                new AttributeValue(String.valueOf(dataFrequencyInSeconds)))));
+    }
+
+    private Map<String, Long> makeStatsCounts(final long numberOfHits,
+                                              final long numberOfMisses,
+                                              final long numberOfRefreshAheads,
+                                              final long numberOfVersionChanges) {
+        return ImmutableMap.<String, Long>builder()
+                .put("Hits", numberOfHits)
+                .put("Misses", numberOfMisses)
+                .put("RefreshAheads", numberOfRefreshAheads)
+                .put("RefreshFailures", 0L)
+                .put("StaleServes", 0L)
+                .put("VersionChanges", numberOfVersionChanges)
+                .build();
+    }
+
+    private void advanceClock(final Duration duration) {
+        now.set(now.get().plus(duration));
+    }
+}
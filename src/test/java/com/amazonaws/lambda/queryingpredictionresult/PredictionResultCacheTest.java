@@ -0,0 +1,161 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.lambda.metrics.MetricsEmitter;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class PredictionResultCacheTest {
+
+    private static final String TEST_FORECAST_EXPORT_JOB = "fej_1";
+    private static final String TEST_NEW_FORECAST_EXPORT_JOB = "fej_2";
+    private static final Instant TEST_NOW = Instant.parse("2019-01-01T00:00:00Z");
+    private static final long TEST_EXPIRATION_TIME = TEST_NOW.plusSeconds(3600).getEpochSecond();
+
+    private final Clock fixedClock = Clock.fixed(TEST_NOW, ZoneOffset.UTC);
+    private final AtomicInteger numberOfLoads = new AtomicInteger();
+
+    @Test
+    public void testGet() {
+        PredictionResultCache cache = new PredictionResultCache(10, fixedClock);
+        List<QueryPredictionResultResponse.Prediction> predictions = makePredictions(3);
+
+        assertSame(predictions, cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(predictions)));
+        assertSame(predictions, cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(3))));
+
+        assertEquals(1, numberOfLoads.get());
+        assertEquals(new PredictionResultCache.CacheStats(1, 1, 0, 0, 1, 3), cache.getStats());
+        assertEquals(0.5, cache.getStats().getHitRatio());
+    }
+
+    @Test
+    public void testGet_withNewForecastExportJob() {
+        PredictionResultCache cache = new PredictionResultCache(10, fixedClock);
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(3)));
+
+        List<QueryPredictionResultResponse.Prediction> newPredictions = makePredictions(4);
+        assertSame(newPredictions, cache.get(TEST_NEW_FORECAST_EXPORT_JOB, "item0", loading(newPredictions)));
+
+        assertEquals(2, numberOfLoads.get());
+    }
+
+    @Test
+    public void testGet_withLeastRecentlyUsedEviction() {
+        PredictionResultCache cache = new PredictionResultCache(10, fixedClock);
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(4)));
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item1", loading(makePredictions(4)));
+        // item0 is used more recently than item1 now
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(4)));
+
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item2", loading(makePredictions(4)));
+        assertEquals(new PredictionResultCache.CacheStats(1, 3, 1, 4, 2, 8), cache.getStats());
+
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(4)));
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item1", loading(makePredictions(4)));
+        assertEquals(4, numberOfLoads.get());
+    }
+
+    @Test
+    public void testGet_withUnknownItems() {
+        PredictionResultCache cache = new PredictionResultCache(2, fixedClock);
+        IntStream.range(0, 3).forEach(i -> cache.get(TEST_FORECAST_EXPORT_JOB, "unknownItem" + i, loading(Collections.emptyList())));
+        // The item may be in a part file loaded later, so it's queried again
+        List<QueryPredictionResultResponse.Prediction> predictions = makePredictions(2);
+        assertSame(predictions, cache.get(TEST_FORECAST_EXPORT_JOB, "unknownItem0", loading(predictions)));
+
+        assertEquals(4, numberOfLoads.get());
+        assertEquals(new PredictionResultCache.CacheStats(0, 4, 0, 0, 1, 2), cache.getStats());
+    }
+
+    @Test
+    public void testGet_emitsStatsPeriodically() {
+        Clock mockClock = mock(Clock.class);
+        when(mockClock.instant()).thenReturn(TEST_NOW);
+        MetricsEmitter mockMetricsEmitter = mock(MetricsEmitter.class);
+        PredictionResultCache cache = new PredictionResultCache(6, mockClock, mockMetricsEmitter);
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(4)));
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(4)));
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(4)));
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item1", loading(makePredictions(4)));
+        verifyZeroInteractions(mockMetricsEmitter);
+
+        when(mockClock.instant()).thenReturn(TEST_NOW.plus(PredictionResultCache.STATS_EMISSION_INTERVAL));
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item1", loading(makePredictions(4)));
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item1", loading(makePredictions(4)));
+
+        // Only the stats counted before the emission are emitted, and only once per interval
+        verify(mockMetricsEmitter, times(1)).emitCounts(ImmutableMap.of("Cache", "PredictionResult"),
+                ImmutableMap.of("Hits", 2L, "Misses", 2L, "Evictions", 1L, "EvictedPredictions", 4L));
+        verify(mockMetricsEmitter, times(1)).emit(ImmutableMap.of("Cache", "PredictionResult"),
+                ImmutableMap.of("HitRatio", 50.0), MetricsEmitter.PERCENT_UNIT);
+    }
+
+    @Test
+    public void testGet_withExpiredEntry() {
+        Clock mockClock = mock(Clock.class);
+        when(mockClock.instant()).thenReturn(TEST_NOW);
+        PredictionResultCache cache = new PredictionResultCache(10, mockClock);
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(3)));
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(3)));
+        assertEquals(1, numberOfLoads.get());
+
+        // The items are expired from the table, so they're not served from the cache any more
+        when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(TEST_EXPIRATION_TIME));
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(3)));
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(3)));
+
+        assertEquals(3, numberOfLoads.get());
+        assertEquals(new PredictionResultCache.CacheStats(1, 3, 0, 0, 0, 0), cache.getStats());
+    }
+
+    @Test
+    public void testGet_withOversizedEntry() {
+        PredictionResultCache cache = new PredictionResultCache(10, fixedClock);
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(3)));
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item1", loading(makePredictions(11)));
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item1", loading(makePredictions(11)));
+
+        assertEquals(new PredictionResultCache.CacheStats(0, 3, 0, 0, 1, 3), cache.getStats());
+    }
+
+    @Test
+    public void testGet_withDisabledCache() {
+        PredictionResultCache cache = new PredictionResultCache(0, fixedClock);
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(1)));
+        cache.get(TEST_FORECAST_EXPORT_JOB, "item0", loading(makePredictions(1)));
+
+        assertEquals(2, numberOfLoads.get());
+    }
+
+    private Supplier<PredictionResultCache.ItemPredictions> loading(
+            final List<QueryPredictionResultResponse.Prediction> predictions) {
+        return () -> {
+            numberOfLoads.incrementAndGet();
+            return new PredictionResultCache.ItemPredictions(predictions, TEST_EXPIRATION_TIME);
+        };
+    }
+
+    private List<QueryPredictionResultResponse.Prediction> makePredictions(final int numberOfPredictions) {
+        return IntStream.range(0, numberOfPredictions)
+                .mapToObj(hour -> new QueryPredictionResultResponse.Prediction(
+                        String.format("2019-01-01T%02d:00:00Z", hour), hour - 1.5, hour, hour + 1.5))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,145 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PredictionResultCsvParserTest {
+
+    // Small enough for forcing the buffer to be refilled and grown in the middle of a record
+    private static final int TEST_BUFFER_SIZE = 8;
+
+    @Test
+    public void testNext_withForecastExportColumnOrder() throws IOException {
+        String csv = "date,item_id,mean,p10,p50,p90\n"
+                + "2019-01-01T00:00:00Z,wp100,21,-8,21,49\n"
+                + "2019-01-01T01:00:00Z,wp100,20.5,-8.25,20.5,4.9e1\n";
+
+        List<PredictionResultItem> items = parseAll(csv);
+
+        assertEquals(2, items.size());
+        assertEquals(makeItem("wp100", "2019-01-01T00:00:00Z", -8, 21, 49), items.get(0));
+        assertEquals(makeItem("wp100", "2019-01-01T01:00:00Z", -8.25, 20.5, 49), items.get(1));
+    }
+
+    @Test
+    public void testNext_withCrlfQuotesAndMissingTrailingLineBreak() throws IOException {
+        String csv = "\uFEFFitem_id,date,p10,p50,p90\r\n"
+                + "\r\n"
+                + " \"wp\"\"1,0\", 2019-01-01T00:00:00Z,0.000123,1e-5,12345678901234567890\r\n"
+                + "wp101,2019-01-01T00:00:00Z,1,2,3";
+
+        List<PredictionResultItem> items = parseAll(csv);
+
+        assertEquals(2, items.size());
+        assertEquals(makeItem("wp\"1,0", "2019-01-01T00:00:00Z", 0.000123, 1e-5, 12345678901234567890d), items.get(0));
+        assertEquals(makeItem("wp101", "2019-01-01T00:00:00Z", 1, 2, 3), items.get(1));
+    }
+
+    @Test
+    public void testNext_withEmptyFile() throws IOException {
+        assertTrue(parseAll("").isEmpty());
+        assertTrue(parseAll("date,item_id,mean,p10,p50,p90\n").isEmpty());
+    }
+
+    @Test
+    public void testNext_withMalformedRecords() {
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> parseAll("date,item_id,p10,p50,p90\n2019-01-01T00:00:00Z,wp100,1,2\n"));
+        assertEquals("Malformed prediction result record at line 2, it has 4 columns instead of 5: "
+                + "2019-01-01T00:00:00Z,wp100,1,2", thrown.getMessage());
+
+        thrown = assertThrows(IllegalArgumentException.class,
+                () -> parseAll("date,item_id,p10,p50,p90\n2019-01-01T00:00:00Z,wp100,1,abc,3\n"));
+        assertEquals("Malformed prediction result record at line 2, the field at column 3 is not a number: "
+                + "2019-01-01T00:00:00Z,wp100,1,abc,3", thrown.getMessage());
+
+        thrown = assertThrows(IllegalArgumentException.class,
+                () -> parseAll("date,item_id,p10,p50,p90\n2019-01-01T00:00:00Z,,1,2,3\n"));
+        assertEquals("Malformed prediction result record at line 2, the required field at column 1 is empty: "
+                + "2019-01-01T00:00:00Z,,1,2,3", thrown.getMessage());
+    }
+
+    @Test
+    public void testNext_withNonFiniteQuantiles() {
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> parseAll("date,item_id,p10,p50,p90\n2019-01-01T00:00:00Z,wp100,NaN,2,3\n"));
+        assertEquals("Malformed prediction result record at line 2, the field at column 2 is not a finite number: "
+                + "2019-01-01T00:00:00Z,wp100,NaN,2,3", thrown.getMessage());
+
+        thrown = assertThrows(IllegalArgumentException.class,
+                () -> parseAll("date,item_id,p10,p50,p90\n2019-01-01T00:00:00Z,wp100,1,-Infinity,3\n"));
+        assertEquals("Malformed prediction result record at line 2, the field at column 3 is not a finite number: "
+                + "2019-01-01T00:00:00Z,wp100,1,-Infinity,3", thrown.getMessage());
+
+        // Too large for a double
+        thrown = assertThrows(IllegalArgumentException.class,
+                () -> parseAll("date,item_id,p10,p50,p90\n2019-01-01T00:00:00Z,wp100,1,2,1e400\n"));
+        assertEquals("Malformed prediction result record at line 2, the field at column 4 is not a finite number: "
+                + "2019-01-01T00:00:00Z,wp100,1,2,1e400", thrown.getMessage());
+    }
+
+    @Test
+    public void testConstructor_withMissingRequiredColumn() {
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> parseAll("date,item_id,mean,p10,p50\n"));
+        assertEquals("Prediction result file header [date, item_id, mean, p10, p50] is missing the required column [p90]",
+                thrown.getMessage());
+    }
+
+    @Test
+    public void testParseDouble_sameAsDoubleParseDouble() {
+        Random random = new Random(0L);
+        for (int i = 0; i < 100000; i++) {
+            String value;
+            switch (i % 4) {
+                case 0:
+                    value = String.format("%.3f", random.nextDouble() * 10000);
+                    break;
+                case 1:
+                    value = String.valueOf(-random.nextInt(100000));
+                    break;
+                case 2:
+                    value = String.valueOf(random.nextDouble());
+                    break;
+                default:
+                    value = String.valueOf(Double.longBitsToDouble(random.nextLong()));
+            }
+
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Double.parseDouble(value), PredictionResultCsvParser.parseDouble(bytes, 0, bytes.length), value);
+        }
+    }
+
+    private List<PredictionResultItem> parseAll(final String csv) throws IOException {
+        List<PredictionResultItem> items = new ArrayList<>();
+        try (PredictionResultCsvParser parser = new PredictionResultCsvParser(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), TEST_BUFFER_SIZE)) {
+            PredictionResultItem item = new PredictionResultItem();
+            while (parser.next(item)) {
+                items.add(makeItem(item.getHashKey(), item.getSortKey(), item.getP10(), item.getP50(), item.getP90()));
+            }
+        }
+        return items;
+    }
+
+    private PredictionResultItem makeItem(final String itemId, final String date,
+                                          final double p10, final double p50, final double p90) {
+        return PredictionResultItem.builder()
+                .hashKey(itemId)
+                .sortKey(date)
+                .p10(p10)
+                .p50(p50)
+                .p90(p90)
+                .build();
+    }
+}
@@ -0,0 +1,128 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.amazonaws.lambda.queryingpredictionresult.PredictionResultItemBatchWriter.MAX_NUMBER_OF_BATCH_WRITE_ATTEMPTS;
+import static com.amazonaws.lambda.queryingpredictionresult.PredictionResultItemBatchWriter.MAX_NUMBER_OF_ITEMS_PER_BATCH_WRITE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PredictionResultItemBatchWriterTest {
+
+    private static final String TEST_TABLE_NAME = "testTable";
+    private static final int TEST_MAX_IN_FLIGHT_BATCH_WRITES = 4;
+    private static final long TEST_BASE_BACKOFF_IN_MILLIS = 1L;
+
+    private AmazonDynamoDB mockDdbClient;
+
+    @BeforeEach
+    void setup() {
+        mockDdbClient = mock(AmazonDynamoDB.class);
+    }
+
+    @Test
+    public void testWrite_withFullAndPartialBatches() {
+        when(mockDdbClient.batchWriteItem(any(BatchWriteItemRequest.class))).thenReturn(new BatchWriteItemResult());
+
+        int numberOfItems = MAX_NUMBER_OF_ITEMS_PER_BATCH_WRITE * 3 + 7;
+        try (PredictionResultItemBatchWriter writer = new PredictionResultItemBatchWriter(mockDdbClient,
+                TEST_TABLE_NAME, TEST_MAX_IN_FLIGHT_BATCH_WRITES, TEST_BASE_BACKOFF_IN_MILLIS)) {
+            for (int i = 0; i < numberOfItems; i++) {
+                writer.write(makeItem(i));
+            }
+            writer.flush();
+
+            PredictionResultItemBatchWriter.BatchWriteStats stats = writer.getStats();
+            assertEquals(numberOfItems, stats.getNumberOfItems());
+            assertEquals(4, stats.getNumberOfBatchWrites());
+            assertEquals(4, stats.getNumberOfBatchWriteCalls());
+            assertEquals(0, stats.getNumberOfThrottledBatchWriteCalls());
+        }
+
+        verify(mockDdbClient, times(4)).batchWriteItem(any(BatchWriteItemRequest.class));
+    }
+
+    @Test
+    public void testWrite_withUnprocessedItemsRetried() {
+        AtomicBoolean throttled = new AtomicBoolean(false);
+        when(mockDdbClient.batchWriteItem(any(BatchWriteItemRequest.class))).thenAnswer(
+                new Answer<BatchWriteItemResult>() {
+                    @Override
+                    public BatchWriteItemResult answer(InvocationOnMock invocation) {
+                        BatchWriteItemRequest request = invocation.getArgument(0);
+                        List<WriteRequest> writeRequests = request.getRequestItems().get(TEST_TABLE_NAME);
+                        // Throttle the second half of the very first batch
+                        if (throttled.compareAndSet(false, true)) {
+                            Map<String, List<WriteRequest>> unprocessedItems = Collections.singletonMap(TEST_TABLE_NAME,
+                                    writeRequests.subList(writeRequests.size() / 2, writeRequests.size()));
+                            return new BatchWriteItemResult().withUnprocessedItems(unprocessedItems);
+                        }
+                        return new BatchWriteItemResult().withUnprocessedItems(Collections.emptyMap());
+                    }
+                });
+
+        try (PredictionResultItemBatchWriter writer = new PredictionResultItemBatchWriter(mockDdbClient,
+                TEST_TABLE_NAME, 1, TEST_BASE_BACKOFF_IN_MILLIS)) {
+            for (int i = 0; i < MAX_NUMBER_OF_ITEMS_PER_BATCH_WRITE; i++) {
+                writer.write(makeItem(i));
+            }
+            writer.flush();
+
+            PredictionResultItemBatchWriter.BatchWriteStats stats = writer.getStats();
+            assertEquals(MAX_NUMBER_OF_ITEMS_PER_BATCH_WRITE, stats.getNumberOfItems());
+            assertEquals(1, stats.getNumberOfBatchWrites());
+            assertEquals(2, stats.getNumberOfBatchWriteCalls());
+            assertEquals(1, stats.getNumberOfThrottledBatchWriteCalls());
+        }
+
+        verify(mockDdbClient, times(2)).batchWriteItem(any(BatchWriteItemRequest.class));
+    }
+
+    @Test
+    public void testWrite_withUnprocessedItemsExhaustingRetries() {
+        when(mockDdbClient.batchWriteItem(any(BatchWriteItemRequest.class))).thenAnswer(
+                invocation -> {
+                    BatchWriteItemRequest request = invocation.getArgument(0);
+                    return new BatchWriteItemResult().withUnprocessedItems(request.getRequestItems());
+                });
+
+        try (PredictionResultItemBatchWriter writer = new PredictionResultItemBatchWriter(mockDdbClient,
+                TEST_TABLE_NAME, TEST_MAX_IN_FLIGHT_BATCH_WRITES, TEST_BASE_BACKOFF_IN_MILLIS)) {
+            writer.write(makeItem(0));
+
+            RuntimeException thrown = assertThrows(RuntimeException.class, writer::flush);
+            assertEquals(String.format("Failed to write 1 items to table %s after %d attempts",
+                    TEST_TABLE_NAME, MAX_NUMBER_OF_BATCH_WRITE_ATTEMPTS), thrown.getMessage());
+        }
+
+        verify(mockDdbClient, times(MAX_NUMBER_OF_BATCH_WRITE_ATTEMPTS)).batchWriteItem(any(BatchWriteItemRequest.class));
+    }
+
+    private PredictionResultItem makeItem(final int index) {
+        return PredictionResultItem.builder()
+                .hashKey("item" + index + "$fej_1")
+                .sortKey("2019-01-01T00:00:00Z")
+                .p10(1.0)
+                .p50(2.0)
+                .p90(3.0)
+                .expirationTime(1L)
+                .build();
+    }
+}
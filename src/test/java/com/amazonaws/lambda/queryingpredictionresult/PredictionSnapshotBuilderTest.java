@@ -0,0 +1,204 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PredictionSnapshotBuilderTest {
+
+    private static final Instant TEST_START_TIME = Instant.parse("2019-01-01T00:00:00Z");
+
+    @Test
+    public void testWriteTo() throws IOException {
+        PredictionSnapshotBuilder builder = new PredictionSnapshotBuilder();
+        // The items are neither sorted nor grouped, and the dates of an item are out of order
+        builder.add("wp2", makeItem(TEST_START_TIME.plusSeconds(3600), 1));
+        builder.add("wp10", makeItem(TEST_START_TIME, 10));
+        builder.add("wp2", makeItem(TEST_START_TIME, 0));
+        builder.add("wp10", makeItem(TEST_START_TIME.plusSeconds(3600), 11));
+        builder.add("wp2", makeItem(TEST_START_TIME.plusSeconds(7200), 2.5));
+
+        ByteBuffer snapshot = write(builder);
+
+        assertEquals(5, builder.getNumberOfRows());
+        assertMagic(snapshot, 0);
+        assertEquals(PredictionSnapshotFormat.VERSION, snapshot.getInt(PredictionSnapshotFormat.MAGIC.length));
+        SnapshotFooter footer = new SnapshotFooter(snapshot);
+        assertEquals(2, footer.numberOfItems);
+        assertEquals(5, footer.numberOfRows);
+
+        // "wp10" is before "wp2" in the order of bytes
+        assertEquals("wp10", readItemId(snapshot, footer, 0));
+        assertEquals(Arrays.asList(TEST_START_TIME, TEST_START_TIME.plusSeconds(3600)), readDates(snapshot, footer, 0));
+        assertArrayEquals(new float[]{10, 11}, readColumn(snapshot, footer, 0, footer.p50ColumnOffset));
+        assertEquals("wp2", readItemId(snapshot, footer, 1));
+        assertEquals(Arrays.asList(TEST_START_TIME, TEST_START_TIME.plusSeconds(3600), TEST_START_TIME.plusSeconds(7200)),
+                readDates(snapshot, footer, 1));
+        assertArrayEquals(new float[]{-1.5f, -0.5f, 1}, readColumn(snapshot, footer, 1, footer.p10ColumnOffset));
+        assertArrayEquals(new float[]{0, 1, 2.5f}, readColumn(snapshot, footer, 1, footer.p50ColumnOffset));
+        assertArrayEquals(new float[]{1.5f, 2.5f, 4}, readColumn(snapshot, footer, 1, footer.p90ColumnOffset));
+    }
+
+    @Test
+    public void testWriteTo_WithNoRecord() throws IOException {
+        ByteBuffer snapshot = write(new PredictionSnapshotBuilder());
+
+        assertEquals(PredictionSnapshotFormat.HEADER_SIZE + PredictionSnapshotFormat.FOOTER_SIZE, snapshot.limit());
+        SnapshotFooter footer = new SnapshotFooter(snapshot);
+        assertEquals(0, footer.numberOfItems);
+        assertEquals(0, footer.numberOfRows);
+    }
+
+    @Test
+    public void testWriteTo_WithManyRecords() throws IOException {
+        PredictionSnapshotBuilder builder = new PredictionSnapshotBuilder();
+        int numberOfHours = 2000;
+        for (int hour = 0; hour < numberOfHours; hour++) {
+            builder.add("wp100", makeItem(TEST_START_TIME.plusSeconds(hour * 3600L), hour));
+        }
+
+        ByteBuffer snapshot = write(builder);
+
+        SnapshotFooter footer = new SnapshotFooter(snapshot);
+        assertEquals(numberOfHours, footer.numberOfRows);
+        assertEquals(TEST_START_TIME.plusSeconds((numberOfHours - 1) * 3600L), readDates(snapshot, footer, 0).get(numberOfHours - 1));
+        // All the dates but the first one take 2 bytes each as deltas, instead of 20 bytes as text
+        assertEquals(5 + (numberOfHours - 1) * 2, footer.p10ColumnOffset - footer.dateColumnOffset);
+    }
+
+    @Test
+    public void testAdd_WithInvalidDate() {
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> new PredictionSnapshotBuilder().add("wp100", PredictionResultItem.builder().sortKey("2019-01-01").build()));
+
+        assertEquals("date [2019-01-01] of item_id [wp100] should be like 2019-01-01T00:00:00Z", thrown.getMessage());
+    }
+
+    @Test
+    public void testWriteZigzagVarLong() throws IOException {
+        assertArrayEquals(new byte[]{0}, writeZigzagVarLong(0));
+        assertArrayEquals(new byte[]{1}, writeZigzagVarLong(-1));
+        assertArrayEquals(new byte[]{2}, writeZigzagVarLong(1));
+        assertArrayEquals(new byte[]{(byte) 0xA0, 0x38}, writeZigzagVarLong(3600));
+    }
+
+    @Test
+    public void testCompareUnsigned() {
+        byte[] ascii = "z".getBytes(StandardCharsets.UTF_8);
+        byte[] nonAscii = "é".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(PredictionSnapshotBuilder.compareUnsigned(ascii, nonAscii) < 0);
+        assertTrue(PredictionSnapshotBuilder.compareUnsigned("wp1".getBytes(StandardCharsets.UTF_8), "wp10".getBytes(StandardCharsets.UTF_8)) < 0);
+        assertEquals(0, PredictionSnapshotBuilder.compareUnsigned(ascii, "z".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private PredictionResultItem makeItem(final Instant date, final double p50) {
+        return PredictionResultItem.builder()
+                .hashKey("ignored")
+                .sortKey(date.toString())
+                .p10(p50 - 1.5)
+                .p50(p50)
+                .p90(p50 + 1.5)
+                .build();
+    }
+
+    private ByteBuffer write(final PredictionSnapshotBuilder builder) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        builder.writeTo(outputStream);
+        return ByteBuffer.wrap(outputStream.toByteArray());
+    }
+
+    private byte[] writeZigzagVarLong(final long value) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        PredictionSnapshotBuilder.writeZigzagVarLong(new DataOutputStream(outputStream), value);
+        return outputStream.toByteArray();
+    }
+
+    private void assertMagic(final ByteBuffer snapshot, final int offset) {
+        byte[] magic = new byte[PredictionSnapshotFormat.MAGIC.length];
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = snapshot.get(offset + i);
+        }
+        assertArrayEquals(PredictionSnapshotFormat.MAGIC, magic);
+    }
+
+    private String readItemId(final ByteBuffer snapshot, final SnapshotFooter footer, final int itemRank) {
+        int itemIdOffset = (int) footer.dictionaryOffset + snapshot.getInt(indexEntryOffset(footer, itemRank));
+        byte[] itemId = new byte[snapshot.getShort(itemIdOffset) & 0xFFFF];
+        for (int i = 0; i < itemId.length; i++) {
+            itemId[i] = snapshot.get(itemIdOffset + Short.BYTES + i);
+        }
+        return new String(itemId, StandardCharsets.UTF_8);
+    }
+
+    private List<Instant> readDates(final ByteBuffer snapshot, final SnapshotFooter footer, final int itemRank) {
+        int numberOfRows = snapshot.getInt(indexEntryOffset(footer, itemRank) + 2 * Integer.BYTES);
+        int position = (int) footer.dateColumnOffset + snapshot.getInt(indexEntryOffset(footer, itemRank) + 3 * Integer.BYTES);
+        List<Instant> dates = new ArrayList<>();
+        long date = 0;
+        for (int row = 0; row < numberOfRows; row++) {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = snapshot.get(position++);
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            date += (zigzag >>> 1) ^ -(zigzag & 1);
+            dates.add(Instant.ofEpochSecond(date));
+        }
+        return dates;
+    }
+
+    private float[] readColumn(final ByteBuffer snapshot, final SnapshotFooter footer, final int itemRank, final long columnOffset) {
+        int firstRow = snapshot.getInt(indexEntryOffset(footer, itemRank) + Integer.BYTES);
+        float[] values = new float[snapshot.getInt(indexEntryOffset(footer, itemRank) + 2 * Integer.BYTES)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = snapshot.getFloat((int) columnOffset + (firstRow + i) * Float.BYTES);
+        }
+        return values;
+    }
+
+    private int indexEntryOffset(final SnapshotFooter footer, final int itemRank) {
+        return (int) footer.indexOffset + itemRank * PredictionSnapshotFormat.INDEX_ENTRY_SIZE;
+    }
+
+    private class SnapshotFooter {
+        final int numberOfItems;
+        final int numberOfRows;
+        final long dictionaryOffset;
+        final long dateColumnOffset;
+        final long p10ColumnOffset;
+        final long p50ColumnOffset;
+        final long p90ColumnOffset;
+        final long indexOffset;
+
+        SnapshotFooter(final ByteBuffer snapshot) {
+            ByteBuffer footer = snapshot.duplicate();
+            footer.position(snapshot.limit() - PredictionSnapshotFormat.FOOTER_SIZE);
+            numberOfItems = footer.getInt();
+            numberOfRows = footer.getInt();
+            dictionaryOffset = footer.getLong();
+            dateColumnOffset = footer.getLong();
+            p10ColumnOffset = footer.getLong();
+            p50ColumnOffset = footer.getLong();
+            p90ColumnOffset = footer.getLong();
+            indexOffset = footer.getLong();
+            assertMagic(snapshot, footer.position());
+        }
+    }
+}
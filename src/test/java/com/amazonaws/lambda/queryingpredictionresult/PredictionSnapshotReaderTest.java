@@ -0,0 +1,135 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PredictionSnapshotReaderTest {
+
+    private static final Instant TEST_START_TIME = Instant.parse("2019-01-01T00:00:00Z");
+    private static final int TEST_NUMBER_OF_ITEMS = 500;
+    private static final int TEST_NUMBER_OF_HOURS = 72;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testGetSeries() throws IOException {
+        Path snapshotFile = writeSnapshotFile();
+
+        try (PredictionSnapshotReader reader = PredictionSnapshotReader.open(snapshotFile)) {
+            assertEquals(TEST_NUMBER_OF_ITEMS, reader.getNumberOfItems());
+            assertEquals(TEST_NUMBER_OF_ITEMS * TEST_NUMBER_OF_HOURS, reader.getNumberOfRows());
+
+            for (int itemIndex : new int[]{0, 1, 99, 250, TEST_NUMBER_OF_ITEMS - 1}) {
+                PredictionSnapshotReader.PredictionSeries series = reader.getSeries("item" + itemIndex);
+                assertEquals("item" + itemIndex, series.getItemId());
+                assertEquals(TEST_NUMBER_OF_HOURS, series.getDates().length);
+                for (int hour = 0; hour < TEST_NUMBER_OF_HOURS; hour++) {
+                    assertEquals(TEST_START_TIME.getEpochSecond() + hour * 3600L, series.getDates()[hour]);
+                    assertEquals(itemIndex + hour - 1.5f, series.getP10s()[hour]);
+                    assertEquals(itemIndex + hour, series.getP50s()[hour]);
+                    assertEquals(itemIndex + hour + 1.5f, series.getP90s()[hour]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIndexOf() throws IOException {
+        try (PredictionSnapshotReader reader = PredictionSnapshotReader.open(writeSnapshotFile())) {
+            for (int itemIndex = 0; itemIndex < TEST_NUMBER_OF_ITEMS; itemIndex++) {
+                int index = reader.indexOf("item" + itemIndex);
+                assertEquals("item" + itemIndex, reader.getItemId(index));
+            }
+            // Sorted by bytes, "item10" is between "item1" and "item100"
+            assertEquals(reader.indexOf("item1") + 1, reader.indexOf("item10"));
+            assertEquals(reader.indexOf("item10") + 1, reader.indexOf("item100"));
+
+            assertTrue(reader.indexOf("item") < 0);
+            assertTrue(reader.indexOf("item5000") < 0);
+            assertTrue(reader.indexOf("unknownItem") < 0);
+            assertNull(reader.getSeries("unknownItem"));
+        }
+    }
+
+    @Test
+    public void testReadWithReusedArrays() throws IOException {
+        try (PredictionSnapshotReader reader = PredictionSnapshotReader.open(writeSnapshotFile())) {
+            long[] dates = new long[TEST_NUMBER_OF_HOURS + 1];
+            float[] p50s = new float[TEST_NUMBER_OF_HOURS + 1];
+            for (int itemIndex = 0; itemIndex < TEST_NUMBER_OF_ITEMS; itemIndex++) {
+                int index = reader.indexOf("item" + itemIndex);
+                reader.readDates(index, dates);
+                reader.readP50s(index, p50s);
+                assertEquals(TEST_START_TIME.getEpochSecond() + (TEST_NUMBER_OF_HOURS - 1) * 3600L, dates[TEST_NUMBER_OF_HOURS - 1]);
+                assertEquals(itemIndex + TEST_NUMBER_OF_HOURS - 1, p50s[TEST_NUMBER_OF_HOURS - 1]);
+            }
+
+            IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                    () -> reader.readP90s(reader.indexOf("item0"), new float[1]));
+            assertEquals(String.format("Array of length 1 cannot hold the %d rows of item item0", TEST_NUMBER_OF_HOURS),
+                    thrown.getMessage());
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.getNumberOfRows(TEST_NUMBER_OF_ITEMS));
+        }
+    }
+
+    @Test
+    public void testWrap() throws IOException {
+        PredictionSnapshotBuilder builder = new PredictionSnapshotBuilder();
+        builder.add("wp100", PredictionResultItem.builder().sortKey(TEST_START_TIME.toString()).p10(1).p50(2).p90(3).build());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        builder.writeTo(outputStream);
+
+        PredictionSnapshotReader reader = PredictionSnapshotReader.wrap(ByteBuffer.wrap(outputStream.toByteArray()));
+
+        PredictionSnapshotReader.PredictionSeries series = reader.getSeries("wp100");
+        assertArrayEquals(new long[]{TEST_START_TIME.getEpochSecond()}, series.getDates());
+        assertArrayEquals(new float[]{1}, series.getP10s());
+        assertArrayEquals(new float[]{2}, series.getP50s());
+        assertArrayEquals(new float[]{3}, series.getP90s());
+    }
+
+    @Test
+    public void testOpen_WithInvalidFile() throws IOException {
+        Path invalidFile = tempDir.resolve("invalid.snapshot");
+        Files.write(invalidFile, "date,item_id,mean,p10,p50,p90\n".getBytes());
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> PredictionSnapshotReader.open(invalidFile));
+        assertEquals(String.format("Prediction snapshot %s is not a prediction snapshot", invalidFile), thrown.getMessage());
+    }
+
+    private Path writeSnapshotFile() throws IOException {
+        PredictionSnapshotBuilder builder = new PredictionSnapshotBuilder();
+        for (int hour = 0; hour < TEST_NUMBER_OF_HOURS; hour++) {
+            for (int itemIndex = 0; itemIndex < TEST_NUMBER_OF_ITEMS; itemIndex++) {
+                builder.add("item" + itemIndex, PredictionResultItem.builder()
+                        .sortKey(TEST_START_TIME.plusSeconds(hour * 3600L).toString())
+                        .p10(itemIndex + hour - 1.5)
+                        .p50(itemIndex + hour)
+                        .p90(itemIndex + hour + 1.5)
+                        .build());
+            }
+        }
+
+        Path snapshotFile = tempDir.resolve("prediction.snapshot");
+        try (OutputStream outputStream = Files.newOutputStream(snapshotFile)) {
+            builder.writeTo(outputStream);
+        }
+        return snapshotFile;
+    }
+}
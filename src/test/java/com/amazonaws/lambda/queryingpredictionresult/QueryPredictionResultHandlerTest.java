@@ -0,0 +1,271 @@
+package com.amazonaws.lambda.queryingpredictionresult;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.local.embedded.DynamoDBEmbedded;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.lambda.runtime.Context;
+import org.junit.Rule;
+import org.junit.contrib.java.lang.system.EnvironmentVariables;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.amazonaws.lambda.queryingpredictionresult.PredictionResultFileLoader.DYNAMODB_PREDICTION_METADATA_LATEST_PRED_DATA_FREQ_IN_SEC_ATTR_NAME;
+import static com.amazonaws.lambda.queryingpredictionresult.PredictionResultFileLoader.DYNAMODB_PREDICTION_METADATA_LATEST_PRED_UUID_ATTR_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class QueryPredictionResultHandlerTest {
+
+    private static final String AWS_REGION = "us-east-1";
+    private static final String PREDICTION_TABLE_NAME = "LocalTestTable";
+    private static final String PREDICTION_TABLE_HASH_KEY = PredictionResultItem.Attribute.ITEM_ID;
+    private static final String PREDICTION_TABLE_RANGE_KEY = PredictionResultItem.Attribute.DATE;
+    private static final String PREDICTION_METADATA_TABLE_NAME = "PredictionMetadata";
+    private static final String PREDICTION_METADATA_TABLE_HASH_KEY = "metadataKey";
+    private static final String PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME = "metadataValue";
+
+    private static final String TEST_ITEM_ID = "wp100";
+    private static final String TEST_OUTDATED_FORECAST_EXPORT_JOB = "fej_1";
+    private static final String TEST_LATEST_FORECAST_EXPORT_JOB = "fej_2";
+    private static final Instant TEST_START_TIME = Instant.parse("2019-01-01T00:00:00Z");
+    private static final int TEST_NUMBER_OF_HOURS = 24;
+    // The cached predictions are served until their items expire from the table
+    private static final long TEST_EXPIRATION_TIME = Instant.now().plus(1, ChronoUnit.DAYS).getEpochSecond();
+    private static final long TEST_DATA_FREQUENCY_IN_SECONDS = 3600L;
+    // Small enough for querying the predictions in several pages
+    private static final int TEST_QUERY_PAGE_SIZE = 3;
+
+    @Rule
+    public final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+
+    @Mock
+    private Context context;
+
+    private AmazonDynamoDB localDdbClient;
+    private QueryPredictionResultHandler handler;
+
+    @BeforeEach
+    void setup() {
+
+        // Setup Env variables
+        environmentVariables.set("AWS_REGION", AWS_REGION);
+        environmentVariables.set("PREDICTION_TABLE_NAME", PREDICTION_TABLE_NAME);
+        environmentVariables.set("PREDICTION_TABLE_HASH_KEY", PREDICTION_TABLE_HASH_KEY);
+        environmentVariables.set("PREDICTION_TABLE_RANGE_KEY", PREDICTION_TABLE_RANGE_KEY);
+        environmentVariables.set("PREDICTION_METADATA_TABLE_NAME", PREDICTION_METADATA_TABLE_NAME);
+        environmentVariables.set("PREDICTION_METADATA_TABLE_HASH_KEY", PREDICTION_METADATA_TABLE_HASH_KEY);
+        environmentVariables.set("PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME", PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME);
+
+        localDdbClient = initLocalDynamoDB();
+        handler = new QueryPredictionResultHandler(new PredictionResultQueryService(localDdbClient,
+                new PredictionMetadataCache(localDdbClient), TEST_QUERY_PAGE_SIZE));
+    }
+
+    @AfterEach
+    void tearDown() {
+        localDdbClient.deleteTable(PREDICTION_METADATA_TABLE_NAME);
+        localDdbClient.deleteTable(PREDICTION_TABLE_NAME);
+        localDdbClient = null;
+        handler = null;
+    }
+
+    @Test
+    public void testQueryPredictionResult() {
+        putPredictions(TEST_OUTDATED_FORECAST_EXPORT_JOB, 100);
+        putPredictions(TEST_LATEST_FORECAST_EXPORT_JOB, 0);
+        putLatestForecastExportJobName(TEST_LATEST_FORECAST_EXPORT_JOB);
+
+        QueryPredictionResultResponse response = handler.handleRequest(QueryPredictionResultRequest.builder()
+                .itemId(TEST_ITEM_ID)
+                .startDate(TEST_START_TIME.plus(5, ChronoUnit.HOURS).toString())
+                .endDate(TEST_START_TIME.plus(15, ChronoUnit.HOURS).toString())
+                .build(), context);
+
+        assertEquals(TEST_ITEM_ID, response.getItemId());
+        assertEquals(TEST_LATEST_FORECAST_EXPORT_JOB, response.getForecastExportJobName());
+        assertEquals(TEST_DATA_FREQUENCY_IN_SECONDS, response.getDataFrequencyInSeconds());
+        assertEquals(11, response.getPredictions().size());
+        for (int i = 0; i < response.getPredictions().size(); i++) {
+            int hour = i + 5;
+            QueryPredictionResultResponse.Prediction prediction = response.getPredictions().get(i);
+            assertEquals(TEST_START_TIME.plus(hour, ChronoUnit.HOURS).toString(), prediction.getDate());
+            assertEquals(hour - 1.5, prediction.getP10());
+            assertEquals(hour, prediction.getP50());
+            assertEquals(hour + 1.5, prediction.getP90());
+        }
+    }
+
+    @Test
+    public void testQueryPredictionResult_WithPredictionResultCache() {
+        putPredictions(TEST_OUTDATED_FORECAST_EXPORT_JOB, 100);
+        putLatestForecastExportJobName(TEST_OUTDATED_FORECAST_EXPORT_JOB);
+        AmazonDynamoDB ddbClient = mock(AmazonDynamoDB.class, delegatesTo(localDdbClient));
+        PredictionMetadataCache predictionMetadataCache = new PredictionMetadataCache(ddbClient);
+        handler = new QueryPredictionResultHandler(new PredictionResultQueryService(ddbClient, predictionMetadataCache,
+                new PredictionResultCache(1000L), TEST_QUERY_PAGE_SIZE, 1, 1L));
+
+        // The whole forecast horizon is cached by the first query, and the later ones are served from the cache
+        QueryPredictionResultRequest request = QueryPredictionResultRequest.builder()
+                .itemId(TEST_ITEM_ID)
+                .startDate(TEST_START_TIME.plus(5, ChronoUnit.HOURS).toString())
+                .endDate(TEST_START_TIME.plus(15, ChronoUnit.HOURS).toString())
+                .build();
+        QueryPredictionResultResponse response = handler.handleRequest(request, context);
+        assertEquals(11, response.getPredictions().size());
+        assertEquals(105, response.getPredictions().get(0).getP50());
+        response = handler.handleRequest(QueryPredictionResultRequest.builder()
+                .itemId(TEST_ITEM_ID)
+                .startDate(TEST_START_TIME.toString())
+                .endDate(TEST_START_TIME.plus(2, ChronoUnit.HOURS).toString())
+                .build(), context);
+        assertEquals(3, response.getPredictions().size());
+        assertEquals(100, response.getPredictions().get(0).getP50());
+        // 24 predictions in pages of 3, plus an empty last page
+        verify(ddbClient, times(9)).query(any(QueryRequest.class));
+
+        // A new prediction makes a different cache key
+        putPredictions(TEST_LATEST_FORECAST_EXPORT_JOB, 0);
+        putLatestForecastExportJobName(TEST_LATEST_FORECAST_EXPORT_JOB);
+        predictionMetadataCache.invalidate();
+        response = handler.handleRequest(request, context);
+        assertEquals(TEST_LATEST_FORECAST_EXPORT_JOB, response.getForecastExportJobName());
+        assertEquals(5, response.getPredictions().get(0).getP50());
+        verify(ddbClient, times(18)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    public void testQueryPredictionResult_WithUnknownItem() {
+        putPredictions(TEST_LATEST_FORECAST_EXPORT_JOB, 0);
+        putLatestForecastExportJobName(TEST_LATEST_FORECAST_EXPORT_JOB);
+
+        QueryPredictionResultResponse response = handler.handleRequest(QueryPredictionResultRequest.builder()
+                .itemId("unknownItem")
+                .startDate(TEST_START_TIME.toString())
+                .endDate(TEST_START_TIME.plus(TEST_NUMBER_OF_HOURS, ChronoUnit.HOURS).toString())
+                .build(), context);
+
+        assertTrue(response.getPredictions().isEmpty());
+    }
+
+    @Test
+    public void testQueryPredictionResult_WithNoPredictionLoaded() {
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> handler.handleRequest(QueryPredictionResultRequest.builder()
+                        .itemId(TEST_ITEM_ID)
+                        .startDate(TEST_START_TIME.toString())
+                        .endDate(TEST_START_TIME.toString())
+                        .build(), context));
+
+        assertEquals(String.format("Cannot find [%s] in table %s, no prediction result has been loaded yet",
+                DYNAMODB_PREDICTION_METADATA_LATEST_PRED_UUID_ATTR_NAME, PREDICTION_METADATA_TABLE_NAME), thrown.getMessage());
+    }
+
+    @Test
+    public void testQueryPredictionResult_WithInvalidRequest() {
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> handler.handleRequest(QueryPredictionResultRequest.builder()
+                        .itemId(TEST_ITEM_ID)
+                        .startDate("2019-01-02T00:00:00Z")
+                        .endDate("2019-01-01T00:00:00Z")
+                        .build(), context));
+        assertEquals("startDate [2019-01-02T00:00:00Z] is after endDate [2019-01-01T00:00:00Z]", thrown.getMessage());
+
+        thrown = assertThrows(IllegalArgumentException.class,
+                () -> handler.handleRequest(QueryPredictionResultRequest.builder()
+                        .itemId(TEST_ITEM_ID)
+                        .startDate("2019-01-01")
+                        .endDate("2019-01-02T00:00:00Z")
+                        .build(), context));
+        assertEquals("startDate [2019-01-01] should be like 2019-01-01T00:00:00Z", thrown.getMessage());
+
+        thrown = assertThrows(IllegalArgumentException.class,
+                () -> handler.handleRequest(new QueryPredictionResultRequest(), context));
+        assertEquals("itemId is required", thrown.getMessage());
+    }
+
+    /**
+     * Put the hourly predictions of the test item, the p50 of each hour is (hour + p50Offset).
+     */
+    private void putPredictions(final String forecastExportJobName, final double p50Offset) {
+        for (int hour = 0; hour < TEST_NUMBER_OF_HOURS; hour++) {
+            PredictionResultItem item = PredictionResultItem.builder()
+                    .hashKey(TEST_ITEM_ID + PredictionResultFileLoader.PREDICTION_TABLE_CSV_VALUE_SPLITTER + forecastExportJobName)
+                    .sortKey(TEST_START_TIME.plus(hour, ChronoUnit.HOURS).toString())
+                    .p10(hour + p50Offset - 1.5)
+                    .p50(hour + p50Offset)
+                    .p90(hour + p50Offset + 1.5)
+                    .expirationTime(TEST_EXPIRATION_TIME)
+                    .build();
+            localDdbClient.putItem(new PutItemRequest().withTableName(PREDICTION_TABLE_NAME).withItem(item.toAttributeValueMap()));
+        }
+    }
+
+    private void putLatestForecastExportJobName(final String forecastExportJobName) {
+        putMetadata(DYNAMODB_PREDICTION_METADATA_LATEST_PRED_UUID_ATTR_NAME, forecastExportJobName);
+        putMetadata(DYNAMODB_PREDICTION_METADATA_LATEST_PRED_DATA_FREQ_IN_SEC_ATTR_NAME, String.valueOf(TEST_DATA_FREQUENCY_IN_SECONDS));
+    }
+
+    private void putMetadata(final String metadataKey, final String metadataValue) {
+        Map<String, AttributeValue> metadataItem = new HashMap<>();
+        metadataItem.put(PREDICTION_METADATA_TABLE_HASH_KEY, new AttributeValue(metadataKey));
+        metadataItem.put(PREDICTION_METADATA_TABLE_ATTRIBUTE_NAME, new AttributeValue(metadataValue));
+        localDdbClient.putItem(new PutItemRequest().withTableName(PREDICTION_METADATA_TABLE_NAME).withItem(metadataItem));
+    }
+
+    private AmazonDynamoDB initLocalDynamoDB() {
+        AmazonDynamoDB localDdbClient = DynamoDBEmbedded.create().amazonDynamoDB();
+        ProvisionedThroughput provisionedThroughput = new ProvisionedThroughput()
+                .withReadCapacityUnits(200L)
+                .withWriteCapacityUnits(200L);
+
+        // create local prediction result table
+        List<KeySchemaElement> predictionResultTableKeys = new ArrayList<>();
+        predictionResultTableKeys.add(new KeySchemaElement().withAttributeName(PREDICTION_TABLE_HASH_KEY).withKeyType(KeyType.HASH));
+        predictionResultTableKeys.add(new KeySchemaElement().withAttributeName(PREDICTION_TABLE_RANGE_KEY).withKeyType(KeyType.RANGE));
+        List<AttributeDefinition> predictionResultTableAttrs = new ArrayList<>();
+        predictionResultTableAttrs.add(new AttributeDefinition().withAttributeName(PREDICTION_TABLE_HASH_KEY).withAttributeType(ScalarAttributeType.S));
+        predictionResultTableAttrs.add(new AttributeDefinition().withAttributeName(PREDICTION_TABLE_RANGE_KEY).withAttributeType(ScalarAttributeType.S));
+        localDdbClient.createTable(new CreateTableRequest()
+                .withTableName(PREDICTION_TABLE_NAME)
+                .withKeySchema(predictionResultTableKeys)
+                .withAttributeDefinitions(predictionResultTableAttrs)
+                .withProvisionedThroughput(provisionedThroughput));
+
+        // create local prediction metadata table
+        localDdbClient.createTable(new CreateTableRequest()
+                .withTableName(PREDICTION_METADATA_TABLE_NAME)
+                .withKeySchema(Collections.singletonList(new KeySchemaElement()
+                        .withAttributeName(PREDICTION_METADATA_TABLE_HASH_KEY)
+                        .withKeyType(KeyType.HASH)))
+                .withAttributeDefinitions(Collections.singletonList(new AttributeDefinition()
+                        .withAttributeName(PREDICTION_METADATA_TABLE_HASH_KEY)
+                        .withAttributeType(ScalarAttributeType.S)))
+                .withProvisionedThroughput(provisionedThroughput));
+
+        return localDdbClient;
+    }
+}